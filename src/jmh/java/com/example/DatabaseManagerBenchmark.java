@@ -0,0 +1,93 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo thông lượng ghi của {@link DatabaseManager} trên một file SQLite tạm.
+ * <p>
+ * Các thao tác này làm thay đổi dữ liệu (một endpoint chỉ có thể "mới" hoặc "được quét" một lần), nên mỗi
+ * iteration dùng một CSDL mới với {@value #SEEDED_ENDPOINTS} endpoint có sẵn, và đo thời gian của một lô
+ * {@value #BATCH} lời gọi (SingleShotTime): kết quả là thời gian cho cả lô.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = DatabaseManagerBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = DatabaseManagerBenchmark.BATCH)
+@Fork(1)
+public class DatabaseManagerBenchmark {
+    static final int BATCH = 1_000;
+    static final int SEEDED_ENDPOINTS = 1_000;
+    private static final Set<String> PARAMS = Set.of("id", "page", "sort", "q");
+
+    private Path directory;
+    private DatabaseManager databaseManager;
+    private int counter;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("recheck-bench");
+        databaseManager = new DatabaseManager(MontoyaStubs.silentApi(), new Metrics());
+        databaseManager.initialize(directory.resolve("bench.db").toString());
+        for (int i = 0; i < SEEDED_ENDPOINTS; i++) {
+            databaseManager.insertOrUpdateApi("GET", "api.example.com", seededPath(i), PARAMS);
+        }
+        counter = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        databaseManager.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static String seededPath(int i) {
+        return "/api/v1/resources/" + i + "/detail";
+    }
+
+    /**
+     * Chèn một endpoint chưa có trong CSDL.
+     */
+    @Benchmark
+    public boolean insertNewEndpoint() {
+        return databaseManager.insertOrUpdateApi("POST", "api.example.com", "/api/v1/new/" + counter++, PARAMS);
+    }
+
+    /**
+     * Gặp lại một endpoint đã biết với cùng tham số (chỉ đọc, không ghi).
+     */
+    @Benchmark
+    public boolean insertExistingEndpoint() {
+        return databaseManager.insertOrUpdateApi("GET", "api.example.com", seededPath(counter++ % SEEDED_ENDPOINTS), PARAMS);
+    }
+
+    /**
+     * Scanner quét toàn bộ tham số của một endpoint chưa được quét.
+     */
+    @Benchmark
+    public boolean scanUpdate() {
+        return databaseManager.processScannedParameters("GET", "api.example.com", seededPath(counter++ % SEEDED_ENDPOINTS), PARAMS);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example;
+
+import burp.api.montoya.http.message.ContentType;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc các request đã ghi lại trong file HAR thành {@link LoadHarness.Exchange} bằng parser streaming,
+ * nên có thể dùng các file HAR lớn mà không phải nạp toàn bộ vào bộ nhớ.
+ * <p>
+ * Tên tham số body được lấy từ {@code postData.params} nếu có, nếu không thì được suy ra từ {@code postData.text}
+ * theo mimeType bằng {@link ApiImporter#bodyParameterNames(String, String)}.
+ */
+final class HarTraffic {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private HarTraffic() {
+    }
+
+    /**
+     * @param file  File HAR.
+     * @param limit Số entry tối đa được đọc.
+     */
+    static List<LoadHarness.Exchange> read(File file, int limit) throws IOException {
+        List<LoadHarness.Exchange> exchanges = new ArrayList<>();
+        try (JsonParser parser = JSON.createParser(file)) {
+            if (!seekEntries(parser)) {
+                throw new IOException("No log.entries array in HAR file: " + file);
+            }
+            while (exchanges.size() < limit && parser.nextToken() == JsonToken.START_OBJECT) {
+                LoadHarness.Exchange exchange = readEntry(parser);
+                if (exchange != null) {
+                    exchanges.add(exchange);
+                }
+            }
+        }
+        return exchanges;
+    }
+
+    private static boolean seekEntries(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME && "entries".equals(parser.getCurrentName())) {
+                return parser.nextToken() == JsonToken.START_ARRAY;
+            }
+        }
+        return false;
+    }
+
+    private static LoadHarness.Exchange readEntry(JsonParser parser) throws IOException {
+        String method = null;
+        String url = null;
+        int status = 200;
+        List<String> queryParams = new ArrayList<>();
+        String mimeType = "";
+        String text = "";
+        List<String> postParams = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("request".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String requestField = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (requestField) {
+                        case "method" -> method = parser.getValueAsString();
+                        case "url" -> url = parser.getValueAsString();
+                        case "queryString" -> readNames(parser, queryParams);
+                        case "postData" -> {
+                            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                                parser.skipChildren();
+                                break;
+                            }
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String postField = parser.getCurrentName();
+                                parser.nextToken();
+                                switch (postField) {
+                                    case "mimeType" -> mimeType = valueOrEmpty(parser.getValueAsString());
+                                    case "text" -> text = valueOrEmpty(parser.getValueAsString());
+                                    case "params" -> readNames(parser, postParams);
+                                    default -> parser.skipChildren();
+                                }
+                            }
+                        }
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else if ("response".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String responseField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("status".equals(responseField)) {
+                        status = parser.getValueAsInt(200);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (method == null || url == null) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (uri.getHost() == null) {
+            return null;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+        ContentType contentType = contentType(mimeType);
+        HttpParameterType bodyType = contentType == ContentType.JSON ? HttpParameterType.JSON
+                : contentType == ContentType.XML ? HttpParameterType.XML
+                : HttpParameterType.BODY;
+        List<String> bodyParams = !postParams.isEmpty() ? postParams : new ArrayList<>(ApiImporter.bodyParameterNames(mimeType, text));
+        return new LoadHarness.Exchange(
+                MontoyaStubs.request(method, uri.getHost(), path, queryParams, contentType, text, bodyType, bodyParams),
+                status);
+    }
+
+    /**
+     * Đọc tên từ một mảng các đối tượng {"name": ...} (queryString, postData.params).
+     */
+    private static void readNames(JsonParser parser, List<String> names) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("name".equals(field)) {
+                    names.add(parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static ContentType contentType(String mimeType) {
+        String lower = mimeType.toLowerCase();
+        if (lower.isEmpty()) return ContentType.NONE;
+        if (lower.contains("json")) return ContentType.JSON;
+        if (lower.contains("x-www-form-urlencoded")) return ContentType.URL_ENCODED;
+        if (lower.contains("multipart")) return ContentType.MULTIPART;
+        if (lower.contains("xml")) return ContentType.XML;
+        return ContentType.UNKNOWN;
+    }
+
+    private static String valueOrEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
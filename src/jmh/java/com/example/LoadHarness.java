@@ -0,0 +1,497 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.Annotations;
+import burp.api.montoya.core.ToolSource;
+import burp.api.montoya.core.ToolType;
+import burp.api.montoya.extension.Extension;
+import burp.api.montoya.http.Http;
+import burp.api.montoya.http.handler.HttpHandler;
+import burp.api.montoya.http.handler.HttpResponseReceived;
+import burp.api.montoya.http.message.ContentType;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.logging.Logging;
+import burp.api.montoya.persistence.PersistedObject;
+import burp.api.montoya.persistence.Persistence;
+import burp.api.montoya.scope.Scope;
+import burp.api.montoya.ui.UserInterface;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Chạy {@link RecheckScanApiExtension} không cần Burp: dựng một MontoyaApi giả lập, nạp extension
+ * và phát traffic (tổng hợp hoặc từ file HAR) vào {@link HttpHandler} đã đăng ký với tốc độ cấu hình được.
+ * <p>
+ * Kết quả gồm thông lượng duy trì được (sự kiện/giây), độ trễ p50/p99/max trên luồng gọi handler,
+ * thời gian để pipeline xử lý hết hàng đợi, mức tăng heap và báo cáo {@link Metrics} của extension.
+ * <p>
+ * Chạy với: {@code mvn -Pbenchmarks test-compile exec:exec@load-harness -Dharness.args="--rate 5000 --duration 60"}.
+ * Dùng {@code --help} để xem các tùy chọn.
+ */
+public final class LoadHarness {
+    private static final String USAGE = """
+            Options:
+              --har FILE          Replay requests recorded in a HAR file instead of synthetic traffic
+              --har-limit N       Maximum HAR entries to load (default 100000)
+              --rate N            Target events per second across all threads, 0 = unthrottled (default 2000)
+              --duration S        Seconds to generate traffic (default 30)
+              --threads N         Threads calling the handler, like Burp's HTTP threads (default 4)
+              --mix SPEC          Tool mix in percent, e.g. proxy=70,scanner=25,repeater=5 (default)
+              --hosts N           Synthetic traffic: number of hosts (default 5)
+              --endpoints N       Synthetic traffic: endpoints per host (default 200)
+              --db PATH           SQLite file to use (default: a temporary file, deleted afterwards)
+              --settings FILE     Properties file with extension settings (same keys as the Settings tab)
+              --seed N            Random seed for synthetic traffic (default 42)
+            """;
+
+    /**
+     * Một request cùng status code của response tương ứng.
+     */
+    static final class Exchange {
+        final HttpRequest request;
+        final int statusCode;
+
+        Exchange(HttpRequest request, int statusCode) {
+            this.request = request;
+            this.statusCode = statusCode;
+        }
+    }
+
+    private static final class Options {
+        File har;
+        int harLimit = 100_000;
+        int rate = 2_000;
+        int durationSeconds = 30;
+        int threads = 4;
+        int proxyPercent = 70;
+        int scannerPercent = 25;
+        int repeaterPercent = 5;
+        int hosts = 5;
+        int endpointsPerHost = 200;
+        String db;
+        File settings;
+        long seed = 42;
+    }
+
+    private final Options options;
+    private final Map<String, String> extensionData = new HashMap<>();
+    private final AtomicReference<HttpHandler> handler = new AtomicReference<>();
+    private final LatencyHistogram handlerLatency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder annotated = new LongAdder();
+    private final AtomicLong peakHeap = new AtomicLong();
+    private volatile boolean running = true;
+
+    private LoadHarness(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Options options = parse(args);
+        if (options == null) {
+            System.out.print(USAGE);
+            return;
+        }
+        new LoadHarness(options).run();
+        // Swing Timer và EDT của extension không tự dừng.
+        System.exit(0);
+    }
+
+    private static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (name.equals("--help") || name.equals("-h")) {
+                return null;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--har" -> options.har = new File(value);
+                case "--har-limit" -> options.harLimit = Integer.parseInt(value);
+                case "--rate" -> options.rate = Integer.parseInt(value);
+                case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                case "--threads" -> options.threads = Math.max(1, Integer.parseInt(value));
+                case "--hosts" -> options.hosts = Math.max(1, Integer.parseInt(value));
+                case "--endpoints" -> options.endpointsPerHost = Math.max(1, Integer.parseInt(value));
+                case "--db" -> options.db = value;
+                case "--settings" -> options.settings = new File(value);
+                case "--seed" -> options.seed = Long.parseLong(value);
+                case "--mix" -> {
+                    options.proxyPercent = options.scannerPercent = options.repeaterPercent = 0;
+                    for (String part : value.split(",")) {
+                        String[] kv = part.split("=", 2);
+                        int percent = Integer.parseInt(kv[1].trim());
+                        switch (kv[0].trim().toLowerCase()) {
+                            case "proxy" -> options.proxyPercent = percent;
+                            case "scanner" -> options.scannerPercent = percent;
+                            case "repeater" -> options.repeaterPercent = percent;
+                            default -> throw new IllegalArgumentException("Unknown tool in --mix: " + kv[0]);
+                        }
+                    }
+                    if (options.proxyPercent + options.scannerPercent + options.repeaterPercent <= 0) {
+                        throw new IllegalArgumentException("--mix must contain at least one positive share");
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        return options;
+    }
+
+    private void run() throws Exception {
+        Path tempDir = null;
+        String dbPath = options.db;
+        if (dbPath == null) {
+            tempDir = Files.createTempDirectory("recheck-harness");
+            dbPath = tempDir.resolve("harness.db").toString();
+        }
+        extensionData.put("settings", settings(dbPath));
+
+        List<Exchange> traffic = options.har != null
+                ? HarTraffic.read(options.har, options.harLimit)
+                : synthetic();
+        if (traffic.isEmpty()) {
+            System.out.println("No traffic to replay.");
+            return;
+        }
+        System.out.printf("Loaded %d distinct requests (%s)%n", traffic.size(), options.har != null ? options.har : "synthetic");
+
+        installResponseFactory();
+        RecheckScanApiExtension extension = new RecheckScanApiExtension();
+        extension.initialize(api());
+        if (handler.get() == null) {
+            throw new IllegalStateException("Extension did not register an HttpHandler");
+        }
+        // Chờ giao diện được dựng xong trên EDT để lần tải dữ liệu đầu tiên không bị tính vào phép đo.
+        javax.swing.SwingUtilities.invokeAndWait(() -> { });
+
+        List<HttpResponseReceived> responses = responses(traffic);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeapAfterGc(memory);
+        long gcBefore = gcMillis();
+        peakHeap.set(heapBefore);
+
+        long start = System.nanoTime();
+        List<Thread> drivers = new ArrayList<>();
+        for (int t = 0; t < options.threads; t++) {
+            Thread driver = new Thread(() -> drive(responses, start), "harness-driver-" + t);
+            driver.start();
+            drivers.add(driver);
+        }
+        Thread reporter = new Thread(() -> report(extension, memory, start), "harness-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        running = false;
+        for (Thread driver : drivers) {
+            driver.join();
+        }
+        long feedEnd = System.nanoTime();
+
+        // Chờ pipeline xử lý hết các sự kiện đã nhận.
+        TrafficPipeline pipeline = extension.trafficPipeline();
+        long drainDeadline = feedEnd + TimeUnit.SECONDS.toNanos(120);
+        while (pipeline.pendingCount() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        long drainEnd = System.nanoTime();
+        long heapAfter = usedHeapAfterGc(memory);
+
+        double feedSeconds = (feedEnd - start) / 1e9;
+        double totalSeconds = (drainEnd - start) / 1e9;
+        long events = sent.sum();
+        long processed = extension.metrics().histogram("pipeline.parse").count();
+        System.out.println();
+        System.out.println("=== Load harness result ===");
+        System.out.printf("events sent          : %d in %.1f s (target %s/s)%n", events, feedSeconds,
+                options.rate > 0 ? String.valueOf(options.rate) : "unthrottled");
+        System.out.printf("sustained rate       : %.0f events/s offered, %.0f events/s processed%n",
+                events / feedSeconds, processed / totalSeconds);
+        System.out.printf("handler latency (µs) : p50=%d p99=%d p99.9=%d max=%d%n",
+                handlerLatency.percentileNanos(50) / 1_000, handlerLatency.percentileNanos(99) / 1_000,
+                handlerLatency.percentileNanos(99.9) / 1_000, handlerLatency.maxNanos() / 1_000);
+        System.out.printf("pipeline drain       : %.2f s after feed stopped, %d still pending%n",
+                (drainEnd - feedEnd) / 1e9, pipeline.pendingCount());
+        System.out.printf("shed events          : %d (duplicates=%d, sampled=%d, queue full=%d)%n",
+                pipeline.shedTotal(), pipeline.shedDuplicates(), pipeline.shedSampled(), pipeline.shedOverflow());
+        System.out.printf("annotated responses  : %d%n", annotated.sum());
+        System.out.printf("heap (MB)            : before=%.1f after=%.1f growth=%.1f peak=%.1f%n",
+                mb(heapBefore), mb(heapAfter), mb(heapAfter - heapBefore), mb(peakHeap.get()));
+        System.out.printf("GC time              : %d ms%n", gcMillis() - gcBefore);
+        System.out.println();
+        System.out.println(extension.metrics().report());
+
+        extension.extensionUnloaded();
+        if (tempDir != null) {
+            try (var files = Files.list(tempDir)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(tempDir);
+        }
+    }
+
+    /**
+     * Một luồng phát traffic. Mỗi luồng giữ lịch gửi riêng (tốc độ / số luồng) và gửi bù khi bị chậm,
+     * để tốc độ trung bình bám theo mục tiêu.
+     */
+    private void drive(List<HttpResponseReceived> responses, long start) {
+        HttpHandler httpHandler = handler.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = options.rate > 0 ? TimeUnit.SECONDS.toNanos(options.threads) / options.rate : 0;
+        long next = start;
+        while (running) {
+            if (intervalNanos > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+                next += intervalNanos;
+            }
+            HttpResponseReceived response = responses.get(random.nextInt(responses.size()));
+            long begin = System.nanoTime();
+            httpHandler.handleHttpResponseReceived(response);
+            handlerLatency.record(System.nanoTime() - begin);
+            sent.increment();
+        }
+    }
+
+    private void report(RecheckScanApiExtension extension, MemoryMXBean memory, long start) {
+        long lastSent = 0;
+        while (running) {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long heap = memory.getHeapMemoryUsage().getUsed();
+            peakHeap.accumulateAndGet(heap, Math::max);
+            long total = sent.sum();
+            System.out.printf("[%3ds] sent=%d (%d/s) handler p99=%dµs queue=%d shed=%d heap=%.1fMB%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), total, total - lastSent,
+                    handlerLatency.percentileNanos(99) / 1_000, extension.trafficPipeline().pendingCount(),
+                    extension.trafficPipeline().shedTotal(), mb(heap));
+            lastSent = total;
+        }
+    }
+
+    /**
+     * Sinh traffic tổng hợp: mỗi host có một tập endpoint cố định (một phần có ID số trong path),
+     * mỗi endpoint có 0-6 tham số query hoặc body JSON/form.
+     */
+    private List<Exchange> synthetic() {
+        Random random = new Random(options.seed);
+        String[] resources = {"users", "orders", "products", "invoices", "reports", "sessions", "files", "comments"};
+        String[] actions = {"", "/detail", "/items", "/history", "/export", "/settings"};
+        String[] paramNames = {"id", "page", "size", "sort", "q", "filter", "from", "to", "lang", "status", "token", "fields"};
+        List<Exchange> exchanges = new ArrayList<>();
+        for (int h = 0; h < options.hosts; h++) {
+            String host = "api" + h + ".example.com";
+            for (int e = 0; e < options.endpointsPerHost; e++) {
+                String resource = resources[random.nextInt(resources.length)];
+                String action = actions[random.nextInt(actions.length)];
+                String method = random.nextInt(4) == 0 ? "POST" : "GET";
+                List<String> params = new ArrayList<>();
+                int paramCount = random.nextInt(7);
+                for (int p = 0; p < paramCount; p++) {
+                    String name = paramNames[random.nextInt(paramNames.length)];
+                    if (!params.contains(name)) {
+                        params.add(name);
+                    }
+                }
+                boolean withId = random.nextBoolean();
+                // Mỗi endpoint có ID xuất hiện với vài giá trị khác nhau, như trong traffic thực tế.
+                int variants = withId ? 4 : 1;
+                for (int v = 0; v < variants; v++) {
+                    String path = "/api/v" + (1 + e % 3) + "/" + resource + "-" + e
+                            + (withId ? "/" + (100_000 + random.nextInt(900_000)) : "") + action;
+                    exchanges.add(new Exchange(request(host, method, path, params, random), 200));
+                }
+            }
+        }
+        return exchanges;
+    }
+
+    private static HttpRequest request(String host, String method, String path, List<String> params, Random random) {
+        if (method.equals("GET") || params.isEmpty()) {
+            return MontoyaStubs.request(method, host, path, params, ContentType.NONE, "", HttpParameterType.BODY, List.of());
+        }
+        if (random.nextBoolean()) {
+            StringBuilder json = new StringBuilder("{");
+            for (String name : params) {
+                json.append(json.length() > 1 ? "," : "").append('"').append(name).append("\":1");
+            }
+            return MontoyaStubs.request(method, host, path, List.of(), ContentType.JSON, json.append('}').toString(),
+                    HttpParameterType.JSON, params);
+        }
+        String form = String.join("&", params.stream().map(name -> name + "=1").toList());
+        return MontoyaStubs.request(method, host, path, List.of(), ContentType.URL_ENCODED, form,
+                HttpParameterType.BODY, params);
+    }
+
+    /**
+     * Dựng sẵn response cho mọi (request, tool) theo tỷ lệ --mix, để luồng phát traffic không phải cấp phát stub.
+     */
+    private List<HttpResponseReceived> responses(List<Exchange> traffic) {
+        Annotations annotations = MontoyaStubs.stub(Annotations.class, Map.of(
+                "setHighlightColor", args -> {
+                    annotated.increment();
+                    return null;
+                },
+                "setNotes", args -> null));
+        Map<ToolType, ToolSource> sources = new HashMap<>();
+        for (ToolType toolType : new ToolType[]{ToolType.PROXY, ToolType.SCANNER, ToolType.REPEATER}) {
+            sources.put(toolType, MontoyaStubs.stub(ToolSource.class, Map.of(
+                    "toolType", args -> toolType,
+                    "isFromTool", args -> {
+                        for (Object candidate : (Object[]) args[0]) {
+                            if (candidate == toolType) return true;
+                        }
+                        return false;
+                    })));
+        }
+
+        // Mỗi request có (tổng tỷ lệ) phần tử, chia theo phần trăm của từng tool, để chọn ngẫu nhiên đều là đủ.
+        List<HttpResponseReceived> responses = new ArrayList<>();
+        int total = options.proxyPercent + options.scannerPercent + options.repeaterPercent;
+        for (Exchange exchange : traffic) {
+            Map<ToolType, HttpResponseReceived> byTool = new HashMap<>();
+            for (int slot = 0; slot < total; slot++) {
+                ToolType toolType = slot < options.proxyPercent ? ToolType.PROXY
+                        : slot < options.proxyPercent + options.scannerPercent ? ToolType.SCANNER
+                        : ToolType.REPEATER;
+                responses.add(byTool.computeIfAbsent(toolType, tool -> MontoyaStubs.stub(HttpResponseReceived.class, Map.of(
+                        "initiatingRequest", args -> exchange.request,
+                        "statusCode", args -> (short) exchange.statusCode,
+                        "toolSource", args -> sources.get(tool),
+                        "annotations", args -> annotations))));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * MontoyaApi giả lập đủ cho extension: persistence trong bộ nhớ, scope chấp nhận mọi URL, UI bỏ qua.
+     */
+    private MontoyaApi api() {
+        Logging logging = MontoyaStubs.stub(Logging.class, Map.of(
+                "logToOutput", args -> {
+                    System.out.println("[extension] " + args[0]);
+                    return null;
+                },
+                "logToError", args -> {
+                    System.err.println("[extension] " + args[0]);
+                    if (args.length > 1 && args[1] instanceof Throwable error) {
+                        error.printStackTrace();
+                    }
+                    return null;
+                }));
+        PersistedObject data = MontoyaStubs.stub(PersistedObject.class, Map.of(
+                "getString", args -> extensionData.get((String) args[0]),
+                "setString", args -> {
+                    extensionData.put((String) args[0], (String) args[1]);
+                    return null;
+                }));
+        Persistence persistence = MontoyaStubs.stub(Persistence.class, Map.of("extensionData", args -> data));
+        Http http = MontoyaStubs.stub(Http.class, Map.of("registerHttpHandler", args -> {
+            handler.set((HttpHandler) args[0]);
+            return null;
+        }));
+        Scope scope = MontoyaStubs.stub(Scope.class, Map.of("isInScope", args -> true));
+        Extension extension = MontoyaStubs.stub(Extension.class, Map.<String, Function<Object[], Object>>of());
+        UserInterface userInterface = MontoyaStubs.stub(UserInterface.class, Map.<String, Function<Object[], Object>>of());
+        return MontoyaStubs.stub(MontoyaApi.class, Map.of(
+                "logging", args -> logging,
+                "persistence", args -> persistence,
+                "http", args -> http,
+                "scope", args -> scope,
+                "extension", args -> extension,
+                "userInterface", args -> userInterface));
+    }
+
+    private String settings(String dbPath) throws IOException {
+        Properties props = new Properties();
+        if (options.settings != null) {
+            try (Reader reader = new FileReader(options.settings)) {
+                props.load(reader);
+            }
+        }
+        props.setProperty("outputPath", dbPath);
+        StringWriter writer = new StringWriter();
+        props.store(writer, null);
+        return writer.toString();
+    }
+
+    /**
+     * Các factory tĩnh của Montoya (như {@code ResponseReceivedAction.continueWith}) cần đối tượng do Burp cung cấp.
+     * Ngoài Burp, cài một factory trả về null cho mọi lời gọi; harness không dùng giá trị trả về của handler.
+     */
+    private static void installResponseFactory() {
+        try {
+            Class<?> locator = Class.forName("burp.api.montoya.internal.ObjectFactoryLocator");
+            Field field = locator.getField("FACTORY");
+            if (field.get(null) == null) {
+                Class<?> factoryType = field.getType();
+                field.set(null, Proxy.newProxyInstance(factoryType.getClassLoader(), new Class<?>[]{factoryType},
+                        (proxy, method, args) -> null));
+            }
+        } catch (ReflectiveOperationException e) {
+            // Phiên bản Montoya không dùng ObjectFactoryLocator: không cần cài đặt.
+        }
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
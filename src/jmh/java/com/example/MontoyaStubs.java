@@ -0,0 +1,141 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.ContentType;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.params.ParsedHttpParameter;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.logging.Logging;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Các đối tượng giả lập Montoya API dùng cho benchmark và {@link LoadHarness}, không cần Burp đang chạy.
+ * <p>
+ * Mỗi stub là một dynamic proxy: các phương thức được khai báo trong {@code answers} trả về giá trị đã cấu hình,
+ * các phương thức còn lại trả về giá trị mặc định (null, false, 0).
+ */
+final class MontoyaStubs {
+    private MontoyaStubs() {
+    }
+
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "equals" -> self == args[0];
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            Function<Object[], Object> answer = answers.get(method.getName());
+            return answer != null ? answer.apply(args) : defaultValue(method);
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == double.class) return 0d;
+        if (type == float.class) return 0f;
+        if (type == char.class) return (char) 0;
+        return null;
+    }
+
+    /**
+     * MontoyaApi chỉ hỗ trợ logging; log lỗi được in ra stderr để không che giấu lỗi trong lúc đo.
+     */
+    static MontoyaApi silentApi() {
+        Map<String, Function<Object[], Object>> logging = new HashMap<>();
+        logging.put("logToError", args -> {
+            System.err.println(args[0]);
+            return null;
+        });
+        Logging logger = stub(Logging.class, logging);
+        Map<String, Function<Object[], Object>> api = new HashMap<>();
+        api.put("logging", args -> logger);
+        return stub(MontoyaApi.class, api);
+    }
+
+    static ParsedHttpParameter parameter(String name, HttpParameterType type) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("name", args -> name);
+        answers.put("type", args -> type);
+        return stub(ParsedHttpParameter.class, answers);
+    }
+
+    static List<ParsedHttpParameter> parameters(HttpParameterType type, List<String> names) {
+        List<ParsedHttpParameter> parameters = new ArrayList<>(names.size());
+        for (String name : names) {
+            parameters.add(parameter(name, type));
+        }
+        return parameters;
+    }
+
+    static HttpService service(String host) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("host", args -> host);
+        answers.put("port", args -> 443);
+        answers.put("secure", args -> true);
+        return stub(HttpService.class, answers);
+    }
+
+    static ByteArray bytes(byte[] data) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("length", args -> data.length);
+        answers.put("getBytes", args -> data);
+        return stub(ByteArray.class, answers);
+    }
+
+    /**
+     * Tạo một HttpRequest với các tham số đã được parse sẵn, giống như kết quả parser của Burp trả về.
+     *
+     * @param bodyType   Loại tham số của body (JSON, BODY, XML); bỏ qua nếu body rỗng.
+     * @param bodyParams Tên các tham số trong body.
+     */
+    static HttpRequest request(String method, String host, String path, List<String> queryParams,
+                               ContentType contentType, String body,
+                               HttpParameterType bodyType, List<String> bodyParams) {
+        List<ParsedHttpParameter> url = parameters(HttpParameterType.URL, queryParams);
+        List<ParsedHttpParameter> parsedBody = parameters(bodyType, bodyParams);
+        ByteArray bodyBytes = bytes(body.getBytes(StandardCharsets.UTF_8));
+        HttpService service = service(host);
+        String query = String.join("&", queryParams.stream().map(name -> name + "=1").toList());
+        String fullPath = query.isEmpty() ? path : path + "?" + query;
+
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("method", args -> method);
+        answers.put("httpService", args -> service);
+        answers.put("path", args -> fullPath);
+        answers.put("pathWithoutQuery", args -> path);
+        answers.put("query", args -> query);
+        answers.put("url", args -> "https://" + host + fullPath);
+        answers.put("body", args -> bodyBytes);
+        answers.put("bodyToString", args -> body);
+        answers.put("contentType", args -> contentType);
+        answers.put("parameters", args -> {
+            if (args == null || args.length == 0) {
+                List<ParsedHttpParameter> all = new ArrayList<>(url);
+                all.addAll(parsedBody);
+                return all;
+            }
+            if (args[0] == HttpParameterType.URL) return url;
+            return args[0] == bodyType ? parsedBody : List.of();
+        });
+        return stub(HttpRequest.class, answers);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo chi phí đọc/ghi tập ID tham số dạng chuỗi '|' lưu trong CSDL và các phép toán tập hợp trên ID
+ * mà {@link DatabaseManager} thực hiện cho mỗi sự kiện.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamCodecBenchmark {
+    @Param({"3", "20", "100"})
+    public int paramCount;
+
+    private int[] known;
+    private int[] request;
+    private String stored;
+
+    @Setup
+    public void setUp() {
+        // ID của dict_param: tập đã biết và một request chứa một nửa tham số cũ cùng vài tham số mới.
+        known = new int[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            known[i] = 1 + i * 3;
+        }
+        request = new int[paramCount / 2 + 2];
+        for (int i = 0; i < request.length; i++) {
+            request[i] = 1 + i * 6;
+        }
+        stored = IntSets.format(known);
+    }
+
+    @Benchmark
+    public int[] parse() {
+        return IntSets.parse(stored);
+    }
+
+    @Benchmark
+    public String format() {
+        return IntSets.format(known);
+    }
+
+    @Benchmark
+    public int[] newParams() {
+        return IntSets.difference(request, known);
+    }
+
+    @Benchmark
+    public int[] merge() {
+        return IntSets.union(known, request);
+    }
+}
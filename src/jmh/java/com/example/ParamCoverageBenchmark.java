@@ -0,0 +1,72 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo các thao tác trên {@link ParamCoverage} mà {@link DatabaseManager} thực hiện cho mỗi sự kiện
+ * khi độ phủ của endpoint đã có trong cache: kiểm tra tham số đã biết và đánh dấu tham số đã quét.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamCoverageBenchmark {
+    @Param({"3", "20", "100"})
+    public int paramCount;
+
+    private int[] known;
+    private int[] request;
+    private ParamCoverage coverage;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        known = new int[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            known[i] = 1 + i * 3;
+        }
+        // Request mang một nửa số tham số đã biết.
+        request = new int[Math.max(1, paramCount / 2)];
+        for (int i = 0; i < request.length; i++) {
+            request[i] = known[i * 2 % paramCount];
+        }
+        coverage = new ParamCoverage(1, IntSets.EMPTY, known);
+    }
+
+    /**
+     * Request thông thường không mang tham số mới: tra ordinal cho từng tham số.
+     */
+    @Benchmark
+    public boolean noNewParams() {
+        boolean discovered = false;
+        for (int id : request) {
+            discovered |= coverage.ordinalOf(id) < 0;
+        }
+        return discovered;
+    }
+
+    /**
+     * Request của Scanner: đánh dấu các tham số đã quét và kiểm tra endpoint đã quét hết chưa.
+     */
+    @Benchmark
+    public boolean markScanned() {
+        for (int id : request) {
+            coverage.markScanned(coverage.ordinalOf(id));
+        }
+        return coverage.isFullyScanned();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example;
+
+import burp.api.montoya.http.message.ContentType;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Đo {@link ParameterExtractor#extract(HttpRequest)} trên body JSON, form và multipart.
+ * <p>
+ * Request là stub của Montoya: danh sách tham số được parse sẵn từ body lúc setup, vì vậy kết quả
+ * chỉ phản ánh chi phí phía extension (duyệt danh sách, gom tên vào Set), không gồm parser của Burp.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterExtractorBenchmark {
+    private static final String JSON_BODY = """
+            {"user":{"id":1684050854912458752,"email":"a@example.com","roles":["admin","dev"]},
+             "filter":{"status":"open","from":"2024-01-01","to":"2024-12-31","tags":["x","y"]},
+             "page":1,"pageSize":50,"sort":"createdAt","order":"desc","includeArchived":false}
+            """;
+    private static final String FORM_BODY =
+            "username=alice&password=secret&remember=true&redirect=%2Fhome&csrf_token=abc123"
+                    + "&locale=en&timezone=UTC&captcha=&client_id=web&scope=read+write";
+    private static final String MULTIPART_BODY = """
+            --boundary\r
+            Content-Disposition: form-data; name="title"\r
+            \r
+            Quarterly report\r
+            --boundary\r
+            Content-Disposition: form-data; name="description"\r
+            \r
+            Numbers for Q3\r
+            --boundary\r
+            Content-Disposition: form-data; name="visibility"\r
+            \r
+            private\r
+            --boundary\r
+            Content-Disposition: form-data; name="file"; filename="report.pdf"\r
+            Content-Type: application/pdf\r
+            \r
+            %PDF-1.7 ...\r
+            --boundary--\r
+            """;
+
+    @Param({"json", "form", "multipart"})
+    public String bodyType;
+
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() {
+        List<String> query = List.of("api_key", "v", "trace");
+        request = switch (bodyType) {
+            case "json" -> MontoyaStubs.request("POST", "api.example.com", "/api/v1/search", query,
+                    ContentType.JSON, JSON_BODY, HttpParameterType.JSON, matches(JSON_BODY, "\"(\\w+)\"\\s*:"));
+            case "form" -> MontoyaStubs.request("POST", "api.example.com", "/login", query,
+                    ContentType.URL_ENCODED, FORM_BODY, HttpParameterType.BODY, matches(FORM_BODY, "(?:^|&)([^=&]+)="));
+            default -> MontoyaStubs.request("POST", "api.example.com", "/api/v1/reports", query,
+                    ContentType.MULTIPART, MULTIPART_BODY, HttpParameterType.BODY, matches(MULTIPART_BODY, "(?<!file)name=\"([^\"]+)\""));
+        };
+    }
+
+    /**
+     * Parse tên tham số từ body bằng regex đơn giản, chỉ dùng lúc setup để dựng stub.
+     */
+    private static List<String> matches(String body, String regex) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = Pattern.compile(regex).matcher(body);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    @Benchmark
+    public Set<String> extract() {
+        return ParameterExtractor.extract(request);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo {@link PathNormalizer#normalize(String, List)} với các bộ rule thường gặp.
+ * Path được lấy xoay vòng từ một tập path thực tế để tránh JIT tối ưu theo một giá trị cố định.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathNormalizerBenchmark {
+    private static final String[] PATHS = {
+            "/api/v1/users/1684050854912458752/profile",
+            "/api/v1/users/me",
+            "/api/v2/orders/3f2504e0-4f89-11d3-9a0c-0305e82c3301/items/17",
+            "/api/report/1684050854912458752/list",
+            "/static/app/main",
+            "/graphql",
+            "/api/v1/files/d41d8cd98f00b204e9800998ecf8427e/download",
+            "/api/v1/sessions/AbCdEf0123456789AbCdEf0123456789AbCdEf01",
+            "/api/v1/tenants/42/projects/7/issues/1234/comments",
+            "/oauth/authorize",
+            "/api/v1/search",
+            "/api/v3/catalog/categories/electronics/products/998877",
+            "/",
+            "/health",
+            "/api/v1/users/1684050854912458753/settings/notifications",
+            "/api/v2/orders/6ba7b810-9dad-11d1-80b4-00c04fd430c8",
+    };
+
+    /**
+     * none: không có rule (đường tắt); typical: các rule kiểu có sẵn; regex: có thêm rule regex tự viết.
+     */
+    @Param({"none", "typical", "regex"})
+    public String ruleSet;
+
+    private List<PathParameterRule> rules;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        String rulesText = switch (ruleSet) {
+            case "typical" -> """
+                    {uuid}=uuid
+                    {hash}=hex:32
+                    {token}=alnum:40
+                    {id}=number
+                    """;
+            case "regex" -> """
+                    {uuid}=uuid
+                    {hash}=hex:32
+                    {token}=alnum:40
+                    {id}=number
+                    {date}=regex:\\d{4}-\\d{2}-\\d{2}
+                    {slug}=regex:[a-z0-9]+(?:-[a-z0-9]+){2,}
+                    {version}=regex:v\\d+\\.\\d+\\.\\d+
+                    """;
+            default -> "";
+        };
+        rules = PathNormalizer.compile(rulesText, message -> {
+            throw new IllegalStateException(message);
+        });
+    }
+
+    @Benchmark
+    public String normalize() {
+        String path = PATHS[index++ & (PATHS.length - 1)];
+        return PathNormalizer.normalize(path, rules);
+    }
+}
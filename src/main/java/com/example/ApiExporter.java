@@ -0,0 +1,315 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Xuất bảng api_log ra tệp CSV, JSON Lines hoặc một báo cáo độ phủ dạng HTML tĩnh.
+ * <p>
+ * Dữ liệu được đọc bằng con trỏ chỉ-tiến của {@link DatabaseManager#forEachApiRow} và ghi thẳng ra một
+ * {@link FileChannel} qua bộ đệm cố định, nên bộ nhớ sử dụng không phụ thuộc vào số dòng. Dữ liệu được ghi vào
+ * một tệp tạm cạnh tệp đích và chỉ được đổi tên khi xuất xong, nên việc hủy hoặc lỗi giữa chừng không để lại
+ * tệp dở dang và không ghi đè tệp cũ.
+ */
+final class ApiExporter {
+    /**
+     * Số dòng giữa hai lần báo cáo tiến độ.
+     */
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final String[] CSV_COLUMNS = {"id", "method", "host", "path", "unscanned_params", "scanned_params",
+            "is_scanned", "is_rejected", "is_bypassed", "is_from_repeater", "last_seen"};
+
+    enum Format {
+        CSV("csv", "CSV (*.csv)"),
+        JSONL("jsonl", "JSON Lines (*.jsonl)"),
+        HTML("html", "HTML coverage report (*.html)");
+
+        final String extension;
+        final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+    }
+
+    @FunctionalInterface
+    interface Progress {
+        void update(int rowsWritten, int totalRows);
+    }
+
+    private ApiExporter() {
+    }
+
+    /**
+     * Xuất toàn bộ API của một project ra tệp. Chạy trên luồng gọi; không được gọi trên EDT.
+     *
+     * @param databaseManager CSDL của project cần xuất.
+     * @param format          Định dạng tệp.
+     * @param target          Tệp đích; bị ghi đè nếu đã tồn tại.
+     * @param progress        Nhận số dòng đã ghi và tổng số dòng ước tính.
+     * @param cancelled       Được kiểm tra sau mỗi dòng; trả về true để dừng và bỏ tệp dở dang.
+     * @return Số dòng đã ghi, hoặc -1 nếu bị hủy.
+     */
+    static int export(ApiStore databaseManager, Format format, Path target, Progress progress, BooleanSupplier cancelled)
+            throws IOException, SQLException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        int[] totals = databaseManager.countByStatus();
+        int[] written = {0};
+        boolean completed = false;
+        try {
+            try (ChannelWriter out = new ChannelWriter(FileChannel.open(partial,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                StringBuilder line = new StringBuilder(512);
+                writeHeader(format, totals, line);
+                out.write(line);
+                progress.update(0, totals[0]);
+                databaseManager.forEachApiRow(row -> {
+                    line.setLength(0);
+                    writeRow(format, row, line);
+                    out.write(line);
+                    if (++written[0] % PROGRESS_INTERVAL == 0) {
+                        progress.update(written[0], totals[0]);
+                    }
+                    return !cancelled.getAsBoolean();
+                });
+                if (cancelled.getAsBoolean()) {
+                    return -1;
+                }
+                line.setLength(0);
+                writeFooter(format, line);
+                out.write(line);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            completed = true;
+            progress.update(written[0], totals[0]);
+            return written[0];
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    private static void writeHeader(Format format, int[] totals, StringBuilder out) {
+        switch (format) {
+            case CSV -> out.append(String.join(",", CSV_COLUMNS)).append("\r\n");
+            case JSONL -> {
+                // JSON Lines không có phần đầu.
+            }
+            case HTML -> {
+                int total = totals[0];
+                int verified = totals[1] + totals[2] + totals[3];
+                out.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n")
+                   .append("<title>Recheck Scan API coverage report</title>\n<style>\n")
+                   .append("body{font-family:sans-serif;margin:24px;color:#222}\n")
+                   .append("table{border-collapse:collapse;font-size:13px}\n")
+                   .append("th,td{border:1px solid #ccc;padding:4px 8px;text-align:left;vertical-align:top}\n")
+                   .append("th{background:#f0f0f0}\n")
+                   .append("td.path{font-family:monospace;word-break:break-all}\n")
+                   .append("tr.Scanned td.status{background:#d4edda}\n")
+                   .append("tr.Rejected td.status{background:#f8d7da}\n")
+                   .append("tr.Bypassed td.status{background:#fff3cd}\n")
+                   .append("</style>\n</head>\n<body>\n<h1>API coverage report</h1>\n<p>Generated ")
+                   .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME.withLocale(Locale.ROOT)))
+                   .append("</p>\n<table>\n<tr><th>Total</th><th>Scanned</th><th>Rejected</th><th>Bypassed</th><th>Unverified</th><th>Coverage</th></tr>\n<tr>")
+                   .append("<td>").append(total).append("</td>")
+                   .append("<td>").append(totals[1]).append("</td>")
+                   .append("<td>").append(totals[2]).append("</td>")
+                   .append("<td>").append(totals[3]).append("</td>")
+                   .append("<td>").append(total - verified).append("</td>")
+                   .append("<td>").append(String.format(Locale.ROOT, "%.1f%%", total == 0 ? 100.0 : verified * 100.0 / total)).append("</td>")
+                   .append("</tr>\n</table>\n<h2>Endpoints</h2>\n<table>\n")
+                   .append("<tr><th>Method</th><th>Host</th><th>Path</th><th>Status</th><th>Unscanned Params</th><th>Scanned Params</th><th>Repeater</th><th>Last Seen</th></tr>\n");
+            }
+        }
+    }
+
+    private static void writeRow(Format format, DatabaseManager.ApiRow row, StringBuilder out) {
+        switch (format) {
+            case CSV -> {
+                out.append(row.id).append(',');
+                appendCsv(out, row.method).append(',');
+                appendCsv(out, row.host).append(',');
+                appendCsv(out, row.path).append(',');
+                appendCsv(out, String.join(";", row.unscannedParams)).append(',');
+                appendCsv(out, String.join(";", row.scannedParams)).append(',');
+                out.append(row.isScanned).append(',')
+                   .append(row.isRejected).append(',')
+                   .append(row.isBypassed).append(',')
+                   .append(row.isFromRepeater).append(',');
+                appendCsv(out, row.lastSeen).append("\r\n");
+            }
+            case JSONL -> {
+                out.append("{\"id\":").append(row.id);
+                appendJson(out.append(",\"method\":"), row.method);
+                appendJson(out.append(",\"host\":"), row.host);
+                appendJson(out.append(",\"path\":"), row.path);
+                appendJsonArray(out.append(",\"unscanned_params\":"), row.unscannedParams);
+                appendJsonArray(out.append(",\"scanned_params\":"), row.scannedParams);
+                out.append(",\"is_scanned\":").append(row.isScanned)
+                   .append(",\"is_rejected\":").append(row.isRejected)
+                   .append(",\"is_bypassed\":").append(row.isBypassed)
+                   .append(",\"is_from_repeater\":").append(row.isFromRepeater);
+                appendJson(out.append(",\"last_seen\":"), row.lastSeen);
+                out.append("}\n");
+            }
+            case HTML -> {
+                String status = row.status();
+                out.append("<tr class=\"").append(status).append("\"><td>");
+                appendHtml(out, row.method).append("</td><td>");
+                appendHtml(out, row.host).append("</td><td class=\"path\">");
+                appendHtml(out, row.path).append("</td><td class=\"status\">").append(status).append("</td><td>");
+                appendHtml(out, String.join(", ", row.unscannedParams)).append("</td><td>");
+                appendHtml(out, String.join(", ", row.scannedParams)).append("</td><td>")
+                   .append(row.isFromRepeater ? "Yes" : "").append("</td><td>");
+                appendHtml(out, row.lastSeen).append("</td></tr>\n");
+            }
+        }
+    }
+
+    private static void writeFooter(Format format, StringBuilder out) {
+        if (format == Format.HTML) {
+            out.append("</table>\n</body>\n</html>\n");
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static StringBuilder appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    private static void appendJsonArray(StringBuilder out, String[] values) {
+        out.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.append(',');
+            appendJson(out, values[i]);
+        }
+        out.append(']');
+    }
+
+    private static StringBuilder appendHtml(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Mã hóa văn bản sang UTF-8 vào một bộ đệm cố định và ghi ra channel mỗi khi bộ đệm đầy.
+     */
+    private static final class ChannelWriter implements Closeable {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else {
+                    break;
+                }
+            }
+            encoder.reset();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
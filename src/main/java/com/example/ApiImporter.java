@@ -0,0 +1,666 @@
+package com.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Nhập hàng loạt endpoint vào api_log từ đặc tả OpenAPI 3 / Swagger 2 (JSON) hoặc tệp HAR, để thấy các endpoint
+ * chưa quét trước khi có traffic.
+ * <p>
+ * Tệp được đọc bằng parser streaming. Với HAR, từng entry được đọc rồi ghi theo lô, nên kích thước tệp không bị giới hạn.
+ * Với đặc tả, mỗi path item được dựng thành một cây nhỏ; chỉ các operation và các thành phần dùng chung
+ * (components, definitions) được giữ lại để giải quyết {@code $ref} ở cuối. Path được chuẩn hóa bằng các
+ * {@link PathParameterRule} đã cấu hình. Endpoint được ghi theo lô {@link #BATCH_SIZE}, mỗi lô một transaction
+ * qua {@link ApiStore#importApis(List)}; khi bị hủy, các lô đã ghi được giữ lại.
+ */
+final class ApiImporter {
+    private static final JsonFactory JSON = new JsonFactory();
+    static final int BATCH_SIZE = 1000;
+    /**
+     * Độ sâu tối đa khi duyệt schema để lấy tên trường, tránh các schema đệ quy.
+     */
+    private static final int MAX_SCHEMA_DEPTH = 16;
+    /**
+     * Các method được nhập; OPTIONS bị bỏ qua giống như với traffic.
+     */
+    private static final Set<String> HTTP_METHODS = Set.of("get", "put", "post", "delete", "head", "patch", "trace");
+    private static final Pattern MULTIPART_NAME = Pattern.compile("(?<!file)name=\"([^\"]+)\"");
+    private static final Pattern TEMPLATE_SEGMENT = Pattern.compile("\\{([^/{}]+)}");
+    private static final Pattern SERVER_VARIABLE = Pattern.compile("\\{([^{}]+)}");
+    /**
+     * Giá trị mẫu dùng để tìm rule tương ứng với một path parameter của đặc tả theo kiểu dữ liệu của nó.
+     */
+    private static final String UUID_SAMPLE = "123e4567-e89b-12d3-a456-426614174000";
+    private static final String[] NUMBER_SAMPLES = new String[32];
+
+    static {
+        for (int i = 0; i < NUMBER_SAMPLES.length; i++) {
+            NUMBER_SAMPLES[i] = "1".repeat(i + 1);
+        }
+    }
+
+    /**
+     * Bộ lọc cho các entry của HAR, áp dụng cùng các điều kiện với traffic (scope, extension, status code).
+     */
+    @FunctionalInterface
+    interface EntryFilter {
+        boolean accept(String url, String path, int status);
+    }
+
+    @FunctionalInterface
+    interface Progress {
+        void update(int endpointsRead, int percent);
+    }
+
+    static final class Result {
+        final int endpoints;
+        final int changed;
+
+        Result(int endpoints, int changed) {
+            this.endpoints = endpoints;
+            this.changed = changed;
+        }
+    }
+
+    private final ApiStore databaseManager;
+    private final List<PathParameterRule> rules;
+    private final String hostOverride;
+    private final EntryFilter harFilter;
+    private final Progress progress;
+    private final DatabaseManager.EndpointConsumer written;
+    private final BooleanSupplier cancelled;
+    private final List<DatabaseManager.ImportedApi> batch = new ArrayList<>(BATCH_SIZE);
+    private JsonParser parser;
+    private long fileLength;
+    private int endpoints;
+    private int changed;
+
+    /**
+     * @param databaseManager CSDL của project nhận dữ liệu.
+     * @param rules           Rule chuẩn hóa path parameter.
+     * @param hostOverride    Host dùng cho mọi endpoint của đặc tả thay cho servers/host khai báo trong tệp; rỗng để dùng host của tệp.
+     * @param harFilter       Bộ lọc cho các entry của HAR.
+     * @param progress        Nhận số endpoint đã đọc và phần trăm tệp đã đọc.
+     * @param written         Nhận mỗi endpoint đã được gửi tới CSDL, kể cả khi lô của nó ghi thất bại.
+     * @param cancelled       Trả về true để dừng việc nhập.
+     */
+    ApiImporter(ApiStore databaseManager, List<PathParameterRule> rules, String hostOverride,
+                EntryFilter harFilter, Progress progress, DatabaseManager.EndpointConsumer written, BooleanSupplier cancelled) {
+        this.databaseManager = databaseManager;
+        this.rules = rules;
+        this.hostOverride = hostOverride == null ? "" : hostOverride.trim();
+        this.harFilter = harFilter;
+        this.progress = progress;
+        this.written = written;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Nhập một tệp. Chạy trên luồng gọi; không được gọi trên EDT.
+     */
+    Result importFile(File file) throws IOException, SQLException {
+        fileLength = Math.max(1, file.length());
+        try (JsonParser jsonParser = JSON.createParser(file)) {
+            parser = jsonParser;
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a JSON document. YAML specs must be converted to JSON first: " + file);
+            }
+            Spec spec = new Spec();
+            boolean har = false;
+            while (!cancelled.getAsBoolean() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "log" -> {
+                        har = true;
+                        readHarLog();
+                    }
+                    case "openapi", "swagger" -> spec.version = parser.getValueAsString();
+                    case "servers" -> spec.servers = readValue();
+                    case "host" -> spec.host = parser.getValueAsString();
+                    case "basePath" -> spec.basePath = parser.getValueAsString();
+                    case "paths" -> readPaths(spec);
+                    case "components" -> readComponents(spec);
+                    case "parameters" -> spec.parameters.putAll(asMap(readValue()));
+                    case "definitions" -> spec.schemas.putAll(asMap(readValue()));
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!har && !cancelled.getAsBoolean()) {
+                if (spec.version == null) {
+                    throw new IOException("Unrecognized file: expected an OpenAPI 3 / Swagger 2 spec or a HAR file.");
+                }
+                addSpecEndpoints(spec);
+            }
+            // Lô đang dở được bỏ đi khi bị hủy.
+            if (!cancelled.getAsBoolean()) {
+                flush();
+                progress.update(endpoints, 100);
+            }
+        }
+        return new Result(endpoints, changed);
+    }
+
+    /* ========= HAR ========= */
+
+    private void readHarLog() throws IOException, SQLException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!"entries".equals(field) || parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                DatabaseManager.ImportedApi api = readHarEntry();
+                if (api != null) {
+                    add(api);
+                }
+            }
+        }
+    }
+
+    private DatabaseManager.ImportedApi readHarEntry() throws IOException {
+        String method = null;
+        String url = null;
+        int status = 200;
+        Set<String> params = new LinkedHashSet<>();
+        String mimeType = "";
+        String text = "";
+        List<String> postParams = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("request".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String requestField = parser.currentName();
+                    parser.nextToken();
+                    switch (requestField) {
+                        case "method" -> method = parser.getValueAsString();
+                        case "url" -> url = parser.getValueAsString();
+                        case "queryString" -> readNames(params);
+                        case "postData" -> {
+                            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                                parser.skipChildren();
+                                break;
+                            }
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String postField = parser.currentName();
+                                parser.nextToken();
+                                switch (postField) {
+                                    case "mimeType" -> mimeType = valueOrEmpty(parser.getValueAsString());
+                                    case "text" -> text = valueOrEmpty(parser.getValueAsString());
+                                    case "params" -> readNames(postParams);
+                                    default -> parser.skipChildren();
+                                }
+                            }
+                        }
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else if ("response".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String responseField = parser.currentName();
+                    parser.nextToken();
+                    if ("status".equals(responseField)) {
+                        status = parser.getValueAsInt(200);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (method == null || url == null || method.equalsIgnoreCase("OPTIONS")) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (uri.getHost() == null) {
+            return null;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (!harFilter.accept(url, path, status)) {
+            return null;
+        }
+        params.addAll(!postParams.isEmpty() ? postParams : bodyParameterNames(mimeType, text));
+        return new DatabaseManager.ImportedApi(method.toUpperCase(Locale.ROOT), uri.getHost(), PathNormalizer.normalize(path, rules), params);
+    }
+
+    /**
+     * Đọc tên từ một mảng các đối tượng {"name": ...} (queryString, postData.params).
+     */
+    private void readNames(Collection<String> names) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("name".equals(field)) {
+                    names.add(parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Suy ra tên tham số body theo mimeType, giống cách Burp phân tích request: JSON lấy mọi tên trường kể cả lồng nhau,
+     * form lấy các cặp name=value, multipart lấy name="...".
+     */
+    static Set<String> bodyParameterNames(String mimeType, String text) {
+        Set<String> names = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return names;
+        }
+        String lower = mimeType == null ? "" : mimeType.toLowerCase(Locale.ROOT);
+        if (lower.contains("json")) {
+            try (JsonParser bodyParser = JSON.createParser(text)) {
+                JsonToken token;
+                while ((token = bodyParser.nextToken()) != null) {
+                    if (token == JsonToken.FIELD_NAME) {
+                        names.add(bodyParser.currentName());
+                    }
+                }
+            } catch (IOException e) {
+                // Body không phải JSON hợp lệ: coi như không có tham số, giống parser của Burp.
+            }
+        } else if (lower.contains("x-www-form-urlencoded")) {
+            for (String pair : text.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = separator >= 0 ? pair.substring(0, separator) : pair;
+                if (!name.isEmpty()) {
+                    try {
+                        names.add(URLDecoder.decode(name, StandardCharsets.UTF_8));
+                    } catch (IllegalArgumentException e) {
+                        names.add(name);
+                    }
+                }
+            }
+        } else if (lower.contains("multipart")) {
+            Matcher matcher = MULTIPART_NAME.matcher(text);
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+        return names;
+    }
+
+    /* ========= OpenAPI 3 / Swagger 2 ========= */
+
+    /**
+     * Các phần của đặc tả cần giữ lại cho đến khi đọc hết tệp.
+     */
+    private static final class Spec {
+        String version;
+        Object servers;
+        String host;
+        String basePath;
+        final List<Operation> operations = new ArrayList<>();
+        final Map<String, Object> schemas = new LinkedHashMap<>();
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        final Map<String, Object> requestBodies = new LinkedHashMap<>();
+    }
+
+    private static final class Operation {
+        final String method;
+        final String template;
+        final List<Object> parameters;
+        final Object requestBody;
+
+        Operation(String method, String template, List<Object> parameters, Object requestBody) {
+            this.method = method;
+            this.template = template;
+            this.parameters = parameters;
+            this.requestBody = requestBody;
+        }
+    }
+
+    private void readPaths(Spec spec) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (!cancelled.getAsBoolean() && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String template = parser.currentName();
+            parser.nextToken();
+            Map<String, Object> pathItem = asMap(readValue());
+            List<Object> common = asList(pathItem.get("parameters"));
+            for (Map.Entry<String, Object> entry : pathItem.entrySet()) {
+                if (!HTTP_METHODS.contains(entry.getKey())) {
+                    continue;
+                }
+                Map<String, Object> operation = asMap(entry.getValue());
+                List<Object> parameters = new ArrayList<>(common);
+                parameters.addAll(asList(operation.get("parameters")));
+                spec.operations.add(new Operation(entry.getKey().toUpperCase(Locale.ROOT), template, parameters, operation.get("requestBody")));
+            }
+            progress.update(spec.operations.size(), percentRead());
+        }
+    }
+
+    private void readComponents(Spec spec) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "schemas" -> spec.schemas.putAll(asMap(readValue()));
+                case "parameters" -> spec.parameters.putAll(asMap(readValue()));
+                case "requestBodies" -> spec.requestBodies.putAll(asMap(readValue()));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void addSpecEndpoints(Spec spec) throws IOException, SQLException {
+        Set<List<String>> bases = new LinkedHashSet<>();
+        if (spec.version.startsWith("2")) {
+            bases.add(List.of(valueOrEmpty(spec.host), valueOrEmpty(spec.basePath)));
+        } else {
+            for (Object server : asList(spec.servers)) {
+                bases.add(serverBase(asMap(server)));
+            }
+            if (bases.isEmpty()) {
+                bases.add(List.of("", ""));
+            }
+        }
+        for (List<String> base : bases) {
+            String host = hostOverride.isEmpty() ? base.get(0) : hostOverride;
+            if (host.isEmpty()) {
+                throw new IOException("The spec does not declare a server host; enter the host to import it with.");
+            }
+            for (Operation operation : spec.operations) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                Map<String, String[]> pathTypes = new HashMap<>();
+                Set<String> params = new LinkedHashSet<>();
+                for (Object parameter : operation.parameters) {
+                    collectParameter(spec, asMap(resolve(parameter, spec.parameters)), params, pathTypes);
+                }
+                collectRequestBody(spec, asMap(resolve(operation.requestBody, spec.requestBodies)), params);
+                String path = normalizeTemplate(joinPath(base.get(1), operation.template), pathTypes);
+                add(new DatabaseManager.ImportedApi(operation.method, host, path, params));
+            }
+        }
+    }
+
+    /**
+     * @return {host, basePath} của một server trong OpenAPI 3, sau khi thay các biến bằng giá trị mặc định.
+     */
+    private static List<String> serverBase(Map<String, Object> server) {
+        String url = valueOrEmpty(asString(server.get("url")));
+        Map<String, Object> variables = asMap(server.get("variables"));
+        Matcher matcher = SERVER_VARIABLE.matcher(url);
+        StringBuilder resolved = new StringBuilder();
+        while (matcher.find()) {
+            String value = asString(asMap(variables.get(matcher.group(1))).get("default"));
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(value == null ? "" : value));
+        }
+        matcher.appendTail(resolved);
+        url = resolved.toString();
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() != null) {
+                return List.of(uri.getHost(), valueOrEmpty(uri.getRawPath()));
+            }
+        } catch (IllegalArgumentException e) {
+            // URL không hợp lệ: coi như server tương đối.
+        }
+        // Server tương đối (ví dụ "/v1"): chỉ có base path.
+        return List.of("", url.startsWith("/") ? url : "");
+    }
+
+    /**
+     * Ghi nhận một parameter: query/formData là tham số của request, body (Swagger 2) lấy tên trường từ schema,
+     * path được giữ lại kiểu dữ liệu để chuẩn hóa path. Header và cookie không được tính, giống như với traffic.
+     */
+    private static void collectParameter(Spec spec, Map<String, Object> parameter, Set<String> params, Map<String, String[]> pathTypes) {
+        String name = asString(parameter.get("name"));
+        String in = valueOrEmpty(asString(parameter.get("in")));
+        switch (in) {
+            case "query", "formData" -> {
+                if (name != null) {
+                    params.add(name);
+                }
+            }
+            case "body" -> collectSchemaNames(spec, parameter.get("schema"), params, true, 0, new HashSet<>());
+            case "path" -> {
+                // OpenAPI 3 khai báo kiểu trong schema, Swagger 2 khai báo trực tiếp trên parameter.
+                Map<String, Object> schema = parameter.containsKey("schema") ? asMap(parameter.get("schema")) : parameter;
+                if (name != null) {
+                    pathTypes.put(name, new String[]{asString(schema.get("type")), asString(schema.get("format"))});
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void collectRequestBody(Spec spec, Map<String, Object> requestBody, Set<String> params) {
+        for (Map.Entry<String, Object> media : asMap(requestBody.get("content")).entrySet()) {
+            String mediaType = media.getKey().toLowerCase(Locale.ROOT);
+            // Burp tách mọi tên trường của body JSON/XML, còn form chỉ có các trường ở cấp đầu.
+            boolean nested = mediaType.contains("json") || mediaType.contains("xml");
+            collectSchemaNames(spec, asMap(media.getValue()).get("schema"), params, nested, 0, new HashSet<>());
+        }
+    }
+
+    private static void collectSchemaNames(Spec spec, Object value, Set<String> names, boolean nested, int depth, Set<String> visiting) {
+        if (!(value instanceof Map) || depth > MAX_SCHEMA_DEPTH) {
+            return;
+        }
+        Map<String, Object> schema = asMap(value);
+        String ref = asString(schema.get("$ref"));
+        if (ref != null) {
+            if (visiting.add(ref)) {
+                collectSchemaNames(spec, spec.schemas.get(refName(ref)), names, nested, depth + 1, visiting);
+                visiting.remove(ref);
+            }
+            return;
+        }
+        for (String composition : new String[]{"allOf", "oneOf", "anyOf"}) {
+            for (Object part : asList(schema.get(composition))) {
+                collectSchemaNames(spec, part, names, nested, depth + 1, visiting);
+            }
+        }
+        for (Map.Entry<String, Object> property : asMap(schema.get("properties")).entrySet()) {
+            names.add(property.getKey());
+            if (nested) {
+                collectSchemaNames(spec, property.getValue(), names, true, depth + 1, visiting);
+            }
+        }
+        if (nested) {
+            collectSchemaNames(spec, schema.get("items"), names, true, depth + 1, visiting);
+        }
+    }
+
+    /**
+     * Thay các segment {name} của path trong đặc tả bằng placeholder của rule tương ứng, để endpoint được nhập trùng
+     * với endpoint ghi nhận từ traffic thật. Rule được chọn nếu placeholder trùng tên, hoặc nếu nó khớp một giá trị mẫu
+     * theo kiểu dữ liệu của parameter (integer, uuid); nếu không, segment được giữ nguyên.
+     */
+    private String normalizeTemplate(String path, Map<String, String[]> pathTypes) {
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            Matcher matcher = TEMPLATE_SEGMENT.matcher(segments[i]);
+            if (matcher.matches()) {
+                String[] type = pathTypes.getOrDefault(matcher.group(1), new String[2]);
+                segments[i] = placeholderFor(matcher.group(1), type[0], type[1]);
+            }
+        }
+        return PathNormalizer.normalize(String.join("/", segments), rules);
+    }
+
+    private String placeholderFor(String name, String type, String format) {
+        String template = "{" + name + "}";
+        for (PathParameterRule rule : rules) {
+            if (rule.placeholder().equals(template)) {
+                return template;
+            }
+        }
+        String[] samples;
+        if ("uuid".equals(format)) {
+            samples = new String[]{UUID_SAMPLE};
+        } else if ("integer".equals(type) || "number".equals(type)) {
+            samples = NUMBER_SAMPLES;
+        } else {
+            return template;
+        }
+        for (PathParameterRule rule : rules) {
+            for (String sample : samples) {
+                if (rule.matches(sample)) {
+                    return rule.placeholder();
+                }
+            }
+        }
+        return template;
+    }
+
+    private static String joinPath(String basePath, String template) {
+        String base = basePath.endsWith("/") ? basePath.substring(0, basePath.length() - 1) : basePath;
+        return base + (template.startsWith("/") ? template : "/" + template);
+    }
+
+    /* ========= Ghi theo lô ========= */
+
+    private void add(DatabaseManager.ImportedApi api) throws SQLException {
+        batch.add(api);
+        endpoints++;
+        if (batch.size() >= BATCH_SIZE) {
+            flush();
+            progress.update(endpoints, percentRead());
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (!batch.isEmpty()) {
+            try {
+                changed += databaseManager.importApis(batch);
+            } finally {
+                // Khi có nhiều tệp CSDL, một phần của lô có thể đã được ghi dù lô thất bại.
+                for (DatabaseManager.ImportedApi imported : batch) {
+                    written.accept(imported.method, imported.host, imported.path);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private int percentRead() {
+        return (int) Math.min(99, parser.currentLocation().getByteOffset() * 100 / fileLength);
+    }
+
+    /* ========= Cây JSON ========= */
+
+    /**
+     * Đọc giá trị tại token hiện tại thành Map, List, String, Number, Boolean hoặc null.
+     */
+    private Object readValue() throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            return null;
+        }
+        switch (token) {
+            case START_OBJECT -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    map.put(field, readValue());
+                }
+                return map;
+            }
+            case START_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                JsonToken next;
+                while ((next = parser.nextToken()) != JsonToken.END_ARRAY && next != null) {
+                    list.add(readValue());
+                }
+                return list;
+            }
+            case VALUE_STRING -> {
+                return parser.getText();
+            }
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                return parser.getNumberValue();
+            }
+            case VALUE_TRUE, VALUE_FALSE -> {
+                return parser.getBooleanValue();
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static Object resolve(Object value, Map<String, Object> components) {
+        String ref = asString(asMap(value).get("$ref"));
+        return ref == null ? value : components.get(refName(ref));
+    }
+
+    private static String refName(String ref) {
+        return ref.substring(ref.lastIndexOf('/') + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Map.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(Object value) {
+        return value instanceof List ? (List<Object>) value : List.of();
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static String valueOrEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example;
+
+/**
+ * Điều kiện lọc và sắp xếp cho các truy vấn phân trang của {@link ApiStore}.
+ * Bảng trên giao diện chỉ giữ các trang đang hiển thị nên việc lọc và sắp xếp được đẩy xuống SQLite.
+ * <p>
+ * Mỗi đối tượng là một lượt xem dữ liệu: {@link ShardedDatabaseManager} ghi nhớ vị trí trang theo chính đối tượng,
+ * nên nơi gọi tạo đối tượng mới mỗi khi dữ liệu được tải lại.
+ */
+final class ApiQuery {
+    /**
+     * Chỉ lấy các API chưa có trạng thái nào (chưa scan, chưa reject, chưa bypass).
+     */
+    final boolean unverifiedOnly;
+    /**
+     * Biểu thức chính quy (không phân biệt hoa thường) áp dụng lên path, rỗng nếu không lọc.
+     */
+    final String pathPattern;
+    /**
+     * Cột trong bảng api_log dùng để sắp xếp, null để giữ thứ tự mặc định (mới nhất trước).
+     */
+    final String sortColumn;
+    final boolean ascending;
+
+    ApiQuery(boolean unverifiedOnly, String pathPattern, String sortColumn, boolean ascending) {
+        this.unverifiedOnly = unverifiedOnly;
+        this.pathPattern = pathPattern == null ? "" : pathPattern;
+        this.sortColumn = sortColumn;
+        this.ascending = ascending;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Nơi lưu dữ liệu API của một project, như giao diện, pipeline và các công cụ nhập/xuất nhìn thấy nó.
+ * <p>
+ * {@link DatabaseManager} lưu vào một tệp CSDL; {@link ShardedDatabaseManager} chia dữ liệu theo host vào nhiều
+ * {@link DatabaseManager} và gộp kết quả đọc lại. Chi tiết của từng thao tác được mô tả ở {@link DatabaseManager}.
+ */
+interface ApiStore {
+    /**
+     * Ghi nhận một request từ traffic; xem {@link DatabaseManager#insertOrUpdateApi}.
+     */
+    boolean insertOrUpdateApi(String method, String host, String path, Set<String> requestParams);
+
+    /**
+     * Ghi nhận các tham số Scanner vừa quét; xem {@link DatabaseManager#processScannedParameters}.
+     */
+    boolean processScannedParameters(String method, String host, String path, Set<String> scannerParams);
+
+    /**
+     * Đánh dấu bypass một API không có tham số; xem {@link DatabaseManager#autoBypassApi}.
+     */
+    boolean autoBypassApi(String method, String host, String path);
+
+    /**
+     * Đánh dấu một API đã được gửi từ Repeater; xem {@link DatabaseManager#updateRepeaterStatus}.
+     */
+    boolean updateRepeaterStatus(String method, String host, String path);
+
+    /**
+     * @return Các cờ (scanned, rejected, bypassed) của một API, hoặc null nếu không tìm thấy.
+     */
+    Object[] getApiStatus(String method, String host, String path);
+
+    /**
+     * Khóa chọn làn ghi của pipeline cho một endpoint (xem {@link TrafficPipeline}): các sự kiện có cùng khóa được ghi
+     * tuần tự theo thứ tự đến.
+     */
+    int laneKey(String method, String host, String path);
+
+    /**
+     * Nhập một lô endpoint; xem {@link DatabaseManager#importApis}. Mỗi tệp CSDL ghi phần lô của nó trong một
+     * transaction riêng: khi có nhiều tệp, lỗi ở một tệp không hoàn tác phần đã ghi vào các tệp khác. Nhập lại cùng
+     * dữ liệu là an toàn vì endpoint đã có chỉ được bổ sung tham số chưa có.
+     *
+     * @throws SQLException Nếu có lỗi khi ghi.
+     */
+    int importApis(List<DatabaseManager.ImportedApi> batch) throws SQLException;
+
+    /**
+     * @return Số API thỏa mãn điều kiện lọc của {@code query}, hoặc 0 nếu truy vấn thất bại.
+     */
+    int countApis(ApiQuery query);
+
+    /**
+     * Tải một trang dòng để hiển thị trên bảng; xem {@link DatabaseManager#loadApiPage}.
+     */
+    List<Object[]> loadApiPage(ApiQuery query, int offset, int limit);
+
+    /**
+     * Tải ID của một đoạn dòng theo cùng thứ tự với {@link #loadApiPage}.
+     */
+    int[] loadApiIds(ApiQuery query, int offset, int limit);
+
+    /**
+     * Duyệt trạng thái của tất cả API; xem {@link DatabaseManager#forEachEndpointStatus}.
+     */
+    void forEachEndpointStatus(DatabaseManager.EndpointStatusConsumer consumer);
+
+    /**
+     * @return Số API theo trạng thái; xem {@link DatabaseManager#countByStatus}.
+     */
+    int[] countByStatus() throws SQLException;
+
+    /**
+     * Duyệt toàn bộ dòng để xuất dữ liệu, tăng dần theo id; xem {@link DatabaseManager#forEachApiRow}.
+     */
+    void forEachApiRow(DatabaseManager.ApiRowConsumer consumer) throws SQLException, IOException;
+
+    /**
+     * @return Lịch sử độ phủ của một API, cũ nhất trước.
+     */
+    List<Object[]> loadApiHistory(int apiId) throws SQLException;
+
+    /**
+     * Chuẩn hóa lại path đã lưu; xem {@link DatabaseManager#normalizeStoredPaths}.
+     *
+     * @return Số dòng đã thay đổi.
+     */
+    int normalizeStoredPaths(UnaryOperator<String> pathNormalizer, DatabaseManager.EndpointConsumer changed);
+
+    /**
+     * Bypass các API cũ không có tham số; xem {@link DatabaseManager#applyAutoBypassToOldRecords}.
+     *
+     * @return Số dòng đã được cập nhật.
+     */
+    int applyAutoBypassToOldRecords();
+
+    /**
+     * Đổi trạng thái của các API có ID đã cho; xem {@link DatabaseManager#updateStatus(DatabaseManager.StatusChange, int[], DatabaseManager.EndpointStatusConsumer)}.
+     */
+    int updateStatus(DatabaseManager.StatusChange change, int[] ids, DatabaseManager.EndpointStatusConsumer changed) throws SQLException;
+
+    /**
+     * Đổi trạng thái của các API thỏa mãn điều kiện lọc của {@code query}.
+     */
+    int updateStatus(DatabaseManager.StatusChange change, ApiQuery query, DatabaseManager.EndpointStatusConsumer changed) throws SQLException;
+
+    /**
+     * Đổi trạng thái của các API thuộc một host.
+     */
+    int updateStatusForHost(DatabaseManager.StatusChange change, String host, DatabaseManager.EndpointStatusConsumer changed) throws SQLException;
+
+    /**
+     * Chuyển tối đa một lô API lâu không xuất hiện sang kho lạnh; xem {@link DatabaseManager#archiveStale}.
+     */
+    int archiveStale(int retentionDays, DatabaseManager.EndpointConsumer archived) throws SQLException;
+
+    /**
+     * @return Số API trong kho lạnh, không truy vấn CSDL.
+     */
+    int archivedCount();
+
+    /**
+     * Đặt hàm được gọi mỗi khi một transaction bị rollback, để các cache dựng từ CSDL được dựng lại; xem
+     * {@link DatabaseManager#setRollbackListener}.
+     */
+    void setRollbackListener(Runnable listener);
+
+    /**
+     * @return true nếu CSDL đã được mở thành công và chưa bị đóng.
+     */
+    boolean isConnected();
+
+    /**
+     * Đóng kết nối CSDL.
+     */
+    void close();
+}
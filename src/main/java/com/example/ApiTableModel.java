@@ -0,0 +1,232 @@
+package com.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TableModel chỉ giữ các trang dữ liệu đang được hiển thị thay vì toàn bộ bảng api_log.
+ * <p>
+ * Số dòng được đếm bằng SQL; khi JTable vẽ một dòng chưa có trong bộ nhớ, cả trang chứa dòng đó được tải từ
+ * {@link ApiStore#loadApiPage(ApiQuery, int, int)}. Chỉ vài trang gần nhất được giữ lại, nên bộ nhớ của
+ * giao diện không phụ thuộc vào số lượng API. Lọc theo path và sắp xếp theo cột cũng được thực hiện trong SQLite.
+ * <p>
+ * Thứ tự cột: Method, Host, Path, Unscanned, Scanned, Rejected, Bypass, Repeater(ẩn), id(ẩn).
+ */
+class ApiTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"Method", "Host", "Path", "Unscanned Params", "Scanned", "Rejected", "Bypass", "Repeater", "id"};
+    /**
+     * Cột trong CSDL tương ứng với từng cột của bảng, dùng khi sắp xếp.
+     */
+    private static final String[] SORT_COLUMNS = {"method", "host", "path", "unscanned_params", "is_scanned", "is_rejected", "is_bypassed", "is_from_repeater", "id"};
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private ApiStore databaseManager;
+    private final boolean unverifiedOnly;
+    private String pathPattern = "";
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private ApiQuery query;
+    private int rowCount;
+    /**
+     * true nếu dữ liệu đã thay đổi từ lần đếm gần nhất nhưng việc tải lại được hoãn vì bảng đang bị ẩn.
+     */
+    private boolean invalid;
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    /**
+     * @param unverifiedOnly true để chỉ hiển thị các API chưa có trạng thái nào (tab "Unscanned").
+     */
+    ApiTableModel(ApiStore databaseManager, boolean unverifiedOnly) {
+        this.databaseManager = databaseManager;
+        this.unverifiedOnly = unverifiedOnly;
+        this.query = buildQuery();
+    }
+
+    /**
+     * Đếm lại số dòng và bỏ các trang đã tải. Phải được gọi trên EDT.
+     */
+    void reload() {
+        invalid = false;
+        // Dữ liệu có thể đã thay đổi: một ApiQuery mới để các vị trí trang đã ghi nhớ cho lượt trước không được dùng lại.
+        query = buildQuery();
+        rowCount = databaseManager.countApis(query);
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Đánh dấu dữ liệu đã thay đổi mà chưa đếm lại, cho bảng đang bị ẩn: việc đếm và sắp xếp trong SQLite được hoãn
+     * tới khi bảng hiện ra ({@link #reloadIfInvalid()}). Phải được gọi trên EDT.
+     */
+    void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Tải lại nếu model đã bị {@link #invalidate()} từ lần tải gần nhất. Phải được gọi trên EDT.
+     */
+    void reloadIfInvalid() {
+        if (invalid) {
+            reload();
+        }
+    }
+
+    /**
+     * Chuyển model sang CSDL của một project khác, giữ nguyên bộ lọc và thứ tự sắp xếp. Phải được gọi trên EDT.
+     */
+    void switchTo(ApiStore databaseManager) {
+        this.databaseManager = databaseManager;
+        reload();
+    }
+
+    /**
+     * Lọc theo path bằng biểu thức chính quy (không phân biệt hoa thường), chuỗi rỗng để bỏ lọc.
+     */
+    void setPathFilter(String pattern) {
+        pathPattern = pattern == null ? "" : pattern;
+        reload();
+    }
+
+    /**
+     * Sắp xếp theo một cột; bấm lại cùng cột để đảo chiều, lần thứ ba trở về thứ tự mặc định (mới nhất trước).
+     */
+    void toggleSort(int column) {
+        if (column != sortColumn) {
+            sortColumn = column;
+            ascending = true;
+        } else if (ascending) {
+            ascending = false;
+        } else {
+            sortColumn = -1;
+        }
+        reload();
+    }
+
+    /**
+     * Cập nhật giá trị của một ô trong trang đã tải mà không ghi xuống CSDL, để giao diện phản hồi ngay
+     * trong lúc thay đổi được ghi ở luồng khác.
+     */
+    void setCachedValue(Object value, int row, int column) {
+        Object[][] page = pages.get(row / PAGE_SIZE);
+        if (page != null && row % PAGE_SIZE < page.length) {
+            page[row % PAGE_SIZE][column] = value;
+            fireTableCellUpdated(row, column);
+        }
+    }
+
+    /**
+     * @return Điều kiện lọc và sắp xếp hiện tại của bảng.
+     */
+    ApiQuery query() {
+        return query;
+    }
+
+    /**
+     * Lấy ID của các dòng đang được chọn. Nếu có dòng nằm ngoài các trang đã tải, ID của cả đoạn được chọn
+     * được đọc bằng một truy vấn chỉ lấy cột id thay vì tải từng trang. Phải được gọi trên EDT.
+     *
+     * @param rows Chỉ số các dòng, tăng dần (như {@link javax.swing.JTable#getSelectedRows()}).
+     */
+    int[] idsOf(int[] rows) {
+        int[] ids = new int[rows.length];
+        int count = 0;
+        int[] range = null;
+        for (int row : rows) {
+            Object[][] page = pages.get(row / PAGE_SIZE);
+            Object[] values = page != null && row % PAGE_SIZE < page.length ? page[row % PAGE_SIZE] : null;
+            if (values == null) {
+                if (range == null) {
+                    range = databaseManager.loadApiIds(query, rows[0], rows[rows.length - 1] - rows[0] + 1);
+                }
+                int offset = row - rows[0];
+                if (offset < range.length) {
+                    ids[count++] = range[offset];
+                }
+            } else {
+                ids[count++] = (Integer) values[8];
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private ApiQuery buildQuery() {
+        return new ApiQuery(unverifiedOnly, pathPattern, sortColumn < 0 ? null : SORT_COLUMNS[sortColumn], ascending);
+    }
+
+    private Object[] row(int row) {
+        int pageIndex = row / PAGE_SIZE;
+        Object[][] page = pages.get(pageIndex);
+        if (page == null) {
+            List<Object[]> rows = databaseManager.loadApiPage(query, pageIndex * PAGE_SIZE, PAGE_SIZE);
+            page = rows.toArray(new Object[0][]);
+            pages.put(pageIndex, page);
+        }
+        int offset = row % PAGE_SIZE;
+        // Dữ liệu có thể đã thay đổi kể từ lần đếm gần nhất; dòng không còn tồn tại được hiển thị trống.
+        return offset < page.length ? page[offset] : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] values = row(row);
+        return values == null ? null : values[column];
+    }
+
+    /**
+     * Sửa đổi logic cho phép chỉnh sửa ô.
+     * - "Rejected": Chỉ có thể sửa nếu API chưa "Scanned" VÀ đã được gửi từ "Repeater".
+     * - "Bypass": Có thể sửa nếu API chưa "Scanned".
+     * - Các cột khác không thể sửa trực tiếp trên bảng.
+     */
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        if (getValueAt(row, 8) == null) {
+            return false;
+        }
+        boolean isScanned = Boolean.TRUE.equals(getValueAt(row, 4));
+        // Nếu đã được quét, không cho phép chỉnh sửa bất kỳ trạng thái nào.
+        if (isScanned) {
+            return false;
+        }
+        // Cột "Rejected" (index 5) chỉ cho phép sửa nếu cột "Repeater" (index 7) là true.
+        if (column == 5) {
+            return Boolean.TRUE.equals(getValueAt(row, 7));
+        }
+        // Cột "Bypass" (index 6)
+        return column == 6;
+    }
+
+    /**
+     * Định nghĩa kiểu dữ liệu cho các cột để JTable có thể render đúng.
+     */
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        if (columnIndex >= 4 && columnIndex <= 7) return Boolean.class; // Các cột trạng thái (Scanned, Rejected, Bypass, Repeater)
+        if (columnIndex == 8) return Integer.class; // Cột ID
+        return String.class;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example;
+
+import javax.swing.JCheckBox;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.table.TableCellRenderer;
+import java.awt.Component;
+
+/**
+ * Renderer dạng checkbox cho các cột trạng thái. Như {@link javax.swing.table.DefaultTableCellRenderer}, một thể hiện
+ * được dùng lại cho mọi ô của bảng: mỗi lần vẽ chỉ đặt lại trạng thái của cùng một component, không tạo component mới,
+ * và các thông báo validate/repaint/đổi thuộc tính (vô ích với một component chỉ dùng để vẽ) bị bỏ qua.
+ */
+final class BooleanCellRenderer extends JCheckBox implements TableCellRenderer {
+    /**
+     * Cột hiển thị checkbox bị vô hiệu hóa (chỉ đọc), -1 nếu không có.
+     */
+    private final int readOnlyColumn;
+
+    BooleanCellRenderer(int readOnlyColumn) {
+        this.readOnlyColumn = readOnlyColumn;
+        setHorizontalAlignment(SwingConstants.CENTER);
+        setOpaque(true);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+        setSelected(Boolean.TRUE.equals(value));
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        setEnabled(column != readOnlyColumn);
+        return this;
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.example;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Phân loại response theo header Content-Type để bỏ qua hoặc tự động bypass các response không phải API
+ * (trang HTML, ảnh, font...) ngay trên luồng HTTP của Burp, trước khi trích xuất tham số hay ghi CSDL.
+ * <p>
+ * Chỉ đọc header, không đọc body. Mỗi danh sách gồm các mục cách nhau bởi dấu phẩy; mỗi mục là một nhóm
+ * ({@code html}, {@code image}, {@code font}, {@code css}, {@code script}, {@code media}), một MIME type
+ * ({@code application/pdf}) hoặc một loại chính ({@code image/*}). Response không có Content-Type luôn được giữ lại.
+ * MIME type đầy đủ được ưu tiên hơn loại chính; một mục có trong cả hai danh sách thì bị bỏ qua. Đối tượng là bất biến.
+ */
+final class ContentTypeRules {
+    enum Action {
+        /**
+         * Xử lý như bình thường.
+         */
+        KEEP,
+        /**
+         * Không ghi nhận.
+         */
+        SKIP,
+        /**
+         * Ghi nhận endpoint nhưng không trích xuất tham số, để nó được auto-bypass như một API không có tham số.
+         */
+        BYPASS
+    }
+
+    static final ContentTypeRules NONE = new ContentTypeRules(Map.of(), Map.of());
+
+    private static final Map<String, List<String>> GROUPS = Map.of(
+            "html", List.of("text/html", "application/xhtml+xml"),
+            "image", List.of("image/*"),
+            "font", List.of("font/*", "application/font-woff", "application/font-woff2", "application/x-font-ttf",
+                    "application/x-font-otf", "application/vnd.ms-fontobject"),
+            "css", List.of("text/css"),
+            "script", List.of("application/javascript", "text/javascript", "application/x-javascript",
+                    "application/ecmascript", "text/ecmascript"),
+            "media", List.of("audio/*", "video/*"));
+
+    /**
+     * Khóa là MIME type đầy đủ, chữ thường.
+     */
+    private final Map<String, Action> exactTypes;
+    /**
+     * Khóa là loại chính (phần trước '/'), chữ thường.
+     */
+    private final Map<String, Action> majorTypes;
+
+    private ContentTypeRules(Map<String, Action> exactTypes, Map<String, Action> majorTypes) {
+        this.exactTypes = exactTypes;
+        this.majorTypes = majorTypes;
+    }
+
+    /**
+     * @param skipTypes   Các mục cần bỏ qua.
+     * @param bypassTypes Các mục cần tự động bypass.
+     * @param errorLog    Nơi ghi lại các mục không hợp lệ (các mục này bị bỏ qua).
+     */
+    static ContentTypeRules compile(String skipTypes, String bypassTypes, Consumer<String> errorLog) {
+        Map<String, Action> exactTypes = new HashMap<>();
+        Map<String, Action> majorTypes = new HashMap<>();
+        // Danh sách bypass được thêm trước để danh sách bỏ qua ghi đè khi trùng.
+        addAll(bypassTypes, Action.BYPASS, exactTypes, majorTypes, errorLog);
+        addAll(skipTypes, Action.SKIP, exactTypes, majorTypes, errorLog);
+        if (exactTypes.isEmpty() && majorTypes.isEmpty()) {
+            return NONE;
+        }
+        return new ContentTypeRules(Map.copyOf(exactTypes), Map.copyOf(majorTypes));
+    }
+
+    /**
+     * @return true nếu không có mục nào được cấu hình.
+     */
+    boolean isEmpty() {
+        return exactTypes.isEmpty() && majorTypes.isEmpty();
+    }
+
+    /**
+     * @param contentType Giá trị header Content-Type của response, có thể null.
+     */
+    Action classify(String contentType) {
+        if (contentType == null || isEmpty()) {
+            return Action.KEEP;
+        }
+        int end = contentType.indexOf(';');
+        String mimeType = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ROOT);
+        Action action = exactTypes.get(mimeType);
+        if (action != null) {
+            return action;
+        }
+        int slash = mimeType.indexOf('/');
+        if (slash <= 0 || majorTypes.isEmpty()) {
+            return Action.KEEP;
+        }
+        action = majorTypes.get(mimeType.substring(0, slash));
+        return action != null ? action : Action.KEEP;
+    }
+
+    private static void addAll(String entries, Action action, Map<String, Action> exactTypes, Map<String, Action> majorTypes,
+                               Consumer<String> errorLog) {
+        if (entries == null || entries.isBlank()) {
+            return;
+        }
+        for (String rawEntry : entries.split(",")) {
+            String entry = rawEntry.trim().toLowerCase(Locale.ROOT);
+            if (entry.isEmpty()) {
+                continue;
+            }
+            List<String> mimeTypes = GROUPS.get(entry);
+            if (mimeTypes == null) {
+                int slash = entry.indexOf('/');
+                if (slash <= 0 || slash == entry.length() - 1 || entry.indexOf('/', slash + 1) >= 0) {
+                    errorLog.accept("Invalid response content type: " + rawEntry.trim());
+                    continue;
+                }
+                mimeTypes = List.of(entry);
+            }
+            for (String mimeType : mimeTypes) {
+                if (mimeType.endsWith("/*")) {
+                    majorTypes.put(mimeType.substring(0, mimeType.length() - 2), action);
+                } else {
+                    exactTypes.put(mimeType, action);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example;
+
+/**
+ * Các loại sự kiện trong lịch sử độ phủ (bảng {@code api_event}) của một API.
+ */
+final class CoverageEvent {
+    static final byte DISCOVERED = 1;
+    static final byte SCANNED = 2;
+    static final byte AUTO_BYPASSED = 3;
+    static final byte REPEATER = 4;
+    static final byte REJECTED = 5;
+    static final byte BYPASSED = 6;
+    static final byte RESET = 7;
+    static final byte ARCHIVED = 8;
+    static final byte RESTORED = 9;
+
+    private CoverageEvent() {
+    }
+
+    /**
+     * Tên hiển thị của một loại sự kiện.
+     */
+    static String label(int type) {
+        return switch (type) {
+            case DISCOVERED -> "Discovered";
+            case SCANNED -> "Scanned";
+            case AUTO_BYPASSED -> "Auto-bypassed";
+            case REPEATER -> "Sent from Repeater";
+            case REJECTED -> "Rejected";
+            case BYPASSED -> "Bypassed";
+            case RESET -> "Status reset";
+            case ARCHIVED -> "Archived (not seen)";
+            case RESTORED -> "Restored from archive";
+            default -> "Unknown (" + type + ")";
+        };
+    }
+}
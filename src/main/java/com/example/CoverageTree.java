@@ -0,0 +1,162 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cây tổng hợp độ phủ theo host và từng segment của path: mỗi nút đếm số endpoint trong cây con của nó theo
+ * trạng thái, nên có thể tìm các host hoặc nhánh path còn endpoint chưa xác minh mà không cần duyệt từng dòng.
+ * <p>
+ * Cây được cập nhật tăng dần bởi {@link EndpointStatusCache} mỗi khi cờ trạng thái của một endpoint thay đổi:
+ * chỉ các nút trên đường đi từ host đến path của endpoint được điều chỉnh. Cây chỉ chứa bộ đếm, không chứa
+ * danh sách endpoint; các endpoint khác method nhưng cùng path được đếm chung ở một nút.
+ */
+final class CoverageTree {
+    /**
+     * Thứ tự các nút con khi hiển thị: nhiều endpoint chưa xác minh trước, sau đó theo tên.
+     */
+    private static final Comparator<Node> DISPLAY_ORDER = Comparator.<Node>comparingInt(node -> -node.unverified)
+            .thenComparing(node -> node.name);
+
+    private final Node root = new Node("", null);
+    /**
+     * Tăng sau mỗi thay đổi, để giao diện biết khi nào cần vẽ lại.
+     */
+    private volatile long version;
+
+    /**
+     * @return Nút gốc (ẩn); các nút con trực tiếp là các host.
+     */
+    Node root() {
+        return root;
+    }
+
+    long version() {
+        return version;
+    }
+
+    /**
+     * Ghi nhận thay đổi trạng thái của một endpoint.
+     *
+     * @param previous Cờ trạng thái cũ, hoặc {@link EndpointIndex#ABSENT} nếu endpoint mới được thêm.
+     * @param flags    Cờ trạng thái mới, hoặc {@link EndpointIndex#ABSENT} nếu endpoint bị xóa.
+     */
+    synchronized void update(String host, String path, int previous, int flags) {
+        if (previous == flags) {
+            return;
+        }
+        Node node = root;
+        node.adjust(previous, flags);
+        node = node.child(host).adjust(previous, flags);
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                node = node.child(path.substring(start, end)).adjust(previous, flags);
+            }
+            start = end + 1;
+        }
+        // Bỏ các nút không còn endpoint nào, từ lá lên gốc.
+        while (node != root && node.total == 0) {
+            node.parent.children.remove(node.name);
+            node = node.parent;
+        }
+        version++;
+    }
+
+    /**
+     * Xóa toàn bộ cây, gọi trước khi dựng lại chỉ mục trạng thái từ CSDL.
+     */
+    synchronized void clear() {
+        root.children = null;
+        root.total = root.unverified = root.scanned = root.rejected = root.bypassed = 0;
+        version++;
+    }
+
+    /**
+     * @return Bản sao các nút con của một nút, theo thứ tự hiển thị.
+     */
+    synchronized Node[] children(Node node) {
+        if (node.children == null) {
+            return new Node[0];
+        }
+        Node[] result = node.children.values().toArray(new Node[0]);
+        Arrays.sort(result, DISPLAY_ORDER);
+        return result;
+    }
+
+    synchronized boolean hasChildren(Node node) {
+        return node.children != null && !node.children.isEmpty();
+    }
+
+    /**
+     * @return Mảng {tổng, chưa xác minh, scanned, rejected, bypassed} của cây con.
+     */
+    synchronized int[] counts(Node node) {
+        return new int[]{node.total, node.unverified, node.scanned, node.rejected, node.bypassed};
+    }
+
+    /**
+     * Một host hoặc một segment path. Bộ đếm được bảo vệ bởi khóa của {@link CoverageTree}.
+     */
+    static final class Node {
+        final String name;
+        final Node parent;
+        private Map<String, Node> children;
+        private int total;
+        private int unverified;
+        private int scanned;
+        private int rejected;
+        private int bypassed;
+
+        private Node(String name, Node parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        private Node child(String name) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(name, n -> new Node(n, this));
+        }
+
+        private Node adjust(int previous, int flags) {
+            count(previous, -1);
+            count(flags, 1);
+            return this;
+        }
+
+        private void count(int flags, int delta) {
+            if (flags == EndpointIndex.ABSENT) {
+                return;
+            }
+            total += delta;
+            if (flags == 0) unverified += delta;
+            if ((flags & EndpointStatusCache.SCANNED) != 0) scanned += delta;
+            if ((flags & EndpointStatusCache.REJECTED) != 0) rejected += delta;
+            if ((flags & EndpointStatusCache.BYPASSED) != 0) bypassed += delta;
+        }
+
+        /**
+         * @return Host và path prefix mà nút đại diện, ví dụ {@code api.example.com/v1/users}.
+         */
+        String path() {
+            if (parent == null) {
+                return "";
+            }
+            String prefix = parent.path();
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * TreeModel hiển thị {@link CoverageTree} của project đang hoạt động.
+ * <p>
+ * Danh sách con của một nút chỉ được lấy (và sắp xếp) khi JTree cần đến nó, tức là khi nút được mở, nên số
+ * nút được đọc tỷ lệ với phần cây đang hiển thị chứ không phải với số endpoint. Danh sách đã lấy được giữ
+ * nguyên cho đến lần {@link #reload()} tiếp theo, để chỉ số các nút con ổn định giữa hai lần JTree hỏi model.
+ * Chỉ dùng trên EDT.
+ */
+class CoverageTreeModel implements TreeModel {
+    private CoverageTree tree;
+    private final Map<CoverageTree.Node, CoverageTree.Node[]> children = new IdentityHashMap<>();
+    private final EventListenerList listeners = new EventListenerList();
+    private long loadedVersion = -1;
+
+    CoverageTreeModel(CoverageTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Chuyển sang cây của một project khác.
+     */
+    void switchTo(CoverageTree tree) {
+        this.tree = tree;
+        reload();
+    }
+
+    /**
+     * @return true nếu cây đã thay đổi kể từ lần tải gần nhất.
+     */
+    boolean isStale() {
+        return tree.version() != loadedVersion;
+    }
+
+    /**
+     * Bỏ các danh sách con đã lấy và báo cho JTree dựng lại từ gốc.
+     */
+    void reload() {
+        children.clear();
+        loadedVersion = tree.version();
+        TreeModelEvent event = new TreeModelEvent(this, new TreePath(tree.root()));
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeStructureChanged(event);
+        }
+    }
+
+    /**
+     * Nhãn hiển thị của một nút: tên, số endpoint chưa xác minh trên tổng số và tỷ lệ đã xác minh.
+     */
+    String label(Object value) {
+        if (!(value instanceof CoverageTree.Node node)) {
+            return String.valueOf(value);
+        }
+        int[] counts = tree.counts(node);
+        int total = counts[0];
+        int unverified = counts[1];
+        return String.format(Locale.ROOT, "%s  -  %d unverified / %d  (%.1f%% verified; scanned %d, rejected %d, bypassed %d)",
+                node.name, unverified, total, total == 0 ? 100.0 : (total - unverified) * 100.0 / total,
+                counts[2], counts[3], counts[4]);
+    }
+
+    /**
+     * @return Số endpoint chưa xác minh trong cây con của nút.
+     */
+    int unverified(Object value) {
+        return value instanceof CoverageTree.Node node ? tree.counts(node)[1] : 0;
+    }
+
+    /**
+     * @return Tên các nút trên một đường dẫn, không kể gốc; dùng để tìm lại nút sau khi cây được dựng lại.
+     */
+    static List<String> names(TreePath path) {
+        List<String> names = new ArrayList<>(path.getPathCount());
+        for (int i = 1; i < path.getPathCount(); i++) {
+            names.add(((CoverageTree.Node) path.getPathComponent(i)).name);
+        }
+        return names;
+    }
+
+    /**
+     * @return Đường dẫn đến nút có các tên đã cho trong cây hiện tại, hoặc null nếu nút không còn tồn tại.
+     */
+    TreePath find(List<String> names) {
+        Object node = getRoot();
+        TreePath path = new TreePath(node);
+        for (String name : names) {
+            Object match = null;
+            for (CoverageTree.Node child : childrenOf(node)) {
+                if (child.name.equals(name)) {
+                    match = child;
+                    break;
+                }
+            }
+            if (match == null) {
+                return null;
+            }
+            node = match;
+            path = path.pathByAddingChild(node);
+        }
+        return path;
+    }
+
+    private CoverageTree.Node[] childrenOf(Object parent) {
+        return children.computeIfAbsent((CoverageTree.Node) parent, tree::children);
+    }
+
+    @Override
+    public Object getRoot() {
+        return tree.root();
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        CoverageTree.Node[] nodes = childrenOf(parent);
+        return index < nodes.length ? nodes[index] : null;
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return childrenOf(parent).length;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        // Không lấy danh sách con chỉ để vẽ dấu mở rộng của một nút đang đóng.
+        CoverageTree.Node[] loaded = children.get(node);
+        return loaded != null ? loaded.length == 0 : !tree.hasChildren((CoverageTree.Node) node);
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // Cây chỉ đọc.
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        CoverageTree.Node[] nodes = childrenOf(parent);
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == child) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener listener) {
+        listeners.add(TreeModelListener.class, listener);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener listener) {
+        listeners.remove(TreeModelListener.class, listener);
+    }
+}
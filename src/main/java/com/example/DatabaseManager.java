@@ -3,10 +3,13 @@ package com.example;
 import burp.api.montoya.MontoyaApi;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Quản lý tất cả các hoạt động liên quan đến cơ sở dữ liệu SQLite của extension.
@@ -15,7 +18,7 @@ import java.util.stream.Collectors;
  * Việc tách biệt logic xử lý dữ liệu ra khỏi logic nghiệp vụ (trong RecheckScanApiExtension)
  * và giao diện người dùng giúp mã nguồn trở nên sạch sẽ, dễ quản lý và bảo trì hơn.
  */
-public class DatabaseManager {
+public class DatabaseManager implements ApiStore {
     /**
      * Đối tượng API của Montoya, cần thiết để ghi log lỗi và thông báo.
      */
@@ -24,18 +27,140 @@ public class DatabaseManager {
      * Đối tượng kết nối đến cơ sở dữ liệu SQLite. Được quản lý trong suốt vòng đời của extension.
      */
     private Connection connection;
+    /**
+     * true khi {@link #connection} đã được mở và chưa bị đóng. Được đọc không cần khóa, để việc kiểm tra (kể cả trên
+     * EDT) không phải chờ một thao tác đang giữ khóa của DatabaseManager.
+     */
+    private volatile boolean connected;
     /**
      * Đường dẫn đến tệp cơ sở dữ liệu SQLite trên đĩa.
      */
     private String dbPath;
+    /**
+     * Nơi ghi nhận độ trễ của từng thao tác CSDL (tên metric là "db." + tên phương thức).
+     */
+    private final Metrics metrics;
+    /**
+     * Từ điển cho method, host và tên tham số. Bảng api_log chỉ lưu ID của chúng, các phép toán trên
+     * tập tham số được thực hiện trên mảng ID đã sắp xếp (xem {@link IntSets}).
+     */
+    private final StringDictionary methods = new StringDictionary("dict_method");
+    private final StringDictionary hosts = new StringDictionary("dict_host");
+    private final StringDictionary params = new StringDictionary("dict_param");
+    /**
+     * Số endpoint tối đa được giữ độ phủ tham số trong bộ nhớ.
+     */
+    private static final int COVERAGE_CACHE_CAPACITY = 20_000;
+    /**
+     * Độ phủ tham số của các endpoint gần đây, theo (method_id, host_id, path). Khi có trong cache, một request
+     * không mang tham số mới được xử lý mà không cần truy vấn CSDL, và không cần khóa của DatabaseManager.
+     * Map được bảo vệ bởi khóa của chính nó; mỗi {@link ParamCoverage} trong map chỉ được đọc và sửa khi giữ
+     * khóa endpoint tương ứng ({@link #endpointLocks}).
+     */
+    private final Map<EndpointKey, ParamCoverage> coverageCache = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EndpointKey, ParamCoverage> eldest) {
+            return size() > COVERAGE_CACHE_CAPACITY;
+        }
+    };
+    /**
+     * Khóa dùng lại cho các lần tra cứu cache, tránh cấp phát trên mỗi sự kiện. Chỉ dùng khi giữ khóa của coverageCache.
+     */
+    private final EndpointKey probeKey = new EndpointKey(0, 0, null);
+    /**
+     * Số khóa endpoint.
+     */
+    private static final int ENDPOINT_LOCK_STRIPES = 64;
+    /**
+     * Khóa theo endpoint cho các thao tác đọc-sửa-ghi từ traffic. Phần kiểm tra trong bộ nhớ (request không mang gì
+     * mới, trường hợp phổ biến nhất) chỉ cần khóa này, nên chạy song song trên nhiều luồng và không phải chờ các
+     * tác vụ bảo trì dài đang giữ khóa của DatabaseManager; chỉ phần ghi xuống CSDL được tuần tự hóa.
+     */
+    private final EndpointLocks endpointLocks = new EndpointLocks(ENDPOINT_LOCK_STRIPES);
+    /**
+     * Các cột đọc cho một dòng của bảng trên giao diện.
+     */
+    private static final String PAGE_COLUMNS = "id, method_id, host_id, path, unscanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater";
+    /**
+     * Số dòng con trỏ xuất dữ liệu đọc trước mỗi lần.
+     */
+    private static final int EXPORT_FETCH_SIZE = 500;
+    /**
+     * Upsert dùng khi nhập API không có tham số: chèn với trạng thái bypass, hoặc đánh dấu bypass nếu API chưa được
+     * xử lý và không còn tham số chưa quét. Không ghi đè các API đã scanned/rejected.
+     */
+    private static final String AUTO_BYPASS_SQL = """
+            INSERT INTO api_log (method_id, host_id, path, unscanned_params, scanned_params, is_bypassed)
+            VALUES (?, ?, ?, '', '', 1)
+            ON CONFLICT(host_id, path, method_id) DO UPDATE SET
+                is_bypassed = CASE
+                    WHEN api_log.is_scanned = 0 AND api_log.is_rejected = 0 AND api_log.unscanned_params = ''
+                    THEN 1
+                    ELSE api_log.is_bypassed
+                END,
+                last_seen = CURRENT_TIMESTAMP
+            """;
+    /**
+     * Đánh dấu bypass một API đã có khi traffic không mang tham số, chỉ khi trạng thái thực sự đổi: API chưa
+     * bypass, chưa scanned/rejected và không còn tham số chưa quét.
+     */
+    private static final String BYPASS_EXISTING_SQL = """
+            UPDATE api_log SET is_bypassed = 1, last_seen = CURRENT_TIMESTAMP
+            WHERE id = ? AND is_bypassed = 0 AND is_scanned = 0 AND is_rejected = 0 AND unscanned_params = ''
+            """;
+    /**
+     * Được gọi mỗi khi một transaction bị rollback, để nơi giữ cache dựng từ dữ liệu của CSDL (chỉ mục trạng thái,
+     * dấu vân tay request) bỏ các giá trị có thể đã được đọc từ thay đổi vừa bị hủy. Chạy khi đang giữ khóa của
+     * DatabaseManager nên không được truy cập CSDL trên luồng gọi.
+     */
+    private volatile Runnable rollbackListener = () -> {
+    };
+    /**
+     * Số API đã được chuyển về từ kho lạnh trong transaction đang mở; được cộng lại vào {@link #archivedCount} nếu
+     * transaction bị rollback.
+     */
+    private int restoredSinceCommit;
+    /**
+     * Khoảng thời gian tối thiểu giữa hai lần ghi last_seen của một endpoint xuất hiện lại mà không có gì thay đổi:
+     * đủ chính xác cho việc lưu trữ tính theo ngày mà không biến mỗi request thành một lần ghi.
+     */
+    private static final long TOUCH_INTERVAL_MILLIS = 10 * 60 * 1000;
+    /**
+     * Số API tối đa được chuyển vào kho lạnh trong một lần giữ khóa (xem {@link #archiveStale(int)}).
+     */
+    static final int ARCHIVE_BATCH_SIZE = 500;
+    /**
+     * Các cột chung của api_log và api_log_archive.
+     */
+    private static final String ARCHIVE_COLUMNS = "id, method_id, host_id, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater, last_seen";
+    /**
+     * Số dòng trong kho lạnh api_log_archive; bằng 0 thì việc tìm API xuất hiện lại trong kho lạnh được bỏ qua.
+     * Chỉ ghi dưới khóa của DatabaseManager, volatile để giao diện đọc được mà không chờ khóa.
+     */
+    private volatile int archivedCount;
+    /**
+     * ID nhỏ nhất của các dòng api_log mới trong một tệp chưa có dòng nào (xem {@link ShardedDatabaseManager}).
+     */
+    private final int firstApiId;
 
     /**
      * Hàm khởi tạo cho DatabaseManager.
      *
-     * @param api Đối tượng MontoyaApi được cung cấp bởi Burp.
+     * @param api     Đối tượng MontoyaApi được cung cấp bởi Burp.
+     * @param metrics Nơi ghi nhận độ trễ của các thao tác CSDL.
+     */
+    public DatabaseManager(MontoyaApi api, Metrics metrics) {
+        this(api, metrics, 1);
+    }
+
+    /**
+     * @param firstApiId ID của dòng api_log đầu tiên nếu tệp CSDL chưa có dòng nào, để ID không trùng giữa các tệp
+     *                   của cùng một project.
      */
-    public DatabaseManager(MontoyaApi api) {
+    DatabaseManager(MontoyaApi api, Metrics metrics, int firstApiId) {
         this.api = api;
+        this.metrics = metrics;
+        this.firstApiId = firstApiId;
     }
 
     /**
@@ -43,27 +168,187 @@ public class DatabaseManager {
      *
      * @param savedOutputPath Đường dẫn đến tệp CSDL do người dùng cấu hình. Nếu rỗng, một đường dẫn mặc định sẽ được sử dụng.
      */
-    public void initialize(String savedOutputPath) {
-        this.dbPath = getDbPath(savedOutputPath);
+    public synchronized void initialize(String savedOutputPath) {
+        long start = System.nanoTime();
         try {
-            // Nạp driver JDBC cho SQLite.
-            Class.forName("org.sqlite.JDBC");
+            this.dbPath = getDbPath(savedOutputPath);
+            clearCoverage();
+            try {
+                // Nạp driver JDBC cho SQLite.
+                Class.forName("org.sqlite.JDBC");
             
-            // Đảm bảo thư mục cha tồn tại trước khi tạo tệp CSDL.
-            File dbFile = new File(dbPath);
-            File parentDir = dbFile.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
-            }
+                // Đảm bảo thư mục cha tồn tại trước khi tạo tệp CSDL.
+                File dbFile = new File(dbPath);
+                File parentDir = dbFile.getParentFile();
+                if (parentDir != null && !parentDir.exists()) {
+                    parentDir.mkdirs();
+                }
             
-            // Tạo kết nối đến tệp SQLite.
-            connection = DriverManager.getConnection("jdbc:sqlite:" + this.dbPath);
-            api.logging().logToOutput("Successfully connected to SQLite database: " + this.dbPath);
+                // Tạo kết nối đến tệp SQLite.
+                connection = DriverManager.getConnection("jdbc:sqlite:" + this.dbPath);
+                connected = true;
+                api.logging().logToOutput("Successfully connected to SQLite database: " + this.dbPath);
+                useWriteAheadLog();
             
-            // Tạo bảng nếu nó chưa tồn tại.
-            createTableIfNotExists();
-        } catch (SQLException | ClassNotFoundException e) {
-            api.logging().logToError("Failed to initialize SQLite database: " + e.getMessage(), e);
+                // Nạp các từ điển, sau đó đưa lược đồ lên phiên bản mới nhất.
+                methods.load(connection);
+                hosts.load(connection);
+                params.load(connection);
+                if (hasColumn("api_log", "host")) {
+                    // CSDL tạo bởi phiên bản cũ lưu method, host và tên tham số dạng chuỗi.
+                    migrateLegacyTable();
+                }
+                int schemaVersion = SchemaMigrations.migrate(connection);
+                if (schemaVersion > SchemaMigrations.LATEST_VERSION) {
+                    api.logging().logToError("Database schema version " + schemaVersion + " is newer than this extension supports ("
+                            + SchemaMigrations.LATEST_VERSION + "); consider upgrading RecheckScan.");
+                } else if (schemaVersion > 0 && schemaVersion < SchemaMigrations.LATEST_VERSION) {
+                    api.logging().logToOutput("Upgraded database schema from version " + schemaVersion + " to " + SchemaMigrations.LATEST_VERSION);
+                }
+                if (firstApiId > 1) {
+                    reserveApiIds();
+                }
+                archivedCount = countArchived();
+                // SQLite không có sẵn toán tử REGEXP; đăng ký để bộ lọc path của giao diện chạy trong truy vấn.
+                org.sqlite.Function.create(connection, "REGEXP", new RegexpFunction());
+            } catch (SQLException | ClassNotFoundException e) {
+                api.logging().logToError("Failed to initialize SQLite database: " + e.getMessage(), e);
+            }
+        } finally {
+            metrics.record("db.initialize", start);
+        }
+    }
+
+    /**
+     * Chuyển tệp CSDL sang chế độ WAL với {@code synchronous=NORMAL}: mỗi commit chỉ nối các trang đã đổi vào cuối
+     * tệp {@code -wal} mà không fsync, các trang được gộp vào tệp CSDL chính ở checkpoint. Mỗi thay đổi từ traffic
+     * vẫn là một transaction được commit ngay ({@link #beginChange()}), nên không mất thay đổi nào đã commit khi Burp
+     * bị tắt đột ngột; chỉ khi mất điện hoặc hệ điều hành sập, các commit sau checkpoint cuối cùng mới có thể bị mất,
+     * và CSDL vẫn nhất quán.
+     */
+    private void useWriteAheadLog() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode=WAL")) {
+                if (rs.next() && !"wal".equalsIgnoreCase(rs.getString(1))) {
+                    api.logging().logToError("SQLite WAL mode is not available for " + dbPath + "; using journal mode " + rs.getString(1));
+                    return;
+                }
+            }
+            stmt.execute("PRAGMA synchronous=NORMAL");
+        }
+    }
+
+    /**
+     * Với AUTOINCREMENT, dòng mới nhận ID lớn hơn cả dòng lớn nhất và giá trị trong sqlite_sequence; giá trị này chỉ
+     * được đặt khi bảng chưa từng có dòng nào.
+     */
+    private void reserveApiIds() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO sqlite_sequence (name, seq) SELECT 'api_log', ?"
+                + " WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'api_log')")) {
+            stmt.setInt(1, firstApiId - 1);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Đặt hàm được gọi mỗi khi một transaction bị rollback (xem {@link #rollbackListener}).
+     */
+    @Override
+    public void setRollbackListener(Runnable listener) {
+        rollbackListener = listener;
+    }
+
+    /**
+     * Commit transaction đang mở, rồi xác nhận các giá trị từ điển được thêm trong transaction đó.
+     */
+    private void commit() throws SQLException {
+        connection.commit();
+        methods.commit();
+        hosts.commit();
+        params.commit();
+        restoredSinceCommit = 0;
+    }
+
+    /**
+     * Rollback transaction đang mở, rồi đưa bộ nhớ về trạng thái đã commit: xóa các giá trị từ điển được thêm trong
+     * transaction, bỏ độ phủ đã cache (có thể chứa thay đổi vừa bị hủy) và báo cho {@link #rollbackListener}.
+     */
+    private void rollback() throws SQLException {
+        try {
+            connection.rollback();
+        } finally {
+            methods.rollback();
+            hosts.rollback();
+            params.rollback();
+            archivedCount += restoredSinceCommit;
+            restoredSinceCommit = 0;
+            clearCoverage();
+            rollbackListener.run();
+        }
+    }
+
+    /**
+     * Mở transaction cho một thay đổi từ traffic, trước câu lệnh ghi đầu tiên của nó; các lần gọi tiếp theo trong
+     * cùng thay đổi không làm gì. Transaction được kết thúc bởi {@link #endChange()} khi thao tác trả về.
+     */
+    private void beginChange() throws SQLException {
+        if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Commit thay đổi từ traffic đang mở (nếu có). Nơi gọi giữ khóa của DatabaseManager.
+     */
+    private void endChange() {
+        try {
+            if (connection == null || connection.getAutoCommit()) {
+                return;
+            }
+            try {
+                commit();
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to commit a traffic change, discarding it: " + e.getMessage(), e);
+                rollback();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            api.logging().logToError("Failed to end a traffic change: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hủy thay đổi từ traffic đang mở (nếu có) sau khi một câu lệnh của nó thất bại. Nơi gọi giữ khóa của
+     * DatabaseManager.
+     */
+    private void abortChange() {
+        try {
+            if (connection == null || connection.getAutoCommit()) {
+                return;
+            }
+            try {
+                rollback();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            api.logging().logToError("Failed to rollback a traffic change: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ghi một dòng lịch sử vào api_event, trong cùng transaction với thay đổi mà nó mô tả.
+     *
+     * @param paramIds ID các tham số liên quan, theo định dạng của {@link IntSets#format(int[])}.
+     */
+    private void recordEvent(int apiId, byte type, String paramIds) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO api_event (api_id, type, param_ids, created_at) VALUES (?, ?, ?, ?)")) {
+            stmt.setInt(1, apiId);
+            stmt.setInt(2, type);
+            stmt.setString(3, paramIds);
+            stmt.setLong(4, System.currentTimeMillis());
+            stmt.executeUpdate();
         }
     }
 
@@ -75,7 +360,7 @@ public class DatabaseManager {
      * @param savedOutputPath Đường dẫn thô từ cài đặt.
      * @return Đường dẫn tuyệt đối đã được chuẩn hóa.
      */
-    private String getDbPath(String savedOutputPath) {
+    static String getDbPath(String savedOutputPath) {
         if (savedOutputPath != null && !savedOutputPath.isBlank()) {
             // Hỗ trợ chuyển đổi từ định dạng .csv cũ sang .db mới
             String path = savedOutputPath.toLowerCase().endsWith(".csv")
@@ -83,217 +368,990 @@ public class DatabaseManager {
                     : savedOutputPath;
             return path.toLowerCase().endsWith(".db") ? path : path + ".db";
         }
-        // Đường dẫn mặc định trong thư mục Temp của Windows.
-        return new File(System.getProperty("java.io.tmpdir"), "RecheckScan/scan_api.db").getAbsolutePath();
+        // Đường dẫn mặc định trong thư mục Temp của Windows.
+        return new File(System.getProperty("java.io.tmpdir"), "RecheckScan/scan_api.db").getAbsolutePath();
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chuyển bảng api_log của phiên bản cũ (method, host, tên tham số lưu dạng chuỗi) sang lược đồ mã hóa từ điển.
+     * ID, trạng thái và last_seen của từng dòng được giữ nguyên. Toàn bộ thực hiện trong một transaction:
+     * nếu thất bại, CSDL giữ nguyên như trước khi chuyển.
+     *
+     * @throws SQLException Nếu có lỗi khi chuyển dữ liệu.
+     */
+    private void migrateLegacyTable() throws SQLException {
+        boolean originalAutoCommit = connection.getAutoCommit();
+        int migrated = 0;
+        connection.setAutoCommit(false);
+        try {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("ALTER TABLE api_log RENAME TO api_log_legacy");
+            }
+            SchemaMigrations.createBaseline(connection);
+            String selectSql = "SELECT id, method, host, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater, last_seen FROM api_log_legacy";
+            String insertSql = "INSERT INTO api_log (id, method_id, host_id, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater, last_seen) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            try (Statement select = connection.createStatement();
+                 ResultSet rs = select.executeQuery(selectSql);
+                 PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                while (rs.next()) {
+                    insert.setInt(1, rs.getInt("id"));
+                    insert.setInt(2, methods.getOrCreate(rs.getString("method")));
+                    insert.setInt(3, hosts.getOrCreate(rs.getString("host")));
+                    insert.setString(4, rs.getString("path"));
+                    insert.setString(5, IntSets.format(params.getOrCreateAll(legacyNames(rs.getString("unscanned_params")))));
+                    insert.setString(6, IntSets.format(params.getOrCreateAll(legacyNames(rs.getString("scanned_params")))));
+                    insert.setBoolean(7, rs.getBoolean("is_scanned"));
+                    insert.setBoolean(8, rs.getBoolean("is_rejected"));
+                    insert.setBoolean(9, rs.getBoolean("is_bypassed"));
+                    insert.setBoolean(10, rs.getBoolean("is_from_repeater"));
+                    insert.setString(11, rs.getString("last_seen"));
+                    insert.addBatch();
+                    migrated++;
+                }
+                insert.executeBatch();
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP TABLE api_log_legacy");
+            }
+            commit();
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(originalAutoCommit);
+        }
+        // Thu hồi dung lượng của bảng cũ.
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("VACUUM");
+        }
+        api.logging().logToOutput("Migrated " + migrated + " API records to the dictionary-encoded schema.");
+    }
+
+    /**
+     * Đọc danh sách tên tham số theo định dạng cũ (các tên cách nhau bởi dấu '|').
+     */
+    private static List<String> legacyNames(String value) {
+        if (value == null || value.isBlank()) return List.of();
+        return Arrays.asList(value.split("\\|"));
+    }
+
+    /**
+     * Đếm số API thỏa mãn điều kiện lọc, dùng làm số dòng của bảng trên giao diện.
+     *
+     * @param query Điều kiện lọc; thứ tự sắp xếp bị bỏ qua.
+     * @return Số dòng, hoặc 0 nếu truy vấn thất bại.
+     */
+    @Override
+    public int countApis(ApiQuery query) {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT COUNT(*) FROM api_log" + whereClause(query);
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                bindWhereClause(stmt, query);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to count API data: " + e.getMessage(), e);
+                return 0;
+            }
+        } finally {
+            metrics.record("db.countApis", start);
+        }
+    }
+
+    /**
+     * Tải một trang dữ liệu API để hiển thị trên JTable.
+     * Nếu không chỉ định cột sắp xếp, các API mới nhất (ID lớn nhất) hiện lên đầu.
+     *
+     * @param query  Điều kiện lọc và sắp xếp.
+     * @param offset Vị trí dòng đầu tiên của trang.
+     * @param limit  Số dòng tối đa của trang.
+     * @return Một danh sách các mảng Object, mỗi mảng đại diện cho một dòng trong bảng UI.
+     */
+    @Override
+    public List<Object[]> loadApiPage(ApiQuery query, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<Object[]> rows = new ArrayList<>(limit);
+            String sql = "SELECT " + PAGE_COLUMNS + " FROM api_log" + whereClause(query) + orderByClause(query) + " LIMIT ? OFFSET ?";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                int index = bindWhereClause(stmt, query);
+                stmt.setInt(index++, limit);
+                stmt.setInt(index, offset);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    rows.add(pageRow(rs));
+                }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to load API data from database: " + e.getMessage(), e);
+            }
+            return rows;
+        } finally {
+            metrics.record("db.loadApiPage", start);
+        }
+    }
+
+    /**
+     * Tải ID của một đoạn dòng liên tiếp theo cùng điều kiện lọc và thứ tự với {@link #loadApiPage}, không đọc
+     * các cột khác. Dùng để lấy ID của các dòng được chọn trên bảng mà không cần tải từng trang.
+     */
+    @Override
+    public int[] loadApiIds(ApiQuery query, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            int[] ids = new int[limit];
+            int count = 0;
+            String sql = "SELECT id FROM api_log" + whereClause(query) + orderByClause(query) + " LIMIT ? OFFSET ?";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                int index = bindWhereClause(stmt, query);
+                stmt.setInt(index++, limit);
+                stmt.setInt(index, offset);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    ids[count++] = rs.getInt(1);
+                }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to load API ids from database: " + e.getMessage(), e);
+            }
+            return count == limit ? ids : Arrays.copyOf(ids, count);
+        } finally {
+            metrics.record("db.loadApiIds", start);
+        }
+    }
+
+    /**
+     * Giải mã một dòng của {@link #PAGE_COLUMNS} thành các giá trị hiển thị trên bảng.
+     */
+    private Object[] pageRow(ResultSet rs) throws SQLException {
+        // Các tham số chưa quét được hiển thị dưới dạng danh sách tên cách nhau bởi dấu phẩy.
+        return new Object[]{
+                methods.value(rs.getInt("method_id")),
+                hosts.value(rs.getInt("host_id")),
+                rs.getString("path"),
+                params.join(IntSets.parse(rs.getString("unscanned_params")), ", "),
+                rs.getBoolean("is_scanned"),
+                rs.getBoolean("is_rejected"),
+                rs.getBoolean("is_bypassed"),
+                rs.getBoolean("is_from_repeater"),
+                rs.getInt("id")
+        };
+    }
+
+    /**
+     * Vị trí của một dòng theo thứ tự của {@link #loadApiPage}: giá trị của biểu thức sắp xếp trong CSDL (null nếu
+     * không sắp theo cột nào) và id.
+     */
+    static final class SortKey {
+        final Object value;
+        final int id;
+
+        SortKey(Object value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Tải tối đa {@code limit} dòng nằm sau {@code after} theo thứ tự của {@link #loadApiPage}, bằng điều kiện trên
+     * khóa sắp xếp thay vì OFFSET: SQLite không phải đọc rồi bỏ các dòng đứng trước.
+     *
+     * @param after Khóa của dòng cuối cùng đã lấy, null để bắt đầu từ đầu.
+     * @param keys  Nhận khóa của từng dòng trả về, theo cùng thứ tự.
+     * @return Các dòng như của {@link #loadApiPage}.
+     */
+    List<Object[]> seekApiPage(ApiQuery query, SortKey after, int limit, List<SortKey> keys) {
+        long start = System.nanoTime();
+        try {
+            List<Object[]> rows = new ArrayList<>(limit);
+            seek(query, PAGE_COLUMNS, after, limit, (rs, key) -> {
+                rows.add(pageRow(rs));
+                keys.add(key);
+            });
+            return rows;
+        } finally {
+            metrics.record("db.seekApiPage", start);
+        }
+    }
+
+    /**
+     * Như {@link #seekApiPage}, nhưng chỉ đọc khóa sắp xếp và id của các dòng.
+     */
+    List<SortKey> seekApiKeys(ApiQuery query, SortKey after, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<SortKey> keys = new ArrayList<>(limit);
+            seek(query, "id", after, limit, (rs, key) -> keys.add(key));
+            return keys;
+        } finally {
+            metrics.record("db.seekApiKeys", start);
+        }
+    }
+
+    private interface SeekConsumer {
+        void accept(ResultSet rs, SortKey key) throws SQLException;
+    }
+
+    private void seek(ApiQuery query, String columns, SortKey after, int limit, SeekConsumer consumer) {
+        String sortExpression = query.sortColumn == null ? "NULL" : sortExpression(query.sortColumn);
+        String sql = "SELECT " + columns + ", " + sortExpression + " AS sort_key FROM api_log" + whereClause(query)
+                + (after == null ? "" : seekClause(query, after)) + orderByClause(query) + " LIMIT ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int index = bindWhereClause(stmt, query);
+            if (after != null) {
+                if (query.sortColumn != null && after.value != null) {
+                    stmt.setObject(index++, after.value);
+                    stmt.setObject(index++, after.value);
+                }
+                stmt.setInt(index++, after.id);
+            }
+            stmt.setInt(index, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                consumer.accept(rs, new SortKey(rs.getObject("sort_key"), rs.getInt("id")));
+            }
+        } catch (SQLException e) {
+            api.logging().logToError("Failed to load API data from database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Điều kiện chọn các dòng đứng sau {@code after} theo {@link #orderByClause}. SQLite xếp NULL nhỏ hơn mọi giá
+     * trị, nên NULL đứng đầu khi sắp tăng dần và đứng cuối khi sắp giảm dần.
+     */
+    private static String seekClause(ApiQuery query, SortKey after) {
+        if (query.sortColumn == null) {
+            return " AND id < ?";
+        }
+        String column = sortExpression(query.sortColumn);
+        if (after.value == null) {
+            return query.ascending
+                    ? " AND (" + column + " IS NOT NULL OR id < ?)"
+                    : " AND " + column + " IS NULL AND id < ?";
+        }
+        return query.ascending
+                ? " AND (" + column + " > ? OR (" + column + " = ? AND id < ?))"
+                : " AND (" + column + " < ? OR " + column + " IS NULL OR (" + column + " = ? AND id < ?))";
+    }
+
+    /**
+     * Mệnh đề ORDER BY của một truy vấn; id giảm dần làm khóa phụ để thứ tự các trang ổn định.
+     */
+    private static String orderByClause(ApiQuery query) {
+        String orderBy = query.sortColumn == null ? "" : sortExpression(query.sortColumn) + (query.ascending ? " ASC, " : " DESC, ");
+        return " ORDER BY " + orderBy + "id DESC";
+    }
+
+    /**
+     * Biểu thức ORDER BY cho một cột của api_log; method và host được sắp xếp theo giá trị trong từ điển thay vì theo ID.
+     */
+    private static String sortExpression(String column) {
+        return switch (column) {
+            case "method" -> "(SELECT value FROM dict_method WHERE dict_method.id = api_log.method_id)";
+            case "host" -> "(SELECT value FROM dict_host WHERE dict_host.id = api_log.host_id)";
+            case "path", "unscanned_params", "is_scanned", "is_rejected", "is_bypassed", "is_from_repeater", "id" -> column;
+            default -> throw new IllegalArgumentException("Unsupported sort column: " + column);
+        };
+    }
+
+    private static String whereClause(ApiQuery query) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (query.unverifiedOnly) {
+            where.append(" AND is_scanned = 0 AND is_rejected = 0 AND is_bypassed = 0");
+        }
+        if (!query.pathPattern.isEmpty()) {
+            where.append(" AND path REGEXP ?");
+        }
+        return where.toString();
+    }
+
+    /**
+     * @return Vị trí tham số tiếp theo của câu lệnh.
+     */
+    private static int bindWhereClause(PreparedStatement stmt, ApiQuery query) throws SQLException {
+        int index = 1;
+        if (!query.pathPattern.isEmpty()) {
+            stmt.setString(index++, query.pathPattern);
+        }
+        return index;
+    }
+
+    /**
+     * Duyệt trạng thái của tất cả API theo kiểu streaming, không dựng danh sách trong bộ nhớ.
+     * Dùng để dựng lại {@link EndpointIndex} sau khi khởi tạo hoặc thay đổi dữ liệu hàng loạt.
+     *
+     * @param consumer Nhận (method, host, path, cờ trạng thái theo {@link EndpointStatusCache}).
+     */
+    @Override
+    public void forEachEndpointStatus(EndpointStatusConsumer consumer) {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT method_id, host_id, path, is_scanned, is_rejected, is_bypassed FROM api_log";
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    consumer.accept(methods.value(rs.getInt(1)), hosts.value(rs.getInt(2)), rs.getString(3),
+                            EndpointStatusCache.flags(rs.getBoolean(4), rs.getBoolean(5), rs.getBoolean(6)));
+                }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to read API statuses from database: " + e.getMessage(), e);
+            }
+        } finally {
+            metrics.record("db.forEachEndpointStatus", start);
+        }
+    }
+
+    @FunctionalInterface
+    interface EndpointStatusConsumer {
+        void accept(String method, String host, String path, int flags);
+    }
+
+    @FunctionalInterface
+    interface EndpointConsumer {
+        void accept(String method, String host, String path);
+    }
+
+    /**
+     * Đếm số API theo trạng thái, dùng làm tổng số dòng và phần tóm tắt khi xuất dữ liệu.
+     *
+     * @return Mảng {tổng, scanned, rejected, bypassed}.
+     */
+    @Override
+    public int[] countByStatus() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT COUNT(*), COALESCE(SUM(is_scanned), 0), COALESCE(SUM(is_rejected), 0), COALESCE(SUM(is_bypassed), 0) FROM api_log";
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                rs.next();
+                return new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)};
+            }
+        } finally {
+            metrics.record("db.countByStatus", start);
+        }
+    }
+
+    /**
+     * Duyệt toàn bộ api_log theo thứ tự id bằng một con trỏ chỉ-tiến, dùng khi xuất dữ liệu.
+     * Mọi dòng được giải mã vào cùng một đối tượng {@link ApiRow}, nên bộ nhớ sử dụng không phụ thuộc vào số dòng.
+     * Lỗi được ném ra cho nơi gọi thay vì chỉ ghi log, để tác vụ xuất có thể báo cho người dùng.
+     *
+     * @param consumer Nhận từng dòng; trả về false để dừng sớm.
+     */
+    @Override
+    public void forEachApiRow(ApiRowConsumer consumer) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try {
+            String sql = "SELECT id, method_id, host_id, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater, last_seen FROM api_log ORDER BY id";
+            try (Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(EXPORT_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    ApiRow row = new ApiRow();
+                    while (rs.next()) {
+                        row.id = rs.getInt(1);
+                        row.method = methods.value(rs.getInt(2));
+                        row.host = hosts.value(rs.getInt(3));
+                        row.path = rs.getString(4);
+                        row.unscannedParams = params.values(IntSets.parse(rs.getString(5)));
+                        row.scannedParams = params.values(IntSets.parse(rs.getString(6)));
+                        row.isScanned = rs.getBoolean(7);
+                        row.isRejected = rs.getBoolean(8);
+                        row.isBypassed = rs.getBoolean(9);
+                        row.isFromRepeater = rs.getBoolean(10);
+                        row.lastSeen = rs.getString(11);
+                        if (!consumer.accept(row)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        } finally {
+            metrics.record("db.forEachApiRow", start);
+        }
+    }
+
+    @FunctionalInterface
+    interface ApiRowConsumer {
+        boolean accept(ApiRow row) throws IOException;
+    }
+
+    /**
+     * Một dòng của api_log đã được giải mã qua các từ điển. Được dùng lại cho mọi dòng trong {@link #forEachApiRow}.
+     */
+    static final class ApiRow {
+        int id;
+        String method;
+        String host;
+        String path;
+        String[] unscannedParams;
+        String[] scannedParams;
+        boolean isScanned;
+        boolean isRejected;
+        boolean isBypassed;
+        boolean isFromRepeater;
+        String lastSeen;
+
+        String status() {
+            if (isScanned) return "Scanned";
+            if (isRejected) return "Rejected";
+            if (isBypassed) return "Bypassed";
+            return "Unverified";
+        }
+    }
+
+    /**
+     * Đọc lịch sử của một API từ bảng api_event, cũ nhất trước.
+     *
+     * @param apiId ID của dòng trong api_log.
+     * @return Các dòng {thời điểm (epoch millis), loại sự kiện, tên các tham số liên quan}.
+     */
+    @Override
+    public List<Object[]> loadApiHistory(int apiId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Object[]> history = new ArrayList<>();
+            String sql = "SELECT created_at, type, param_ids FROM api_event WHERE api_id = ? ORDER BY id";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, apiId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    history.add(new Object[]{rs.getLong(1), CoverageEvent.label(rs.getInt(2)),
+                            String.join(", ", params.values(IntSets.parse(rs.getString(3))))});
+                }
+            }
+            return history;
+        } finally {
+            metrics.record("db.loadApiHistory", start);
+        }
+    }
+
+    /**
+     * Chèn một API mới hoặc cập nhật các tham số của một API đã tồn tại.
+     * Được gọi bởi các request thông thường (không phải từ Scanner).
+     * Nếu phát hiện tham số mới, chúng sẽ được thêm vào `unscanned_params` và reset `is_scanned` về false.
+     *
+     * @param method        Phương thức HTTP của request.
+     * @param host          Host của request.
+     * @param path          Path của request.
+     * @param requestParams Tập hợp các tham số từ request hiện tại.
+     * @return true nếu một API mới được chèn, được chuyển về từ kho lạnh hoặc có tham số mới được ghi nhận, ngược lại false.
+     */
+    @Override
+    public boolean insertOrUpdateApi(String method, String host, String path, Set<String> requestParams) {
+        ReentrantLock lock = endpointLocks.lock(method, host, path);
+        try {
+            if (isKnownRequest(method, host, path, requestParams)) {
+                return false;
+            }
+            synchronized (this) {
+                try {
+                    return insertOrUpdateApiLocked(method, host, path, requestParams);
+                } finally {
+                    endChange();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Kiểm tra chỉ trong bộ nhớ rằng request không mang tham số mới cho một endpoint đã có trong cache và last_seen
+     * của endpoint chưa cần ghi lại. Phải được gọi khi giữ khóa endpoint, không cần khóa của DatabaseManager.
+     *
+     * @return true nếu {@link #insertOrUpdateApi} không có gì để ghi.
+     */
+    private boolean isKnownRequest(String method, String host, String path, Set<String> requestParams) {
+        ParamCoverage coverage = cachedCoverage(method, host, path);
+        if (coverage == null || System.currentTimeMillis() - coverage.touchedAt >= TOUCH_INTERVAL_MILLIS) {
+            return false;
+        }
+        for (String name : requestParams) {
+            int paramId = params.idOf(name);
+            if (paramId == StringDictionary.ABSENT || coverage.ordinalOf(paramId) < 0) {
+                return false;
+            }
+        }
+        metrics.increment("db.unlockedHits");
+        return true;
+    }
+
+    /**
+     * Phần ghi của {@link #insertOrUpdateApi}; nơi gọi giữ khóa của DatabaseManager.
+     */
+    private boolean insertOrUpdateApiLocked(String method, String host, String path, Set<String> requestParams) {
+        long start = System.nanoTime();
+        ParamCoverage coverage = null;
+        try {
+            int methodId = methods.getOrCreate(method);
+            int hostId = hosts.getOrCreate(host);
+            int archivedBefore = archivedCount;
+            coverage = coverage(methodId, hostId, path);
+
+            if (coverage != null) { // API đã tồn tại -> Cập nhật
+                // Các param chưa có ordinal trong endpoint là param thực sự mới.
+                List<String> discovered = null;
+                for (String name : requestParams) {
+                    int paramId = params.getOrCreate(name);
+                    if (coverage.ordinalOf(paramId) < 0) {
+                        coverage.add(paramId);
+                        if (discovered == null) {
+                            discovered = new ArrayList<>(2);
+                        }
+                        discovered.add(name);
+                    }
+                }
+
+                // Nếu có param mới, thêm vào danh sách unscanned và reset trạng thái is_scanned.
+                if (discovered != null) {
+                    beginChange();
+                    String updateSql = "UPDATE api_log SET unscanned_params = ?, is_scanned = 0, is_bypassed = 0, last_seen = CURRENT_TIMESTAMP WHERE id = ?";
+                    try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
+                        updateStmt.setString(1, coverage.format(false));
+                        updateStmt.setInt(2, coverage.rowId);
+                        updateStmt.executeUpdate();
+                        coverage.touchedAt = System.currentTimeMillis();
+                        recordEvent(coverage.rowId, CoverageEvent.DISCOVERED, IntSets.format(params.idsOf(discovered)));
+                        return true;
+                    }
+                }
+                touch(coverage, System.currentTimeMillis());
+                // API vừa được chuyển về từ kho lạnh cũng cần hiện lại trên giao diện.
+                return archivedCount < archivedBefore;
+            } else { // API mới -> Chèn dòng mới
+                beginChange();
+                int[] requestIds = params.getOrCreateAll(requestParams);
+                String insertSql = "INSERT INTO api_log (method_id, host_id, path, unscanned_params) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement insertStmt = connection.prepareStatement(insertSql)) {
+                    insertStmt.setInt(1, methodId);
+                    insertStmt.setInt(2, hostId);
+                    insertStmt.setString(3, path);
+                    insertStmt.setString(4, IntSets.format(requestIds));
+                    insertStmt.executeUpdate();
+                    ResultSet keys = insertStmt.getGeneratedKeys();
+                    if (keys.next()) {
+                        int rowId = keys.getInt(1);
+                        ParamCoverage inserted = new ParamCoverage(rowId, IntSets.EMPTY, requestIds);
+                        inserted.touchedAt = System.currentTimeMillis();
+                        cacheCoverage(methodId, hostId, path, inserted);
+                        recordEvent(rowId, CoverageEvent.DISCOVERED, IntSets.format(requestIds));
+                    }
+                    return true;
+                }
+            }
+        } catch (SQLException e) {
+            api.logging().logToError("Error during insert/update API: " + e.getMessage(), e);
+            // Độ phủ trong bộ nhớ có thể đã đi trước CSDL.
+            if (coverage != null) {
+                evictCoverage(coverage);
+            }
+            abortChange();
+        } finally {
+            metrics.record("db.insertOrUpdateApi", start);
+        }
+        return false;
+    }
+
+    /**
+     * Nhập một lô endpoint (từ OpenAPI/Swagger hoặc HAR) trong một transaction duy nhất, theo cùng quy tắc với traffic:
+     * endpoint mới được chèn với các tham số chưa quét, endpoint đã có chỉ được bổ sung tham số mới, endpoint không
+     * có tham số được xử lý như {@link #autoBypassApi}. Nếu lô thất bại, không dòng nào của lô được ghi.
+     *
+     * @param batch Các endpoint cần nhập.
+     * @return Số endpoint mới hoặc có tham số mới.
+     * @throws SQLException Nếu có lỗi khi ghi; transaction đã được rollback.
+     */
+    @Override
+    public synchronized int importApis(List<ImportedApi> batch) throws SQLException {
+        long start = System.nanoTime();
+        boolean originalAutoCommit = connection.getAutoCommit();
+        int changed = 0;
+        connection.setAutoCommit(false);
+        String insertSql = "INSERT INTO api_log (method_id, host_id, path, unscanned_params) VALUES (?, ?, ?, ?)";
+        String updateSql = "UPDATE api_log SET unscanned_params = ?, is_scanned = 0, is_bypassed = 0, last_seen = CURRENT_TIMESTAMP WHERE id = ?";
+        try (PreparedStatement insertStmt = connection.prepareStatement(insertSql);
+             PreparedStatement updateStmt = connection.prepareStatement(updateSql);
+             PreparedStatement bypassStmt = connection.prepareStatement(AUTO_BYPASS_SQL)) {
+            for (ImportedApi imported : batch) {
+                int methodId = methods.getOrCreate(imported.method);
+                int hostId = hosts.getOrCreate(imported.host);
+                // Không sửa độ phủ trong cache tại chỗ: nó có thể đang được đọc bởi một luồng chỉ giữ khóa endpoint.
+                // Bản được đọc lại từ CSDL và bản trong cache bị bỏ, traffic tiếp theo sẽ đọc lại.
+                ParamCoverage coverage = detachCoverage(methodId, hostId, imported.path);
+                if (imported.params.isEmpty()) {
+                    bypassStmt.setInt(1, methodId);
+                    bypassStmt.setInt(2, hostId);
+                    bypassStmt.setString(3, imported.path);
+                    bypassStmt.executeUpdate();
+                    if (coverage == null) {
+                        changed++;
+                    }
+                } else if (coverage != null) {
+                    List<String> discovered = null;
+                    for (String name : imported.params) {
+                        int paramId = params.getOrCreate(name);
+                        if (coverage.ordinalOf(paramId) < 0) {
+                            coverage.add(paramId);
+                            if (discovered == null) {
+                                discovered = new ArrayList<>(2);
+                            }
+                            discovered.add(name);
+                        }
+                    }
+                    if (discovered != null) {
+                        updateStmt.setString(1, coverage.format(false));
+                        updateStmt.setInt(2, coverage.rowId);
+                        updateStmt.executeUpdate();
+                        recordEvent(coverage.rowId, CoverageEvent.DISCOVERED, IntSets.format(params.idsOf(discovered)));
+                        changed++;
+                    }
+                } else {
+                    int[] requestIds = params.getOrCreateAll(imported.params);
+                    insertStmt.setInt(1, methodId);
+                    insertStmt.setInt(2, hostId);
+                    insertStmt.setString(3, imported.path);
+                    insertStmt.setString(4, IntSets.format(requestIds));
+                    insertStmt.executeUpdate();
+                    ResultSet keys = insertStmt.getGeneratedKeys();
+                    if (keys.next()) {
+                        int rowId = keys.getInt(1);
+                        cacheCoverage(methodId, hostId, imported.path, new ParamCoverage(rowId, IntSets.EMPTY, requestIds));
+                        recordEvent(rowId, CoverageEvent.DISCOVERED, IntSets.format(requestIds));
+                    }
+                    changed++;
+                }
+            }
+            commit();
+            return changed;
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(originalAutoCommit);
+            metrics.record("db.importApis", start);
+        }
+    }
+
+    /**
+     * Một endpoint được nhập từ tệp đặc tả hoặc HAR; path đã được chuẩn hóa.
+     */
+    static final class ImportedApi {
+        final String method;
+        final String host;
+        final String path;
+        final Set<String> params;
+
+        ImportedApi(String method, String host, String path, Set<String> params) {
+            this.method = method;
+            this.host = host;
+            this.path = path;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Xử lý các tham số được quét từ một request của Burp Scanner.
+     * Các tham số nào khớp với danh sách `unscanned_params` sẽ được chuyển sang `scanned_params`.
+     * Nếu `unscanned_params` trở nên rỗng, API sẽ được đánh dấu là `is_scanned = true`.
+     *
+     * @param method        Phương thức HTTP của request từ Scanner.
+     * @param host          Host của request.
+     * @param path          Path của request.
+     * @param scannerParams Các tham số có trong request của Scanner.
+     * @return true nếu có sự thay đổi trong CSDL, ngược lại false.
+     */
+    @Override
+    public boolean processScannedParameters(String method, String host, String path, Set<String> scannerParams) {
+        ReentrantLock lock = endpointLocks.lock(method, host, path);
+        try {
+            if (isAlreadyScanned(method, host, path, scannerParams)) {
+                return false;
+            }
+            synchronized (this) {
+                try {
+                    return processScannedParametersLocked(method, host, path, scannerParams);
+                } finally {
+                    endChange();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Kiểm tra chỉ trong bộ nhớ rằng request của Scanner không quét thêm tham số nào: endpoint chưa từng được ghi nhận,
+     * hoặc đã có trong cache và mọi tham số của request thuộc endpoint đều đã được quét. Phải được gọi khi giữ khóa
+     * endpoint, không cần khóa của DatabaseManager.
+     *
+     * @return true nếu {@link #processScannedParameters} không có gì để ghi.
+     */
+    private boolean isAlreadyScanned(String method, String host, String path, Set<String> scannerParams) {
+        if (methods.idOf(method) == StringDictionary.ABSENT || hosts.idOf(host) == StringDictionary.ABSENT) {
+            return true;
+        }
+        ParamCoverage coverage = cachedCoverage(method, host, path);
+        if (coverage == null) {
+            return false;
+        }
+        if (!coverage.isFullyScanned()) {
+            for (String name : scannerParams) {
+                int paramId = params.idOf(name);
+                int ordinal = paramId == StringDictionary.ABSENT ? -1 : coverage.ordinalOf(paramId);
+                if (ordinal >= 0 && !coverage.isScanned(ordinal)) {
+                    return false;
+                }
+            }
+        }
+        metrics.increment("db.unlockedHits");
+        return true;
+    }
+
+    /**
+     * Phần ghi của {@link #processScannedParameters}; nơi gọi giữ khóa của DatabaseManager.
+     */
+    private boolean processScannedParametersLocked(String method, String host, String path, Set<String> scannerParams) {
+        long start = System.nanoTime();
+        ParamCoverage coverage = null;
+        try {
+            int methodId = methods.idOf(method);
+            int hostId = hosts.idOf(host);
+            if (methodId == StringDictionary.ABSENT || hostId == StringDictionary.ABSENT) {
+                return false; // API chưa từng được ghi nhận.
+            }
+            coverage = coverage(methodId, hostId, path);
+            if (coverage == null || coverage.isFullyScanned()) return false; // Không có gì để quét.
+
+            // Đánh dấu các tham số vừa được quét (phần giao giữa param của scanner và param chưa quét).
+            // Tham số chưa có trong từ điển chắc chắn không thuộc endpoint.
+            List<String> scanned = null;
+            for (String name : scannerParams) {
+                int paramId = params.idOf(name);
+                int ordinal = paramId == StringDictionary.ABSENT ? -1 : coverage.ordinalOf(paramId);
+                if (ordinal >= 0 && coverage.markScanned(ordinal)) {
+                    if (scanned == null) {
+                        scanned = new ArrayList<>(2);
+                    }
+                    scanned.add(name);
+                }
+            }
+            if (scanned == null) return false; // Scanner không quét trúng param nào cần thiết.
+
+            // Cập nhật CSDL với trạng thái mới.
+            beginChange();
+            String updateSql = "UPDATE api_log SET unscanned_params = ?, scanned_params = ?, is_scanned = ?, last_seen = CURRENT_TIMESTAMP WHERE id = ?";
+            try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
+                updateStmt.setString(1, coverage.format(false));
+                updateStmt.setString(2, coverage.format(true));
+                updateStmt.setBoolean(3, coverage.isFullyScanned()); // is_scanned = true chỉ khi không còn gì để quét.
+                updateStmt.setInt(4, coverage.rowId);
+                updateStmt.executeUpdate();
+                recordEvent(coverage.rowId, CoverageEvent.SCANNED, IntSets.format(params.idsOf(scanned)));
+                return true;
+            }
+        } catch (SQLException e) {
+            api.logging().logToError("Error during processScannedParameters: " + e.getMessage(), e);
+            if (coverage != null) {
+                evictCoverage(coverage);
+            }
+            abortChange();
+            return false;
+        } finally {
+            metrics.record("db.processScannedParameters", start);
+        }
+    }
+
+    /**
+     * Lấy độ phủ tham số của một endpoint từ cache, hoặc đọc từ CSDL nếu chưa có.
+     *
+     * @return Độ phủ của endpoint, hoặc null nếu API chưa có trong CSDL.
+     */
+    private ParamCoverage coverage(int methodId, int hostId, String path) throws SQLException {
+        ParamCoverage cached = cachedCoverage(methodId, hostId, path);
+        if (cached != null) {
+            return cached;
+        }
+        ParamCoverage coverage = loadCoverage(methodId, hostId, path);
+        if (coverage != null) {
+            cacheCoverage(methodId, hostId, path, coverage);
+        }
+        return coverage;
     }
 
     /**
-     * Tạo bảng `api_log` nếu nó chưa tồn tại.
-     * Đây là cấu trúc trung tâm để lưu trữ tất cả thông tin về các API.
-     * Ràng buộc UNIQUE trên (host, path, method) là cốt lõi để phân biệt các API.
-     *
-     * @throws SQLException Nếu có lỗi khi thực thi câu lệnh SQL.
-     */
-    private void createTableIfNotExists() throws SQLException {
-        String sql = """
-            CREATE TABLE IF NOT EXISTS api_log (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,      -- Khóa chính tự tăng, định danh duy nhất cho mỗi dòng.
-                method TEXT NOT NULL,                      -- Phương thức HTTP (GET, POST, etc.)
-                host TEXT NOT NULL,                        -- Host của API (e.g., api.example.com)
-                path TEXT NOT NULL,                        -- Đường dẫn của API (e.g., /v1/users)
-                unscanned_params TEXT,                     -- Danh sách các tham số CHƯA được quét, cách nhau bởi dấu '|'.
-                scanned_params TEXT,                       -- Danh sách các tham số ĐÃ được quét, cách nhau bởi dấu '|'.
-                is_scanned BOOLEAN DEFAULT 0,              -- Trạng thái: đã quét hết các param (1) hay chưa (0).
-                is_rejected BOOLEAN DEFAULT 0,             -- Trạng thái: người dùng đã từ chối quét (1) hay chưa (0).
-                is_bypassed BOOLEAN DEFAULT 0,             -- Trạng thái: được tự động bỏ qua (1) hay chưa (0).
-                is_from_repeater BOOLEAN DEFAULT 0,        -- Trạng thái: đã được gửi từ Repeater (1) hay chưa (0).
-                last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Dấu thời gian lần cuối thấy API này.
-                UNIQUE(host, path, method)                 -- Ràng buộc duy nhất: không thể có hai dòng trùng cả host, path và method.
-            );
-            """;
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(sql);
+     * Đọc độ phủ của một endpoint từ CSDL, không qua cache.
+     */
+    private ParamCoverage loadCoverage(int methodId, int hostId, String path) throws SQLException {
+        ParamCoverage coverage = selectCoverage(methodId, hostId, path);
+        // API không có trong api_log có thể đang nằm trong kho lạnh: nó xuất hiện lại nên được chuyển về.
+        if (coverage == null && restoreArchived(methodId, hostId, path)) {
+            coverage = selectCoverage(methodId, hostId, path);
         }
+        return coverage;
     }
 
     /**
-     * Tải tất cả dữ liệu API từ cơ sở dữ liệu để hiển thị trên JTable.
-     * Sắp xếp theo ID giảm dần để các API mới nhất hiện lên đầu.
-     *
-     * @return Một danh sách các mảng Object, mỗi mảng đại diện cho một dòng trong bảng UI.
+     * Bỏ độ phủ của một endpoint khỏi cache và đọc một bản mới từ CSDL mà nơi gọi được tự do sửa.
      */
-    public List<Object[]> loadApiData() {
-        List<Object[]> rows = new ArrayList<>();
-        String sql = "SELECT id, method, host, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater FROM api_log ORDER BY id DESC";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                String unscanned = rs.getString("unscanned_params");
-                
-                // Xây dựng chuỗi "unscanned_params" để hiển thị cho người dùng.
-                StringBuilder unscanned_params = new StringBuilder();
-                if (unscanned != null && !unscanned.isEmpty()) {
-                    unscanned_params.append(unscanned.replace("|", ", "));
-                }
-
-                rows.add(new Object[]{
-                        rs.getString("method"),
-                        rs.getString("host"),
-                        rs.getString("path"),
-                        unscanned_params.toString().trim(),
-                        rs.getBoolean("is_scanned"),
-                        rs.getBoolean("is_rejected"),
-                        rs.getBoolean("is_bypassed"),
-                        rs.getBoolean("is_from_repeater"),
-                        rs.getInt("id")
-                });
-            }
-        } catch (SQLException e) {
-            api.logging().logToError("Failed to load API data from database: " + e.getMessage(), e);
+    private ParamCoverage detachCoverage(int methodId, int hostId, String path) throws SQLException {
+        synchronized (coverageCache) {
+            probeKey.set(methodId, hostId, path);
+            coverageCache.remove(probeKey);
         }
-        return rows;
+        return loadCoverage(methodId, hostId, path);
     }
 
     /**
-     * Chèn một API mới hoặc cập nhật các tham số của một API đã tồn tại.
-     * Được gọi bởi các request thông thường (không phải từ Scanner).
-     * Nếu phát hiện tham số mới, chúng sẽ được thêm vào `unscanned_params` và reset `is_scanned` về false.
-     *
-     * @param method        Phương thức HTTP của request.
-     * @param host          Host của request.
-     * @param path          Path của request.
-     * @param requestParams Tập hợp các tham số từ request hiện tại.
+     * @return Độ phủ của endpoint nếu đang có trong cache, không truy vấn CSDL.
      */
-    public synchronized void insertOrUpdateApi(String method, String host, String path, Set<String> requestParams) {
-        String selectSql = "SELECT unscanned_params, scanned_params FROM api_log WHERE host = ? AND path = ? AND method = ?";
-        try (PreparedStatement selectStmt = connection.prepareStatement(selectSql)) {
-            selectStmt.setString(1, host);
-            selectStmt.setString(2, path);
-            selectStmt.setString(3, method);
-            ResultSet rs = selectStmt.executeQuery();
+    private ParamCoverage cachedCoverage(String method, String host, String path) {
+        int methodId = methods.idOf(method);
+        int hostId = hosts.idOf(host);
+        if (methodId == StringDictionary.ABSENT || hostId == StringDictionary.ABSENT) {
+            return null;
+        }
+        return cachedCoverage(methodId, hostId, path);
+    }
 
-            if (rs.next()) { // API đã tồn tại -> Cập nhật
-                Set<String> unscannedSet = stringToSet(rs.getString("unscanned_params"));
-                Set<String> scannedSet = stringToSet(rs.getString("scanned_params"));
-                
-                // Gộp tất cả các param đã biết để so sánh.
-                Set<String> knownParams = new HashSet<>(unscannedSet);
-                knownParams.addAll(scannedSet);
+    private ParamCoverage cachedCoverage(int methodId, int hostId, String path) {
+        synchronized (coverageCache) {
+            probeKey.set(methodId, hostId, path);
+            return coverageCache.get(probeKey);
+        }
+    }
 
-                // Tìm các param thực sự mới.
-                Set<String> newDiscoveredParams = new HashSet<>(requestParams);
-                newDiscoveredParams.removeAll(knownParams);
+    private void cacheCoverage(int methodId, int hostId, String path, ParamCoverage coverage) {
+        synchronized (coverageCache) {
+            coverageCache.put(new EndpointKey(methodId, hostId, path), coverage);
+        }
+    }
 
-                // Nếu có param mới, thêm vào danh sách unscanned và reset trạng thái is_scanned.
-                if (!newDiscoveredParams.isEmpty()) {
-                    unscannedSet.addAll(newDiscoveredParams);
-                    String updatedUnscannedParams = setToString(unscannedSet);
-                    String updateSql = "UPDATE api_log SET unscanned_params = ?, is_scanned = 0, is_bypassed = 0, last_seen = CURRENT_TIMESTAMP WHERE host = ? AND path = ? AND method = ?";
-                    try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                        updateStmt.setString(1, updatedUnscannedParams);
-                        updateStmt.setString(2, host);
-                        updateStmt.setString(3, path);
-                        updateStmt.setString(4, method);
-                        updateStmt.executeUpdate();
-                    }
-                }
-            } else { // API mới -> Chèn dòng mới
-                String paramsStr = setToString(requestParams);
-                String insertSql = "INSERT INTO api_log (method, host, path, unscanned_params) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement insertStmt = connection.prepareStatement(insertSql)) {
-                    insertStmt.setString(1, method);
-                    insertStmt.setString(2, host);
-                    insertStmt.setString(3, path);
-                    insertStmt.setString(4, paramsStr);
-                    insertStmt.executeUpdate();
-                }
-            }
-        } catch (SQLException e) {
-            api.logging().logToError("Error during insert/update API: " + e.getMessage(), e);
+    private void evictCoverage(ParamCoverage coverage) {
+        synchronized (coverageCache) {
+            coverageCache.values().remove(coverage);
         }
     }
 
-    /**
-     * Xử lý các tham số được quét từ một request của Burp Scanner.
-     * Các tham số nào khớp với danh sách `unscanned_params` sẽ được chuyển sang `scanned_params`.
-     * Nếu `unscanned_params` trở nên rỗng, API sẽ được đánh dấu là `is_scanned = true`.
-     *
-     * @param method        Phương thức HTTP của request từ Scanner.
-     * @param host          Host của request.
-     * @param path          Path của request.
-     * @param scannerParams Các tham số có trong request của Scanner.
-     * @return true nếu có sự thay đổi trong CSDL, ngược lại false.
-     */
-    public synchronized boolean processScannedParameters(String method, String host, String path, Set<String> scannerParams) {
-        String selectSql = "SELECT unscanned_params, scanned_params FROM api_log WHERE host = ? AND path = ? AND method = ?";
+    private void clearCoverage() {
+        synchronized (coverageCache) {
+            coverageCache.clear();
+        }
+    }
+
+    private ParamCoverage selectCoverage(int methodId, int hostId, String path) throws SQLException {
+        String selectSql = "SELECT id, unscanned_params, scanned_params FROM api_log WHERE host_id = ? AND path = ? AND method_id = ?";
         try (PreparedStatement selectStmt = connection.prepareStatement(selectSql)) {
-            selectStmt.setString(1, host);
+            selectStmt.setInt(1, hostId);
             selectStmt.setString(2, path);
-            selectStmt.setString(3, method);
+            selectStmt.setInt(3, methodId);
             ResultSet rs = selectStmt.executeQuery();
-
-            if (rs.next()) {
-                Set<String> unscannedDbSet = stringToSet(rs.getString("unscanned_params"));
-                if (unscannedDbSet.isEmpty()) return false; // Không có gì để quét.
-
-                // Tìm các tham số vừa được quét (phần giao giữa param của scanner và param chưa quét).
-                Set<String> newlyScannedParams = new HashSet<>(scannerParams);
-                newlyScannedParams.retainAll(unscannedDbSet);
-                if (newlyScannedParams.isEmpty()) return false; // Scanner không quét trúng param nào cần thiết.
-
-                // Cập nhật lại các tập hợp param.
-                Set<String> scannedDbSet = stringToSet(rs.getString("scanned_params"));
-                unscannedDbSet.removeAll(newlyScannedParams);
-                scannedDbSet.addAll(newlyScannedParams);
-
-                // Cập nhật CSDL với trạng thái mới.
-                String updateSql = "UPDATE api_log SET unscanned_params = ?, scanned_params = ?, is_scanned = ?, last_seen = CURRENT_TIMESTAMP WHERE host = ? AND path = ? AND method = ?";
-                try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                    updateStmt.setString(1, setToString(unscannedDbSet));
-                    updateStmt.setString(2, setToString(scannedDbSet));
-                    updateStmt.setBoolean(3, unscannedDbSet.isEmpty()); // is_scanned = true chỉ khi không còn gì để quét.
-                    updateStmt.setString(4, host);
-                    updateStmt.setString(5, path);
-                    updateStmt.setString(6, method);
-                    updateStmt.executeUpdate();
-                    return true;
-                }
+            if (!rs.next()) {
+                return null;
             }
-        } catch (SQLException e) {
-            api.logging().logToError("Error during processScannedParameters: " + e.getMessage(), e);
+            return new ParamCoverage(rs.getInt("id"),
+                    IntSets.parse(rs.getString("scanned_params")), IntSets.parse(rs.getString("unscanned_params")));
         }
-        return false;
+    }
+
+    /**
+     * Ghi nhận vào last_seen rằng một endpoint vừa xuất hiện lại mà không có gì thay đổi, tối đa một lần mỗi
+     * {@link #TOUCH_INTERVAL_MILLIS}, để việc lưu trữ không chuyển vào kho lạnh các API vẫn đang được dùng.
+     */
+    private void touch(ParamCoverage coverage, long now) throws SQLException {
+        if (now - coverage.touchedAt < TOUCH_INTERVAL_MILLIS) {
+            return;
+        }
+        beginChange();
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE api_log SET last_seen = CURRENT_TIMESTAMP WHERE id = ?")) {
+            stmt.setInt(1, coverage.rowId);
+            stmt.executeUpdate();
+        }
+        coverage.touchedAt = now;
     }
     
     /**
      * Xử lý tính năng auto-bypass cho API GET không có tham số.
-     * Sử dụng ON CONFLICT để tránh ghi đè các API đã được đánh dấu `scanned` hoặc `rejected`
-     * Đồng thời đảm bảo không đánh dấu bypass nếu API đó còn param chưa được scan
+     * API mới được chèn với trạng thái bypass. API đã có chỉ được đánh dấu bypass nếu chưa được đánh dấu `scanned`
+     * hoặc `rejected` và không còn param chưa được scan; nếu không có gì thay đổi, chỉ last_seen được ghi lại, tối đa
+     * một lần mỗi {@link #TOUCH_INTERVAL_MILLIS}.
      *
      * @param method Phương thức HTTP (luôn là GET).
      * @param host   Host của API.
      * @param path   Path của API.
-     * @return true nếu có sự thay đổi trong CSDL.
-     */
-    public synchronized boolean autoBypassApi(String method, String host, String path) {
-        String upsertSql = """
-            INSERT INTO api_log (method, host, path, unscanned_params, scanned_params, is_bypassed)
-            VALUES (?, ?, ?, '', '', 1)
-            ON CONFLICT(host, path, method) DO UPDATE SET
-                is_bypassed = CASE
-                    WHEN api_log.is_scanned = 0 AND api_log.is_rejected = 0 AND api_log.unscanned_params = ''
-                    THEN 1
-                    ELSE api_log.is_bypassed
-                END,
-                last_seen = CURRENT_TIMESTAMP
-            """;
-        try (PreparedStatement stmt = connection.prepareStatement(upsertSql)) {
-            stmt.setString(1, method);
-            stmt.setString(2, host);
-            stmt.setString(3, path);
-            return stmt.executeUpdate() > 0;
+     * @return true nếu API mới được ghi, vừa được đánh dấu bypass hoặc vừa được chuyển về từ kho lạnh.
+     */
+    @Override
+    public boolean autoBypassApi(String method, String host, String path) {
+        ReentrantLock lock = endpointLocks.lock(method, host, path);
+        try {
+            synchronized (this) {
+                try {
+                    return autoBypassApiLocked(method, host, path);
+                } finally {
+                    endChange();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean autoBypassApiLocked(String method, String host, String path) {
+        long start = System.nanoTime();
+        try {
+            int methodId = methods.getOrCreate(method);
+            int hostId = hosts.getOrCreate(host);
+            int archivedBefore = archivedCount;
+            ParamCoverage coverage = coverage(methodId, hostId, path);
+            long now = System.currentTimeMillis();
+            if (coverage == null) {
+                beginChange();
+                String insertSql = "INSERT INTO api_log (method_id, host_id, path, unscanned_params, scanned_params, is_bypassed) VALUES (?, ?, ?, '', '', 1)";
+                try (PreparedStatement insertStmt = connection.prepareStatement(insertSql)) {
+                    insertStmt.setInt(1, methodId);
+                    insertStmt.setInt(2, hostId);
+                    insertStmt.setString(3, path);
+                    insertStmt.executeUpdate();
+                    ResultSet keys = insertStmt.getGeneratedKeys();
+                    if (keys.next()) {
+                        int rowId = keys.getInt(1);
+                        ParamCoverage inserted = new ParamCoverage(rowId, IntSets.EMPTY, IntSets.EMPTY);
+                        inserted.touchedAt = now;
+                        cacheCoverage(methodId, hostId, path, inserted);
+                        recordEvent(rowId, CoverageEvent.AUTO_BYPASSED, null);
+                    }
+                    return true;
+                }
+            }
+            // Còn tham số chưa quét thì API không thể được bypass: không cần thử đánh dấu.
+            if (coverage.isFullyScanned()) {
+                beginChange();
+                try (PreparedStatement bypassStmt = connection.prepareStatement(BYPASS_EXISTING_SQL)) {
+                    bypassStmt.setInt(1, coverage.rowId);
+                    if (bypassStmt.executeUpdate() > 0) {
+                        coverage.touchedAt = now;
+                        recordEvent(coverage.rowId, CoverageEvent.AUTO_BYPASSED, null);
+                        return true;
+                    }
+                }
+            }
+            touch(coverage, now);
+            // API vừa được chuyển về từ kho lạnh cũng cần hiện lại trên giao diện.
+            return archivedCount < archivedBefore;
         } catch (SQLException e) {
             api.logging().logToError("Error during autoBypassApi: " + e.getMessage(), e);
+            abortChange();
             return false;
+        } finally {
+            metrics.record("db.autoBypassApi", start);
         }
     }
 
@@ -306,124 +1364,176 @@ public class DatabaseManager {
      * @param path   Path của API.
      * @return true nếu có sự thay đổi trong CSDL, ngược lại false.
      */
-    public synchronized boolean updateRepeaterStatus(String method, String host, String path) {
-        String sql = "UPDATE api_log SET is_from_repeater = 1, last_seen = CURRENT_TIMESTAMP WHERE host = ? AND path = ? AND method = ? AND is_from_repeater = 0";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, host);
-            stmt.setString(2, path);
-            stmt.setString(3, method);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            api.logging().logToError("Error during updateRepeaterStatus: " + e.getMessage(), e);
-            return false;
+    @Override
+    public boolean updateRepeaterStatus(String method, String host, String path) {
+        ReentrantLock lock = endpointLocks.lock(method, host, path);
+        try {
+            synchronized (this) {
+                try {
+                    return updateRepeaterStatusLocked(method, host, path);
+                } finally {
+                    endChange();
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
-    
-    /**
-     * Chuyển đổi một chuỗi (dữ liệu từ DB) thành một Set các chuỗi.
-     *
-     * @param str Chuỗi được phân tách bởi '|'.
-     * @return Một Set các tham số.
-     */
-    private Set<String> stringToSet(String str) {
-        if (str == null || str.isBlank()) return new HashSet<>();
-        return new HashSet<>(Arrays.asList(str.split("\\|")));
-    }
 
-    /**
-     * Chuyển đổi một Set các chuỗi thành một chuỗi duy nhất để lưu vào DB.
-     * Các tham số được sắp xếp theo bảng chữ cái để đảm bảo tính nhất quán.
-     *
-     * @param set Tập hợp các tham số.
-     * @return Một chuỗi được phân tách bởi '|'.
-     */
-    private String setToString(Set<String> set) {
-        if (set == null || set.isEmpty()) return "";
-        return set.stream().sorted().collect(Collectors.joining("|"));
-    }
-
-    public synchronized int normalizeStoredPaths(UnaryOperator<String> pathNormalizer) {
-        if (pathNormalizer == null) {
-            return 0;
-        }
-
-        List<ApiRecord> records = new ArrayList<>();
-        String selectSql = "SELECT id, method, host, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater FROM api_log ORDER BY id ASC";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(selectSql)) {
-            while (rs.next()) {
-                records.add(recordFromResultSet(rs));
-            }
-        } catch (SQLException e) {
-            api.logging().logToError("Failed to load API data for path normalization: " + e.getMessage(), e);
-            return 0;
-        }
-
-        int affectedRows = 0;
-        boolean originalAutoCommit = true;
+    private boolean updateRepeaterStatusLocked(String method, String host, String path) {
+        long start = System.nanoTime();
+        try {
+            int methodId = methods.idOf(method);
+            int hostId = hosts.idOf(host);
+            if (methodId == StringDictionary.ABSENT || hostId == StringDictionary.ABSENT) {
+                return false;
+            }
+            String sql = "UPDATE api_log SET is_from_repeater = 1, last_seen = CURRENT_TIMESTAMP WHERE host_id = ? AND path = ? AND method_id = ? AND is_from_repeater = 0"
+                    + " RETURNING id";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                beginChange();
+                restoreArchived(methodId, hostId, path);
+                stmt.setInt(1, hostId);
+                stmt.setString(2, path);
+                stmt.setInt(3, methodId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    return false;
+                }
+                recordEvent(rs.getInt(1), CoverageEvent.REPEATER, null);
+                return true;
+            } catch (SQLException e) {
+                api.logging().logToError("Error during updateRepeaterStatus: " + e.getMessage(), e);
+                abortChange();
+                return false;
+            }
+        } finally {
+            metrics.record("db.updateRepeaterStatus", start);
+        }
+    }
+    
+    /**
+     * Chuẩn hóa lại path đã lưu theo {@code pathNormalizer}; các dòng trùng endpoint sau khi chuẩn hóa được gộp lại.
+     *
+     * @param changed Nhận path cũ và path mới của mỗi dòng đã đổi, sau khi transaction được commit.
+     * @return Số dòng đã thay đổi.
+     */
+    @Override
+    public synchronized int normalizeStoredPaths(UnaryOperator<String> pathNormalizer, EndpointConsumer changed) {
+        long start = System.nanoTime();
         try {
-            originalAutoCommit = connection.getAutoCommit();
-            connection.setAutoCommit(false);
+            if (pathNormalizer == null) {
+                return 0;
+            }
 
-            for (ApiRecord record : records) {
-                String normalizedPath = pathNormalizer.apply(record.path);
-                if (normalizedPath == null || normalizedPath.equals(record.path)) {
-                    continue;
+            // Chỉ đọc id và path để tìm các dòng mà normalizer thay đổi; bản ghi đầy đủ chỉ được tải cho các dòng đó.
+            List<Integer> changedIds = new ArrayList<>();
+            List<String> normalizedPaths = new ArrayList<>();
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT id, path FROM api_log ORDER BY id ASC")) {
+                while (rs.next()) {
+                    String path = rs.getString(2);
+                    String normalizedPath = pathNormalizer.apply(path);
+                    if (normalizedPath != null && !normalizedPath.equals(path)) {
+                        changedIds.add(rs.getInt(1));
+                        normalizedPaths.add(normalizedPath);
+                    }
                 }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to load API data for path normalization: " + e.getMessage(), e);
+                return 0;
+            }
 
-                ApiRecord target = findRecord(record.method, record.host, normalizedPath);
-                if (target == null || target.id == record.id) {
-                    try (PreparedStatement stmt = connection.prepareStatement(
-                            "UPDATE api_log SET path = ?, last_seen = CURRENT_TIMESTAMP WHERE id = ?")) {
-                        stmt.setString(1, normalizedPath);
-                        stmt.setInt(2, record.id);
-                        affectedRows += stmt.executeUpdate();
-                    }
-                } else if (record.isScanned && !target.isScanned) {
-                    try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM api_log WHERE id = ?")) {
-                        stmt.setInt(1, target.id);
-                        stmt.executeUpdate();
+            int affectedRows = 0;
+            List<ApiRecord> changedRecords = new ArrayList<>();
+            List<String> changedPaths = new ArrayList<>();
+            boolean originalAutoCommit = true;
+            try {
+                originalAutoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+
+                for (int i = 0; i < changedIds.size(); i++) {
+                    // Dòng có thể đã bị gộp vào một dòng khác ở vòng lặp trước.
+                    ApiRecord record = findRecordById(changedIds.get(i));
+                    if (record == null) {
+                        continue;
                     }
-                    mergeRecordsInto(record, target, normalizedPath);
-                    affectedRows++;
-                } else {
-                    mergeRecordsInto(target, record, normalizedPath);
-                    try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM api_log WHERE id = ?")) {
-                        stmt.setInt(1, record.id);
-                        stmt.executeUpdate();
+                    String normalizedPath = normalizedPaths.get(i);
+                    changedRecords.add(record);
+                    changedPaths.add(normalizedPath);
+                    ApiRecord target = findRecord(record.methodId, record.hostId, normalizedPath);
+                    if (target == null || target.id == record.id) {
+                        try (PreparedStatement stmt = connection.prepareStatement(
+                                "UPDATE api_log SET path = ?, last_seen = CURRENT_TIMESTAMP WHERE id = ?")) {
+                            stmt.setString(1, normalizedPath);
+                            stmt.setInt(2, record.id);
+                            affectedRows += stmt.executeUpdate();
+                        }
+                    } else if (record.isScanned && !target.isScanned) {
+                        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM api_log WHERE id = ?")) {
+                            stmt.setInt(1, target.id);
+                            stmt.executeUpdate();
+                        }
+                        mergeRecordsInto(record, target, normalizedPath);
+                        affectedRows++;
+                    } else {
+                        mergeRecordsInto(target, record, normalizedPath);
+                        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM api_log WHERE id = ?")) {
+                            stmt.setInt(1, record.id);
+                            stmt.executeUpdate();
+                        }
+                        affectedRows++;
                     }
-                    affectedRows++;
                 }
-            }
 
-            connection.commit();
-            if (affectedRows > 0) {
-                api.logging().logToOutput("Normalized " + affectedRows + " stored API path records.");
-            }
-        } catch (SQLException e) {
-            try {
-                connection.rollback();
-            } catch (SQLException rollbackError) {
-                api.logging().logToError("Failed to rollback path normalization: " + rollbackError.getMessage(), rollbackError);
-            }
-            api.logging().logToError("Error during stored path normalization: " + e.getMessage(), e);
-            return 0;
-        } finally {
-            try {
-                connection.setAutoCommit(originalAutoCommit);
+                commit();
+                // Các dòng đã bị gộp hoặc xóa, độ phủ trong cache không còn khớp với CSDL.
+                clearCoverage();
+                for (int i = 0; i < changedRecords.size(); i++) {
+                    ApiRecord record = changedRecords.get(i);
+                    String method = methods.value(record.methodId);
+                    String host = hosts.value(record.hostId);
+                    changed.accept(method, host, record.path);
+                    changed.accept(method, host, changedPaths.get(i));
+                }
+                if (affectedRows > 0) {
+                    api.logging().logToOutput("Normalized " + affectedRows + " stored API path records.");
+                }
             } catch (SQLException e) {
-                api.logging().logToError("Failed to restore database autocommit: " + e.getMessage(), e);
+                try {
+                    rollback();
+                } catch (SQLException rollbackError) {
+                    api.logging().logToError("Failed to rollback path normalization: " + rollbackError.getMessage(), rollbackError);
+                }
+                api.logging().logToError("Error during stored path normalization: " + e.getMessage(), e);
+                return 0;
+            } finally {
+                try {
+                    connection.setAutoCommit(originalAutoCommit);
+                } catch (SQLException e) {
+                    api.logging().logToError("Failed to restore database autocommit: " + e.getMessage(), e);
+                }
             }
+            return affectedRows;
+        } finally {
+            metrics.record("db.normalizeStoredPaths", start);
         }
-        return affectedRows;
     }
 
-    private ApiRecord findRecord(String method, String host, String path) throws SQLException {
-        String sql = "SELECT id, method, host, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater FROM api_log WHERE host = ? AND path = ? AND method = ?";
+    private ApiRecord findRecord(int methodId, int hostId, String path) throws SQLException {
+        String sql = "SELECT id, method_id, host_id, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater FROM api_log WHERE host_id = ? AND path = ? AND method_id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, host);
+            stmt.setInt(1, hostId);
             stmt.setString(2, path);
-            stmt.setString(3, method);
+            stmt.setInt(3, methodId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? recordFromResultSet(rs) : null;
+        }
+    }
+
+    private ApiRecord findRecordById(int id) throws SQLException {
+        String sql = "SELECT id, method_id, host_id, path, unscanned_params, scanned_params, is_scanned, is_rejected, is_bypassed, is_from_repeater FROM api_log WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             return rs.next() ? recordFromResultSet(rs) : null;
         }
@@ -432,11 +1542,11 @@ public class DatabaseManager {
     private ApiRecord recordFromResultSet(ResultSet rs) throws SQLException {
         return new ApiRecord(
                 rs.getInt("id"),
-                rs.getString("method"),
-                rs.getString("host"),
+                rs.getInt("method_id"),
+                rs.getInt("host_id"),
                 rs.getString("path"),
-                stringToSet(rs.getString("unscanned_params")),
-                stringToSet(rs.getString("scanned_params")),
+                IntSets.parse(rs.getString("unscanned_params")),
+                IntSets.parse(rs.getString("scanned_params")),
                 rs.getBoolean("is_scanned"),
                 rs.getBoolean("is_rejected"),
                 rs.getBoolean("is_bypassed"),
@@ -445,14 +1555,10 @@ public class DatabaseManager {
     }
 
     private void mergeRecordsInto(ApiRecord keep, ApiRecord merge, String path) throws SQLException {
-        Set<String> mergedScanned = new HashSet<>(keep.scannedParams);
-        mergedScanned.addAll(merge.scannedParams);
-
-        Set<String> mergedUnscanned = new HashSet<>(keep.unscannedParams);
-        mergedUnscanned.addAll(merge.unscannedParams);
-        mergedUnscanned.removeAll(mergedScanned);
+        int[] mergedScanned = IntSets.union(keep.scannedParams, merge.scannedParams);
+        int[] mergedUnscanned = IntSets.difference(IntSets.union(keep.unscannedParams, merge.unscannedParams), mergedScanned);
 
-        boolean mergedScannedStatus = (keep.isScanned || merge.isScanned) && mergedUnscanned.isEmpty();
+        boolean mergedScannedStatus = (keep.isScanned || merge.isScanned) && mergedUnscanned.length == 0;
         String sql = """
                 UPDATE api_log
                 SET path = ?,
@@ -467,8 +1573,8 @@ public class DatabaseManager {
                 """;
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, path);
-            stmt.setString(2, setToString(mergedUnscanned));
-            stmt.setString(3, setToString(mergedScanned));
+            stmt.setString(2, IntSets.format(mergedUnscanned));
+            stmt.setString(3, IntSets.format(mergedScanned));
             stmt.setBoolean(4, mergedScannedStatus);
             stmt.setBoolean(5, keep.isRejected || merge.isRejected);
             stmt.setBoolean(6, keep.isBypassed || merge.isBypassed);
@@ -476,15 +1582,52 @@ public class DatabaseManager {
             stmt.setInt(8, keep.id);
             stmt.executeUpdate();
         }
+        // Lịch sử của dòng bị gộp được chuyển sang dòng còn lại.
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE api_event SET api_id = ? WHERE api_id = ?")) {
+            stmt.setInt(1, keep.id);
+            stmt.setInt(2, merge.id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Khóa của cache độ phủ. Có thể thay đổi để dùng làm khóa tra cứu ({@link #probeKey});
+     * các khóa đã được đưa vào cache thì không bao giờ bị thay đổi.
+     */
+    private static final class EndpointKey {
+        private int methodId;
+        private int hostId;
+        private String path;
+
+        private EndpointKey(int methodId, int hostId, String path) {
+            set(methodId, hostId, path);
+        }
+
+        private void set(int methodId, int hostId, String path) {
+            this.methodId = methodId;
+            this.hostId = hostId;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EndpointKey other
+                    && methodId == other.methodId && hostId == other.hostId && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * methodId + hostId) * 31 + path.hashCode();
+        }
     }
 
     private static class ApiRecord {
         private final int id;
-        private final String method;
-        private final String host;
+        private final int methodId;
+        private final int hostId;
         private final String path;
-        private final Set<String> unscannedParams;
-        private final Set<String> scannedParams;
+        private final int[] unscannedParams;
+        private final int[] scannedParams;
         private final boolean isScanned;
         private final boolean isRejected;
         private final boolean isBypassed;
@@ -492,18 +1635,18 @@ public class DatabaseManager {
 
         private ApiRecord(
                 int id,
-                String method,
-                String host,
+                int methodId,
+                int hostId,
                 String path,
-                Set<String> unscannedParams,
-                Set<String> scannedParams,
+                int[] unscannedParams,
+                int[] scannedParams,
                 boolean isScanned,
                 boolean isRejected,
                 boolean isBypassed,
                 boolean isFromRepeater) {
             this.id = id;
-            this.method = method;
-            this.host = host;
+            this.methodId = methodId;
+            this.hostId = hostId;
             this.path = path;
             this.unscannedParams = unscannedParams;
             this.scannedParams = scannedParams;
@@ -520,50 +1663,306 @@ public class DatabaseManager {
      *
      * @return Số lượng dòng đã được cập nhật.
      */
+    @Override
     public synchronized int applyAutoBypassToOldRecords() {
-        String sql = """
-            UPDATE api_log
-            SET
-                is_bypassed = 1,
-                last_seen = CURRENT_TIMESTAMP
-            WHERE
-                (unscanned_params IS NULL OR unscanned_params = '')
-                AND is_scanned = 0
-                AND is_rejected = 0
-                AND is_bypassed = 0
-            """;
+        long start = System.nanoTime();
+        try {
+            String sql = """
+                UPDATE api_log
+                SET
+                    is_bypassed = 1,
+                    last_seen = CURRENT_TIMESTAMP
+                WHERE
+                    (unscanned_params IS NULL OR unscanned_params = '')
+                    AND is_scanned = 0
+                    AND is_rejected = 0
+                    AND is_bypassed = 0
+                """;
+            try (Statement stmt = connection.createStatement()) {
+                int affectedRows = stmt.executeUpdate(sql);
+                if (!connection.getAutoCommit()) {
+                    commit();
+                }
+                if (affectedRows > 0) {
+                    api.logging().logToOutput("Retroactively bypassed " + affectedRows + " old GET APIs without parameters.");
+                }
+                return affectedRows;
+            } catch (SQLException e) {
+                api.logging().logToError("Error during retroactive auto-bypass: " + e.getMessage(), e);
+                return 0;
+            }
+        } finally {
+            metrics.record("db.applyAutoBypassToOldRecords", start);
+        }
+    }
+    
+    /**
+     * Thay đổi trạng thái hàng loạt do người dùng chọn trên giao diện.
+     */
+    enum StatusChange {
+        /**
+         * Đánh dấu Rejected (và bỏ Bypassed); chỉ áp dụng cho API chưa được quét.
+         */
+        REJECT("is_rejected = 1, is_bypassed = 0", "is_scanned = 0 AND (is_rejected = 0 OR is_bypassed = 1)", CoverageEvent.REJECTED),
+        /**
+         * Đánh dấu Bypassed (và bỏ Rejected); chỉ áp dụng cho API chưa được quét.
+         */
+        BYPASS("is_rejected = 0, is_bypassed = 1", "is_scanned = 0 AND (is_rejected = 1 OR is_bypassed = 0)", CoverageEvent.BYPASSED),
+        /**
+         * Bỏ các trạng thái do người dùng đặt (Rejected, Bypassed). Trạng thái Scanned do Scanner quyết định nên được giữ nguyên.
+         */
+        RESET("is_rejected = 0, is_bypassed = 0", "(is_rejected = 1 OR is_bypassed = 1)", CoverageEvent.RESET);
+
+        private final String assignments;
+        /**
+         * Điều kiện để một dòng thực sự thay đổi; các dòng khác không được ghi và không được báo lại.
+         */
+        private final String applicable;
+        /**
+         * Loại sự kiện được ghi vào lịch sử api_event của các dòng đã thay đổi.
+         */
+        private final byte eventType;
+
+        StatusChange(String assignments, String applicable, byte eventType) {
+            this.assignments = assignments;
+            this.applicable = applicable;
+            this.eventType = eventType;
+        }
+    }
+
+    /**
+     * Áp dụng một thay đổi trạng thái cho các dòng có ID đã cho (các dòng được chọn trên bảng).
+     *
+     * @param changed Nhận trạng thái mới của các dòng đã thay đổi, dùng để đồng bộ {@link EndpointStatusCache}.
+     * @return Số dòng đã thay đổi.
+     */
+    @Override
+    public synchronized int updateStatus(StatusChange change, int[] ids, EndpointStatusConsumer changed) throws SQLException {
+        // Danh sách ID được truyền như một mảng JSON duy nhất thay vì một lệnh INSERT cho mỗi ID.
+        StringBuilder json = new StringBuilder(ids.length * 7 + 2).append('[');
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(ids[i]);
+        }
+        json.append(']');
+        return updateStatus(change, "db.updateStatus.ids", changed, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO temp.status_target (id) SELECT id FROM api_log"
+                    + " WHERE id IN (SELECT value FROM json_each(?)) AND " + change.applicable)) {
+                stmt.setString(1, json.toString());
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Áp dụng một thay đổi trạng thái cho tất cả các dòng khớp với điều kiện lọc (kết quả tìm kiếm trên bảng).
+     *
+     * @param changed Nhận trạng thái mới của các dòng đã thay đổi, dùng để đồng bộ {@link EndpointStatusCache}.
+     * @return Số dòng đã thay đổi.
+     */
+    @Override
+    public synchronized int updateStatus(StatusChange change, ApiQuery query, EndpointStatusConsumer changed) throws SQLException {
+        return updateStatus(change, "db.updateStatus.query", changed, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO temp.status_target (id) SELECT id FROM api_log"
+                    + whereClause(query) + " AND " + change.applicable)) {
+                bindWhereClause(stmt, query);
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Áp dụng một thay đổi trạng thái cho tất cả các API của một host.
+     *
+     * @param changed Nhận trạng thái mới của các dòng đã thay đổi, dùng để đồng bộ {@link EndpointStatusCache}.
+     * @return Số dòng đã thay đổi.
+     */
+    @Override
+    public synchronized int updateStatusForHost(StatusChange change, String host, EndpointStatusConsumer changed) throws SQLException {
+        int hostId = hosts.idOf(host);
+        if (hostId == StringDictionary.ABSENT) {
+            return 0;
+        }
+        return updateStatus(change, "db.updateStatus.host", changed, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO temp.status_target (id) SELECT id FROM api_log"
+                    + " WHERE host_id = ? AND " + change.applicable)) {
+                stmt.setInt(1, hostId);
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface TargetSelection {
+        void insertTargets() throws SQLException;
+    }
+
+    /**
+     * Ghi ID các dòng cần đổi vào bảng tạm (nơi gọi chỉ chọn các dòng mà {@link StatusChange#applicable} đúng), rồi
+     * cập nhật chúng bằng một câu UPDATE nối với bảng tạm và đọc lại trạng thái mới, tất cả trong một transaction.
+     */
+    private int updateStatus(StatusChange change, String metric, EndpointStatusConsumer changed, TargetSelection selection) throws SQLException {
+        long start = System.nanoTime();
+        boolean originalAutoCommit = connection.getAutoCommit();
         try (Statement stmt = connection.createStatement()) {
-            int affectedRows = stmt.executeUpdate(sql);
-            if (affectedRows > 0) {
-                api.logging().logToOutput("Retroactively bypassed " + affectedRows + " old GET APIs without parameters.");
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS status_target (id INTEGER PRIMARY KEY)");
+            connection.setAutoCommit(false);
+            try {
+                stmt.execute("DELETE FROM temp.status_target");
+                selection.insertTargets();
+                int updated = stmt.executeUpdate("UPDATE api_log SET " + change.assignments + ", last_seen = CURRENT_TIMESTAMP"
+                        + " WHERE id IN (SELECT id FROM temp.status_target)");
+                if (updated > 0) {
+                    try (PreparedStatement history = connection.prepareStatement("INSERT INTO api_event (api_id, type, created_at)"
+                            + " SELECT id, ?, ? FROM temp.status_target")) {
+                        history.setInt(1, change.eventType);
+                        history.setLong(2, System.currentTimeMillis());
+                        history.executeUpdate();
+                    }
+                    try (ResultSet rs = stmt.executeQuery("SELECT method_id, host_id, path, is_scanned, is_rejected, is_bypassed FROM api_log"
+                            + " WHERE id IN (SELECT id FROM temp.status_target)")) {
+                        while (rs.next()) {
+                            changed.accept(methods.value(rs.getInt(1)), hosts.value(rs.getInt(2)), rs.getString(3),
+                                    EndpointStatusCache.flags(rs.getBoolean(4), rs.getBoolean(5), rs.getBoolean(6)));
+                        }
+                    }
+                }
+                stmt.execute("DELETE FROM temp.status_target");
+                commit();
+                return updated;
+            } catch (SQLException e) {
+                rollback();
+                throw e;
             }
-            return affectedRows;
-        } catch (SQLException e) {
-            api.logging().logToError("Error during retroactive auto-bypass: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(originalAutoCommit);
+            metrics.record(metric, start);
+        }
+    }
+
+    /**
+     * Chuyển tối đa {@link #ARCHIVE_BATCH_SIZE} API không xuất hiện trong {@code retentionDays} ngày qua (cũ nhất
+     * trước) sang kho lạnh api_log_archive, trong một transaction. Nơi gọi lặp lại cho đến khi một lô trả về ít hơn
+     * {@link #ARCHIVE_BATCH_SIZE}; khóa được nhả giữa hai lô nên traffic không phải chờ cả quá trình.
+     * <p>
+     * Chỉ mục trạng thái không được cập nhật ở đây: nơi gọi dựng lại nó một lần sau khi chuyển xong.
+     *
+     * @param archived Nhận mỗi API đã chuyển, sau khi transaction được commit.
+     * @return Số API đã chuyển.
+     */
+    @Override
+    public synchronized int archiveStale(int retentionDays, EndpointConsumer archived) throws SQLException {
+        if (connection == null || connection.isClosed()) {
             return 0;
         }
+        long start = System.nanoTime();
+        boolean originalAutoCommit = connection.getAutoCommit();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS archive_target (id INTEGER PRIMARY KEY)");
+            connection.setAutoCommit(false);
+            try {
+                stmt.execute("DELETE FROM temp.archive_target");
+                try (PreparedStatement select = connection.prepareStatement("INSERT INTO temp.archive_target (id) SELECT id FROM api_log"
+                        + " WHERE last_seen < datetime('now', ?) ORDER BY last_seen LIMIT ?")) {
+                    select.setString(1, "-" + retentionDays + " days");
+                    select.setInt(2, ARCHIVE_BATCH_SIZE);
+                    select.executeUpdate();
+                }
+                Set<Integer> ids = new HashSet<>();
+                List<String[]> endpoints = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery("SELECT a.id, a.method_id, a.host_id, a.path FROM api_log a"
+                        + " JOIN temp.archive_target t ON t.id = a.id")) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        endpoints.add(new String[]{methods.value(rs.getInt(2)), hosts.value(rs.getInt(3)), rs.getString(4)});
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    long now = System.currentTimeMillis();
+                    // OR REPLACE: dòng đang hoạt động luôn mới hơn một bản sao cũ còn sót trong kho lạnh.
+                    stmt.executeUpdate("INSERT OR REPLACE INTO api_log_archive (" + ARCHIVE_COLUMNS + ", archived_at)"
+                            + " SELECT " + ARCHIVE_COLUMNS + ", " + now + " FROM api_log WHERE id IN (SELECT id FROM temp.archive_target)");
+                    stmt.executeUpdate("INSERT INTO api_event (api_id, type, created_at) SELECT id, " + CoverageEvent.ARCHIVED + ", " + now
+                            + " FROM temp.archive_target");
+                    stmt.executeUpdate("DELETE FROM api_log WHERE id IN (SELECT id FROM temp.archive_target)");
+                    stmt.execute("DELETE FROM temp.archive_target");
+                }
+                commit();
+                archivedCount = countArchived();
+                synchronized (coverageCache) {
+                    coverageCache.values().removeIf(coverage -> ids.contains(coverage.rowId));
+                }
+                for (String[] endpoint : endpoints) {
+                    archived.accept(endpoint[0], endpoint[1], endpoint[2]);
+                }
+                return ids.size();
+            } catch (SQLException e) {
+                rollback();
+                throw e;
+            }
+        } finally {
+            connection.setAutoCommit(originalAutoCommit);
+            metrics.record("db.archiveStale", start);
+        }
     }
-    
+
     /**
-     * Cập nhật một cột trạng thái boolean (is_scanned, is_rejected, is_bypassed) cho một API.
-     * Được sử dụng khi người dùng tick vào các checkbox trên giao diện.
+     * Chuyển một API từ kho lạnh về api_log (giữ nguyên id, trạng thái và tham số) khi nó xuất hiện lại, trong
+     * transaction của thao tác đang xử lý nó.
      *
-     * @param id         ID của dòng trong CSDL.
-     * @param columnName Tên của cột cần cập nhật.
-     * @param value      Giá trị boolean mới.
+     * @return true nếu API nằm trong kho lạnh và đã được chuyển về.
      */
-    public void updateApiStatus(int id, String columnName, boolean value) {
-        if (!Arrays.asList("is_scanned", "is_rejected", "is_bypassed").contains(columnName)) {
-            api.logging().logToError("Invalid column name for status update.");
-            return;
+    private boolean restoreArchived(int methodId, int hostId, String path) throws SQLException {
+        if (archivedCount == 0) {
+            return false;
         }
-        String sql = String.format("UPDATE api_log SET %s = ?, last_seen = CURRENT_TIMESTAMP WHERE id = ?", columnName);
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBoolean(1, value);
-            pstmt.setInt(2, id);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            api.logging().logToError("Failed to update API status: " + e.getMessage(), e);
+        beginChange();
+        try (PreparedStatement restore = connection.prepareStatement("INSERT OR IGNORE INTO api_log (" + ARCHIVE_COLUMNS + ")"
+                + " SELECT " + ARCHIVE_COLUMNS + " FROM api_log_archive WHERE host_id = ? AND path = ? AND method_id = ?");
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM api_log_archive WHERE host_id = ? AND path = ? AND method_id = ?"
+                     + " RETURNING id")) {
+            restore.setInt(1, hostId);
+            restore.setString(2, path);
+            restore.setInt(3, methodId);
+            if (restore.executeUpdate() == 0) {
+                return false;
+            }
+            delete.setInt(1, hostId);
+            delete.setString(2, path);
+            delete.setInt(3, methodId);
+            ResultSet rs = delete.executeQuery();
+            if (rs.next()) {
+                recordEvent(rs.getInt(1), CoverageEvent.RESTORED, null);
+            }
+        }
+        archivedCount--;
+        restoredSinceCommit++;
+        return true;
+    }
+
+    /**
+     * @return true nếu host đã có trong từ điển của tệp CSDL này, không truy vấn CSDL.
+     */
+    boolean hasHost(String host) {
+        return hosts.idOf(host) != StringDictionary.ABSENT;
+    }
+
+    @Override
+    public int laneKey(String method, String host, String path) {
+        return EndpointLocks.hash(method, host, path);
+    }
+
+    /**
+     * @return Số API trong kho lạnh, không truy vấn CSDL.
+     */
+    @Override
+    public int archivedCount() {
+        return archivedCount;
+    }
+
+    private int countArchived() throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM api_log_archive")) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
@@ -571,9 +1970,15 @@ public class DatabaseManager {
      * Đóng kết nối cơ sở dữ liệu khi extension được gỡ bỏ.
      * Rất quan trọng để giải phóng tài nguyên.
      */
-    public void close() {
+    @Override
+    public synchronized void close() {
+        connected = false;
         try {
             if (connection != null && !connection.isClosed()) {
+                // Cập nhật thống kê của bộ lập kế hoạch truy vấn nếu dữ liệu đã thay đổi nhiều trong phiên này.
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA optimize");
+                }
                 connection.close();
                 api.logging().logToOutput("Database connection closed.");
             }
@@ -581,6 +1986,14 @@ public class DatabaseManager {
             api.logging().logToError("Error closing database connection: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * @return true nếu kết nối đến CSDL đã được mở thành công và chưa bị đóng. Không chờ khóa của DatabaseManager.
+     */
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
     
     /**
      * Lấy các cờ trạng thái (scanned, rejected, bypassed) của một API cụ thể.
@@ -591,19 +2004,64 @@ public class DatabaseManager {
      * @param path   Path của API.
      * @return Một mảng Object chứa 3 giá trị boolean, hoặc null nếu không tìm thấy.
      */
+    @Override
     public Object[] getApiStatus(String method, String host, String path) {
-        String sql = "SELECT is_scanned, is_rejected, is_bypassed FROM api_log WHERE host = ? AND path = ? AND method = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, host);
-            stmt.setString(2, path);
-            stmt.setString(3, method);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Object[]{rs.getBoolean("is_scanned"), rs.getBoolean("is_rejected"), rs.getBoolean("is_bypassed")};
+        long start = System.nanoTime();
+        try {
+            int methodId = methods.idOf(method);
+            int hostId = hosts.idOf(host);
+            if (methodId == StringDictionary.ABSENT || hostId == StringDictionary.ABSENT) {
+                return null;
             }
-        } catch (SQLException e) {
-            api.logging().logToError("Failed to get API status for " + host + path + ": " + e.getMessage(), e);
+            String sql = "SELECT is_scanned, is_rejected, is_bypassed FROM api_log WHERE host_id = ? AND path = ? AND method_id = ?";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, hostId);
+                stmt.setString(2, path);
+                stmt.setInt(3, methodId);
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    return new Object[]{rs.getBoolean("is_scanned"), rs.getBoolean("is_rejected"), rs.getBoolean("is_bypassed")};
+                }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to get API status for " + host + path + ": " + e.getMessage(), e);
+            }
+            return null;
+        } finally {
+            metrics.record("db.getApiStatus", start);
+        }
+    }
+
+    /**
+     * Hàm REGEXP cho SQLite: {@code path REGEXP ?} gọi {@code regexp(pattern, path)}.
+     * Khớp không phân biệt hoa thường và tìm ở bất kỳ vị trí nào, giống bộ lọc của JTable trước đây.
+     * Biểu thức không hợp lệ (thường gặp khi người dùng đang gõ dở) được so khớp như chuỗi thường.
+     */
+    private static class RegexpFunction extends org.sqlite.Function {
+        /**
+         * Biểu thức vừa dùng và bản đã biên dịch; một truy vấn gọi hàm này cho mọi dòng với cùng một biểu thức.
+         */
+        private volatile Map.Entry<String, Pattern> compiled;
+
+        @Override
+        protected void xFunc() throws SQLException {
+            String regex = value_text(0);
+            String value = value_text(1);
+            if (regex == null || value == null) {
+                result(0);
+                return;
+            }
+            Map.Entry<String, Pattern> cached = compiled;
+            if (cached == null || !cached.getKey().equals(regex)) {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+                } catch (PatternSyntaxException e) {
+                    pattern = Pattern.compile(Pattern.quote(regex), Pattern.CASE_INSENSITIVE);
+                }
+                cached = new AbstractMap.SimpleImmutableEntry<>(regex, pattern);
+                compiled = cached;
+            }
+            result(cached.getValue().matcher(value).find() ? 1 : 0);
         }
-        return null;
     }
 }
@@ -0,0 +1,461 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Chỉ mục (method, host, path) -> cờ trạng thái nằm ngoài heap Java, trong một file ánh xạ bộ nhớ (memory-mapped).
+ * <p>
+ * Bố cục file:
+ * <pre>
+ * [header 64 byte][bảng slot: capacity x 16 byte][vùng khóa]
+ * slot  = long hash (0 = trống) | int vị trí khóa trong vùng khóa | int cờ trạng thái
+ * khóa  = int (số ký tự | bit 31 nếu lưu 2 byte/ký tự) | các ký tự
+ * </pre>
+ * Bảng băm dùng open addressing với linear probing, hệ số tải tối đa 0.7. Khi đầy, toàn bộ chỉ mục được chép sang
+ * một file lớn gấp đôi. Tra cứu và cập nhật so sánh khóa trực tiếp với từng chuỗi method, host, path nên không cấp phát đối tượng.
+ * <p>
+ * Chỉ mục là dữ liệu dẫn xuất từ CSDL: file tạm được xóa khi đóng. Để khởi động không phải duyệt SQLite, nội dung
+ * có thể được ghi ra một snapshot ({@link #save(Path)}) và nạp lại ở lần sau ({@link #load(Path)}); snapshot có cùng
+ * bố cục nhưng chỉ chứa phần đã dùng của vùng khóa.
+ */
+class EndpointIndex implements Closeable {
+    static final int ABSENT = -1;
+
+    private static final int MAGIC = 0x52534549;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int H_MAGIC = 0;
+    private static final int H_CAPACITY = 4;
+    private static final int H_SIZE = 8;
+    private static final int H_KEY_END = 12;
+    private static final int H_SCANNED = 16;
+    private static final int H_REJECTED = 20;
+    private static final int H_BYPASSED = 24;
+    private static final int WIDE_KEY = 1 << 31;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int DEFAULT_KEY_BYTES = 4 << 20;
+
+    private final StampedLock lock = new StampedLock();
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int keyStart;
+    private int keyLimit;
+
+    EndpointIndex() {
+        map(DEFAULT_CAPACITY, DEFAULT_KEY_BYTES);
+    }
+
+    /**
+     * @return Các cờ trạng thái của endpoint, hoặc {@link #ABSENT} nếu chưa có trong chỉ mục.
+     */
+    int get(String method, String host, String path) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(hash(method, host, path), method, host, path);
+            return slot < 0 ? ABSENT : buffer.getInt(slotOffset(slot) + 12);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật cờ trạng thái của một endpoint.
+     *
+     * @return Cờ trạng thái trước đó, hoặc {@link #ABSENT} nếu endpoint vừa được thêm.
+     */
+    int put(String method, String host, String path, int flags) {
+        long stamp = lock.writeLock();
+        try {
+            long hash = hash(method, host, path);
+            int slot = find(hash, method, host, path);
+            if (slot >= 0) {
+                int offset = slotOffset(slot);
+                int previous = buffer.getInt(offset + 12);
+                adjustCounts(previous, -1);
+                buffer.putInt(offset + 12, flags);
+                adjustCounts(flags, 1);
+                return previous;
+            }
+
+            int keyLength = method.length() + 1 + host.length() + path.length();
+            boolean wide = isWide(method) || isWide(host) || isWide(path);
+            int keyBytes = 4 + keyLength * (wide ? 2 : 1);
+            if ((size() + 1) * 10L > capacity * 7L || keyEnd() + keyBytes > keyLimit) {
+                grow(keyBytes);
+                slot = find(hash, method, host, path);
+            }
+
+            int keyOffset = keyEnd();
+            buffer.putInt(keyOffset, keyLength | (wide ? WIDE_KEY : 0));
+            int step = wide ? 2 : 1;
+            int position = writeRegion(keyOffset + 4, step, method);
+            position = writeRegion(position, step, " ");
+            position = writeRegion(writeRegion(position, step, host), step, path);
+            buffer.putInt(H_KEY_END, position);
+
+            int offset = slotOffset(-slot - 1);
+            buffer.putLong(offset, hash);
+            buffer.putInt(offset + 8, keyOffset);
+            buffer.putInt(offset + 12, flags);
+            buffer.putInt(H_SIZE, size() + 1);
+            adjustCounts(flags, 1);
+            return ABSENT;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Xóa toàn bộ chỉ mục, trả file về kích thước mặc định.
+     */
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Path old = file;
+            FileChannel oldChannel = channel;
+            map(DEFAULT_CAPACITY, DEFAULT_KEY_BYTES);
+            release(old, oldChannel);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Duyệt mọi endpoint trong chỉ mục theo thứ tự slot. Khóa được tách lại thành method, host và path, với path
+     * bắt đầu từ dấu '/' đầu tiên sau host.
+     */
+    void forEach(DatabaseManager.EndpointStatusConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            StringBuilder key = new StringBuilder();
+            for (int slot = 0; slot < capacity; slot++) {
+                int offset = slotOffset(slot);
+                if (buffer.getLong(offset) == 0) {
+                    continue;
+                }
+                int keyOffset = buffer.getInt(offset + 8);
+                int header = buffer.getInt(keyOffset);
+                int step = (header & WIDE_KEY) != 0 ? 2 : 1;
+                int length = header & ~WIDE_KEY;
+                key.setLength(0);
+                for (int i = 0, position = keyOffset + 4; i < length; i++, position += step) {
+                    key.append(charAt(position, step));
+                }
+                int space = key.indexOf(" ");
+                int slash = key.indexOf("/", space + 1);
+                if (slash < 0) {
+                    slash = key.length();
+                }
+                consumer.accept(key.substring(0, space), key.substring(space + 1, slash), key.substring(slash), buffer.getInt(offset + 12));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Ghi chỉ mục ra một snapshot: header, bảng slot và phần đã dùng của vùng khóa. Dữ liệu được ghi vào một tệp
+     * tạm cạnh đích rồi đổi tên, nên snapshot cũ chỉ bị thay thế khi bản mới đã ghi xong.
+     */
+    void save(Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long stamp = lock.readLock();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer used = buffer.slice(0, keyEnd());
+            while (used.hasRemaining()) {
+                out.write(used);
+            }
+            out.force(false);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Thay toàn bộ nội dung chỉ mục bằng một snapshot do {@link #save(Path)} ghi ra. Snapshot được chép vào file
+     * tạm của chỉ mục (một lần đọc tuần tự), nên các thay đổi sau đó không làm hỏng snapshot.
+     *
+     * @return false nếu snapshot không tồn tại hoặc không hợp lệ; khi đó chỉ mục giữ nguyên.
+     */
+    boolean load(Path snapshot) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long length = in.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && in.read(header, header.position()) >= 0) {
+                // Đọc đến hết header.
+            }
+            if (header.hasRemaining() || header.getInt(H_MAGIC) != MAGIC) {
+                return false;
+            }
+            int newCapacity = header.getInt(H_CAPACITY);
+            int size = header.getInt(H_SIZE);
+            long newKeyStart = HEADER_BYTES + (long) newCapacity * SLOT_BYTES;
+            if (newCapacity <= 0 || Integer.bitCount(newCapacity) != 1 || size < 0 || size * 10L > newCapacity * 7L
+                    || header.getInt(H_KEY_END) != length || length < newKeyStart) {
+                return false;
+            }
+            long usedKeyBytes = length - newKeyStart;
+            int keyBytes = DEFAULT_KEY_BYTES;
+            while (keyBytes < usedKeyBytes * 2) {
+                keyBytes *= 2;
+            }
+            if (newKeyStart + keyBytes > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            Path oldFile = file;
+            FileChannel oldChannel = channel;
+            map(newCapacity, keyBytes);
+            ByteBuffer target = buffer.slice(0, (int) length);
+            while (target.hasRemaining() && in.read(target, target.position()) >= 0) {
+                // Chép đến hết snapshot.
+            }
+            release(oldFile, oldChannel);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return buffer.getInt(H_SIZE);
+    }
+
+    /**
+     * Số endpoint có cờ trạng thái đã cho.
+     *
+     * @param flag Một trong {@link EndpointStatusCache#SCANNED}, {@link EndpointStatusCache#REJECTED}, {@link EndpointStatusCache#BYPASSED}.
+     */
+    int count(int flag) {
+        return switch (flag) {
+            case EndpointStatusCache.SCANNED -> buffer.getInt(H_SCANNED);
+            case EndpointStatusCache.REJECTED -> buffer.getInt(H_REJECTED);
+            case EndpointStatusCache.BYPASSED -> buffer.getInt(H_BYPASSED);
+            default -> throw new IllegalArgumentException("Unknown status flag: " + flag);
+        };
+    }
+
+    @Override
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            release(file, channel);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Vị trí slot chứa khóa (>= 0), hoặc {@code -(vị trí slot trống) - 1} nếu không tìm thấy.
+     */
+    private int find(long hash, String method, String host, String path) {
+        int mask = capacity - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (true) {
+            int offset = slotOffset(slot);
+            long stored = buffer.getLong(offset);
+            if (stored == 0) {
+                return -slot - 1;
+            }
+            if (stored == hash && keyEquals(buffer.getInt(offset + 8), method, host, path)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(int keyOffset, String method, String host, String path) {
+        int header = buffer.getInt(keyOffset);
+        if ((header & ~WIDE_KEY) != method.length() + 1 + host.length() + path.length()) {
+            return false;
+        }
+        int step = (header & WIDE_KEY) != 0 ? 2 : 1;
+        int position = regionEquals(keyOffset + 4, step, method);
+        if (position < 0 || charAt(position, step) != ' ') {
+            return false;
+        }
+        position = regionEquals(position + step, step, host);
+        return position >= 0 && regionEquals(position, step, path) >= 0;
+    }
+
+    /**
+     * So sánh các ký tự lưu tại {@code position} với một chuỗi.
+     *
+     * @return Vị trí ngay sau đoạn đã so sánh, hoặc -1 nếu khác nhau.
+     */
+    private int regionEquals(int position, int step, String value) {
+        for (int i = 0; i < value.length(); i++, position += step) {
+            if (charAt(position, step) != value.charAt(i)) {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Ghi các ký tự của chuỗi tại {@code position}, 1 hoặc 2 byte mỗi ký tự.
+     *
+     * @return Vị trí ngay sau đoạn vừa ghi.
+     */
+    private int writeRegion(int position, int step, String value) {
+        for (int i = 0; i < value.length(); i++, position += step) {
+            if (step == 2) {
+                buffer.putChar(position, value.charAt(i));
+            } else {
+                buffer.put(position, (byte) value.charAt(i));
+            }
+        }
+        return position;
+    }
+
+    private char charAt(int position, int step) {
+        return step == 2 ? buffer.getChar(position) : (char) (buffer.get(position) & 0xFF);
+    }
+
+    private static long hash(String method, String host, String path) {
+        long hash = mix(FNV_OFFSET_BASIS, method);
+        hash = (hash ^ ' ') * FNV_PRIME;
+        hash = mix(mix(hash, host), path);
+        // 0 được dành cho slot trống.
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * FNV-1a trên từng ký tự UTF-16 của chuỗi.
+     */
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean isWide(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void adjustCounts(int flags, int delta) {
+        if ((flags & EndpointStatusCache.SCANNED) != 0) buffer.putInt(H_SCANNED, buffer.getInt(H_SCANNED) + delta);
+        if ((flags & EndpointStatusCache.REJECTED) != 0) buffer.putInt(H_REJECTED, buffer.getInt(H_REJECTED) + delta);
+        if ((flags & EndpointStatusCache.BYPASSED) != 0) buffer.putInt(H_BYPASSED, buffer.getInt(H_BYPASSED) + delta);
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private int keyEnd() {
+        return buffer.getInt(H_KEY_END);
+    }
+
+    /**
+     * Chép chỉ mục sang một file mới đủ chỗ cho ít nhất {@code extraKeyBytes} byte khóa nữa.
+     */
+    private void grow(int extraKeyBytes) {
+        Path oldFile = file;
+        FileChannel oldChannel = channel;
+        MappedByteBuffer old = buffer;
+        int oldCapacity = capacity;
+        int oldKeyStart = keyStart;
+        int usedKeyBytes = keyEnd() - oldKeyStart;
+
+        int newCapacity = (old.getInt(H_SIZE) + 1) * 10L > oldCapacity * 7L ? oldCapacity * 2 : oldCapacity;
+        int newKeyBytes = keyLimit - oldKeyStart;
+        while (usedKeyBytes + extraKeyBytes > newKeyBytes) {
+            newKeyBytes *= 2;
+        }
+        if ((long) HEADER_BYTES + (long) newCapacity * SLOT_BYTES + newKeyBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Endpoint index exceeds 2 GB");
+        }
+        map(newCapacity, newKeyBytes);
+
+        // Vùng khóa được chép nguyên khối, các slot được băm lại theo dung lượng mới.
+        buffer.put(keyStart, old, oldKeyStart, usedKeyBytes);
+        buffer.putInt(H_KEY_END, keyStart + usedKeyBytes);
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long hash = old.getLong(offset);
+            if (hash == 0) {
+                continue;
+            }
+            int target = (int) (hash ^ (hash >>> 32)) & mask;
+            while (buffer.getLong(slotOffset(target)) != 0) {
+                target = (target + 1) & mask;
+            }
+            int newOffset = slotOffset(target);
+            buffer.putLong(newOffset, hash);
+            buffer.putInt(newOffset + 8, old.getInt(offset + 8) - oldKeyStart + keyStart);
+            buffer.putInt(newOffset + 12, old.getInt(offset + 12));
+        }
+        buffer.putInt(H_SIZE, old.getInt(H_SIZE));
+        buffer.putInt(H_SCANNED, old.getInt(H_SCANNED));
+        buffer.putInt(H_REJECTED, old.getInt(H_REJECTED));
+        buffer.putInt(H_BYPASSED, old.getInt(H_BYPASSED));
+        release(oldFile, oldChannel);
+    }
+
+    private void map(int newCapacity, int keyBytes) {
+        try {
+            Path newFile = Files.createTempFile("recheck-endpoints", ".idx");
+            FileChannel newChannel = FileChannel.open(newFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int totalBytes = HEADER_BYTES + newCapacity * SLOT_BYTES + keyBytes;
+            MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+            newBuffer.putInt(H_MAGIC, MAGIC);
+            newBuffer.putInt(H_CAPACITY, newCapacity);
+            keyStart = HEADER_BYTES + newCapacity * SLOT_BYTES;
+            newBuffer.putInt(H_KEY_END, keyStart);
+            file = newFile;
+            channel = newChannel;
+            buffer = newBuffer;
+            capacity = newCapacity;
+            keyLimit = totalBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create endpoint index file", e);
+        }
+    }
+
+    /**
+     * Đóng và xóa file cũ. Trên Windows, file đang được ánh xạ không xóa được cho tới khi buffer bị thu hồi,
+     * nên khi đó file sẽ được xóa lúc JVM thoát.
+     */
+    private static void release(Path oldFile, FileChannel oldChannel) {
+        if (oldChannel == null) {
+            return;
+        }
+        try {
+            oldChannel.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            Files.deleteIfExists(oldFile);
+        } catch (IOException e) {
+            oldFile.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Khóa phân đoạn (lock striping) theo endpoint (method, host, path): mỗi endpoint ứng với một trong một số cố định
+ * khóa, nên các thao tác đọc-sửa-ghi trên cùng một endpoint được tuần tự hóa, còn các endpoint khác nhau phần lớn
+ * không chặn nhau. Hai endpoint trùng khóa chỉ phải chờ nhau, không sai.
+ * <p>
+ * Thứ tự khóa: khóa endpoint luôn được lấy trước khóa của {@link DatabaseManager}; không bao giờ lấy khóa endpoint khi
+ * đang giữ khóa của DatabaseManager.
+ */
+final class EndpointLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripes Số khóa, được làm tròn lên lũy thừa của 2.
+     */
+    EndpointLocks(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Lấy khóa của một endpoint; nơi gọi phải {@code unlock()} trong khối finally.
+     *
+     * @return Khóa đã được lấy.
+     */
+    ReentrantLock lock(String method, String host, String path) {
+        ReentrantLock lock = stripes[hash(method, host, path) & mask];
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Hash của một endpoint, dùng chung cho việc chọn khóa và chọn luồng xử lý trong {@link TrafficPipeline}, để cùng
+     * một endpoint luôn đi cùng một đường.
+     */
+    static int hash(String method, String host, String path) {
+        int h = 31 * (31 * method.hashCode() + host.hashCode()) + path.hashCode();
+        // Trộn các bit cao xuống, vì chỉ các bit thấp được dùng để chọn khóa.
+        return h ^ (h >>> 16);
+    }
+}
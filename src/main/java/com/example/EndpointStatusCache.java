@@ -0,0 +1,180 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bản sao trong bộ nhớ của các cờ trạng thái API, dùng để highlight/note ngay trên luồng HTTP của Burp
+ * mà không cần chuẩn hóa path hay truy vấn CSDL.
+ * <p>
+ * Gồm hai tầng:
+ * - Ánh xạ (host, raw path) -> path đã chuẩn hóa, do giai đoạn parse ghi lại cho các request nằm trong scope.
+ * - Ánh xạ (method, host, path đã chuẩn hóa) -> cờ trạng thái, nằm trong {@link EndpointIndex} ngoài heap,
+ *   đồng bộ từ CSDL sau mỗi lần ghi và được dựng lại sau khi khởi tạo hoặc thay đổi dữ liệu hàng loạt.
+ *   Mỗi thay đổi cờ cũng được cộng dồn vào {@link CoverageTree}.
+ * <p>
+ * Khi khởi động, chỉ mục có thể được nạp từ snapshot của phiên trước ({@link #restore(Path)}) để dùng ngay, trong
+ * lúc CSDL được mở; sau đó {@link #reconcile(ApiStore)} đối chiếu lại với CSDL.
+ */
+class EndpointStatusCache implements Closeable {
+    static final int SCANNED = 1;
+    static final int REJECTED = 1 << 1;
+    static final int BYPASSED = 1 << 2;
+
+    private static final int PATH_ALIAS_CAPACITY = 100_000;
+
+    private final EndpointIndex statusByEndpoint = new EndpointIndex();
+    private final CoverageTree coverageTree = new CoverageTree();
+    private final Map<String, String> normalizedPaths = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > PATH_ALIAS_CAPACITY;
+        }
+    };
+
+    /**
+     * Tra cứu trạng thái cho một request chưa chuẩn hóa.
+     *
+     * @return Các cờ trạng thái, hoặc null nếu request chưa từng được xử lý hoặc API chưa có trong CSDL.
+     */
+    Integer statusFor(String method, String host, String rawPath) {
+        String path;
+        synchronized (normalizedPaths) {
+            path = normalizedPaths.get(host + rawPath);
+        }
+        if (path == null) {
+            return null;
+        }
+        int status = statusByEndpoint.get(method, host, path);
+        return status == EndpointIndex.ABSENT ? null : status;
+    }
+
+    void rememberPath(String host, String rawPath, String normalizedPath) {
+        synchronized (normalizedPaths) {
+            normalizedPaths.put(host + rawPath, normalizedPath);
+        }
+    }
+
+    /**
+     * Xóa các ánh xạ path, cần gọi khi quy tắc chuẩn hóa hoặc scope thay đổi.
+     */
+    void clearPaths() {
+        synchronized (normalizedPaths) {
+            normalizedPaths.clear();
+        }
+    }
+
+    void put(String method, String host, String path, int status) {
+        coverageTree.update(host, path, statusByEndpoint.put(method, host, path, status), status);
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục trạng thái từ CSDL.
+     */
+    void rebuild(ApiStore databaseManager) {
+        statusByEndpoint.clear();
+        coverageTree.clear();
+        databaseManager.forEachEndpointStatus(this::put);
+    }
+
+    /**
+     * Nạp chỉ mục từ một snapshot và dựng lại cây độ phủ từ đó, không cần đến CSDL.
+     *
+     * @return false nếu không có snapshot hợp lệ; khi đó chỉ mục rỗng.
+     */
+    boolean restore(Path snapshot) {
+        coverageTree.clear();
+        try {
+            if (statusByEndpoint.load(snapshot)) {
+                statusByEndpoint.forEach((method, host, path, flags) -> coverageTree.update(host, path, EndpointIndex.ABSENT, flags));
+                return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Snapshot hỏng được bỏ qua: chỉ mục sẽ được dựng lại từ CSDL.
+            statusByEndpoint.clear();
+            coverageTree.clear();
+        }
+        return false;
+    }
+
+    /**
+     * Đối chiếu chỉ mục đã nạp từ snapshot với CSDL. Chỉ các endpoint có cờ khác với CSDL mới được cập nhật (và chỉ
+     * chúng làm cây độ phủ thay đổi). Nếu snapshot còn chứa endpoint không có trong CSDL, chỉ mục được dựng lại.
+     *
+     * @return Số endpoint đã được sửa, hoặc -1 nếu chỉ mục phải dựng lại.
+     */
+    int reconcile(ApiStore databaseManager) {
+        int[] seen = {0, 0};
+        databaseManager.forEachEndpointStatus((method, host, path, flags) -> {
+            int previous = statusByEndpoint.put(method, host, path, flags);
+            if (previous != flags) {
+                coverageTree.update(host, path, previous, flags);
+                seen[1]++;
+            }
+            seen[0]++;
+        });
+        if (seen[0] != statusByEndpoint.size()) {
+            rebuild(databaseManager);
+            return -1;
+        }
+        return seen[1];
+    }
+
+    /**
+     * Ghi chỉ mục ra snapshot để lần khởi động sau dùng được ngay.
+     */
+    void saveSnapshot(Path snapshot) throws IOException {
+        statusByEndpoint.save(snapshot);
+    }
+
+    /**
+     * @return Tăng sau mỗi thay đổi cờ; dùng để bỏ qua việc ghi snapshot khi không có gì thay đổi.
+     */
+    long version() {
+        return coverageTree.version();
+    }
+
+    /**
+     * @return Cây tổng hợp độ phủ theo host và path, được cập nhật cùng với chỉ mục.
+     */
+    CoverageTree coverageTree() {
+        return coverageTree;
+    }
+
+    /**
+     * @return Tổng số API trong chỉ mục.
+     */
+    int size() {
+        return statusByEndpoint.size();
+    }
+
+    /**
+     * @return Số API có cờ trạng thái đã cho.
+     */
+    int count(int flag) {
+        return statusByEndpoint.count(flag);
+    }
+
+    @Override
+    public void close() {
+        statusByEndpoint.close();
+    }
+
+    static int flags(boolean isScanned, boolean isRejected, boolean isBypassed) {
+        int flags = 0;
+        if (isScanned) flags |= SCANNED;
+        if (isRejected) flags |= REJECTED;
+        if (isBypassed) flags |= BYPASSED;
+        return flags;
+    }
+
+    /**
+     * Chuyển kết quả của {@link DatabaseManager#getApiStatus(String, String, String)} thành cờ trạng thái.
+     */
+    static int flags(Object[] status) {
+        return status == null ? 0 : flags((boolean) status[0], (boolean) status[1], (boolean) status[2]);
+    }
+}
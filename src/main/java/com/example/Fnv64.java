@@ -0,0 +1,41 @@
+package com.example;
+
+/**
+ * Hash FNV-1a 64-bit dùng làm khóa của các cache trong bộ nhớ ({@link RequestFingerprintCache}, {@link ScopeCache}).
+ * <p>
+ * Chuỗi được trộn theo từng ký tự UTF-16 thay vì theo byte UTF-8, để việc tính khóa trên đường nóng không cấp phát
+ * mảng byte như {@link String#getBytes}. Khóa chỉ sống trong bộ nhớ nên không cần ổn định giữa các phiên bản.
+ * Mỗi trường được kết thúc bằng một ký tự phân cách, để ("ab", "c") và ("a", "bc") cho hai khóa khác nhau.
+ */
+final class Fnv64 {
+    static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final int FIELD_SEPARATOR = 0x1F;
+
+    private Fnv64() {
+    }
+
+    /**
+     * Trộn 4 byte của một số nguyên vào hash.
+     */
+    static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Trộn các ký tự UTF-16 của chuỗi vào hash, kèm ký tự phân cách; null được trộn như chuỗi rỗng.
+     */
+    static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash = (hash ^ (c & 0xFF)) * PRIME;
+                hash = (hash ^ (c >>> 8)) * PRIME;
+            }
+        }
+        return (hash ^ FIELD_SEPARATOR) * PRIME;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Các phép toán tập hợp trên mảng int đã sắp xếp tăng dần, không trùng lặp (tập ID tham số),
+ * cùng định dạng lưu trữ trong CSDL: các ID cách nhau bởi dấu '|', ví dụ "3|17|42".
+ */
+final class IntSets {
+    static final int[] EMPTY = new int[0];
+
+    private IntSets() {
+    }
+
+    /**
+     * Đọc tập ID từ chuỗi trong CSDL.
+     */
+    static int[] parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        int count = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '|') count++;
+        }
+        int[] result = new int[count];
+        int size = 0;
+        int current = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : '|';
+            if (c == '|') {
+                result[size++] = current;
+                current = 0;
+            } else {
+                current = current * 10 + (c - '0');
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ghi tập ID thành chuỗi để lưu vào CSDL.
+     */
+    static String format(int[] ids) {
+        if (ids.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(ids.length * 4);
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) sb.append('|');
+            sb.append(ids[i]);
+        }
+        return sb.toString();
+    }
+
+    static int[] union(int[] a, int[] b) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) result[size++] = a[i++];
+            else if (a[i] > b[j]) result[size++] = b[j++];
+            else {
+                result[size++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) result[size++] = a[i++];
+        while (j < b.length) result[size++] = b[j++];
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return Các phần tử của {@code a} không có trong {@code b}.
+     */
+    static int[] difference(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) return a;
+        int[] result = new int[a.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length) {
+            if (j >= b.length || a[i] < b[j]) result[size++] = a[i++];
+            else if (a[i] > b[j]) j++;
+            else {
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    static int[] intersection(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) return EMPTY;
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[size++] = a[i++];
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Bỏ các phần tử trùng trong {@code size} phần tử đầu của một mảng đã sắp xếp.
+     */
+    static int[] distinct(int[] sorted, int size) {
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || sorted[i] != sorted[unique - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ với các bucket cố định theo kiểu HdrHistogram, ghi nhận không khóa và không cấp phát.
+ * <p>
+ * Mỗi lũy thừa của 2 (tính theo nano giây) được chia thành {@value #SUB_BUCKETS} bucket con,
+ * nên sai số tương đối của các giá trị percentile không vượt quá 25%.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Giá trị lớn nhất có thể rơi vào một bucket, dùng làm ước lượng (bảo thủ) cho percentile.
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << (magnitude - SUB_BUCKET_BITS);
+        return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    long maxNanos() {
+        return maxNanos.get();
+    }
+
+    long meanNanos() {
+        long n = count();
+        return n == 0 ? 0 : totalNanos() / n;
+    }
+
+    /**
+     * @param percentile Giá trị trong khoảng (0, 100].
+     * @return Độ trễ (nano giây) tại percentile đã cho, không vượt quá giá trị lớn nhất đã ghi nhận.
+     */
+    long percentileNanos(double percentile) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+}
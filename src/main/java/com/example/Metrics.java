@@ -0,0 +1,72 @@
+package com.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm và histogram độ trễ cho từng giai đoạn xử lý của extension.
+ * <p>
+ * Tên metric theo dạng "nhóm.tên" (ví dụ: "handler.burp_thread", "db.insertOrUpdateApi") để báo cáo
+ * được nhóm lại theo thứ tự chữ cái. Việc ghi nhận chỉ tốn vài phép toán nguyên tử, có thể gọi trên mọi luồng.
+ */
+class Metrics {
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private volatile long sinceNanos = System.nanoTime();
+
+    LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Ghi nhận thời gian của một thao tác bắt đầu tại {@code startNanos} (giá trị của {@link System#nanoTime()}).
+     */
+    void record(String name, long startNanos) {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    void increment(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    long counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+        sinceNanos = System.nanoTime();
+    }
+
+    /**
+     * Tạo báo cáo dạng bảng văn bản cho tất cả các metric, dùng cho panel Metrics và khi ghi ra log của Burp.
+     */
+    String report() {
+        double elapsedSeconds = Math.max(1e-3, (System.nanoTime() - sinceNanos) / 1e9);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-32s %9s %9s %9s %9s %9s %9s%n", "stage (µs)", "count", "ops/s", "mean", "p50", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            sb.append(String.format("%-32s %9d %9.1f %9d %9d %9d %9d%n",
+                    entry.getKey(),
+                    h.count(),
+                    h.count() / elapsedSeconds,
+                    h.meanNanos() / 1_000,
+                    h.percentileNanos(50) / 1_000,
+                    h.percentileNanos(99) / 1_000,
+                    h.maxNanos() / 1_000));
+        }
+        if (!counters.isEmpty()) {
+            sb.append(String.format("%n%-32s %9s %9s%n", "counter", "count", "per s"));
+            for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+                long value = entry.getValue().sum();
+                sb.append(String.format("%-32s %9d %9.1f%n", entry.getKey(), value, value / elapsedSeconds));
+            }
+        }
+        sb.append(String.format("%nwindow: %.1f s", elapsedSeconds));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Độ phủ tham số của một endpoint: mỗi tham số (ID trong dict_param) có một số thứ tự (ordinal) cố định
+ * trong endpoint, trạng thái đã quét được lưu thành bitset {@code long[]} theo ordinal.
+ * <p>
+ * Thêm tham số và đánh dấu đã quét chỉ là thao tác bit, không cấp phát (trừ khi mảng cần nới rộng);
+ * kiểm tra "đã quét hết" là một phép so sánh. Danh sách ID dạng chuỗi chỉ được dựng khi cần ghi xuống CSDL.
+ * Không thread-safe: chỉ được đọc và sửa khi giữ khóa endpoint tương ứng trong {@link DatabaseManager}.
+ */
+final class ParamCoverage {
+    /**
+     * ID của dòng trong bảng api_log.
+     */
+    final int rowId;
+    /**
+     * Thời điểm (epoch millis) last_seen của dòng được ghi lần gần nhất trong phiên này, 0 nếu chưa ghi.
+     */
+    long touchedAt;
+    private int[] paramIds;
+    private int size;
+    private long[] scanned;
+    private int scannedCount;
+
+    /**
+     * Tạo độ phủ từ các danh sách đã lưu; tham số đã quét nhận các ordinal đầu tiên.
+     */
+    ParamCoverage(int rowId, int[] scannedIds, int[] unscannedIds) {
+        this.rowId = rowId;
+        this.paramIds = new int[Math.max(8, scannedIds.length + unscannedIds.length)];
+        this.scanned = new long[(paramIds.length + 63) >>> 6];
+        for (int id : scannedIds) {
+            markScanned(add(id));
+        }
+        for (int id : unscannedIds) {
+            if (ordinalOf(id) < 0) {
+                add(id);
+            }
+        }
+    }
+
+    /**
+     * @return Ordinal của tham số trong endpoint, hoặc -1 nếu tham số chưa được ghi nhận.
+     */
+    int ordinalOf(int paramId) {
+        for (int i = 0; i < size; i++) {
+            if (paramIds[i] == paramId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ghi nhận một tham số mới (chưa quét). Endpoint không còn được coi là đã quét hết.
+     *
+     * @return Ordinal của tham số.
+     */
+    int add(int paramId) {
+        if (size == paramIds.length) {
+            paramIds = Arrays.copyOf(paramIds, size * 2);
+            scanned = Arrays.copyOf(scanned, (paramIds.length + 63) >>> 6);
+        }
+        paramIds[size] = paramId;
+        return size++;
+    }
+
+    /**
+     * @return true nếu tham số trước đó chưa được quét.
+     */
+    boolean markScanned(int ordinal) {
+        long bit = 1L << ordinal;
+        int word = ordinal >>> 6;
+        if ((scanned[word] & bit) != 0) {
+            return false;
+        }
+        scanned[word] |= bit;
+        scannedCount++;
+        return true;
+    }
+
+    boolean isScanned(int ordinal) {
+        return (scanned[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    boolean isFullyScanned() {
+        return scannedCount == size;
+    }
+
+    /**
+     * @return Danh sách ID các tham số đã quét (hoặc chưa quét), tăng dần, theo định dạng của {@link IntSets#format(int[])}.
+     */
+    String format(boolean scannedParams) {
+        int[] ids = new int[scannedParams ? scannedCount : size - scannedCount];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (isScanned(i) == scannedParams) {
+                ids[count++] = paramIds[i];
+            }
+        }
+        Arrays.sort(ids);
+        return IntSets.format(ids);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+import burp.api.montoya.http.message.ContentType;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.params.ParsedHttpParameter;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trích xuất tên tham số của một request bằng các parser tích hợp của Montoya API.
+ */
+final class ParameterExtractor {
+    private ParameterExtractor() {
+    }
+
+    /**
+     * Trích xuất tham số từ cả URL (query string) và body của request.
+     * <p>
+     * Phương thức này hợp nhất tham số từ hai nguồn vào một Set duy nhất.
+     *
+     * @param request HttpRequest cần phân tích.
+     * @return một Set chứa tên của tất cả các tham số.
+     */
+    static Set<String> extract(HttpRequest request) {
+
+        Set<String> allParamNames = new HashSet<>();
+
+        // 1. Lấy tham số từ URL (query string)
+        List<ParsedHttpParameter> urlParams = request.parameters(HttpParameterType.URL);
+        if (urlParams != null && !urlParams.isEmpty()) {
+            urlParams.stream()
+                    .map(ParsedHttpParameter::name)
+                    .forEach(allParamNames::add);
+        }
+
+        // 2. Lấy tham số từ Body nếu có
+        if (request.body().length() > 0) {
+            ContentType contentType = request.contentType();
+
+            List<ParsedHttpParameter> bodyParams = null;
+
+            switch (contentType) {
+                case JSON:
+                    bodyParams = request.parameters(HttpParameterType.JSON);
+                    break;
+                case URL_ENCODED:
+                    bodyParams = request.parameters(HttpParameterType.BODY);
+                    break;
+                case MULTIPART:
+                    bodyParams = request.parameters(HttpParameterType.BODY);
+                    break;
+                case XML:
+                    bodyParams = request.parameters(HttpParameterType.XML);
+                    break;
+                default:
+                    break;
+            }
+
+            if (bodyParams != null && !bodyParams.isEmpty()) {
+                bodyParams.stream()
+                        .map(ParsedHttpParameter::name)
+                        .forEach(allParamNames::add);
+            }
+        }
+
+        return allParamNames;
+    }
+}
@@ -0,0 +1,361 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Các rule loại trừ/giữ lại traffic theo path (và host), được biên dịch thành một cây segment để mỗi request chỉ cần
+ * duyệt path một lần, bất kể số rule.
+ * <p>
+ * Mỗi dòng là một rule; dòng trống và dòng bắt đầu bằng '#' được bỏ qua:
+ * <ul>
+ *     <li>{@code /health}: đúng path này.</li>
+ *     <li>{@code /static/**} hoặc {@code /static/}: path này và mọi path bên dưới (theo tiền tố).</li>
+ *     <li>{@code /api/*}{@code /ping}: {@code *} khớp đúng một segment; trong một segment, {@code *} khớp một
+ *     chuỗi ký tự bất kỳ và {@code ?} khớp một ký tự (ví dụ {@code /assets/*.map}).</li>
+ *     <li>{@code cdn.example.com/**}, {@code *.example.com/_next/**}: chỉ áp dụng cho host đó (hoặc host đó và
+ *     các subdomain). Host không phân biệt hoa thường, path thì có.</li>
+ *     <li>{@code !/static/api/**}: rule giữ lại, để miễn trừ một phần của rule loại trừ.</li>
+ * </ul>
+ * Khi nhiều rule cùng khớp một request, rule đứng sau cùng quyết định (như .gitignore).
+ * <p>
+ * Các rule được gộp thành một automaton không đơn định trên các segment: một nút chung cho các rule không giới hạn
+ * host và một nút cho mỗi host. Khi đánh giá, tập trạng thái được đẩy qua từng segment của path một lần; {@code **}
+ * là một trạng thái tự lặp. Đối tượng là bất biến, nên có thể dùng đồng thời từ nhiều luồng.
+ */
+final class PathExclusionRules {
+    static final PathExclusionRules NONE = new PathExclusionRules(new Node(0), Map.of(), List.of(), 1, 0);
+
+    private final Node anyHost;
+    /**
+     * Rule theo host cụ thể, khóa là host chữ thường.
+     */
+    private final Map<String, Node> exactHosts;
+    /**
+     * Rule dạng {@code *.example.com}.
+     */
+    private final List<HostSuffix> wildcardHosts;
+    private final int nodeCount;
+    private final int ruleCount;
+
+    private PathExclusionRules(Node anyHost, Map<String, Node> exactHosts, List<HostSuffix> wildcardHosts, int nodeCount, int ruleCount) {
+        this.anyHost = anyHost;
+        this.exactHosts = exactHosts;
+        this.wildcardHosts = wildcardHosts;
+        this.nodeCount = nodeCount;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * @param rulesText Nội dung rule, mỗi rule một dòng.
+     * @param errorLog  Nơi ghi lại các rule không hợp lệ (các rule này bị bỏ qua).
+     */
+    static PathExclusionRules compile(String rulesText, Consumer<String> errorLog) {
+        if (rulesText == null || rulesText.isBlank()) {
+            return NONE;
+        }
+        int[] nextId = {1};
+        Node anyHost = new Node(0);
+        Map<String, Node> exactHosts = new HashMap<>();
+        List<HostSuffix> wildcardHosts = new ArrayList<>();
+        int ruleCount = 0;
+
+        for (String rawLine : rulesText.split("\\R")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            boolean include = line.startsWith("!");
+            String rule = include ? line.substring(1).trim() : line;
+
+            int slash = rule.indexOf('/');
+            String host = slash < 0 ? rule : rule.substring(0, slash).toLowerCase(Locale.ROOT);
+            String pattern = slash < 0 ? "/**" : rule.substring(slash);
+            if (host.contains(":") || host.contains("*") && !(host.startsWith("*.") && host.indexOf('*', 1) < 0)) {
+                errorLog.accept("Invalid path exclusion rule (host): " + line);
+                continue;
+            }
+            List<String> segments = segmentsOf(pattern);
+            if (segments == null) {
+                errorLog.accept("Invalid path exclusion rule (** must be a whole segment): " + line);
+                continue;
+            }
+
+            Node root;
+            if (host.isEmpty()) {
+                root = anyHost;
+            } else if (host.startsWith("*.")) {
+                String suffix = host.substring(1);
+                HostSuffix existing = wildcardHosts.stream().filter(h -> h.suffix.equals(suffix)).findFirst().orElse(null);
+                if (existing == null) {
+                    existing = new HostSuffix(suffix, new Node(nextId[0]++));
+                    wildcardHosts.add(existing);
+                }
+                root = existing.root;
+            } else {
+                root = exactHosts.computeIfAbsent(host, h -> new Node(nextId[0]++));
+            }
+
+            Node node = root;
+            for (String segment : segments) {
+                node = node.child(segment, nextId);
+            }
+            node.rule = ruleCount++;
+            node.include = include;
+        }
+        if (ruleCount == 0) {
+            return NONE;
+        }
+        return new PathExclusionRules(anyHost, Map.copyOf(exactHosts), List.copyOf(wildcardHosts), nextId[0], ruleCount);
+    }
+
+    /**
+     * @return true nếu không có rule nào.
+     */
+    boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    /**
+     * @param host Host của request.
+     * @param path Path của request, không kèm query.
+     * @return true nếu request phải bị bỏ qua.
+     */
+    boolean isExcluded(String host, String path) {
+        if (ruleCount == 0) {
+            return false;
+        }
+        Match match = new Match(nodeCount);
+        match.run(anyHost, path);
+        Node hostRoot = exactHosts.get(host);
+        if (hostRoot == null && !exactHosts.isEmpty()) {
+            hostRoot = exactHosts.get(host.toLowerCase(Locale.ROOT));
+        }
+        if (hostRoot != null) {
+            match.run(hostRoot, path);
+        }
+        for (HostSuffix wildcard : wildcardHosts) {
+            if (wildcard.matches(host)) {
+                match.run(wildcard.root, path);
+            }
+        }
+        return match.rule >= 0 && !match.include;
+    }
+
+    /**
+     * Tách pattern thành các segment. Dấu '/' ở cuối nghĩa là tiền tố, tương đương {@code /**}.
+     *
+     * @return null nếu pattern không hợp lệ.
+     */
+    private static List<String> segmentsOf(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.contains("**") && !segment.equals("**")) {
+                return null;
+            }
+            // Hai "**" liên tiếp tương đương một.
+            if (segment.equals("**") && !segments.isEmpty() && segments.get(segments.size() - 1).equals("**")) {
+                continue;
+            }
+            segments.add(segment);
+        }
+        if (pattern.length() > 1 && pattern.endsWith("/") && (segments.isEmpty() || !segments.get(segments.size() - 1).equals("**"))) {
+            segments.add("**");
+        }
+        return segments;
+    }
+
+    /**
+     * So khớp một segment với mẫu chứa {@code *} và {@code ?}, không cấp phát.
+     */
+    static boolean globMatches(String glob, String text, int from, int to) {
+        int g = 0;
+        int t = from;
+        int starG = -1;
+        int starT = -1;
+        while (t < to) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == text.charAt(t))) {
+                g++;
+                t++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                starG = g++;
+                starT = t;
+            } else if (starG >= 0) {
+                g = starG + 1;
+                t = ++starT;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    /**
+     * Một trạng thái của automaton: các segment cụ thể đi tới nút con qua bảng băm, các segment có ký tự đại diện
+     * được thử lần lượt, và {@code **} dẫn tới một nút tự lặp.
+     */
+    private static final class Node {
+        final int id;
+        final Map<String, Node> literals = new HashMap<>();
+        final List<String> globs = new ArrayList<>();
+        final List<Node> globTargets = new ArrayList<>();
+        /**
+         * Nút sau {@code **}: được kích hoạt ngay (khớp 0 segment) và giữ nguyên qua mọi segment tiếp theo.
+         */
+        Node globstar;
+        boolean loops;
+        int rule = -1;
+        boolean include;
+
+        Node(int id) {
+            this.id = id;
+        }
+
+        Node child(String segment, int[] nextId) {
+            if (segment.equals("**")) {
+                if (globstar == null) {
+                    globstar = new Node(nextId[0]++);
+                    globstar.loops = true;
+                }
+                return globstar;
+            }
+            if (segment.indexOf('*') < 0 && segment.indexOf('?') < 0) {
+                return literals.computeIfAbsent(segment, s -> new Node(nextId[0]++));
+            }
+            int index = globs.indexOf(segment);
+            if (index >= 0) {
+                return globTargets.get(index);
+            }
+            Node target = new Node(nextId[0]++);
+            globs.add(segment);
+            globTargets.add(target);
+            return target;
+        }
+    }
+
+    private static final class HostSuffix {
+        /**
+         * Hậu tố bắt đầu bằng '.', ví dụ ".example.com".
+         */
+        final String suffix;
+        final Node root;
+
+        HostSuffix(String suffix, Node root) {
+            this.suffix = suffix;
+            this.root = root;
+        }
+
+        /**
+         * @return true nếu host là chính domain hoặc một subdomain của nó.
+         */
+        boolean matches(String host) {
+            int offset = host.length() - suffix.length();
+            return offset > 0 && host.regionMatches(true, offset, suffix, 0, suffix.length())
+                    || offset == -1 && host.regionMatches(true, 0, suffix, 1, host.length());
+        }
+    }
+
+    /**
+     * Trạng thái của một lần đánh giá: tập nút đang hoạt động và rule khớp có thứ tự lớn nhất.
+     */
+    private static final class Match {
+        private Node[] current;
+        private Node[] next;
+        private int currentSize;
+        private int nextSize;
+        /**
+         * Bước mà mỗi nút đã được thêm vào tập kế tiếp, để không thêm trùng.
+         */
+        private final int[] addedAt;
+        private int step;
+        int rule = -1;
+        boolean include;
+
+        Match(int nodeCount) {
+            current = new Node[nodeCount];
+            next = new Node[nodeCount];
+            addedAt = new int[nodeCount];
+        }
+
+        void run(Node root, String path) {
+            step++;
+            nextSize = 0;
+            add(root);
+            swap();
+            int length = path.length();
+            int start = 0;
+            while (start < length && currentSize > 0) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = length;
+                }
+                if (end > start) {
+                    advance(path, start, end);
+                }
+                start = end + 1;
+            }
+            for (int i = 0; i < currentSize; i++) {
+                Node node = current[i];
+                if (node.rule > rule) {
+                    rule = node.rule;
+                    include = node.include;
+                }
+            }
+        }
+
+        private void advance(String path, int start, int end) {
+            step++;
+            nextSize = 0;
+            String segment = null;
+            for (int i = 0; i < currentSize; i++) {
+                Node node = current[i];
+                if (node.loops) {
+                    add(node);
+                }
+                if (!node.literals.isEmpty()) {
+                    if (segment == null) {
+                        segment = path.substring(start, end);
+                    }
+                    Node target = node.literals.get(segment);
+                    if (target != null) {
+                        add(target);
+                    }
+                }
+                for (int g = 0; g < node.globs.size(); g++) {
+                    if (globMatches(node.globs.get(g), path, start, end)) {
+                        add(node.globTargets.get(g));
+                    }
+                }
+            }
+            swap();
+        }
+
+        private void add(Node node) {
+            if (addedAt[node.id] == step) {
+                return;
+            }
+            addedAt[node.id] = step;
+            next[nextSize++] = node;
+            if (node.globstar != null) {
+                add(node.globstar);
+            }
+        }
+
+        private void swap() {
+            Node[] previous = current;
+            current = next;
+            next = previous;
+            currentSize = nextSize;
+        }
+    }
+}
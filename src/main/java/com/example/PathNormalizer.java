@@ -0,0 +1,126 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Biên dịch và áp dụng các rule chuẩn hóa path parameter do người dùng cấu hình.
+ * <p>
+ * Mỗi dòng rule có dạng {@code placeholder=spec}, trong đó spec là một trong:
+ * number[:độ dài], hex[:độ dài], uuid, alnum[:độ dài] hoặc regex:&lt;biểu thức&gt;.
+ * Dòng trống và dòng bắt đầu bằng '#' được bỏ qua.
+ */
+final class PathNormalizer {
+    private PathNormalizer() {
+    }
+
+    /**
+     * Chuẩn hóa các segment động trong URL path theo rule người dùng cấu hình.
+     * Ví dụ: /api/report/1684050854912458752/list -> /api/report/{id}/list.
+     */
+    static String normalize(String path, List<PathParameterRule> rules) {
+        if (path == null || path.isBlank() || rules.isEmpty()) {
+            return path;
+        }
+
+        String[] segments = path.split("/", -1);
+        boolean changed = false;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            for (PathParameterRule rule : rules) {
+                if (rule.matches(segment)) {
+                    segments[i] = rule.placeholder();
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed ? String.join("/", segments) : path;
+    }
+
+    /**
+     * @param rulesText Nội dung rule, mỗi rule một dòng.
+     * @param errorLog  Nơi ghi lại các rule không hợp lệ (các rule này bị bỏ qua).
+     */
+    static List<PathParameterRule> compile(String rulesText, Consumer<String> errorLog) {
+        List<PathParameterRule> rules = new ArrayList<>();
+        if (rulesText == null || rulesText.isBlank()) {
+            return rules;
+        }
+
+        for (String rawLine : rulesText.split("\\R")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int separatorIndex = line.indexOf('=');
+            if (separatorIndex <= 0 || separatorIndex == line.length() - 1) {
+                errorLog.accept("Invalid path parameter rule: " + line);
+                continue;
+            }
+
+            String placeholder = normalizePlaceholder(line.substring(0, separatorIndex).trim());
+            String spec = line.substring(separatorIndex + 1).trim();
+            Pattern pattern = compilePattern(spec, errorLog);
+            if (pattern != null) {
+                rules.add(new PathParameterRule(placeholder, pattern));
+            }
+        }
+        return rules;
+    }
+
+    private static String normalizePlaceholder(String placeholder) {
+        if (placeholder.startsWith("{") && placeholder.endsWith("}")) {
+            return placeholder;
+        }
+        return "{" + placeholder.replace("{", "").replace("}", "") + "}";
+    }
+
+    private static Pattern compilePattern(String spec, Consumer<String> errorLog) {
+        String lowerSpec = spec.toLowerCase(Locale.ROOT);
+        if (lowerSpec.startsWith("regex:")) {
+            try {
+                return Pattern.compile(spec.substring("regex:".length()));
+            } catch (PatternSyntaxException e) {
+                errorLog.accept("Invalid path parameter regex rule: " + spec + " - " + e.getMessage());
+                return null;
+            }
+        }
+
+        String[] parts = lowerSpec.split(":", 2);
+        String type = parts[0].trim();
+        Integer length = null;
+        if (parts.length == 2 && !parts[1].isBlank()) {
+            try {
+                length = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                errorLog.accept("Invalid path parameter length in rule: " + spec);
+                return null;
+            }
+            if (length <= 0) {
+                errorLog.accept("Path parameter length must be positive in rule: " + spec);
+                return null;
+            }
+        }
+
+        String quantifier = length == null ? "+" : "{" + length + "}";
+        return switch (type) {
+            case "number", "numeric", "digits" -> Pattern.compile("[0-9]" + quantifier);
+            case "hex" -> Pattern.compile("[0-9a-fA-F]" + quantifier);
+            case "uuid" -> Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+            case "alnum", "alpha_numeric" -> Pattern.compile("[0-9a-zA-Z]" + quantifier);
+            default -> {
+                errorLog.accept("Unsupported path parameter rule type: " + spec);
+                yield null;
+            }
+        };
+    }
+}
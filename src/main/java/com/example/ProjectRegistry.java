@@ -0,0 +1,319 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Danh sách các project đang mở. Mỗi project là một tệp CSDL với kết nối và chỉ mục trạng thái riêng,
+ * nên nhiều project có thể cùng mở và việc chuyển project chỉ là đổi tham chiếu.
+ * <p>
+ * Việc mở một project (kết nối, migrate, dựng chỉ mục trạng thái) chạy trên luồng nền của registry, không bao giờ
+ * trên EDT. Các project được dùng gần đây được mở trước ({@link #warmup(List, int)}); các project còn lại chỉ được
+ * mở khi người dùng chuyển sang lần đầu.
+ * <p>
+ * Chỉ mục trạng thái của mỗi project được ghi ra snapshot ({@code <tệp CSDL>.snapshot}) định kỳ và khi đóng. Khi mở
+ * lại, snapshot được nạp trước để project dùng được ngay ({@link #restore(String)}), CSDL được mở và đối chiếu sau.
+ */
+final class ProjectRegistry implements Closeable {
+    /**
+     * Số luồng mở project song song.
+     */
+    private static final int LOADER_THREADS = 2;
+    /**
+     * Chu kỳ ghi snapshot của các project có thay đổi.
+     */
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 60;
+
+    private final MontoyaApi api;
+    private final Metrics metrics;
+    /**
+     * Các project đang mở hoặc đang được mở, theo đường dẫn tệp CSDL đã chuẩn hóa.
+     */
+    private final Map<String, Project> projects = new LinkedHashMap<>();
+    private final ExecutorService loader;
+    private final ScheduledExecutorService snapshotter;
+    /**
+     * Số tệp CSDL mà host mới của mỗi project được chia vào (xem {@link ShardedDatabaseManager}).
+     */
+    private volatile int storageShards;
+    /**
+     * Được gọi (khi đang giữ khóa của CSDL) mỗi khi một transaction của một project bị rollback.
+     */
+    private final Consumer<Project> rolledBack;
+
+    /**
+     * @param rolledBack Được gọi mỗi khi một transaction của project bị rollback, để các cache dựng từ CSDL của nó
+     *                   được dựng lại; không được truy cập CSDL trên luồng gọi.
+     */
+    ProjectRegistry(MontoyaApi api, Metrics metrics, int storageShards, Consumer<Project> rolledBack) {
+        this.api = api;
+        this.metrics = metrics;
+        this.storageShards = storageShards;
+        this.rolledBack = rolledBack;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.loader = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+            Thread t = new Thread(r, "RecheckScan-project-loader-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RecheckScan-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> readyProjects().forEach(this::saveSnapshot),
+                SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Mở một project nếu chưa mở. Không chặn luồng gọi.
+     *
+     * @param outputPath Đường dẫn do người dùng cấu hình.
+     * @return Future hoàn thành khi project đã sẵn sàng; hoàn thành ngay nếu project đã được mở trước đó.
+     */
+    synchronized CompletableFuture<Project> open(String outputPath) {
+        return project(outputPath).ready;
+    }
+
+    /**
+     * Như {@link #open(String)}, nhưng future hoàn thành ngay khi chỉ mục trạng thái đã được nạp từ snapshot, trước
+     * khi CSDL được mở xong. Project trả về có thể chưa {@link Project#isReady() sẵn sàng}; các thao tác cần CSDL phải
+     * chờ {@link Project#awaitReady()}. Nếu không có snapshot, future hoàn thành cùng lúc với {@link #open(String)}.
+     */
+    synchronized CompletableFuture<Project> restore(String outputPath) {
+        return project(outputPath).restored;
+    }
+
+    private Project project(String outputPath) {
+        String path = key(outputPath);
+        Project project = projects.get(path);
+        if (project == null) {
+            project = new Project(path, new ShardedDatabaseManager(api, metrics, storageShards));
+            projects.put(path, project);
+            Project loading = project;
+            project.databaseManager.setRollbackListener(() -> rolledBack.accept(loading));
+            loader.execute(() -> load(loading));
+        }
+        return project;
+    }
+
+    private void load(Project project) {
+        long start = System.nanoTime();
+        try {
+            project.load();
+        } finally {
+            metrics.record("project.load", start);
+        }
+    }
+
+    /**
+     * Đổi số tệp CSDL cho host mới của mọi project, kể cả các project đang mở.
+     */
+    synchronized void setStorageShards(int storageShards) {
+        this.storageShards = storageShards;
+        for (Project project : projects.values()) {
+            project.databaseManager.setShardCount(storageShards);
+        }
+    }
+
+    /**
+     * Mở trước trong nền tối đa {@code limit} project đầu tiên của danh sách.
+     */
+    void warmup(List<String> paths, int limit) {
+        for (int i = 0; i < paths.size() && i < limit; i++) {
+            open(paths.get(i));
+        }
+    }
+
+    /**
+     * @return true nếu project đã được mở xong.
+     */
+    synchronized boolean isReady(String path) {
+        Project project = projects.get(key(path));
+        return project != null && project.ready.isDone();
+    }
+
+    /**
+     * @return true nếu project đã hoặc đang được mở.
+     */
+    synchronized boolean isOpen(String path) {
+        return projects.containsKey(key(path));
+    }
+
+    /**
+     * @return Các project đã mở xong.
+     */
+    synchronized List<Project> readyProjects() {
+        List<Project> result = new ArrayList<>();
+        for (Project project : projects.values()) {
+            if (project.ready.isDone()) {
+                result.add(project);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Đóng một project. Nếu project đang được mở, nó sẽ được đóng ngay khi mở xong.
+     */
+    void close(String path) {
+        Project project;
+        synchronized (this) {
+            project = projects.remove(key(path));
+        }
+        if (project != null) {
+            project.ready.thenAccept(this::close);
+        }
+    }
+
+    /**
+     * Chuẩn hóa đường dẫn do người dùng cấu hình thành đường dẫn tuyệt đối của tệp CSDL, dùng làm khóa của project.
+     */
+    static String key(String outputPath) {
+        return new File(DatabaseManager.getDbPath(outputPath)).getAbsolutePath();
+    }
+
+    /**
+     * Dừng luồng nền và đóng tất cả các project; project còn đang được mở sẽ được đóng khi mở xong.
+     */
+    @Override
+    public void close() {
+        snapshotter.shutdown();
+        loader.shutdown();
+        try {
+            loader.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Project> open;
+        synchronized (this) {
+            open = new ArrayList<>(projects.values());
+            projects.clear();
+        }
+        for (Project project : open) {
+            project.ready.thenAccept(this::close);
+        }
+    }
+
+    /**
+     * Ghi snapshot rồi đóng một project.
+     */
+    private void close(Project project) {
+        saveSnapshot(project);
+        project.close();
+    }
+
+    /**
+     * Ghi snapshot chỉ mục trạng thái của một project nếu nó đã thay đổi kể từ lần ghi trước.
+     */
+    private void saveSnapshot(Project project) {
+        long start = System.nanoTime();
+        try {
+            if (project.saveSnapshot()) {
+                metrics.record("project.saveSnapshot", start);
+            }
+        } catch (IOException | RuntimeException e) {
+            api.logging().logToError("Failed to save snapshot of " + project.path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Một project đang mở: kết nối CSDL (một hoặc nhiều tệp, chia theo host) và chỉ mục trạng thái dùng cho annotation.
+     */
+    static final class Project {
+        final String path;
+        final ShardedDatabaseManager databaseManager;
+        final EndpointStatusCache statusCache = new EndpointStatusCache();
+        private final CompletableFuture<Project> restored = new CompletableFuture<>();
+        private final CompletableFuture<Project> ready = new CompletableFuture<>();
+        /**
+         * Phiên bản của chỉ mục tại lần ghi snapshot gần nhất; được bảo vệ bởi khóa của Project.
+         */
+        private long snapshotVersion = -1;
+        private boolean closed;
+
+        private Project(String path, ShardedDatabaseManager databaseManager) {
+            this.path = path;
+            this.databaseManager = databaseManager;
+        }
+
+        /**
+         * @return true nếu CSDL đã được mở (hoặc mở thất bại) và chỉ mục trạng thái đã khớp với CSDL.
+         */
+        boolean isReady() {
+            return ready.isDone();
+        }
+
+        /**
+         * Chờ cho đến khi project {@link #isReady() sẵn sàng}. Không được gọi trên EDT.
+         */
+        void awaitReady() {
+            ready.join();
+        }
+
+        private Path snapshotPath() {
+            return Path.of(path + ".snapshot");
+        }
+
+        private void load() {
+            try {
+                boolean fromSnapshot = statusCache.restore(snapshotPath());
+                if (fromSnapshot) {
+                    synchronized (this) {
+                        snapshotVersion = statusCache.version();
+                    }
+                    restored.complete(this);
+                }
+                databaseManager.initialize(path);
+                // Lỗi kết nối đã được ghi log; nơi gọi kiểm tra bằng DatabaseManager#isConnected().
+                if (databaseManager.isConnected()) {
+                    if (fromSnapshot) {
+                        statusCache.reconcile(databaseManager);
+                    } else {
+                        statusCache.rebuild(databaseManager);
+                    }
+                }
+            } finally {
+                ready.complete(this);
+                restored.complete(this);
+            }
+        }
+
+        /**
+         * Ghi snapshot nếu chỉ mục đã thay đổi kể từ lần ghi trước. Chỉ gọi khi project đã sẵn sàng, để snapshot
+         * luôn phản ánh CSDL.
+         *
+         * @return true nếu snapshot đã được ghi.
+         */
+        private synchronized boolean saveSnapshot() throws IOException {
+            long version = statusCache.version();
+            if (closed || !databaseManager.isConnected() || version == snapshotVersion) {
+                return false;
+            }
+            statusCache.saveSnapshot(snapshotPath());
+            snapshotVersion = version;
+            return true;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            databaseManager.close();
+            statusCache.close();
+        }
+    }
+}
@@ -3,26 +3,39 @@ package com.example;
 import burp.api.montoya.*;
 import burp.api.montoya.core.HighlightColor;
 import burp.api.montoya.core.ToolType;
-import burp.api.montoya.http.message.ContentType;
 import burp.api.montoya.extension.ExtensionUnloadingHandler;
 import burp.api.montoya.http.handler.*;
-import burp.api.montoya.http.message.params.*;
 import burp.api.montoya.http.message.requests.HttpRequest;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.*;
 import java.util.List;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.Properties;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Lớp chính của extension "Recheck Scan API".
@@ -39,37 +52,145 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
      */
     private MontoyaApi api;
     /**
-     * Đối tượng quản lý cơ sở dữ liệu, đóng gói tất cả các thao tác với SQLite.
+     * Các project (tệp CSDL) đang mở. Mỗi project có {@link DatabaseManager} và cache trạng thái riêng.
      */
-    private DatabaseManager databaseManager;
-
+    private ProjectRegistry projects;
+    /**
+     * Project đang hiển thị và nhận traffic. Chuyển project chỉ đổi tham chiếu này, nên các luồng đọc
+     * nó một lần cho mỗi thao tác để không trộn dữ liệu của hai project.
+     */
+    private volatile ProjectRegistry.Project activeProject;
+    /**
+     * Số project dùng gần đây được ghi nhớ, và số project trong đó được mở sẵn trong nền khi khởi động.
+     */
+    private static final int MAX_RECENT_PROJECTS = 10;
+    private static final int WARMUP_PROJECTS = 3;
+    /**
+     * Số lượng dấu vân tay request tối đa được giữ trong bộ lọc trùng lặp.
+     */
+    private static final int FINGERPRINT_CACHE_CAPACITY = 50_000;
+    /**
+     * Giá trị mặc định cho giới hạn hàng đợi của pipeline và tỷ lệ lấy mẫu khi quá tải.
+     */
+    private static final int DEFAULT_INGEST_QUEUE_CAPACITY = 10_000;
+    private static final int DEFAULT_SHED_SAMPLE_RATE = 10;
+    /**
+     * Chu kỳ chuyển các API lâu không xuất hiện sang kho lạnh.
+     */
+    private static final long ARCHIVE_INTERVAL_MINUTES = 60;
+    /**
+     * Bộ lọc trùng lặp đặt trước CSDL, giúp các request lặp lại không phải đi qua toàn bộ pipeline.
+     */
+    private final RequestFingerprintCache fingerprintCache = new RequestFingerprintCache(FINGERPRINT_CACHE_CAPACITY,
+            TimeUnit.MINUTES.toMillis(ARCHIVE_INTERVAL_MINUTES));
+    /**
+     * Số quyết định scope tối đa được ghi nhớ, và cache của chúng; được xóa mỗi khi scope của Burp thay đổi.
+     */
+    private static final int SCOPE_CACHE_CAPACITY = 20_000;
+    private final ScopeCache scopeCache = new ScopeCache(SCOPE_CACHE_CAPACITY);
+    /**
+     * Histogram độ trễ và bộ đếm của từng giai đoạn xử lý, hiển thị trong panel Metrics của tab Settings.
+     */
+    private final Metrics metrics = new Metrics();
+    /**
+     * Pipeline xử lý traffic trên các worker.
+     */
+    private TrafficPipeline trafficPipeline;
+    /**
+     * Cờ đánh dấu đã có một lần tải lại giao diện đang chờ trên EDT.
+     */
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    /**
+     * Timer làm mới định kỳ các bộ đếm của pipeline và tab Coverage; được dừng khi extension bị gỡ bỏ.
+     */
+    private javax.swing.Timer statsTimer;
+    /**
+     * Luồng ghi các thay đổi do người dùng thực hiện (đổi trạng thái, áp dụng lại quy tắc cho dữ liệu đã lưu), theo
+     * đúng thứ tự thao tác.
+     */
+    private final ExecutorService statusWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "RecheckScan-status-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    /**
+     * Luồng chuyển các API lâu không xuất hiện sang kho lạnh, theo từng lô nhỏ.
+     */
+    private final ScheduledExecutorService archiver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RecheckScan-archiver");
+        t.setDaemon(true);
+        return t;
+    });
     // Các biến lưu trữ cài đặt của người dùng, được tải từ tệp cấu hình.
     private String exclude_extensions;
     private String savedOutputPath;
     private String exclude_status_code;
     private String path_parameter_rules;
-    private boolean highlightEnabled = false;
-    private boolean noteEnabled = false;
+    private String path_exclusion_rules;
+    private String skip_content_types;
+    private String bypass_content_types;
+    /**
+     * Đường dẫn các project dùng gần đây, mới nhất trước; phần tử đầu là project đang hoạt động.
+     */
+    private final List<String> recentProjects = new ArrayList<>();
+    // Các cài đặt dưới đây được đọc từ luồng của Burp và các worker nên cần volatile.
+    private volatile boolean highlightEnabled = false;
+    private volatile boolean noteEnabled = false;
     private boolean autoBypassNoParam = false;
-    private List<PathParameterRule> compiledPathParameterRules = new ArrayList<>();
-
+    private int ingestQueueCapacity = DEFAULT_INGEST_QUEUE_CAPACITY;
+    private int shedSampleRate = DEFAULT_SHED_SAMPLE_RATE;
+    /**
+     * Số ngày không xuất hiện trước khi một API được chuyển sang kho lạnh; 0 là không bao giờ.
+     */
+    private volatile int retentionDays = 0;
     /**
-     * Model cho JTable, chứa dữ liệu API được hiển thị trên giao diện.
+     * Số tệp CSDL mà dữ liệu của một project được chia vào theo host (xem {@link ShardedDatabaseManager}); 1 là một tệp.
      */
-    private DefaultTableModel tableModel;
+    private int storageShards = 1;
+    private volatile List<PathParameterRule> compiledPathParameterRules = new ArrayList<>();
+    /**
+     * Các phần mở rộng bị loại trừ, đã tách và chuyển về chữ thường.
+     */
+    private volatile String[] compiledExcludedExtensions = new String[0];
+    private volatile PathExclusionRules compiledPathExclusions = PathExclusionRules.NONE;
+    private volatile ContentTypeRules compiledContentTypeRules = ContentTypeRules.NONE;
+    /**
+     * Cài đặt tại lần Apply gần nhất (hoặc lúc khởi động), để Apply chỉ thực hiện các bước cho phần đã thay đổi.
+     */
+    private SettingsDiff.Values appliedSettings;
+    private volatile Set<Integer> excludedStatusCodes = new HashSet<>();
+
     /**
-     * Một Map quan trọng để ánh xạ chỉ số dòng hiển thị trên JTable (có thể thay đổi do sắp xếp)
-     * sang ID duy nhất trong cơ sở dữ liệu (không đổi).
-     * Điều này đảm bảo việc cập nhật trạng thái luôn đúng dòng.
+     * Model của hai bảng "Unscanned" và "Logs". Mỗi model chỉ giữ các trang đang hiển thị, mỗi dòng mang
+     * ID duy nhất trong CSDL (cột ẩn) để việc cập nhật trạng thái luôn đúng dòng.
      */
-    private final Map<Integer, Integer> modelRowToDbId = new HashMap<>();
+    private ApiTableModel unscannedModel;
+    private ApiTableModel logsModel;
+    private JTable unscannedTable;
+    private JTable logsTable;
+    private CoverageTreeModel coverageModel;
+    private JTree coverageTree;
 
     // Các nhãn (JLabel) để hiển thị thống kê trên tab Settings.
     private final JLabel totalLbl = new JLabel("Total: 0");
     private final JLabel scannedLbl = new JLabel("Scanned: 0");
     private final JLabel rejectedLbl = new JLabel("Rejected: 0");
     private final JLabel bypassLbl = new JLabel("Bypass: 0");
-    private final JLabel unverifiedLbl = new JLabel("Unverified: 0");
+    private final JLabel unverifiedLbl = new JLabel("Unverified: 0");
+    private final JLabel archivedLbl = new JLabel("Archived: 0");
+    private final JLabel dedupLbl = new JLabel("Dedup hit/miss: 0/0");
+    private final JLabel latencyLbl = new JLabel("Proxy latency p99/max: 0/0 µs");
+    private final JLabel queueLbl = new JLabel("Queue: 0/0");
+    private final JLabel shedLbl = new JLabel("Shed events: 0");
+    /**
+     * Danh sách project trong tab Settings và nhãn trạng thái của project đang hoạt động.
+     */
+    private final DefaultComboBoxModel<String> projectComboModel = new DefaultComboBoxModel<>();
+    private final JLabel projectStatusLbl = new JLabel(" ");
+    /**
+     * Vùng hiển thị báo cáo của {@link #metrics}, được làm mới cùng các bộ đếm của pipeline.
+     */
+    private final JTextArea metricsArea = new JTextArea();
 
     /**
      * Phương thức chính được Burp gọi khi extension được tải.
@@ -85,10 +206,22 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
 
         // Tải các cài đặt đã lưu từ tệp.
         loadSavedSettings();
-        // Khởi tạo trình quản lý CSDL.
-        databaseManager = new DatabaseManager(api);
-        databaseManager.initialize(savedOutputPath);
+        // Quyết định scope đã cache không còn đúng khi người dùng sửa scope.
+        api.scope().registerScopeChangeHandler(scopeChange -> scopeCache.invalidateAll());
+        // Chỉ chờ chỉ mục trạng thái của project đang dùng được nạp từ snapshot (nếu có) để annotation, thống kê và
+        // tab Coverage dùng được ngay; CSDL được mở và đối chiếu trong nền, các thao tác cần CSDL chờ đến khi xong.
+        // Việc chờ diễn ra trên luồng tải extension của Burp, không phải EDT.
+        projects = new ProjectRegistry(api, metrics, storageShards, this::rolledBack);
+        activeProject = projects.restore(savedOutputPath).join();
+        savedOutputPath = activeProject.path;
+        appliedSettings = currentSettings(savedOutputPath);
+        rememberRecentProject(activeProject.path);
+        // Các project dùng gần đây được mở sẵn trong nền để việc chuyển project là tức thì.
+        projects.warmup(recentProjects.subList(1, recentProjects.size()), WARMUP_PROJECTS);
 
+        // Pipeline xử lý traffic trên các worker, tách khỏi luồng HTTP của Burp.
+        trafficPipeline = new TrafficPipeline(api, metrics, this::parseEvent, this::persistEvent, this::persistLane, ingestQueueCapacity, shedSampleRate);
+        archiver.scheduleWithFixedDelay(this::archiveStaleEndpoints, ARCHIVE_INTERVAL_MINUTES, ARCHIVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
         // Tạo giao diện người dùng trên luồng Event Dispatch Thread (EDT) của Swing để đảm bảo an toàn luồng.
         SwingUtilities.invokeLater(this::createUI);
 
@@ -101,350 +234,562 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
             }
 
             /**
-             * Xử lý mỗi response HTTP mà Burp nhận được. Đây là nơi logic cốt lõi được thực thi.
+             * Xử lý mỗi response HTTP mà Burp nhận được.
+             * Chỉ thực hiện các thao tác O(1) trên luồng của Burp: lọc nhanh (scope qua cache), annotate từ cache trạng thái
+             * và đưa sự kiện vào pipeline. Mọi thao tác parse và ghi CSDL chạy trên worker.
              */
             @Override
             public ResponseReceivedAction handleHttpResponseReceived(HttpResponseReceived response) {
-                // Lọc bỏ các API trả về status code bị loại trừ.
-                if (isExcludedStatusCode(response.statusCode())) {
-                    return ResponseReceivedAction.continueWith(response);
-                }
+                long start = System.nanoTime();
+                try {
+                    // Lọc bỏ các API trả về status code bị loại trừ.
+                    if (isExcludedStatusCode(response.statusCode())) {
+                        return ResponseReceivedAction.continueWith(response);
+                    }
 
-                HttpRequest request = response.initiatingRequest();
-                String method = request.method();
-                ToolType sourceType = response.toolSource().toolType();
+                    HttpRequest request = response.initiatingRequest();
+                    String method = request.method();
+                    ToolType sourceType = response.toolSource().toolType();
 
-                // Lọc bỏ các request không cần thiết (OPTIONS, Intruder, các extension khác).
-                if (method.equals("OPTIONS") || sourceType == ToolType.INTRUDER || sourceType == ToolType.EXTENSIONS) {
-                    return ResponseReceivedAction.continueWith(response);
-                }
-
-                String host = request.httpService().host();
-                String rawPath = request.pathWithoutQuery();
-                String path = normalizePath(rawPath);
-                
-                // Trích xuất tất cả tham số từ cả URL và body.
-                Set<String> requestParams = extractParameters(request);
-                
-                // Trường hợp 1: Request từ Scanner -> xử lý các tham số đã được quét.
-                if (sourceType == ToolType.SCANNER) {
-                    new Thread(() -> {
-                        boolean updated = databaseManager.processScannedParameters(method, host, path, requestParams);
-                        // Nếu CSDL có thay đổi, tải lại dữ liệu trên giao diện.
-                        if (updated) {
-                            SwingUtilities.invokeLater(RecheckScanApiExtension.this::loadDataFromDb);
-                        }
-                    }).start();
-                } 
-                // Trường hợp 2: Request từ các công cụ khác (Proxy, Repeater) và nằm trong scope.
-                else if (api.scope().isInScope(request.url()) && !isExcludedByExtension(rawPath)) {
-                    // Nếu request từ Repeater, đánh dấu vào DB.
-                    if (sourceType == ToolType.REPEATER) {
-                        new Thread(() -> {
-                            boolean updated = databaseManager.updateRepeaterStatus(method, host, path);
-                            // Tải lại dữ liệu nếu trạng thái 'is_from_repeater' vừa được cập nhật.
-                            if (updated) {
-                                SwingUtilities.invokeLater(RecheckScanApiExtension.this::loadDataFromDb);
-                            }
-                        }).start();
+                    // Lọc bỏ các request không cần thiết (OPTIONS, Intruder, các extension khác).
+                    if (method.equals("OPTIONS") || sourceType == ToolType.INTRUDER || sourceType == ToolType.EXTENSIONS) {
+                        return ResponseReceivedAction.continueWith(response);
                     }
 
-                    // Nhánh 2a: Tự động bypass cho API không có tham số.
-                    if (requestParams.isEmpty()) {
-                        new Thread(() -> {
-                            boolean updated = databaseManager.autoBypassApi(method, host, path);
-                            if (updated) {
-                                SwingUtilities.invokeLater(RecheckScanApiExtension.this::loadDataFromDb);
-                            }
-                        }).start();
-                         // Thêm highlight/note ngay lập tức cho request này.
-                         if (highlightEnabled) response.annotations().setHighlightColor(HighlightColor.YELLOW);
-                         if (noteEnabled) response.annotations().setNotes("Bypassed");
-                    } else {
-                        // Nhánh 2b: Xử lý request thông thường để tìm và ghi nhận tham số mới.
-                        new Thread(() -> {
-                            databaseManager.insertOrUpdateApi(method, host, path, requestParams);
-                            // Tải lại UI để phản ánh thay đổi (nếu có param mới được thêm).
-                            SwingUtilities.invokeLater(RecheckScanApiExtension.this::loadDataFromDb);
-                        }).start();
+                    String host = request.httpService().host();
+                    String rawPath = request.pathWithoutQuery();
+                    // Traffic không mong muốn (health check, beacon, tài nguyên tĩnh) bị bỏ trước khi vào pipeline.
+                    if (compiledPathExclusions.isExcluded(host, rawPath)) {
+                        return ResponseReceivedAction.continueWith(response);
                     }
-                    // Luôn kiểm tra trạng thái cuối cùng trong CSDL để áp dụng highlight và note.
-                    Object[] status = databaseManager.getApiStatus(method, host, path);
-                    if (status != null) {
-                        boolean isScanned = (boolean) status[0];
-                        boolean isBypassed = (boolean) status[2];
-                        boolean isRejected = (boolean) status[1];
-
-                        if (highlightEnabled && (isScanned || isBypassed)) {
-                            response.annotations().setHighlightColor(HighlightColor.YELLOW);
+                    // Response không phải API (HTML, ảnh, font...) theo Content-Type; traffic từ Scanner luôn được giữ.
+                    ContentTypeRules.Action contentAction = sourceType == ToolType.SCANNER
+                            ? ContentTypeRules.Action.KEEP
+                            : compiledContentTypeRules.classify(response.headerValue("Content-Type"));
+                    if (contentAction == ContentTypeRules.Action.SKIP) {
+                        return ResponseReceivedAction.continueWith(response);
+                    }
+
+                    // Request từ các công cụ khác Scanner (Proxy, Repeater) phải nằm trong scope. Quyết định scope được
+                    // cache, nên với endpoint đã gặp việc kiểm tra chỉ tốn một lần tra bảng băm.
+                    if (sourceType != ToolType.SCANNER) {
+                        long scopeStart = System.nanoTime();
+                        boolean skip = !scopeCache.isInScope(request, rawPath, api.scope()::isInScope) || isExcludedByExtension(rawPath);
+                        metrics.record("handler.scope", scopeStart);
+                        if (skip) {
+                            return ResponseReceivedAction.continueWith(response);
                         }
-                        if (noteEnabled) {
-                            if (isScanned) {
-                                response.annotations().setNotes("Scanned");
-                            } else if (isBypassed) {
-                                response.annotations().setNotes("Bypassed");
-                            } else if (isRejected) {
-                                response.annotations().setNotes("Rejected");
+                        // Áp dụng highlight và note từ trạng thái đã cache, không truy vấn CSDL.
+                        if (highlightEnabled || noteEnabled) {
+                            Integer status = activeProject.statusCache.statusFor(method, host, rawPath);
+                            if (status != null) {
+                                applyAnnotations(response, status);
+                            } else if (contentAction == ContentTypeRules.Action.BYPASS
+                                    || hasNoParameters(request)) {
+                                // Lần đầu gặp một API không có tham số: API sẽ được tự động bypass khi ghi,
+                                // nên được đánh dấu ngay cho request này.
+                                if (highlightEnabled) response.annotations().setHighlightColor(HighlightColor.YELLOW);
+                                if (noteEnabled) response.annotations().setNotes("Bypassed");
                             }
                         }
                     }
-                }
 
-                return ResponseReceivedAction.continueWith(response);
+                    trafficPipeline.submit(new TrafficPipeline.Event(sourceType, method, host, rawPath, request,
+                            contentAction == ContentTypeRules.Action.BYPASS));
+                    return ResponseReceivedAction.continueWith(response);
+                } finally {
+                    trafficPipeline.recordHandlerLatency(System.nanoTime() - start);
+                }
             }
         });
     }
 
     /**
-     * Trích xuất tham số từ cả URL (query string) và body của request.
-     * <p>
-     * Phương thức này hợp nhất tham số từ hai nguồn vào một Set duy nhất.
-     * Nó sử dụng các parser tích hợp của Montoya API để xử lý các định dạng phổ biến.
+     * Giai đoạn parse của pipeline: chuẩn hóa path, trích xuất tham số và lọc trùng lặp.
+     * Scope đã được kiểm tra trên luồng của Burp, trước khi sự kiện vào pipeline.
      *
-     * @param request HttpRequest cần phân tích.
-     * @return một Set chứa tên của tất cả các tham số.
+     * @param event Sự kiện được chụp lại trên luồng của Burp.
+     * @return Sự kiện đã parse, hoặc null nếu không cần ghi vào CSDL.
      */
-    private Set<String> extractParameters(HttpRequest request) {
+    private TrafficPipeline.ParsedEvent parseEvent(TrafficPipeline.Event event) {
+        HttpRequest request = event.request;
+        boolean fromScanner = event.toolType == ToolType.SCANNER;
 
-        Set<String> allParamNames = new HashSet<>();
+        long start = System.nanoTime();
+        String path = normalizePath(event.rawPath);
+        if (!fromScanner) {
+            activeProject.statusCache.rememberPath(event.host, event.rawPath, path);
+        }
+        metrics.record("parse.normalizePath", start);
 
-        // 1. Lấy tham số từ URL (query string)
-        List<ParsedHttpParameter> urlParams = request.parameters(HttpParameterType.URL);
-        if (urlParams != null && !urlParams.isEmpty()) {
-            urlParams.stream()
-                    .map(ParsedHttpParameter::name)
-                    .forEach(allParamNames::add);
+        // Trích xuất tất cả tham số từ cả URL và body. Response không phải API được ghi nhận như API không có tham số.
+        Set<String> requestParams;
+        if (event.nonApi) {
+            requestParams = Set.of();
+        } else {
+            start = System.nanoTime();
+            requestParams = extractParameters(request);
+            metrics.record("parse.extractParameters", start);
         }
 
-        // 2. Lấy tham số từ Body nếu có
-        if (request.body().length() > 0) {
-            ContentType contentType = request.contentType();
-            
-            List<ParsedHttpParameter> bodyParams = null;
+        // Dấu vân tay của sự kiện: nếu đã gặp và endpoint chưa thay đổi từ đó, bỏ qua mọi thao tác I/O.
+        start = System.nanoTime();
+        int project = activeProject.path.hashCode();
+        long endpoint = RequestFingerprintCache.endpoint(project, event.method, event.host, path);
+        long generation = fingerprintCache.generation(endpoint);
+        long fingerprint = RequestFingerprintCache.fingerprint(project, event.toolType, event.method, event.host, path, requestParams);
+        boolean known = fingerprintCache.contains(fingerprint, endpoint);
+        metrics.record("parse.fingerprint", start);
+        if (known) {
+            return null;
+        }
+        return new TrafficPipeline.ParsedEvent(event, path, requestParams, fingerprint, generation);
+    }
 
-            switch (contentType) {
-                case JSON:
-                    bodyParams = request.parameters(HttpParameterType.JSON);
-                    break;
-                case URL_ENCODED:
-                    bodyParams = request.parameters(HttpParameterType.BODY);
-                    break;
-                case MULTIPART:
-                     bodyParams = request.parameters(HttpParameterType.BODY);
-                     break;
-                case XML:
-                     bodyParams = request.parameters(HttpParameterType.XML);
-                     break;
-                default:
-                    break;
-            }
+    /**
+     * Giai đoạn persist của pipeline: ghi sự kiện vào CSDL và đồng bộ cache trạng thái.
+     * Chạy song song trên nhiều làn, nhưng các sự kiện của cùng một endpoint luôn đi cùng một làn ({@link #persistLane}).
+     *
+     * @param parsed Sự kiện đã được parse.
+     */
+    private void persistEvent(TrafficPipeline.ParsedEvent parsed) {
+        TrafficPipeline.Event event = parsed.event;
+        String method = event.method;
+        String host = event.host;
+        String path = parsed.path;
+        boolean updated = false;
+        boolean invalidated = false;
+        // Sự kiện được ghi vào project đang hoạt động tại thời điểm ghi.
+        ProjectRegistry.Project project = activeProject;
+        // Ngay sau khi khởi động, CSDL có thể vẫn đang được mở; sự kiện chờ trong hàng đợi của pipeline.
+        project.awaitReady();
+        ApiStore databaseManager = project.databaseManager;
 
-            if (bodyParams != null && !bodyParams.isEmpty()) {
-                bodyParams.stream()
-                        .map(ParsedHttpParameter::name)
-                        .forEach(allParamNames::add);
+        // Trường hợp 1: Request từ Scanner -> xử lý các tham số đã được quét.
+        if (event.toolType == ToolType.SCANNER) {
+            if (databaseManager.processScannedParameters(method, host, path, parsed.params)) {
+                updated = invalidated = true;
+            }
+        }
+        // Trường hợp 2: Request từ các công cụ khác (Proxy, Repeater) đã qua kiểm tra scope.
+        else {
+            if (parsed.params.isEmpty()) {
+                // Nhánh 2a: Tự động bypass cho API không có tham số.
+                updated = databaseManager.autoBypassApi(method, host, path);
+            } else if (databaseManager.insertOrUpdateApi(method, host, path, parsed.params)) {
+                // Nhánh 2b: API mới hoặc có tham số mới được ghi nhận.
+                updated = invalidated = true;
+            }
+            // Nếu request từ Repeater, đánh dấu vào DB. Sau khi ghi để API gặp lần đầu từ Repeater đã có dòng.
+            if (event.toolType == ToolType.REPEATER) {
+                updated |= databaseManager.updateRepeaterStatus(method, host, path);
             }
         }
 
-        return allParamNames;
+        long endpoint = RequestFingerprintCache.endpoint(project.path.hashCode(), method, host, path);
+        if (invalidated) {
+            fingerprintCache.invalidate(endpoint);
+        } else if (parsed.fingerprint == RequestFingerprintCache.fingerprint(project.path.hashCode(), event.toolType, method, host, path, parsed.params)) {
+            // Khóa khác nhau khi project đã đổi sau giai đoạn parse: sự kiện không được ghi vào project của khóa.
+            fingerprintCache.remember(parsed.fingerprint, endpoint, parsed.generation);
+        }
+        refreshCachedStatus(project, method, host, path);
+        // Nếu CSDL có thay đổi, tải lại dữ liệu trên giao diện.
+        if (updated) {
+            requestReload();
+        }
+    }
+
+    /**
+     * Khóa chọn làn ghi của pipeline cho một sự kiện, theo project đang hoạt động.
+     */
+    private int persistLane(TrafficPipeline.ParsedEvent parsed) {
+        return activeProject.databaseManager.laneKey(parsed.event.method, parsed.event.host, parsed.path);
     }
 
+    /**
+     * Đọc lại trạng thái của một API từ CSDL và cập nhật vào cache dùng cho annotation.
+     */
+    private void refreshCachedStatus(ProjectRegistry.Project project, String method, String host, String path) {
+        Object[] status = project.databaseManager.getApiStatus(method, host, path);
+        if (status != null) {
+            project.statusCache.put(method, host, path, EndpointStatusCache.flags(status));
+        }
+    }
 
     /**
-     * Cập nhật một dòng đã có hoặc chèn một dòng mới vào JTable.
-     * @param rowData Dữ liệu trả về từ DatabaseManager, bao gồm cả ID.
+     * Làm mất hiệu lực các dấu vân tay của một endpoint của {@code project} sau khi dòng của nó thay đổi ngoài
+     * traffic (đổi trạng thái, nhập, chuẩn hóa path, lưu trữ).
      */
-    private void updateOrInsertTableRow(Object[] rowData) {
-        int dbId = (int) rowData[8]; // Index của ID
-        Integer modelRowIndex = findModelRowByDbId(dbId);
+    private void invalidateFingerprints(ProjectRegistry.Project project, String method, String host, String path) {
+        fingerprintCache.invalidate(RequestFingerprintCache.endpoint(project.path.hashCode(), method, host, path));
+    }
 
-        if (modelRowIndex != null) { // API này đã tồn tại trên bảng -> cập nhật.
-            tableModel.setValueAt(rowData[3], modelRowIndex, 3); // Cập nhật cột Unscanned Params.
-            tableModel.setValueAt(rowData[4], modelRowIndex, 4); // Cập nhật cột Scanned.
-            tableModel.setValueAt(rowData[5], modelRowIndex, 5); // Cập nhật cột Rejected
-            tableModel.setValueAt(rowData[6], modelRowIndex, 6); // Cập nhật cột Bypass
-            tableModel.setValueAt(rowData[7], modelRowIndex, 7); // Cập nhật cột Repeater
-        } else { // API mới -> chèn vào đầu bảng.
-            tableModel.insertRow(0, rowData);
-            // Sau khi chèn, phải cập nhật lại toàn bộ map ánh xạ.
-            remapAllIndices();
+    /**
+     * Được gọi khi một transaction của {@code project} bị rollback, khi đang giữ khóa của CSDL: dấu vân tay và chỉ
+     * mục trạng thái có thể đã ghi nhận thay đổi vừa bị hủy. Chỉ mục được dựng lại trên luồng ghi trạng thái; project
+     * đang được mở sẽ tự dựng hoặc đối chiếu chỉ mục khi mở xong.
+     */
+    private void rolledBack(ProjectRegistry.Project project) {
+        fingerprintCache.invalidateAll();
+        if (project.isReady() && !statusWriter.isShutdown()) {
+            statusWriter.execute(() -> {
+                project.statusCache.rebuild(project.databaseManager);
+                requestReload();
+            });
         }
-        updateStats();
     }
 
     /**
-     * Tìm chỉ số dòng trong TableModel (dữ liệu hiển thị) dựa trên ID trong CSDL.
-     * @param dbId ID duy nhất của dòng trong CSDL.
-     * @return Chỉ số dòng trên JTable, hoặc null nếu không tìm thấy.
+     * Lên lịch tải lại dữ liệu trên EDT. Nhiều yêu cầu liên tiếp được gộp thành một lần tải lại duy nhất.
      */
-    private Integer findModelRowByDbId(int dbId) {
-        return modelRowToDbId.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(dbId))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
+    private void requestReload() {
+        if (reloadPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                reloadPending.set(false);
+                loadDataFromDb();
+            });
+        }
     }
 
     /**
-     * Ánh xạ lại toàn bộ chỉ số dòng trên JTable với ID trong CSDL.
-     * Cần được gọi mỗi khi có sự thay đổi về cấu trúc bảng (thêm/xóa dòng).
+     * Chuyển sang project lưu tại {@code outputPath}. Project chưa mở được mở trên luồng nền của registry;
+     * EDT chỉ đổi tham chiếu và tải lại các trang đang hiển thị khi project đã sẵn sàng. Phải được gọi trên EDT.
+     *
+     * @param then Chạy trên EDT sau khi project đã được kích hoạt.
      */
-    private void remapAllIndices() {
-        modelRowToDbId.clear();
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            Integer id = (Integer) tableModel.getValueAt(i, 8); // Index của ID
-            if (id != null) {
-                modelRowToDbId.put(i, id);
-            }
+    private void switchProject(String outputPath, Consumer<ProjectRegistry.Project> then) {
+        String path = ProjectRegistry.key(outputPath);
+        if (!projects.isReady(path)) {
+            projectStatusLbl.setText("Loading " + path + " ...");
         }
+        projects.open(path).thenAccept(project -> {
+            // Project mở thất bại được đóng trên luồng nền của registry; EDT chỉ báo lỗi.
+            if (!project.databaseManager.isConnected()) {
+                projects.close(project.path);
+                SwingUtilities.invokeLater(() -> {
+                    updateProjectStatus();
+                    JOptionPane.showMessageDialog(null, "Failed to open project database: " + project.path);
+                });
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                activate(project);
+                then.accept(project);
+            });
+        });
     }
 
     /**
-     * Khởi tạo toàn bộ giao diện người dùng của extension.
+     * Kích hoạt một project đã mở: đổi tham chiếu dùng bởi pipeline và các bảng, sau đó đếm lại số dòng.
+     * Không mở kết nối và không duyệt dữ liệu, nên không làm treo giao diện. Phải được gọi trên EDT.
      */
-    private void createUI() {
-        // Khởi tạo TableModel với các cột
-        // Thứ tự rất quan trọng: Method, Host, Path, Unscanned, Scanned, Rejected, Bypass, Repeater(ẩn), id(ẩn)
-        tableModel = new DefaultTableModel(new Object[]{"Method", "Host", "Path", "Unscanned Params", "Scanned", "Rejected", "Bypass", "Repeater", "id"}, 0) {
-            /**
-             * Sửa đổi logic cho phép chỉnh sửa ô.
-             * - "Rejected": Chỉ có thể sửa nếu API chưa "Scanned" VÀ đã được gửi từ "Repeater".
-             * - "Bypass": Có thể sửa nếu API chưa "Scanned".
-             * - Các cột khác không thể sửa trực tiếp trên bảng.
-             */
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                boolean isScanned = Boolean.TRUE.equals(getValueAt(row, 4));
-                // Nếu đã được quét, không cho phép chỉnh sửa bất kỳ trạng thái nào.
-                if (isScanned) {
-                    return false;
-                }
+    private void activate(ProjectRegistry.Project project) {
+        long start = System.nanoTime();
+        if (project != activeProject) {
+            activeProject = project;
+            unscannedModel.switchTo(project.databaseManager);
+            logsModel.switchTo(project.databaseManager);
+            coverageModel.switchTo(project.statusCache.coverageTree());
+            api.logging().logToOutput("Switched to project: " + project.path);
+        }
+        savedOutputPath = project.path;
+        rememberRecentProject(project.path);
+        refreshProjectList();
+        saveSettings();
+        loadDataFromDb();
+        metrics.record("ui.switchProject", start);
+    }
 
-                // Logic cho cột "Rejected" (index 5)
-                if (column == 5) {
-                    // Lấy trạng thái từ cột "Repeater" (index 7)
-                    boolean isFromRepeater = Boolean.TRUE.equals(getValueAt(row, 7));
-                    return isFromRepeater; // Chỉ cho phép sửa nếu `isFromRepeater` là true.
-                }
+    /**
+     * @param outputPath Đường dẫn CSDL của project.
+     * @return Các cài đặt hiện tại với project tại {@code outputPath}, để so sánh với {@link #appliedSettings}.
+     */
+    private SettingsDiff.Values currentSettings(String outputPath) {
+        return new SettingsDiff.Values(ProjectRegistry.key(outputPath), exclude_extensions, exclude_status_code,
+                path_exclusion_rules, skip_content_types, bypass_content_types, path_parameter_rules, autoBypassNoParam,
+                ingestQueueCapacity, shedSampleRate, retentionDays, storageShards);
+    }
 
-                // Logic cho cột "Bypass" (index 6)
-                if (column == 6) {
-                    return true;
-                }
+    /**
+     * Áp dụng các cài đặt vừa nhập trên tab Settings, chỉ với các bước mà phần thay đổi cần: cài đặt không đổi không
+     * làm mất cache, không chuyển project và không tải lại bảng. Phải được gọi trên EDT.
+     * <p>
+     * Nếu đường dẫn CSDL thay đổi, project mới được mở trong nền và chỉ được ghi nhận là đã áp dụng khi đã kết nối
+     * được; nếu mở thất bại, project cũ vẫn được dùng và lần Apply sau sẽ thử lại.
+     *
+     * @param outputPath Đường dẫn CSDL vừa nhập.
+     */
+    private void applySettings(String outputPath) {
+        long start = System.nanoTime();
+        SettingsDiff diff = SettingsDiff.between(appliedSettings, currentSettings(outputPath));
+        if (diff.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Settings applied.");
+            return;
+        }
+        saveSettings();
+        if (diff.excludedExtensionsChanged) {
+            compiledExcludedExtensions = compileExcludedExtensions(exclude_extensions);
+        }
+        if (diff.excludedStatusCodesChanged) {
+            excludedStatusCodes = compileExcludedStatusCodes(exclude_status_code);
+        }
+        if (diff.pathExclusionsChanged) {
+            compiledPathExclusions = PathExclusionRules.compile(path_exclusion_rules, api.logging()::logToError);
+        }
+        if (diff.contentTypesChanged) {
+            compiledContentTypeRules = ContentTypeRules.compile(skip_content_types, bypass_content_types, api.logging()::logToError);
+        }
+        if (diff.pipelineChanged) {
+            trafficPipeline.configure(ingestQueueCapacity, shedSampleRate);
+        }
+        if (diff.retentionChanged && retentionDays > 0) {
+            archiver.execute(this::archiveStaleEndpoints);
+        }
+        if (diff.storageChanged) {
+            projects.setStorageShards(storageShards);
+        }
+        if (diff.rulesChanged) {
+            compiledPathParameterRules = PathNormalizer.compile(path_parameter_rules, api.logging()::logToError);
+            // Các ánh xạ path đã cache của mọi project được tính bằng quy tắc cũ.
+            for (ProjectRegistry.Project project : projects.readyProjects()) {
+                project.statusCache.clearPaths();
+            }
+        }
+        // Áp dụng lại toàn bộ quy tắc: các rule được thử theo thứ tự, nên thêm, bớt hay đổi thứ tự một rule có thể làm
+        // một segment khớp rule khác với lần chuẩn hóa trước.
+        List<PathParameterRule> rules = compiledPathParameterRules;
+        if (diff.projectChanged) {
+            // Các cài đặt khác đã có hiệu lực; project vẫn là project cũ cho tới khi project mới mở được.
+            appliedSettings = currentSettings(savedOutputPath);
+            boolean autoBypass = autoBypassNoParam;
+            switchProject(outputPath, project -> {
+                // switchProject chỉ gọi lại khi project đã kết nối được và đã được kích hoạt.
+                appliedSettings = currentSettings(project.path);
+                // Dữ liệu của project mới chưa chắc đã được chuẩn hóa bằng quy tắc hiện tại.
+                applyRulesToStoredData(project, rules, autoBypass);
+                JOptionPane.showMessageDialog(null, "Settings applied.");
+            });
+        } else {
+            appliedSettings = currentSettings(outputPath);
+            applyRulesToStoredData(activeProject, diff.rulesChanged ? rules : List.of(), diff.autoBypassEnabled);
+            JOptionPane.showMessageDialog(null, "Settings applied.");
+        }
+        metrics.record("ui.applySettings", start);
+    }
 
-                return false;
+    /**
+     * Áp dụng quy tắc chuẩn hóa path và auto-bypass cho dữ liệu đã lưu của một project.
+     * Chạy trên luồng ghi trạng thái để không làm treo giao diện và không chen vào giữa các thay đổi trạng thái của
+     * người dùng; chỉ mục trạng thái chỉ được dựng lại nếu có dòng thay đổi.
+     *
+     * @param rules      Các rule cần áp dụng cho path đã lưu.
+     * @param autoBypass true để bypass các API cũ không có tham số.
+     */
+    private void applyRulesToStoredData(ProjectRegistry.Project project, List<PathParameterRule> rules, boolean autoBypass) {
+        if (rules.isEmpty() && !autoBypass) {
+            return;
+        }
+        statusWriter.execute(() -> {
+            long start = System.nanoTime();
+            project.awaitReady();
+            int changed = 0;
+            if (!rules.isEmpty()) {
+                changed += project.databaseManager.normalizeStoredPaths(path -> PathNormalizer.normalize(path, rules),
+                        (method, host, path) -> invalidateFingerprints(project, method, host, path));
+            }
+            if (autoBypass) {
+                // Các dòng được bypass không còn tham số chưa quét: xử lý lại sự kiện của chúng không thay đổi gì,
+                // nên dấu vân tay vẫn đúng.
+                changed += project.databaseManager.applyAutoBypassToOldRecords();
             }
+            if (changed > 0) {
+                project.statusCache.rebuild(project.databaseManager);
+                // Tải lại dữ liệu trên luồng giao diện sau khi cập nhật xong
+                requestReload();
+            }
+            metrics.record("ui.applyRulesToStoredData", start);
+        });
+    }
 
-            /**
-             * Định nghĩa kiểu dữ liệu cho các cột để JTable có thể render đúng.
-             */
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex >= 4 && columnIndex <= 7) return Boolean.class; // Các cột trạng thái (Scanned, Rejected, Bypass, Repeater)
-                if (columnIndex == 8) return Integer.class; // Cột ID
-                return String.class;
+    /**
+     * Chuyển các API không xuất hiện trong {@link #retentionDays} ngày của các project đang mở sang kho lạnh, từng lô
+     * nhỏ một trên luồng lưu trữ. Sau đó chỉ mục trạng thái của project được dựng lại để chỉ còn các API đang hoạt động.
+     */
+    private void archiveStaleEndpoints() {
+        int days = retentionDays;
+        if (days <= 0) {
+            return;
+        }
+        // Request trùng lặp bị bộ lọc chặn trước CSDL nên không cập nhật last_seen. Dấu vân tay hết hạn sau một chu
+        // kỳ, nên mọi API còn được dùng đều chạm tới CSDL ít nhất một lần giữa hai lần lưu trữ.
+        for (ProjectRegistry.Project project : projects.readyProjects()) {
+            int archived = 0;
+            try {
+                int batch;
+                do {
+                    // API vừa lưu trữ phải đi tới CSDL khi xuất hiện lại để được chuyển về.
+                    batch = project.databaseManager.archiveStale(days,
+                            (method, host, path) -> invalidateFingerprints(project, method, host, path));
+                    archived += batch;
+                } while (batch >= DatabaseManager.ARCHIVE_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to archive stale APIs of " + project.path + ": " + e.getMessage(), e);
             }
+            if (archived > 0) {
+                project.statusCache.rebuild(project.databaseManager);
+                api.logging().logToOutput("Archived " + archived + " APIs not seen for " + days + " days from " + project.path);
+                requestReload();
+            }
+        }
+    }
 
-            /**
-             * Ghi đè phương thức này để xử lý sự kiện người dùng tick vào các checkbox.
-             * Khi một checkbox được tick, trạng thái tương ứng sẽ được cập nhật vào CSDL.
-             */
-            @Override
-            public void setValueAt(Object aValue, int row, int col) {
-                // Tạm thời bỏ qua việc cập nhật UI từ chính logic bên trong (tránh lặp vô hạn).
-                if (!(Thread.currentThread().getStackTrace()[2].getMethodName().equals("updateOrInsertTableRow"))) {
-                    super.setValueAt(aValue, row, col); // Cập nhật giá trị trên UI trước.
-                } else {
-                     super.setValueAt(aValue, row, col);
-                     return;
-                }
+    /**
+     * Đưa một project lên đầu danh sách dùng gần đây.
+     */
+    private void rememberRecentProject(String path) {
+        recentProjects.remove(path);
+        recentProjects.add(0, path);
+        while (recentProjects.size() > MAX_RECENT_PROJECTS) {
+            recentProjects.remove(recentProjects.size() - 1);
+        }
+    }
 
-                // Chỉ xử lý các cột checkbox trạng thái.
-                if (col == 5 || col == 6) {
-                    Integer id = (Integer) getValueAt(row, 8); // Lấy ID của dòng từ cột ẩn.
-                    if (id != null) {
-                        // Logic đảm bảo chỉ 1 trong 3 checkbox (Scanned, Rejected, Bypassed) được chọn tại một thời điểm.
-                        if (Boolean.TRUE.equals(aValue)) {
-                            for (int i = 5; i <= 6; i++) {
-                                final boolean isChecked = (i == col);
-                                if (!isChecked) {
-                                    super.setValueAt(false, row, i); // Bỏ tick các ô khác trên UI.
-                                }
-                                // Cập nhật CSDL trong một luồng riêng.
-                                final int finalI = i;
-                                new Thread(() -> {
-                                    String dbColumn = switch (finalI) {
-                                        case 4 -> "is_scanned";
-                                        case 5 -> "is_rejected";
-                                        case 6 -> "is_bypassed";
-                                        default -> null;
-                                    };
-                                    if (dbColumn != null) {
-                                        databaseManager.updateApiStatus(id, dbColumn, isChecked);
-                                    }
-                                }).start();
-                            }
-                        } else {
-                             // Nếu người dùng bỏ tick một ô, cập nhật trạng thái đó trong CSDL.
-                            String dbColumn = switch (col) {
-                                case 5 -> "is_rejected";
-                                case 6 -> "is_bypassed";
-                                default -> null;
-                            };
-                             if (dbColumn != null) {
-                                 new Thread(() -> databaseManager.updateApiStatus(id, dbColumn, false)).start();
-                             }
-                        }
-                    }
-                }
-                updateStats(); // Cập nhật các nhãn thống kê.
+    /**
+     * Đồng bộ danh sách project trên tab Settings với danh sách dùng gần đây. Phải được gọi trên EDT.
+     */
+    private void refreshProjectList() {
+        projectComboModel.removeAllElements();
+        projectComboModel.addAll(recentProjects);
+        projectComboModel.setSelectedItem(activeProject.path);
+        updateProjectStatus();
+    }
+
+    private void updateProjectStatus() {
+        projectStatusLbl.setText("Active: " + activeProject.path + " (" + projects.readyProjects().size() + " open)");
+    }
+
+    /**
+     * Nhãn của một project trong danh sách, kèm trạng thái mở của nó.
+     */
+    private String projectLabel(String path) {
+        if (path == null) {
+            return "";
+        }
+        if (path.equals(activeProject.path)) {
+            return path + "  (active)";
+        }
+        if (projects.isReady(path)) {
+            return path + "  (open)";
+        }
+        return projects.isOpen(path) ? path + "  (loading)" : path;
+    }
+
+    /**
+     * Áp dụng highlight và note cho response dựa trên các cờ trạng thái của API.
+     *
+     * @param response Response đang được xử lý.
+     * @param status   Các cờ {@link EndpointStatusCache#SCANNED}, {@link EndpointStatusCache#REJECTED}, {@link EndpointStatusCache#BYPASSED}.
+     */
+    private void applyAnnotations(HttpResponseReceived response, int status) {
+        boolean isScanned = (status & EndpointStatusCache.SCANNED) != 0;
+        boolean isRejected = (status & EndpointStatusCache.REJECTED) != 0;
+        boolean isBypassed = (status & EndpointStatusCache.BYPASSED) != 0;
+
+        if (highlightEnabled && (isScanned || isBypassed)) {
+            response.annotations().setHighlightColor(HighlightColor.YELLOW);
+        }
+        if (noteEnabled) {
+            if (isScanned) {
+                response.annotations().setNotes("Scanned");
+            } else if (isBypassed) {
+                response.annotations().setNotes("Bypassed");
+            } else if (isRejected) {
+                response.annotations().setNotes("Rejected");
             }
-        };
+        }
+    }
+
+    /**
+     * Trích xuất tham số từ cả URL (query string) và body của request.
+     *
+     * @param request HttpRequest cần phân tích.
+     * @return một Set chứa tên của tất cả các tham số.
+     */
+    private Set<String> extractParameters(HttpRequest request) {
+        return ParameterExtractor.extract(request);
+    }
+
+    /**
+     * Kiểm tra nhanh, không parse, rằng request chắc chắn không có tham số: không có query string và body rỗng.
+     */
+    private static boolean hasNoParameters(HttpRequest request) {
+        String query = request.query();
+        return (query == null || query.isEmpty()) && request.body().length() == 0;
+    }
 
+
+    /**
+     * Khởi tạo toàn bộ giao diện người dùng của extension.
+     */
+    private void createUI() {
         // Bố cục chính của tab extension.
         JTabbedPane tabs = new JTabbedPane();
 
         // --- Cài đặt Tab "Unscanned" ---
-        JTable unscannedTable = createCommonTable();
+        // Chỉ hiển thị các dòng chưa có trạng thái nào (unscanned, unrejected, unbypassed); việc lọc chạy trong SQLite.
+        unscannedModel = createApiTableModel(true);
+        unscannedTable = createCommonTable(unscannedModel);
         setupHiddenColumns(unscannedTable); // Ẩn các cột cần thiết (Repeater, id)
-        final TableRowSorter<DefaultTableModel> unscannedSorter = new TableRowSorter<>(tableModel);
-        unscannedTable.setRowSorter(unscannedSorter);
-
-        // Tạo bộ lọc để chỉ hiển thị các dòng chưa có trạng thái nào (unscanned, unrejected, unbypassed).
-        final RowFilter<Object, Object> unscannedStatusFilter = new RowFilter<>() {
-            public boolean include(Entry<?, ?> entry) {
-                boolean scanned = Boolean.TRUE.equals(entry.getValue(4));
-                boolean rejected = Boolean.TRUE.equals(entry.getValue(5));
-                boolean bypass = Boolean.TRUE.equals(entry.getValue(6));
-                return !scanned && !rejected && !bypass;
-            }
-        };
-        unscannedSorter.setRowFilter(unscannedStatusFilter);
         JButton unscannedRefreshButton = new JButton("Refresh");
-        unscannedRefreshButton.addActionListener(e -> unscannedSorter.setRowFilter(unscannedStatusFilter));
-        JPanel unscannedPanel = createApiPanel("Search unscanned paths:", unscannedTable, unscannedRefreshButton, (keyword, sorter) -> {
-            RowFilter<Object, Object> textFilter = keyword.isEmpty() ? null : RowFilter.regexFilter("(?i)" + keyword, 2);
-            sorter.setRowFilter(textFilter != null ? RowFilter.andFilter(Arrays.asList(unscannedStatusFilter, textFilter)) : unscannedStatusFilter);
-        });
+        unscannedRefreshButton.addActionListener(e -> unscannedModel.reload());
+        JPanel unscannedPanel = createApiPanel("Search unscanned paths:", unscannedTable, unscannedRefreshButton, unscannedModel::setPathFilter);
         tabs.addTab("Unscanned", unscannedPanel);
 
         // --- Cài đặt Tab "Logs" ---
-        JTable logsTable = createCommonTable();
+        logsModel = createApiTableModel(false);
+        logsTable = createCommonTable(logsModel);
         setupHiddenColumns(logsTable); // Ẩn các cột cần thiết (Repeater, id)
-        final TableRowSorter<DefaultTableModel> logsSorter = new TableRowSorter<>(tableModel);
-        logsTable.setRowSorter(logsSorter);
         JButton logsRefreshButton = new JButton("Refresh");
-        logsRefreshButton.addActionListener(e -> logsSorter.setRowFilter(logsSorter.getRowFilter()));
-        JPanel logsPanel = createApiPanel("Search all paths:", logsTable, logsRefreshButton, (keyword, sorter) -> {
-            sorter.setRowFilter(keyword.isEmpty() ? null : RowFilter.regexFilter("(?i)" + keyword, 2));
-        });
+        logsRefreshButton.addActionListener(e -> logsModel.reload());
+        JButton logsExportButton = new JButton("Export...");
+        logsExportButton.addActionListener(e -> exportApis(logsExportButton));
+        JButton logsImportButton = new JButton("Import...");
+        logsImportButton.addActionListener(e -> importApis(logsImportButton));
+        JPanel logsButtonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        logsButtonsPanel.add(logsImportButton);
+        logsButtonsPanel.add(logsExportButton);
+        logsButtonsPanel.add(logsRefreshButton);
+        JPanel logsPanel = createApiPanel("Search all paths:", logsTable, logsButtonsPanel, logsModel::setPathFilter);
         tabs.addTab("Logs", logsPanel);
 
+        // --- Cài đặt Tab "Coverage" ---
+        // Cây host -> segment path với bộ đếm tổng hợp; các nút con chỉ được đọc khi mở nút.
+        coverageModel = new CoverageTreeModel(activeProject.statusCache.coverageTree());
+        coverageTree = createCoverageTree(coverageModel);
+        JButton coverageRefreshButton = new JButton("Refresh");
+        coverageRefreshButton.addActionListener(e -> refreshCoverageTree());
+        JPanel coveragePanel = new JPanel(new BorderLayout(0, 5));
+        coveragePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JPanel coverageTopPanel = new JPanel(new BorderLayout(5, 0));
+        coverageTopPanel.add(new JLabel("Hosts and path prefixes, most unverified endpoints first:"), BorderLayout.CENTER);
+        coverageTopPanel.add(coverageRefreshButton, BorderLayout.EAST);
+        coveragePanel.add(coverageTopPanel, BorderLayout.NORTH);
+        coveragePanel.add(new JScrollPane(coverageTree), BorderLayout.CENTER);
+        tabs.addTab("Coverage", coveragePanel);
+
         // --- Cài đặt Tab "Settings" ---
         JTextArea extensionArea = new JTextArea(exclude_extensions != null ? exclude_extensions : ".js,.svg,.css,.png,.jpg,.ttf,.ico,.html,.map,.gif,.woff2,.bcmap,.jpeg,.woff");
         JTextField outputPathField = new JTextField(savedOutputPath != null ? savedOutputPath : "");
         JTextField excludeStatusCodesField = new JTextField(exclude_status_code != null ? exclude_status_code : "404,405");
+        JTextField queueCapacityField = new JTextField(String.valueOf(ingestQueueCapacity));
+        JTextField sampleRateField = new JTextField(String.valueOf(shedSampleRate));
+        JTextField retentionDaysField = new JTextField(String.valueOf(retentionDays));
+        JTextField storageShardsField = new JTextField(String.valueOf(storageShards));
         JTextArea pathParameterRulesArea = new JTextArea(path_parameter_rules != null ? path_parameter_rules : "");
+        JTextArea pathExclusionRulesArea = new JTextArea(path_exclusion_rules != null ? path_exclusion_rules : "");
+        JTextField skipContentTypesField = new JTextField(skip_content_types != null ? skip_content_types : "image,font,css,script,media");
+        JTextField bypassContentTypesField = new JTextField(bypass_content_types != null ? bypass_content_types : "");
         JButton browseButton = new JButton("Browse");
         browseButton.addActionListener(e -> {
             JFileChooser fileChooser = new JFileChooser();
@@ -471,46 +816,111 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
         JButton applyButton = new JButton("Apply");
         applyButton.addActionListener(e -> {
             exclude_extensions = extensionArea.getText().trim();
-            savedOutputPath = outputPathField.getText().trim();
             exclude_status_code = excludeStatusCodesField.getText().trim();
+            ingestQueueCapacity = parsePositiveInt(queueCapacityField.getText(), DEFAULT_INGEST_QUEUE_CAPACITY);
+            shedSampleRate = parsePositiveInt(sampleRateField.getText(), DEFAULT_SHED_SAMPLE_RATE);
             path_parameter_rules = pathParameterRulesArea.getText().trim();
-            compiledPathParameterRules = compilePathParameterRules(path_parameter_rules);
+            path_exclusion_rules = pathExclusionRulesArea.getText().trim();
+            skip_content_types = skipContentTypesField.getText().trim();
+            bypass_content_types = bypassContentTypesField.getText().trim();
             autoBypassNoParam = autoBypassCheckBox.isSelected();
-            saveSettings();
-
-            // Khởi tạo lại CSDL trước để đảm bảo đang làm việc với đúng file
-            databaseManager.close();
-            databaseManager.initialize(savedOutputPath);
-
-            // *** Áp dụng bypass cho dữ liệu cũ ***
-            if (!compiledPathParameterRules.isEmpty() || autoBypassNoParam) {
-                // Chạy trong một luồng riêng để không làm treo giao diện
-                new Thread(() -> {
-                    if (!compiledPathParameterRules.isEmpty()) {
-                        databaseManager.normalizeStoredPaths(this::normalizePath);
-                    }
-                    if (autoBypassNoParam) {
-                        databaseManager.applyAutoBypassToOldRecords();
-                    }
-                    // Tải lại dữ liệu trên luồng giao diện sau khi cập nhật xong
-                    SwingUtilities.invokeLater(this::loadDataFromDb);
-                }).start();
-            } else {
-                // Nếu không bật, chỉ cần tải lại dữ liệu như bình thường
-                loadDataFromDb();
+            retentionDays = parsePositiveInt(retentionDaysField.getText(), 0);
+            storageShards = Math.min(parsePositiveInt(storageShardsField.getText(), 1), ShardedDatabaseManager.MAX_SHARDS);
+            applySettings(outputPathField.getText().trim());
+        });
+        JComboBox<String> projectCombo = new JComboBox<>(projectComboModel);
+        projectCombo.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, projectLabel((String) value), index, isSelected, cellHasFocus);
             }
-
-            JOptionPane.showMessageDialog(null, "Settings applied and project reloaded from database.");
         });
-        tabs.addTab("Settings", SettingsPanel.create(extensionArea, outputPathField, browseButton, highlightCheckBox, noteCheckBox, autoBypassCheckBox, applyButton, totalLbl, scannedLbl, rejectedLbl, bypassLbl, unverifiedLbl, excludeStatusCodesField, pathParameterRulesArea));
+        JButton switchProjectButton = new JButton("Switch");
+        switchProjectButton.addActionListener(e -> {
+            String path = (String) projectCombo.getSelectedItem();
+            if (path != null) {
+                outputPathField.setText(path);
+                switchProject(path, project -> { });
+            }
+        });
+        JButton closeProjectButton = new JButton("Close");
+        closeProjectButton.addActionListener(e -> {
+            String path = (String) projectCombo.getSelectedItem();
+            if (path == null) {
+                return;
+            }
+            if (path.equals(activeProject.path)) {
+                JOptionPane.showMessageDialog(null, "The active project cannot be closed. Switch to another project first.");
+                return;
+            }
+            projects.close(path);
+            recentProjects.remove(path);
+            refreshProjectList();
+            saveSettings();
+        });
+        JButton dumpMetricsButton = new JButton("Dump to Output");
+        dumpMetricsButton.addActionListener(e -> api.logging().logToOutput("Recheck Scan metrics:\n" + metrics.report()));
+        JButton resetMetricsButton = new JButton("Reset");
+        resetMetricsButton.addActionListener(e -> {
+            metrics.reset();
+            metricsArea.setText(metrics.report());
+        });
+        tabs.addTab("Settings", SettingsPanel.create(extensionArea, outputPathField, browseButton, highlightCheckBox, noteCheckBox, autoBypassCheckBox, applyButton, totalLbl, scannedLbl, rejectedLbl, bypassLbl, unverifiedLbl, archivedLbl, dedupLbl, latencyLbl, queueLbl, shedLbl, excludeStatusCodesField, pathExclusionRulesArea, skipContentTypesField, bypassContentTypesField, pathParameterRulesArea, queueCapacityField, sampleRateField, retentionDaysField, storageShardsField, metricsArea, dumpMetricsButton, resetMetricsButton, projectCombo, switchProjectButton, closeProjectButton, projectStatusLbl));
+        refreshProjectList();
+        // Các request trùng lặp không kích hoạt reload, nên các bộ đếm của pipeline được làm mới định kỳ.
+        // Cây độ phủ cũng được làm mới theo nhịp này, chỉ khi tab đang hiển thị và cây đã thay đổi.
+        statsTimer = new javax.swing.Timer(1000, e -> {
+            updatePipelineStats();
+            if (coverageTree.isShowing() && coverageModel.isStale()) {
+                refreshCoverageTree();
+            }
+        });
+        statsTimer.start();
         
         // Đăng ký tab chính vào giao diện Burp.
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.add(tabs, BorderLayout.CENTER);
         api.userInterface().registerSuiteTab("Recheck Scan", mainPanel);
         
-        // Tải dữ liệu lần đầu.
+        // Tải dữ liệu lần đầu; các bảng được tải khi CSDL của project mở xong.
         loadDataFromDb();
+        projects.open(activeProject.path).thenAccept(project -> requestReload());
+    }
+
+    /**
+     * Tạo model cho một bảng API, kèm logic ghi trạng thái xuống CSDL khi người dùng tick vào các checkbox.
+     *
+     * @param unverifiedOnly true cho tab "Unscanned".
+     */
+    private ApiTableModel createApiTableModel(boolean unverifiedOnly) {
+        return new ApiTableModel(activeProject.databaseManager, unverifiedOnly) {
+            /**
+             * Ghi đè phương thức này để xử lý sự kiện người dùng tick vào các checkbox.
+             * Khi một checkbox được tick, trạng thái tương ứng sẽ được cập nhật vào CSDL.
+             */
+            @Override
+            public void setValueAt(Object aValue, int row, int col) {
+                setCachedValue(aValue, row, col); // Cập nhật giá trị trên UI trước.
+
+                // Chỉ xử lý các cột checkbox trạng thái.
+                if (col == 5 || col == 6) {
+                    Integer id = (Integer) getValueAt(row, 8); // Lấy ID của dòng từ cột ẩn.
+                    if (id != null) {
+                        DatabaseManager.StatusChange change;
+                        if (Boolean.TRUE.equals(aValue)) {
+                            // Chỉ 1 trong 2 checkbox (Rejected, Bypassed) được chọn tại một thời điểm.
+                            setCachedValue(false, row, col == 5 ? 6 : 5);
+                            change = col == 5 ? DatabaseManager.StatusChange.REJECT : DatabaseManager.StatusChange.BYPASS;
+                        } else {
+                            change = DatabaseManager.StatusChange.RESET;
+                        }
+                        // Các dòng đang hiển thị thuộc project đang hoạt động; giữ lại để việc ghi không lẫn sang project khác.
+                        applyStatusChange(activeProject, null,
+                                (databaseManager, changed) -> databaseManager.updateStatus(change, new int[]{id}, changed));
+                    }
+                }
+            }
+        };
     }
 
     /**
@@ -532,19 +942,26 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
     }
 
     /**
-     * Xóa dữ liệu cũ trên bảng và tải lại toàn bộ từ CSDL.
-     * Đồng thời cập nhật lại map `modelRowToDbId`.
+     * Đếm lại số dòng của bảng đang hiển thị từ CSDL và bỏ các trang đã tải; các dòng đang hiển thị
+     * sẽ được tải lại khi JTable vẽ lại. Bảng bị ẩn chỉ được đánh dấu và tải lại khi hiện ra. Phải được gọi trên EDT.
      */
     private void loadDataFromDb() {
-        tableModel.setRowCount(0);
-        modelRowToDbId.clear();
-        List<Object[]> rows = databaseManager.loadApiData();
-        for (int i = 0; i < rows.size(); i++) {
-            Object[] rowData = rows.get(i);
-            tableModel.addRow(rowData);
-            modelRowToDbId.put(i, (Integer) rowData[8]); // Index của ID
+        long start = System.nanoTime();
+        // Khi CSDL chưa mở xong, các bảng giữ nguyên cho đến lần tải lại lúc project sẵn sàng.
+        if (activeProject.isReady()) {
+            reloadIfShowing(unscannedModel, unscannedTable);
+            reloadIfShowing(logsModel, logsTable);
         }
         updateStats();
+        metrics.record("ui.loadDataFromDb", start);
+    }
+
+    private static void reloadIfShowing(ApiTableModel model, JTable table) {
+        if (table.isShowing()) {
+            model.reload();
+        } else {
+            model.invalidate();
+        }
     }
 
     /**
@@ -553,132 +970,57 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
      * @return true nếu bị loại trừ.
      */
     private boolean isExcludedByExtension(String path) {
-        if (exclude_extensions == null || exclude_extensions.isBlank()) return false;
-        return Arrays.stream(exclude_extensions.replace(" ", "").split(","))
-                     .map(String::trim)
-                     .anyMatch(ext -> !ext.isEmpty() && path.toLowerCase().endsWith(ext));
-    }
-
-    /**
-     * Chuẩn hóa các segment động trong URL path theo rule người dùng cấu hình.
-     * Ví dụ: /api/report/1684050854912458752/list -> /api/report/{id}/list.
-     */
-    private String normalizePath(String path) {
-        if (path == null || path.isBlank() || compiledPathParameterRules.isEmpty()) {
-            return path;
-        }
-
-        String[] segments = path.split("/", -1);
-        boolean changed = false;
-        for (int i = 0; i < segments.length; i++) {
-            String segment = segments[i];
-            if (segment.isEmpty()) {
-                continue;
-            }
-            for (PathParameterRule rule : compiledPathParameterRules) {
-                if (rule.matches(segment)) {
-                    segments[i] = rule.placeholder();
-                    changed = true;
-                    break;
-                }
+        for (String ext : compiledExcludedExtensions) {
+            if (path.regionMatches(true, path.length() - ext.length(), ext, 0, ext.length())) {
+                return true;
             }
         }
-        return changed ? String.join("/", segments) : path;
+        return false;
     }
 
-    private List<PathParameterRule> compilePathParameterRules(String rulesText) {
-        List<PathParameterRule> rules = new ArrayList<>();
-        if (rulesText == null || rulesText.isBlank()) {
-            return rules;
-        }
-
-        for (String rawLine : rulesText.split("\\R")) {
-            String line = rawLine.trim();
-            if (line.isEmpty() || line.startsWith("#")) {
-                continue;
-            }
-
-            int separatorIndex = line.indexOf('=');
-            if (separatorIndex <= 0 || separatorIndex == line.length() - 1) {
-                api.logging().logToError("Invalid path parameter rule: " + line);
-                continue;
-            }
-
-            String placeholder = normalizePlaceholder(line.substring(0, separatorIndex).trim());
-            String spec = line.substring(separatorIndex + 1).trim();
-            Pattern pattern = compilePathParameterPattern(spec);
-            if (pattern != null) {
-                rules.add(new PathParameterRule(placeholder, pattern));
-            }
+    /**
+     * Tách danh sách phần mở rộng bị loại trừ một lần khi cài đặt thay đổi, thay vì trên mỗi request.
+     * @param extensions Chuỗi các phần mở rộng, cách nhau bởi dấu phẩy.
+     * @return Các phần mở rộng khác rỗng, chữ thường.
+     */
+    private String[] compileExcludedExtensions(String extensions) {
+        if (extensions == null || extensions.isBlank()) {
+            return new String[0];
         }
-        return rules;
+        return Arrays.stream(extensions.replace(" ", "").split(","))
+                .map(ext -> ext.trim().toLowerCase())
+                .filter(ext -> !ext.isEmpty())
+                .toArray(String[]::new);
     }
 
-    private String normalizePlaceholder(String placeholder) {
-        if (placeholder.startsWith("{") && placeholder.endsWith("}")) {
-            return placeholder;
-        }
-        return "{" + placeholder.replace("{", "").replace("}", "") + "}";
+    /**
+     * Chuẩn hóa các segment động trong URL path theo rule người dùng cấu hình.
+     * Ví dụ: /api/report/1684050854912458752/list -> /api/report/{id}/list.
+     */
+    private String normalizePath(String path) {
+        return PathNormalizer.normalize(path, compiledPathParameterRules);
     }
 
-    private Pattern compilePathParameterPattern(String spec) {
-        String lowerSpec = spec.toLowerCase(Locale.ROOT);
-        if (lowerSpec.startsWith("regex:")) {
-            try {
-                return Pattern.compile(spec.substring("regex:".length()));
-            } catch (PatternSyntaxException e) {
-                api.logging().logToError("Invalid path parameter regex rule: " + spec + " - " + e.getMessage());
-                return null;
-            }
-        }
-
-        String[] parts = lowerSpec.split(":", 2);
-        String type = parts[0].trim();
-        Integer length = null;
-        if (parts.length == 2 && !parts[1].isBlank()) {
-            try {
-                length = Integer.parseInt(parts[1].trim());
-            } catch (NumberFormatException e) {
-                api.logging().logToError("Invalid path parameter length in rule: " + spec);
-                return null;
-            }
-            if (length <= 0) {
-                api.logging().logToError("Path parameter length must be positive in rule: " + spec);
-                return null;
-            }
-        }
-
-        String quantifier = length == null ? "+" : "{" + length + "}";
-        return switch (type) {
-            case "number", "numeric", "digits" -> Pattern.compile("[0-9]" + quantifier);
-            case "hex" -> Pattern.compile("[0-9a-fA-F]" + quantifier);
-            case "uuid" -> Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
-            case "alnum", "alpha_numeric" -> Pattern.compile("[0-9a-zA-Z]" + quantifier);
-            default -> {
-                api.logging().logToError("Unsupported path parameter rule type: " + spec);
-                yield null;
-            }
-        };
-    }
-    
     /**
      * Phương thức tiện ích để tạo một JTable với các thuộc tính chung.
      */
-    private JTable createCommonTable() {
-        JTable table = new JTable(tableModel);
+    private JTable createCommonTable(ApiTableModel model) {
+        JTable table = new JTable(model);
         table.setRowHeight(28);
         table.setFillsViewportHeight(true);
         table.getTableHeader().setReorderingAllowed(false);
-        // Tùy chỉnh cách hiển thị cho cột boolean (dùng checkbox).
-        table.setDefaultRenderer(Boolean.class, (tbl, value, isSelected, hasFocus, row, column) -> {
-            JCheckBox checkBox = new JCheckBox();
-            checkBox.setSelected(Boolean.TRUE.equals(value));
-            checkBox.setHorizontalAlignment(SwingConstants.CENTER);
-            checkBox.setOpaque(true);
-            checkBox.setBackground(isSelected ? tbl.getSelectionBackground() : tbl.getBackground());
-            if (column == 4) checkBox.setEnabled(false); // Vô hiệu hóa checkbox cột "Scanned".
-            return checkBox;
+        // Bấm vào tiêu đề cột để sắp xếp; việc sắp xếp chạy trong SQLite vì model chỉ giữ các dòng đang hiển thị.
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    model.toggleSort(table.convertColumnIndexToModel(column));
+                }
+            }
         });
+        // Tùy chỉnh cách hiển thị cho cột boolean (dùng checkbox); cột "Scanned" (index 4) chỉ đọc.
+        table.setDefaultRenderer(Boolean.class, new BooleanCellRenderer(4));
         // Tùy chỉnh cách hiển thị cho cột Note (bôi đỏ nếu có param mới).
         table.setDefaultRenderer(String.class, new DefaultTableCellRenderer() {
             @Override
@@ -692,6 +1034,12 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
                 return c;
             }
         });
+        // Bảng bị ẩn (tab khác đang được chọn) không được đếm lại khi dữ liệu thay đổi; tải lại khi bảng hiện ra.
+        table.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && table.isShowing()) {
+                model.reloadIfInvalid();
+            }
+        });
         // Bắt sự kiện Ctrl+C để sao chép đường dẫn.
         table.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("ctrl C"), "copyPath");
         table.getActionMap().put("copyPath", new AbstractAction() {
@@ -701,8 +1049,7 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
                 if (selectedRows.length > 0) {
                     StringBuilder sb = new StringBuilder();
                     for (int viewRow : selectedRows) {
-                        int modelRow = table.convertRowIndexToModel(viewRow);
-                        Object value = tableModel.getValueAt(modelRow, 2);
+                        Object value = model.getValueAt(viewRow, 2);
                         if (value != null) sb.append(value.toString()).append("\n");
                     }
                     StringSelection selection = new StringSelection(sb.toString().trim());
@@ -710,13 +1057,216 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
                 }
             }
         });
+        // Chuột phải: đổi trạng thái hàng loạt cho các dòng được chọn, toàn bộ kết quả đang lọc hoặc cả một host.
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showStatusMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showStatusMenu(e);
+            }
+
+            private void showStatusMenu(MouseEvent e) {
+                if (!e.isPopupTrigger()) {
+                    return;
+                }
+                int row = table.rowAtPoint(e.getPoint());
+                if (row >= 0 && !table.isRowSelected(row)) {
+                    table.setRowSelectionInterval(row, row);
+                }
+                createStatusMenu(table, model, row).show(table, e.getX(), e.getY());
+            }
+        });
         return table;
     }
 
     /**
-     * Phương thức tiện ích để tạo một panel hoàn chỉnh chứa bảng, thanh tìm kiếm và nút refresh.
+     * Tạo menu chuột phải của bảng với các thao tác đổi trạng thái hàng loạt. Mỗi thao tác là một transaction
+     * và chỉ tải lại bảng một lần, bất kể số dòng.
+     *
+     * @param row Dòng dưới con trỏ chuột, -1 nếu không có.
      */
-    private JPanel createApiPanel(String searchLabel, JTable table, JButton refreshButton, SearchHandler handler) {
+    private JPopupMenu createStatusMenu(JTable table, ApiTableModel model, int row) {
+        ProjectRegistry.Project project = activeProject;
+        JPopupMenu menu = new JPopupMenu();
+
+        int[] rows = table.getSelectedRows();
+        JMenu selectedMenu = createStatusSubmenu("Selected rows (" + rows.length + ")", change -> {
+            int[] ids = model.idsOf(rows);
+            applyStatusChange(project, statusLabel(change) + " " + ids.length + " selected APIs",
+                    (databaseManager, changed) -> databaseManager.updateStatus(change, ids, changed));
+        });
+        selectedMenu.setEnabled(rows.length > 0);
+        menu.add(selectedMenu);
+
+        ApiQuery query = model.query();
+        int matching = model.getRowCount();
+        JMenu viewMenu = createStatusSubmenu("All rows in this view (" + matching + ")", change -> {
+            if (confirmStatusChange(table, change, "all " + matching + " APIs in this view")) {
+                applyStatusChange(project, statusLabel(change) + " APIs in view",
+                        (databaseManager, changed) -> databaseManager.updateStatus(change, query, changed));
+            }
+        });
+        viewMenu.setEnabled(matching > 0);
+        menu.add(viewMenu);
+
+        String host = row >= 0 ? (String) model.getValueAt(row, 1) : null;
+        JMenu hostMenu = createStatusSubmenu(host == null ? "Host" : "Host " + host, change -> {
+            if (confirmStatusChange(table, change, "all APIs of host " + host)) {
+                applyStatusChange(project, statusLabel(change) + " APIs of host " + host,
+                        (databaseManager, changed) -> databaseManager.updateStatusForHost(change, host, changed));
+            }
+        });
+        hostMenu.setEnabled(host != null);
+        menu.add(hostMenu);
+
+        menu.addSeparator();
+        Integer apiId = row >= 0 ? (Integer) model.getValueAt(row, 8) : null;
+        JMenuItem historyItem = new JMenuItem("Show history...");
+        historyItem.addActionListener(e -> showApiHistory(table, project, apiId,
+                model.getValueAt(row, 0) + " " + host + model.getValueAt(row, 2)));
+        historyItem.setEnabled(apiId != null);
+        menu.add(historyItem);
+        return menu;
+    }
+
+    /**
+     * Hiển thị lịch sử (phát hiện, quét, đổi trạng thái...) của một API. Lịch sử được đọc trên luồng ghi trạng thái,
+     * sau các thay đổi trạng thái người dùng vừa yêu cầu.
+     */
+    private void showApiHistory(Component parent, ProjectRegistry.Project project, int apiId, String title) {
+        statusWriter.execute(() -> {
+            project.awaitReady();
+            List<Object[]> history;
+            try {
+                history = project.databaseManager.loadApiHistory(apiId);
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to load API history: " + e.getMessage(), e);
+                return;
+            }
+            Object[][] rows = new Object[history.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                Object[] event = history.get(i);
+                rows[i] = new Object[]{new Date((Long) event[0]), event[1], event[2]};
+            }
+            SwingUtilities.invokeLater(() -> {
+                JTable historyTable = new JTable(new DefaultTableModel(rows, new Object[]{"Time", "Event", "Params"}) {
+                    @Override
+                    public boolean isCellEditable(int row, int column) {
+                        return false;
+                    }
+                });
+                JScrollPane scrollPane = new JScrollPane(historyTable);
+                scrollPane.setPreferredSize(new Dimension(700, 300));
+                JOptionPane.showMessageDialog(parent, rows.length == 0 ? "No history recorded for this API." : scrollPane,
+                        "History of " + title, JOptionPane.PLAIN_MESSAGE);
+            });
+        });
+    }
+
+    private static JMenu createStatusSubmenu(String label, Consumer<DatabaseManager.StatusChange> action) {
+        JMenu menu = new JMenu(label);
+        for (DatabaseManager.StatusChange change : DatabaseManager.StatusChange.values()) {
+            JMenuItem item = new JMenuItem(statusLabel(change));
+            item.addActionListener(e -> action.accept(change));
+            menu.add(item);
+        }
+        return menu;
+    }
+
+    private static String statusLabel(DatabaseManager.StatusChange change) {
+        return switch (change) {
+            case REJECT -> "Mark as Rejected";
+            case BYPASS -> "Mark as Bypassed";
+            case RESET -> "Reset status";
+        };
+    }
+
+    private static boolean confirmStatusChange(Component parent, DatabaseManager.StatusChange change, String target) {
+        return JOptionPane.showConfirmDialog(parent, statusLabel(change) + ": " + target + "?", "Bulk status change",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+    }
+
+    /**
+     * Tạo JTree cho tab Coverage: nhãn lấy từ model, nút còn endpoint chưa xác minh được tô đỏ, Ctrl+C sao chép
+     * host và path prefix của các nút đang chọn.
+     */
+    private JTree createCoverageTree(CoverageTreeModel model) {
+        JTree tree = new JTree(model) {
+            @Override
+            public String convertValueToText(Object value, boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
+                return model.label(value);
+            }
+        };
+        tree.setRootVisible(false);
+        tree.setShowsRootHandles(true);
+        // Chiều cao dòng cố định để JTree không phải đo từng nút khi cây lớn.
+        tree.setRowHeight(22);
+        tree.setLargeModel(true);
+        tree.setCellRenderer(new DefaultTreeCellRenderer() {
+            @Override
+            public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
+                Component c = super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+                if (!selected && model.unverified(value) > 0) {
+                    c.setForeground(Color.RED);
+                }
+                return c;
+            }
+        });
+        tree.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("ctrl C"), "copyPath");
+        tree.getActionMap().put("copyPath", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                TreePath[] selectedPaths = tree.getSelectionPaths();
+                if (selectedPaths != null) {
+                    StringBuilder sb = new StringBuilder();
+                    for (TreePath path : selectedPaths) {
+                        sb.append(((CoverageTree.Node) path.getLastPathComponent()).path()).append("\n");
+                    }
+                    Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(sb.toString().trim()), null);
+                }
+            }
+        });
+        return tree;
+    }
+
+    /**
+     * Tải lại cây độ phủ, giữ các nút đang mở và nút đang chọn (tìm lại theo tên, vì cây có thể đã được dựng lại).
+     * Phải được gọi trên EDT.
+     */
+    private void refreshCoverageTree() {
+        long start = System.nanoTime();
+        List<List<String>> expanded = new ArrayList<>();
+        Enumeration<TreePath> expandedPaths = coverageTree.getExpandedDescendants(new TreePath(coverageModel.getRoot()));
+        while (expandedPaths != null && expandedPaths.hasMoreElements()) {
+            expanded.add(CoverageTreeModel.names(expandedPaths.nextElement()));
+        }
+        TreePath selection = coverageTree.getSelectionPath();
+        List<String> selected = selection == null ? null : CoverageTreeModel.names(selection);
+
+        coverageModel.reload();
+        for (List<String> names : expanded) {
+            TreePath path = coverageModel.find(names);
+            if (path != null) {
+                coverageTree.expandPath(path);
+            }
+        }
+        if (selected != null) {
+            TreePath path = coverageModel.find(selected);
+            if (path != null) {
+                coverageTree.setSelectionPath(path);
+            }
+        }
+        metrics.record("ui.refreshCoverageTree", start);
+    }
+
+    /**
+     * Phương thức tiện ích để tạo một panel hoàn chỉnh chứa bảng, thanh tìm kiếm và các nút thao tác (refresh, export).
+     */
+    private JPanel createApiPanel(String searchLabel, JTable table, JComponent refreshButton, SearchHandler handler) {
         JPanel panel = new JPanel(new BorderLayout(0, 5));
         panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
@@ -736,7 +1286,7 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
             public void removeUpdate(DocumentEvent e) { filter(); }
             public void changedUpdate(DocumentEvent e) { filter(); }
             private void filter() {
-                handler.apply(searchField.getText().trim(), (TableRowSorter<DefaultTableModel>) table.getRowSorter());
+                handler.apply(searchField.getText().trim());
             }
         });
         return panel;
@@ -744,7 +1294,160 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
 
     @FunctionalInterface
     interface SearchHandler {
-        void apply(String keyword, TableRowSorter<DefaultTableModel> sorter);
+        void apply(String keyword);
+    }
+
+    /**
+     * Xuất toàn bộ API của project đang hoạt động ra tệp (CSV, JSON Lines hoặc báo cáo HTML).
+     * Việc xuất chạy trên một SwingWorker kèm hộp thoại tiến độ có nút hủy, nên giao diện không bị chặn.
+     */
+    private void exportApis(Component parent) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        for (ApiExporter.Format format : ApiExporter.Format.values()) {
+            fileChooser.addChoosableFileFilter(new FileNameExtensionFilter(format.description, format.extension));
+        }
+        if (fileChooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String extension = ((FileNameExtensionFilter) fileChooser.getFileFilter()).getExtensions()[0];
+        ApiExporter.Format format = ApiExporter.Format.valueOf(extension.toUpperCase(Locale.ROOT));
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().toLowerCase(Locale.ROOT).endsWith("." + extension)) {
+            file = new File(file.getParentFile(), file.getName() + "." + extension);
+        }
+        Path target = file.toPath();
+        // Xuất từ project đang hoạt động tại thời điểm bấm nút, kể cả khi người dùng chuyển project trong lúc xuất.
+        ProjectRegistry.Project project = activeProject;
+        ApiStore databaseManager = project.databaseManager;
+
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Exporting to " + target.getFileName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        SwingWorker<Integer, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    project.awaitReady();
+                    return ApiExporter.export(databaseManager, format, target,
+                            (rows, total) -> setProgress(total == 0 ? 100 : (int) Math.min(100, rows * 100L / total)),
+                            this::isCancelled);
+                } finally {
+                    metrics.record("export." + extension, start);
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    int rows = get();
+                    api.logging().logToOutput("Exported " + rows + " APIs to " + target);
+                    JOptionPane.showMessageDialog(parent, "Exported " + rows + " APIs to " + target);
+                } catch (CancellationException e) {
+                    api.logging().logToOutput("Export to " + target + " cancelled.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    api.logging().logToError("Failed to export APIs: " + e.getCause().getMessage(), e.getCause());
+                    JOptionPane.showMessageDialog(parent, "Failed to export APIs: " + e.getCause().getMessage());
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+                monitor.setNote(evt.getNewValue() + "%");
+            }
+            if (monitor.isCanceled()) {
+                // Không ngắt luồng: FileChannel sẽ bị đóng nếu luồng ghi bị interrupt.
+                worker.cancel(false);
+            }
+        });
+        worker.execute();
+    }
+
+    /**
+     * Nhập endpoint từ đặc tả OpenAPI/Swagger (JSON) hoặc tệp HAR vào project đang hoạt động.
+     * Việc đọc và ghi chạy trên một SwingWorker kèm hộp thoại tiến độ có nút hủy.
+     */
+    private void importApis(Component parent) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("OpenAPI / Swagger spec (*.json)", "json"));
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("HTTP Archive (*.har)", "har"));
+        if (fileChooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        String hostOverride = "";
+        if (!file.getName().toLowerCase(Locale.ROOT).endsWith(".har")) {
+            hostOverride = JOptionPane.showInputDialog(parent,
+                    "Host for the imported endpoints (leave blank to use the servers/host declared in the spec):", "");
+            if (hostOverride == null) {
+                return;
+            }
+        }
+        // Nhập vào project đang hoạt động tại thời điểm bấm nút.
+        ProjectRegistry.Project project = activeProject;
+        List<PathParameterRule> rules = compiledPathParameterRules;
+        ApiImporter.EntryFilter harFilter = (url, path, status) ->
+                api.scope().isInScope(url) && !isExcludedByExtension(path) && !isExcludedStatusCode(status);
+        String finalHostOverride = hostOverride;
+
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Importing " + file.getName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        SwingWorker<ApiImporter.Result, Void> worker = new SwingWorker<>() {
+            @Override
+            protected ApiImporter.Result doInBackground() throws Exception {
+                long start = System.nanoTime();
+                project.awaitReady();
+                try {
+                    ApiImporter importer = new ApiImporter(project.databaseManager, rules, finalHostOverride, harFilter,
+                            (endpoints, percent) -> {
+                                setProgress(percent);
+                                firePropertyChange("endpoints", null, endpoints);
+                            },
+                            (method, host, path) -> invalidateFingerprints(project, method, host, path),
+                            this::isCancelled);
+                    return importer.importFile(file);
+                } finally {
+                    // Nhiều dòng mới: dựng lại chỉ mục trạng thái một lần thay vì cập nhật từng dòng.
+                    project.statusCache.rebuild(project.databaseManager);
+                    requestReload();
+                    metrics.record("import.apis", start);
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    ApiImporter.Result result = get();
+                    String message = "Imported " + result.endpoints + " endpoints from " + file.getName()
+                            + " (" + result.changed + " new or with new parameters).";
+                    api.logging().logToOutput(message);
+                    JOptionPane.showMessageDialog(parent, message);
+                } catch (CancellationException e) {
+                    api.logging().logToOutput("Import from " + file + " cancelled; batches already written were kept.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    api.logging().logToError("Failed to import APIs: " + e.getCause().getMessage(), e.getCause());
+                    JOptionPane.showMessageDialog(parent, "Failed to import APIs: " + e.getCause().getMessage());
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((Integer) evt.getNewValue());
+            } else if ("endpoints".equals(evt.getPropertyName())) {
+                monitor.setNote(evt.getNewValue() + " endpoints");
+            }
+            if (monitor.isCanceled()) {
+                worker.cancel(false);
+            }
+        });
+        worker.execute();
     }
     
     /**
@@ -760,6 +1463,14 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
             props.setProperty("autoBypassNoParam", String.valueOf(autoBypassNoParam));
             props.setProperty("exclude_status_code", valueOrEmpty(exclude_status_code));
             props.setProperty("path_parameter_rules", valueOrEmpty(path_parameter_rules));
+            props.setProperty("path_exclusion_rules", valueOrEmpty(path_exclusion_rules));
+            props.setProperty("skip_content_types", valueOrEmpty(skip_content_types));
+            props.setProperty("bypass_content_types", valueOrEmpty(bypass_content_types));
+            props.setProperty("ingest_queue_capacity", String.valueOf(ingestQueueCapacity));
+            props.setProperty("shed_sample_rate", String.valueOf(shedSampleRate));
+            props.setProperty("retention_days", String.valueOf(retentionDays));
+            props.setProperty("storage_shards", String.valueOf(storageShards));
+            props.setProperty("recent_projects", String.join("\n", recentProjects));
             
             StringWriter writer = new StringWriter();
             props.store(writer, null);
@@ -773,6 +1484,21 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
         return value == null ? "" : value;
     }
 
+    /**
+     * Chuyển một chuỗi thành số nguyên dương, trả về giá trị mặc định nếu không hợp lệ.
+     */
+    private int parsePositiveInt(String value, int defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /**
      * Tải các cài đặt từ persistence extension data khi khởi động.
      */
@@ -789,11 +1515,27 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
                 autoBypassNoParam = Boolean.parseBoolean(props.getProperty("autoBypassNoParam", "false"));
                 exclude_status_code = props.getProperty("exclude_status_code", "");
                 path_parameter_rules = props.getProperty("path_parameter_rules", "");
+                path_exclusion_rules = props.getProperty("path_exclusion_rules", "");
+                skip_content_types = props.getProperty("skip_content_types", "");
+                bypass_content_types = props.getProperty("bypass_content_types", "");
+                ingestQueueCapacity = parsePositiveInt(props.getProperty("ingest_queue_capacity"), DEFAULT_INGEST_QUEUE_CAPACITY);
+                shedSampleRate = parsePositiveInt(props.getProperty("shed_sample_rate"), DEFAULT_SHED_SAMPLE_RATE);
+                retentionDays = parsePositiveInt(props.getProperty("retention_days"), 0);
+                storageShards = Math.min(parsePositiveInt(props.getProperty("storage_shards"), 1), ShardedDatabaseManager.MAX_SHARDS);
+                for (String path : props.getProperty("recent_projects", "").split("\n")) {
+                    if (!path.isBlank() && recentProjects.size() < MAX_RECENT_PROJECTS) {
+                        recentProjects.add(path.trim());
+                    }
+                }
             }
             if (path_parameter_rules == null) {
                 path_parameter_rules = "";
             }
-            compiledPathParameterRules = compilePathParameterRules(path_parameter_rules);
+            compiledPathParameterRules = PathNormalizer.compile(path_parameter_rules, api.logging()::logToError);
+            compiledExcludedExtensions = compileExcludedExtensions(exclude_extensions);
+            excludedStatusCodes = compileExcludedStatusCodes(exclude_status_code);
+            compiledPathExclusions = PathExclusionRules.compile(path_exclusion_rules, api.logging()::logToError);
+            compiledContentTypeRules = ContentTypeRules.compile(skip_content_types, bypass_content_types, api.logging()::logToError);
         } catch (Exception e) {
             api.logging().logToError("Failed to load settings: " + e.getMessage());
         }
@@ -804,42 +1546,111 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
      * @return true nếu mã trạng thái nằm trong danh sách bị loại trừ, ngược lại là false.
      */
     private boolean isExcludedStatusCode(int statusCode) {
-        if (exclude_status_code == null || exclude_status_code.isBlank()) {
-            return false;
-        }
+        return excludedStatusCodes.contains(statusCode);
+    }
 
+    /**
+     * Biên dịch danh sách status code bị loại trừ thành một Set, để việc kiểm tra trên luồng của Burp không phải parse lại chuỗi.
+     * @param codes Chuỗi các status code, cách nhau bởi dấu phẩy.
+     * @return Tập hợp các status code hợp lệ.
+     */
+    private Set<Integer> compileExcludedStatusCodes(String codes) {
         Set<Integer> excludedCodes = new HashSet<>();
-        try {
-            for (String s : exclude_status_code.split(",")) {
-                try {
-                    excludedCodes.add(Integer.parseInt(s.trim()));
-                } catch (NumberFormatException e) {
-                }
+        if (codes == null || codes.isBlank()) {
+            return excludedCodes;
+        }
+        for (String s : codes.split(",")) {
+            try {
+                excludedCodes.add(Integer.parseInt(s.trim()));
+            } catch (NumberFormatException e) {
             }
-        } catch (Exception e) {
-            return false;
         }
-
-        return excludedCodes.contains(statusCode);
+        return excludedCodes;
     }
     
     /**
      * Tính toán và cập nhật các nhãn thống kê.
      */
     private void updateStats() {
-        int total = tableModel.getRowCount();
-        int scanned = 0, rejected = 0, bypass = 0;
-        for (int i = 0; i < total; i++) {
-            if (Boolean.TRUE.equals(tableModel.getValueAt(i, 4))) scanned++;
-            if (Boolean.TRUE.equals(tableModel.getValueAt(i, 5))) rejected++;
-            if (Boolean.TRUE.equals(tableModel.getValueAt(i, 6))) bypass++;
-        }
+        // Các bộ đếm được duy trì trong chỉ mục trạng thái, không cần duyệt dữ liệu.
+        EndpointStatusCache statusCache = activeProject.statusCache;
+        int total = statusCache.size();
+        int scanned = statusCache.count(EndpointStatusCache.SCANNED);
+        int rejected = statusCache.count(EndpointStatusCache.REJECTED);
+        int bypass = statusCache.count(EndpointStatusCache.BYPASSED);
         totalLbl.setText("Total: " + total);
         scannedLbl.setText("Scanned: " + scanned);
         rejectedLbl.setText("Rejected: " + rejected);
         bypassLbl.setText("Bypass: " + bypass);
         int unverified = total - scanned - rejected - bypass;
         unverifiedLbl.setText("Unverified: " + unverified);
+        archivedLbl.setText("Archived: " + activeProject.databaseManager.archivedCount());
+        updatePipelineStats();
+    }
+
+    /**
+     * Cập nhật các nhãn hiển thị bộ đếm của pipeline: hit/miss của bộ lọc trùng lặp, độ trễ trên luồng của Burp,
+     * độ sâu hàng đợi và số sự kiện bị loại bỏ do quá tải.
+     */
+    private void updatePipelineStats() {
+        dedupLbl.setText("Dedup hit/miss: " + fingerprintCache.hits() + "/" + fingerprintCache.misses());
+        latencyLbl.setText("Proxy latency p99/max: " + trafficPipeline.p99HandlerMicros() + "/" + trafficPipeline.maxHandlerMicros() + " µs");
+        queueLbl.setText("Queue: " + trafficPipeline.pendingCount() + "/" + trafficPipeline.capacity());
+        queueLbl.setToolTipText("Scanner events waiting for room: " + trafficPipeline.scannerBacklogCount());
+        shedLbl.setText("Shed events: " + trafficPipeline.shedTotal());
+        shedLbl.setToolTipText("Duplicates: " + trafficPipeline.shedDuplicates()
+                + ", sampled: " + trafficPipeline.shedSampled()
+                + ", queue full: " + trafficPipeline.shedOverflow());
+        if (metricsArea.isShowing()) {
+            metricsArea.setText(metrics.report());
+        }
+    }
+
+    /**
+     * Ghi một thay đổi trạng thái (một ô hoặc hàng loạt) trên luồng ghi trạng thái: một transaction trong CSDL,
+     * sau đó đồng bộ cache trạng thái và dấu vân tay của các dòng đã đổi và tải lại các bảng một lần.
+     *
+     * @param description Mô tả thao tác để ghi log, null với thao tác trên một ô.
+     */
+    private void applyStatusChange(ProjectRegistry.Project project, String description, StatusUpdate update) {
+        statusWriter.execute(() -> {
+            long start = System.nanoTime();
+            project.awaitReady();
+            try {
+                int updated = update.apply(project.databaseManager, (method, host, path, flags) -> {
+                    project.statusCache.put(method, host, path, flags);
+                    invalidateFingerprints(project, method, host, path);
+                });
+                if (description != null) {
+                    api.logging().logToOutput(description + ": " + updated + " APIs updated.");
+                }
+            } catch (SQLException e) {
+                api.logging().logToError("Failed to update API status: " + e.getMessage(), e);
+            } finally {
+                // Tải lại cả khi thất bại để bỏ giá trị đã hiển thị trước trên bảng.
+                requestReload();
+                metrics.record("ui.applyStatusChange", start);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    interface StatusUpdate {
+        int apply(ApiStore databaseManager, DatabaseManager.EndpointStatusConsumer changed) throws SQLException;
+    }
+
+    /**
+     * Metrics của extension; dùng bởi các công cụ đo tải chạy ngoài Burp.
+     */
+    Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Pipeline xử lý traffic; dùng bởi các công cụ đo tải để chờ hàng đợi rỗng và đọc bộ đếm load-shedding.
+     */
+    TrafficPipeline trafficPipeline() {
+        return trafficPipeline;
     }
 
     /**
@@ -848,6 +1659,20 @@ public class RecheckScanApiExtension implements BurpExtension, ExtensionUnloadin
      */
     @Override
     public void extensionUnloaded() {
-        databaseManager.close();
+        // Dừng việc làm mới giao diện trước, để timer không còn truy vấn CSDL sắp bị đóng.
+        if (statsTimer != null) {
+            statsTimer.stop();
+        }
+        // Chờ các sự kiện đang xử lý ghi xong trước khi đóng kết nối.
+        trafficPipeline.shutdown();
+        archiver.shutdownNow();
+        statusWriter.shutdown();
+        try {
+            statusWriter.awaitTermination(10, TimeUnit.SECONDS);
+            archiver.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        projects.close();
     }
 }
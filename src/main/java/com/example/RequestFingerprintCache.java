@@ -0,0 +1,161 @@
+package com.example;
+
+import burp.api.montoya.core.ToolType;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ lọc trùng lặp đặt trước CSDL cho các request lặp lại.
+ * <p>
+ * Mỗi sự kiện được rút gọn thành một khóa 64-bit ({@link Fnv64}) từ (project, tool, method, host, path, tên tham số
+ * đã sắp xếp). Khóa được giữ trong một {@link StripedLruCache}, nhờ đó các sự kiện đã biết và không thay đổi
+ * có thể bỏ qua toàn bộ thao tác I/O. Project là một phần của khóa nên đổi project không cần xóa cache.
+ * <p>
+ * Mỗi endpoint (project, method, host, path) có một "generation": thay đổi trong CSDL làm kết quả xử lý của một
+ * endpoint khác đi (param mới, trạng thái mới, lưu trữ) phải gọi {@link #invalidate(long)} cho endpoint đó, chỉ các
+ * khóa của endpoint đó mất hiệu lực. Generation được chia thành {@link #STRIPES} dải theo hash của endpoint; hai
+ * endpoint chung dải chỉ làm nhau mất hiệu lực thừa, không bao giờ thiếu. {@link #invalidateAll()} chỉ dành cho thay
+ * đổi không biết trước endpoint nào bị ảnh hưởng (rollback).
+ * <p>
+ * Một khóa cũng hết hạn sau {@code maxAgeMillis}, để một API còn được dùng vẫn chạm tới CSDL (cập nhật last_seen)
+ * định kỳ dù các request của nó đều trùng lặp.
+ */
+class RequestFingerprintCache {
+    static final int STRIPES = 4096;
+    private static final int SEGMENTS = 16;
+
+    private final StripedLruCache<Entry> entries;
+    private final long maxAgeMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLongArray endpointGenerations = new AtomicLongArray(STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    RequestFingerprintCache(int capacity, long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.entries = new StripedLruCache<>(capacity, SEGMENTS);
+    }
+
+    /**
+     * Generation của một khóa tại thời điểm được ghi nhớ, và thời điểm đó.
+     */
+    private static final class Entry {
+        final long generation;
+        final long rememberedAt;
+
+        Entry(long generation, long rememberedAt) {
+            this.generation = generation;
+            this.rememberedAt = rememberedAt;
+        }
+    }
+
+    /**
+     * Tính khóa 64-bit cho một sự kiện. Tên tham số được sắp xếp để thứ tự trong request không ảnh hưởng tới khóa.
+     *
+     * @param project Hash của project nhận sự kiện.
+     */
+    static long fingerprint(int project, ToolType toolType, String method, String host, String path, Set<String> paramNames) {
+        long hash = Fnv64.OFFSET_BASIS;
+        hash = Fnv64.mix(hash, project);
+        hash = Fnv64.mix(hash, toolType.ordinal());
+        hash = Fnv64.mix(hash, method);
+        hash = Fnv64.mix(hash, host);
+        hash = Fnv64.mix(hash, path);
+        String[] sorted = paramNames.toArray(new String[0]);
+        Arrays.sort(sorted);
+        for (String name : sorted) {
+            hash = Fnv64.mix(hash, name);
+        }
+        return hash;
+    }
+
+    /**
+     * Tính khóa 64-bit của một endpoint, dùng để chọn generation của nó.
+     *
+     * @param project Hash của project chứa endpoint.
+     */
+    static long endpoint(int project, String method, String host, String path) {
+        long hash = Fnv64.OFFSET_BASIS;
+        hash = Fnv64.mix(hash, project);
+        hash = Fnv64.mix(hash, method);
+        hash = Fnv64.mix(hash, host);
+        return Fnv64.mix(hash, path);
+    }
+
+    private static int stripe(long endpoint) {
+        return (int) (endpoint ^ (endpoint >>> 32)) & (STRIPES - 1);
+    }
+
+    /**
+     * Kiểm tra một khóa và cập nhật bộ đếm hit/miss. Khóa đã mất hiệu lực hoặc hết hạn bị bỏ khỏi cache.
+     *
+     * @return true nếu sự kiện đã được xử lý trước đó và endpoint chưa thay đổi kể từ lúc đó.
+     */
+    boolean contains(long fingerprint, long endpoint) {
+        Entry entry = entries.get(fingerprint);
+        boolean known = entry != null && entry.generation == generation(endpoint)
+                && System.currentTimeMillis() - entry.rememberedAt < maxAgeMillis;
+        if (known) {
+            hits.increment();
+        } else {
+            if (entry != null) {
+                entries.remove(fingerprint, entry);
+            }
+            misses.increment();
+        }
+        return known;
+    }
+
+    /**
+     * Ghi nhớ một sự kiện đã xử lý xong. Bỏ qua nếu endpoint đã mất hiệu lực kể từ lúc sự kiện bắt đầu; nếu nó mất
+     * hiệu lực ngay sau lần kiểm tra, khóa được lưu với generation cũ và {@link #contains} coi nó là chưa biết.
+     *
+     * @param fingerprint     Khóa của sự kiện.
+     * @param endpoint        Khóa endpoint của sự kiện.
+     * @param startGeneration Giá trị {@link #generation(long)} tại thời điểm sự kiện được nhận.
+     */
+    void remember(long fingerprint, long endpoint, long startGeneration) {
+        if (generation(endpoint) == startGeneration) {
+            entries.put(fingerprint, new Entry(startGeneration, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Làm mất hiệu lực các khóa của một endpoint. Không cần khóa: khóa cũ bị bỏ khi được tra lần sau.
+     */
+    void invalidate(long endpoint) {
+        endpointGenerations.incrementAndGet(stripe(endpoint));
+    }
+
+    /**
+     * Làm mất hiệu lực mọi khóa. Khóa được ghi nhớ đồng thời với lần xóa mang generation cũ nên không bao giờ khớp.
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Generation hiện tại của một endpoint. Cả hai thành phần chỉ tăng, nên tổng chỉ bằng giá trị cũ khi không
+     * thành phần nào thay đổi.
+     */
+    long generation(long endpoint) {
+        return generation.get() + endpointGenerations.get(stripe(endpoint));
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Các bước nâng cấp lược đồ CSDL, được áp dụng theo thứ tự phiên bản.
+ * <p>
+ * Các phiên bản đã áp dụng được lưu trong bảng schema_version, mỗi bước một dòng. Khi mở CSDL, các bước có phiên bản
+ * lớn hơn phiên bản hiện tại được áp dụng lần lượt; mỗi bước cùng dòng ghi nhận của nó nằm trong một transaction
+ * riêng, nên nếu một bước thất bại, CSDL vẫn ở phiên bản của bước trước đó. CSDL tạo trước khi có schema_version
+ * được coi là phiên bản 0: bước 1 chỉ gồm các lệnh CREATE ... IF NOT EXISTS nên áp dụng được cho cả CSDL mới và cũ.
+ * <p>
+ * Bước mới được thêm vào cuối {@link #MIGRATIONS}; không sửa các bước đã phát hành.
+ */
+final class SchemaMigrations {
+    /**
+     * Lược đồ gốc: bảng api_log và lịch sử api_event. Bảng từ điển do {@link StringDictionary} tự tạo.
+     * Method, host và tên tham số được lưu bằng ID trong các bảng dict_method, dict_host, dict_param.
+     * Ràng buộc UNIQUE trên (host_id, path, method_id) là cốt lõi để phân biệt các API.
+     */
+    private static final String[] BASELINE = {
+            """
+            CREATE TABLE IF NOT EXISTS api_log (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,      -- Khóa chính tự tăng, định danh duy nhất cho mỗi dòng.
+                method_id INTEGER NOT NULL,                -- ID của phương thức HTTP (GET, POST, etc.) trong dict_method.
+                host_id INTEGER NOT NULL,                  -- ID của host (e.g., api.example.com) trong dict_host.
+                path TEXT NOT NULL,                        -- Đường dẫn của API (e.g., /v1/users)
+                unscanned_params TEXT,                     -- ID (dict_param) các tham số CHƯA được quét, tăng dần, cách nhau bởi dấu '|'.
+                scanned_params TEXT,                       -- ID (dict_param) các tham số ĐÃ được quét, tăng dần, cách nhau bởi dấu '|'.
+                is_scanned BOOLEAN DEFAULT 0,              -- Trạng thái: đã quét hết các param (1) hay chưa (0).
+                is_rejected BOOLEAN DEFAULT 0,             -- Trạng thái: người dùng đã từ chối quét (1) hay chưa (0).
+                is_bypassed BOOLEAN DEFAULT 0,             -- Trạng thái: được tự động bỏ qua (1) hay chưa (0).
+                is_from_repeater BOOLEAN DEFAULT 0,        -- Trạng thái: đã được gửi từ Repeater (1) hay chưa (0).
+                last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP, -- Dấu thời gian lần cuối thấy API này.
+                UNIQUE(host_id, path, method_id)           -- Ràng buộc duy nhất: không thể có hai dòng trùng cả host, path và method.
+            );
+            """,
+            // Lịch sử thay đổi của từng API: khi nào được phát hiện, quét, từ chối, bỏ qua...
+            """
+            CREATE TABLE IF NOT EXISTS api_event (
+                id INTEGER PRIMARY KEY,                    -- Thứ tự ghi nhận.
+                api_id INTEGER NOT NULL,                   -- ID của dòng trong api_log.
+                type INTEGER NOT NULL,                     -- Loại sự kiện, xem CoverageEvent.
+                param_ids TEXT,                            -- ID (dict_param) các tham số mới phát hiện hoặc vừa được quét, cách nhau bởi dấu '|'.
+                created_at INTEGER NOT NULL                -- Thời điểm xảy ra (epoch millis).
+            );
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_api_event_api ON api_event (api_id)"
+    };
+
+    private static final Migration[] MIGRATIONS = {
+            new Migration(1, "Create api_log and api_event", BASELINE),
+            new Migration(2, "Index the unverified working set and last_seen",
+                    // Chỉ mục một phần, chỉ chứa các API chưa xác minh (thường là phần nhỏ của một project lâu năm):
+                    // đếm và phân trang tab Unscanned theo id, và tìm API không còn tham số chưa quét cho auto-bypass,
+                    // đều đọc riêng chỉ mục mà không duyệt bảng.
+                    "CREATE INDEX IF NOT EXISTS idx_api_log_unverified ON api_log (id, unscanned_params)"
+                            + " WHERE is_scanned = 0 AND is_rejected = 0 AND is_bypassed = 0",
+                    // Tìm các API lâu không còn xuất hiện trong traffic.
+                    "CREATE INDEX IF NOT EXISTS idx_api_log_last_seen ON api_log (last_seen)",
+                    // Thống kê cho bộ lập kế hoạch truy vấn, để nó biết khi nào chỉ mục một phần đáng dùng.
+                    "ANALYZE"),
+            new Migration(3, "Create api_log_archive",
+                    // Kho lạnh: các API lâu không xuất hiện được chuyển sang đây nguyên dòng (giữ id), nên các truy vấn,
+                    // giao diện và cache chỉ phải xử lý các API còn hoạt động. Dòng được chuyển lại api_log khi API xuất hiện lại.
+                    """
+                    CREATE TABLE IF NOT EXISTS api_log_archive (
+                        id INTEGER PRIMARY KEY,                    -- ID của dòng khi còn trong api_log.
+                        method_id INTEGER NOT NULL,
+                        host_id INTEGER NOT NULL,
+                        path TEXT NOT NULL,
+                        unscanned_params TEXT,
+                        scanned_params TEXT,
+                        is_scanned BOOLEAN DEFAULT 0,
+                        is_rejected BOOLEAN DEFAULT 0,
+                        is_bypassed BOOLEAN DEFAULT 0,
+                        is_from_repeater BOOLEAN DEFAULT 0,
+                        last_seen TIMESTAMP,
+                        archived_at INTEGER NOT NULL,              -- Thời điểm chuyển vào kho lạnh (epoch millis).
+                        UNIQUE(host_id, path, method_id)
+                    );
+                    """)
+    };
+
+    /**
+     * Phiên bản lược đồ mà extension này tạo ra.
+     */
+    static final int LATEST_VERSION = MIGRATIONS[MIGRATIONS.length - 1].version;
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Tạo các bảng của lược đồ gốc nếu chưa có, ngoài cơ chế phiên bản. Dùng khi chuyển CSDL của phiên bản rất cũ
+     * (trước khi mã hóa từ điển), trong transaction của bước chuyển đó.
+     */
+    static void createBaseline(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : BASELINE) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Đưa CSDL lên {@link #LATEST_VERSION}. Một CSDL có phiên bản mới hơn (do phiên bản extension mới hơn tạo ra)
+     * được giữ nguyên.
+     *
+     * @return Phiên bản của CSDL trước khi nâng cấp.
+     * @throws SQLException Nếu một bước thất bại; bước đó đã được rollback.
+     */
+    static int migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER PRIMARY KEY, description TEXT NOT NULL, applied_at INTEGER NOT NULL)");
+        }
+        int previous = currentVersion(connection);
+        boolean originalAutoCommit = connection.getAutoCommit();
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= previous) {
+                continue;
+            }
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement();
+                 PreparedStatement record = connection.prepareStatement("INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                for (String sql : migration.statements) {
+                    stmt.execute(sql);
+                }
+                record.setInt(1, migration.version);
+                record.setString(2, migration.description);
+                record.setLong(3, System.currentTimeMillis());
+                record.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw new SQLException("Schema migration " + migration.version + " (" + migration.description + ") failed: " + e.getMessage(), e);
+            } finally {
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        }
+        return previous;
+    }
+
+    private static int currentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
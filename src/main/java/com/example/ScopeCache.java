@@ -0,0 +1,80 @@
+package com.example;
+
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache các quyết định scope của Burp, được tra trên luồng HTTP của Burp ({@code handleHttpResponseReceived}) trước
+ * khi sự kiện vào pipeline; nhiều luồng của Burp tra cùng lúc.
+ * <p>
+ * {@code Scope.isInScope} nhận URL dạng chuỗi, nên mỗi lần gọi phải dựng URL từ request rồi đi qua bộ máy scope của
+ * Burp. Quyết định được ghi nhớ theo khóa 64-bit ({@link Fnv64}) từ (giao thức, host, port, path không kèm query),
+ * dựng trực tiếp từ các trường của request: traffic lặp lại tới cùng endpoint chỉ tốn một lần tra bảng băm, không
+ * dựng chuỗi nào. Các khóa nằm trong một {@link StripedLruCache}, nên các luồng của Burp không chờ nhau trên một khóa
+ * chung.
+ * <p>
+ * Path được dùng nguyên vẹn thay vì một tiền tố, vì quy tắc scope có thể include/exclude ở bất kỳ độ sâu nào; query
+ * string không nằm trong khóa, nên quy tắc phân biệt theo query (hiếm gặp) áp dụng theo request đầu tiên của path.
+ * Cache phải được xóa khi scope thay đổi ({@link #invalidateAll()}, gọi từ {@code ScopeChangeHandler}); mỗi quyết định
+ * mang "generation" lúc nó được tính, nên quyết định tính trước lúc thay đổi không bao giờ được dùng lại.
+ */
+final class ScopeCache {
+    private static final int SEGMENTS = 16;
+
+    private final StripedLruCache<Decision> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    ScopeCache(int capacity) {
+        this.entries = new StripedLruCache<>(capacity, SEGMENTS);
+    }
+
+    /**
+     * Một quyết định scope và generation của cache lúc nó được tính.
+     */
+    private static final class Decision {
+        final long generation;
+        final boolean inScope;
+
+        Decision(long generation, boolean inScope) {
+            this.generation = generation;
+            this.inScope = inScope;
+        }
+    }
+
+    /**
+     * @param path  Path của request, không kèm query.
+     * @param scope Quyết định của Burp cho một URL, chỉ được gọi khi khóa chưa có trong cache.
+     * @return true nếu request nằm trong scope.
+     */
+    boolean isInScope(HttpRequest request, String path, Predicate<String> scope) {
+        HttpService service = request.httpService();
+        long key = key(service.secure(), service.host(), service.port(), path);
+        long startGeneration = generation.get();
+        Decision cached = entries.get(key);
+        if (cached != null && cached.generation == startGeneration) {
+            return cached.inScope;
+        }
+        boolean inScope = scope.test(request.url());
+        entries.put(key, new Decision(startGeneration, inScope));
+        return inScope;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static long key(boolean secure, String host, int port, String path) {
+        long hash = Fnv64.mix(Fnv64.OFFSET_BASIS, secure ? 1 : 0);
+        hash = Fnv64.mix(hash, port);
+        hash = Fnv64.mix(hash, host);
+        return Fnv64.mix(hash, path);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example;
+
+import java.util.Objects;
+
+/**
+ * Khác biệt giữa hai bộ cài đặt của tab Settings, để nút Apply chỉ thực hiện các bước mà thay đổi thực sự cần:
+ * biên dịch lại bộ lọc, cấu hình lại pipeline, chuyển project, hay chuẩn hóa lại dữ liệu đã lưu. Các cài đặt không
+ * đổi không làm gián đoạn traffic, không làm mất cache và không tải lại bảng.
+ */
+final class SettingsDiff {
+    final boolean projectChanged;
+    final boolean excludedExtensionsChanged;
+    final boolean excludedStatusCodesChanged;
+    final boolean pathExclusionsChanged;
+    final boolean contentTypesChanged;
+    final boolean rulesChanged;
+    final boolean pipelineChanged;
+    final boolean retentionChanged;
+    final boolean storageChanged;
+    /**
+     * true nếu auto-bypass vừa được bật; tắt auto-bypass không thay đổi dữ liệu đã lưu.
+     */
+    final boolean autoBypassEnabled;
+
+    private SettingsDiff(Values before, Values after) {
+        projectChanged = !before.projectPath.equals(after.projectPath);
+        excludedExtensionsChanged = !before.excludedExtensions.equals(after.excludedExtensions);
+        excludedStatusCodesChanged = !before.excludedStatusCodes.equals(after.excludedStatusCodes);
+        pathExclusionsChanged = !before.pathExclusionRules.equals(after.pathExclusionRules);
+        contentTypesChanged = !before.skipContentTypes.equals(after.skipContentTypes)
+                || !before.bypassContentTypes.equals(after.bypassContentTypes);
+        rulesChanged = !before.pathParameterRules.equals(after.pathParameterRules);
+        pipelineChanged = before.ingestQueueCapacity != after.ingestQueueCapacity || before.shedSampleRate != after.shedSampleRate;
+        retentionChanged = before.retentionDays != after.retentionDays;
+        storageChanged = before.storageShards != after.storageShards;
+        autoBypassEnabled = !before.autoBypassNoParam && after.autoBypassNoParam;
+    }
+
+    static SettingsDiff between(Values before, Values after) {
+        return new SettingsDiff(before, after);
+    }
+
+    /**
+     * @return true nếu không có cài đặt nào cần áp dụng hay lưu lại.
+     */
+    boolean isEmpty() {
+        return !projectChanged && !excludedExtensionsChanged && !excludedStatusCodesChanged && !pathExclusionsChanged && !contentTypesChanged && !rulesChanged
+                && !pipelineChanged && !retentionChanged && !storageChanged && !autoBypassEnabled;
+    }
+
+    /**
+     * Ảnh chụp các cài đặt được áp dụng bằng nút Apply. Highlight và note được áp dụng ngay khi tick nên không nằm ở đây.
+     */
+    static final class Values {
+        final String projectPath;
+        final String excludedExtensions;
+        final String excludedStatusCodes;
+        final String pathExclusionRules;
+        final String skipContentTypes;
+        final String bypassContentTypes;
+        final String pathParameterRules;
+        final boolean autoBypassNoParam;
+        final int ingestQueueCapacity;
+        final int shedSampleRate;
+        final int retentionDays;
+        final int storageShards;
+
+        /**
+         * @param projectPath Đường dẫn tệp CSDL đã chuẩn hóa bằng {@link ProjectRegistry#key(String)}.
+         */
+        Values(String projectPath, String excludedExtensions, String excludedStatusCodes, String pathExclusionRules,
+               String skipContentTypes, String bypassContentTypes, String pathParameterRules, boolean autoBypassNoParam,
+               int ingestQueueCapacity, int shedSampleRate, int retentionDays, int storageShards) {
+            this.projectPath = projectPath;
+            this.excludedExtensions = Objects.requireNonNullElse(excludedExtensions, "");
+            this.excludedStatusCodes = Objects.requireNonNullElse(excludedStatusCodes, "");
+            this.pathExclusionRules = Objects.requireNonNullElse(pathExclusionRules, "");
+            this.skipContentTypes = Objects.requireNonNullElse(skipContentTypes, "");
+            this.bypassContentTypes = Objects.requireNonNullElse(bypassContentTypes, "");
+            this.pathParameterRules = Objects.requireNonNullElse(pathParameterRules, "");
+            this.autoBypassNoParam = autoBypassNoParam;
+            this.ingestQueueCapacity = ingestQueueCapacity;
+            this.shedSampleRate = shedSampleRate;
+            this.retentionDays = retentionDays;
+            this.storageShards = storageShards;
+        }
+    }
+}
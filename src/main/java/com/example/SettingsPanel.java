@@ -23,8 +23,28 @@ public class SettingsPanel {
      * @param noteCheckBox Checkbox để bật/tắt thêm note.
      * @param autoBypassCheckBox Checkbox để bật/tắt tự động bypass.
      * @param applyButton Nút để áp dụng và lưu cài đặt.
-     * @param totalLbl, scannedLbl, etc. Các nhãn để hiển thị thống kê.
-     * @param excludeStatusCodesField Trường nhập các status code cần loại trừ.
+     * @param totalLbl, scannedLbl, etc. Các nhãn để hiển thị thống kê.
+     * @param archivedLbl Nhãn hiển thị số API đang nằm trong kho lạnh.
+     * @param dedupLbl Nhãn hiển thị bộ đếm hit/miss của bộ lọc request trùng lặp.
+     * @param latencyLbl Nhãn hiển thị độ trễ mà extension thêm vào luồng HTTP của Burp.
+     * @param queueLbl Nhãn hiển thị độ sâu hiện tại của hàng đợi xử lý traffic.
+     * @param shedLbl Nhãn hiển thị số sự kiện bị loại bỏ do quá tải.
+     * @param excludeStatusCodesField Trường nhập các status code cần loại trừ.
+     * @param pathExclusionRulesArea Vùng nhập các rule loại trừ/giữ lại traffic theo path và host.
+     * @param skipContentTypesField Trường nhập các loại response (theo Content-Type) bị bỏ qua.
+     * @param bypassContentTypesField Trường nhập các loại response (theo Content-Type) được tự động bypass.
+     * @param pathParameterRulesArea Vùng nhập các rule chuẩn hóa path parameter.
+     * @param queueCapacityField Trường nhập giới hạn số sự kiện chờ xử lý.
+     * @param sampleRateField Trường nhập tỷ lệ lấy mẫu Proxy/Repeater khi quá tải (giữ 1 trên N).
+     * @param retentionDaysField Trường nhập số ngày không xuất hiện trước khi một API được chuyển sang kho lạnh.
+     * @param storageShardsField Trường nhập số tệp CSDL mà dữ liệu của project được chia vào theo host.
+     * @param metricsArea Vùng hiển thị báo cáo độ trễ và thông lượng của từng giai đoạn.
+     * @param dumpMetricsButton Nút ghi báo cáo metrics ra Output của extension.
+     * @param resetMetricsButton Nút xóa các số liệu đã thu thập.
+     * @param projectCombo Danh sách các project dùng gần đây.
+     * @param switchProjectButton Nút chuyển sang project đang chọn trong danh sách.
+     * @param closeProjectButton Nút đóng project đang chọn và xóa nó khỏi danh sách.
+     * @param projectStatusLbl Nhãn hiển thị project đang hoạt động và số project đang mở.
      * @return Một JPanel chứa toàn bộ giao diện của tab Settings.
      */
     public static JPanel create(
@@ -40,8 +60,27 @@ public class SettingsPanel {
             JLabel     rejectedLbl,
             JLabel     bypassLbl,
             JLabel     unverifiedLbl,
+            JLabel     archivedLbl,
+            JLabel     dedupLbl,
+            JLabel     latencyLbl,
+            JLabel     queueLbl,
+            JLabel     shedLbl,
             JTextField excludeStatusCodesField,
-            JTextArea  pathParameterRulesArea) {
+            JTextArea  pathExclusionRulesArea,
+            JTextField skipContentTypesField,
+            JTextField bypassContentTypesField,
+            JTextArea  pathParameterRulesArea,
+            JTextField queueCapacityField,
+            JTextField sampleRateField,
+            JTextField retentionDaysField,
+            JTextField storageShardsField,
+            JTextArea  metricsArea,
+            JButton    dumpMetricsButton,
+            JButton    resetMetricsButton,
+            JComboBox<String> projectCombo,
+            JButton    switchProjectButton,
+            JButton    closeProjectButton,
+            JLabel     projectStatusLbl) {
 
         /* ========= PANEL GỐC (ROOT) ========= */
         JPanel settingsPanel = new JPanel();
@@ -70,6 +109,23 @@ public class SettingsPanel {
         projectSettingsPanel.add(outputPathPanel);
         projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
 
+        // Panel cho danh sách project dùng gần đây và các nút chuyển/đóng project
+        JPanel recentProjectsPanel = new JPanel(new BorderLayout(5, 0));
+        recentProjectsPanel.add(new JLabel("Recent Projects: "), BorderLayout.WEST);
+        recentProjectsPanel.add(projectCombo, BorderLayout.CENTER);
+        JPanel projectButtonsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        projectButtonsPanel.add(switchProjectButton);
+        projectButtonsPanel.add(closeProjectButton);
+        recentProjectsPanel.add(projectButtonsPanel, BorderLayout.EAST);
+        recentProjectsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, projectCombo.getPreferredSize().height));
+        recentProjectsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(recentProjectsPanel);
+        projectStatusLbl.setFont(projectStatusLbl.getFont().deriveFont(Font.PLAIN, 11f));
+        projectStatusLbl.setForeground(UIManager.getColor("Label.disabledForeground"));
+        projectStatusLbl.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(projectStatusLbl);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
         // Panel cho Exclude Extensions
         JPanel excludeExtensionPanel = new JPanel(new BorderLayout(5, 0));
         excludeExtensionPanel.add(new JLabel("Exclude Extensions (comma separated): "), BorderLayout.WEST);
@@ -92,6 +148,46 @@ public class SettingsPanel {
         projectSettingsPanel.add(excludeStatusCodePanel);
         projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
 
+        // Panel cho rule loại trừ theo path
+        JPanel pathExclusionPanel = new JPanel(new BorderLayout(5, 0));
+        pathExclusionPanel.add(new JLabel("Exclude Paths: "), BorderLayout.WEST);
+        pathExclusionRulesArea.setRows(3);
+        pathExclusionRulesArea.setToolTipText("One rule per line; the last matching rule wins.");
+        JScrollPane pathExclusionScroll = new JScrollPane(pathExclusionRulesArea);
+        JLabel pathExclusionHelpLabel = new JLabel("One rule per line. Examples: /health, /static/**, /api/*/ping, /assets/*.map, *.example.com/_next/**, !/static/api/**");
+        pathExclusionHelpLabel.setFont(pathExclusionHelpLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        pathExclusionHelpLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+
+        JPanel pathExclusionInputPanel = new JPanel(new BorderLayout(0, 3));
+        pathExclusionInputPanel.add(pathExclusionScroll, BorderLayout.CENTER);
+        pathExclusionInputPanel.add(pathExclusionHelpLabel, BorderLayout.SOUTH);
+        pathExclusionPanel.add(pathExclusionInputPanel, BorderLayout.CENTER);
+        pathExclusionPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, pathExclusionPanel.getPreferredSize().height));
+        pathExclusionPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(pathExclusionPanel);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
+        // Panel cho các loại response không phải API
+        JPanel skipContentTypesPanel = new JPanel(new BorderLayout(5, 0));
+        skipContentTypesPanel.add(new JLabel("Skip Response Types (comma separated): "), BorderLayout.WEST);
+        skipContentTypesPanel.add(skipContentTypesField, BorderLayout.CENTER);
+        skipContentTypesPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, skipContentTypesField.getPreferredSize().height));
+        skipContentTypesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(skipContentTypesPanel);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        JPanel bypassContentTypesPanel = new JPanel(new BorderLayout(5, 0));
+        bypassContentTypesPanel.add(new JLabel("Auto-bypass Response Types (comma separated): "), BorderLayout.WEST);
+        bypassContentTypesPanel.add(bypassContentTypesField, BorderLayout.CENTER);
+        bypassContentTypesPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, bypassContentTypesField.getPreferredSize().height));
+        bypassContentTypesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(bypassContentTypesPanel);
+        JLabel contentTypesHelpLabel = new JLabel("Matched on the response Content-Type header. Groups: html, image, font, css, script, media; or MIME types such as application/pdf, image/*.");
+        contentTypesHelpLabel.setFont(contentTypesHelpLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        contentTypesHelpLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        contentTypesHelpLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(contentTypesHelpLabel);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
         // Panel cho rule nhận diện path parameter động
         JPanel pathParameterRulesPanel = new JPanel(new BorderLayout(5, 0));
         pathParameterRulesPanel.add(new JLabel("URL Path Parameter Rules: "), BorderLayout.WEST);
@@ -110,9 +206,68 @@ public class SettingsPanel {
         pathParameterRulesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
         projectSettingsPanel.add(pathParameterRulesPanel);
         projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
+        // Panel cho thời hạn lưu trữ các API lâu không xuất hiện
+        JPanel retentionPanel = new JPanel(new BorderLayout(5, 0));
+        retentionPanel.add(new JLabel("Archive APIs not seen for N days (0 = never), N = "), BorderLayout.WEST);
+        retentionPanel.add(retentionDaysField, BorderLayout.CENTER);
+        retentionPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, retentionDaysField.getPreferredSize().height));
+        retentionPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(retentionPanel);
+        JLabel retentionHelpLabel = new JLabel("Archived APIs are hidden from the tables and statistics, and restored automatically when they appear in traffic again.");
+        retentionHelpLabel.setFont(retentionHelpLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        retentionHelpLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        retentionHelpLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(retentionHelpLabel);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
+        // Panel cho việc chia dữ liệu của project thành nhiều tệp CSDL theo host
+        JPanel storagePanel = new JPanel(new BorderLayout(5, 0));
+        storagePanel.add(new JLabel("Split storage by host into N database files (1 = single file, max " + ShardedDatabaseManager.MAX_SHARDS + "), N = "), BorderLayout.WEST);
+        storagePanel.add(storageShardsField, BorderLayout.CENTER);
+        storagePanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, storageShardsField.getPreferredSize().height));
+        storagePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(storagePanel);
+        JLabel storageHelpLabel = new JLabel("Each file has its own writer, so busy hosts do not slow down the others. Hosts stay in the file they were first stored in; N only applies to new hosts.");
+        storageHelpLabel.setFont(storageHelpLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        storageHelpLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        storageHelpLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        projectSettingsPanel.add(storageHelpLabel);
+        projectSettingsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
         
         centerPanel.add(projectSettingsPanel);
-        centerPanel.add(Box.createRigidArea(new Dimension(0, 10))); // Thêm khoảng trống giữa các nhóm
+        centerPanel.add(Box.createRigidArea(new Dimension(0, 10))); // Thêm khoảng trống giữa các nhóm
+
+        // --- Nhóm Load Shedding ---
+        JPanel loadSheddingPanel = new JPanel();
+        loadSheddingPanel.setLayout(new BoxLayout(loadSheddingPanel, BoxLayout.Y_AXIS));
+        loadSheddingPanel.setBorder(createTitledBorder("Load Shedding"));
+
+        // Panel cho giới hạn hàng đợi
+        JPanel queueCapacityPanel = new JPanel(new BorderLayout(5, 0));
+        queueCapacityPanel.add(new JLabel("Max Pending Events: "), BorderLayout.WEST);
+        queueCapacityPanel.add(queueCapacityField, BorderLayout.CENTER);
+        queueCapacityPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, queueCapacityField.getPreferredSize().height));
+        queueCapacityPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        loadSheddingPanel.add(queueCapacityPanel);
+        loadSheddingPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
+        // Panel cho tỷ lệ lấy mẫu khi quá tải
+        JPanel sampleRatePanel = new JPanel(new BorderLayout(5, 0));
+        sampleRatePanel.add(new JLabel("Keep 1 in N Proxy/Repeater events under load, N = "), BorderLayout.WEST);
+        sampleRatePanel.add(sampleRateField, BorderLayout.CENTER);
+        sampleRatePanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, sampleRateField.getPreferredSize().height));
+        sampleRatePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        loadSheddingPanel.add(sampleRatePanel);
+
+        JLabel loadSheddingHelpLabel = new JLabel("Duplicates are dropped first, then Proxy/Repeater events are sampled. Scanner events are never dropped: they wait in their own backlog and go first when room frees up.");
+        loadSheddingHelpLabel.setFont(loadSheddingHelpLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        loadSheddingHelpLabel.setForeground(UIManager.getColor("Label.disabledForeground"));
+        loadSheddingHelpLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        loadSheddingPanel.add(loadSheddingHelpLabel);
+
+        centerPanel.add(loadSheddingPanel);
+        centerPanel.add(Box.createRigidArea(new Dimension(0, 10)));
 
         // --- Nhóm Controls ---
         JPanel controlsPanel = new JPanel();
@@ -126,24 +281,39 @@ public class SettingsPanel {
         
         centerPanel.add(controlsPanel);
 
-        /* ========= PANEL PHÍA ĐÔNG (EAST) - Chứa thống kê ========= */
+        /* ========= PANEL PHÍA ĐÔNG (EAST) - Chứa thống kê và metrics ========= */
         JPanel eastPanel = new JPanel(new BorderLayout());
         
         JPanel statsPanel = new JPanel();
         statsPanel.setBorder(createTitledBorder("Statistics"));
         // GridLayout để các label thống kê được xếp đều nhau.
-        statsPanel.setLayout(new GridLayout(5, 1, 0, 10));
-        statsPanel.setPreferredSize(new Dimension(220, 200));
+        statsPanel.setLayout(new GridLayout(10, 1, 0, 10));
+        statsPanel.setPreferredSize(new Dimension(260, 400));
 
         // Thiết lập font và border cho các label thống kê.
         Font statFont = totalLbl.getFont().deriveFont(Font.PLAIN, 15f);
-        for (JLabel lbl : new JLabel[]{totalLbl, scannedLbl, rejectedLbl, bypassLbl, unverifiedLbl}) {
+        for (JLabel lbl : new JLabel[]{totalLbl, scannedLbl, rejectedLbl, bypassLbl, unverifiedLbl, archivedLbl, dedupLbl, latencyLbl, queueLbl, shedLbl}) {
             lbl.setFont(statFont);
             lbl.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
             statsPanel.add(lbl);
         }
         
-        eastPanel.add(statsPanel, BorderLayout.NORTH);
+        eastPanel.add(statsPanel, BorderLayout.NORTH);
+
+        // --- Nhóm Metrics: độ trễ/thông lượng của từng giai đoạn ---
+        JPanel metricsPanel = new JPanel(new BorderLayout(0, 5));
+        metricsPanel.setBorder(createTitledBorder("Metrics"));
+        metricsArea.setEditable(false);
+        metricsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        JScrollPane metricsScrollPane = new JScrollPane(metricsArea);
+        metricsScrollPane.setPreferredSize(new Dimension(260, 220));
+        metricsPanel.add(metricsScrollPane, BorderLayout.CENTER);
+        JPanel metricsButtonsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        metricsButtonsPanel.add(dumpMetricsButton);
+        metricsButtonsPanel.add(resetMetricsButton);
+        metricsPanel.add(metricsButtonsPanel, BorderLayout.SOUTH);
+
+        eastPanel.add(metricsPanel, BorderLayout.CENTER);
 
 
         /* ========= PANEL PHÍA NAM (SOUTH) - Chứa nút Apply ========= */
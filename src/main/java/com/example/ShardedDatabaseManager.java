@@ -0,0 +1,596 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lưu dữ liệu của một project vào nhiều tệp CSDL chia theo host, mỗi tệp là một {@link DatabaseManager} với kết nối,
+ * tệp WAL và khóa riêng, nên traffic của các host khác nhau được ghi song song và một host nhiều traffic không làm
+ * chậm các host khác. Nơi gọi chỉ thấy {@link ApiStore}: các thao tác ghi được chuyển tới tệp của host, các thao tác
+ * đọc của giao diện và xuất dữ liệu được gộp lại từ mọi tệp.
+ * <p>
+ * Tệp 0 là tệp CSDL của project; tệp thứ i là {@code <project>.shard<i>.db}, được mở khi có host đầu tiên được xếp vào
+ * nó hoặc khi mở project nếu đã tồn tại. Một host luôn ở lại tệp nơi nó được ghi lần đầu (tra theo từ điển host của
+ * từng tệp); host mới được xếp theo hash vào một trong {@link #setShardCount(int) N} tệp đầu tiên. Vì vậy thay đổi N
+ * chỉ ảnh hưởng đến host mới, không cần chuyển dữ liệu; với N = 1 và không có tệp phụ, mọi thứ nằm trong một tệp như trước.
+ * <p>
+ * ID của dòng api_log trong tệp thứ i bắt đầu từ {@code i << SHARD_ID_BITS}, nên ID là duy nhất trong cả project:
+ * giao diện, lịch sử và tệp xuất dùng ID như khi chỉ có một tệp, và tệp chứa một ID được suy ra từ chính ID đó.
+ */
+final class ShardedDatabaseManager implements ApiStore {
+    /**
+     * Số tệp tối đa của một project.
+     */
+    static final int MAX_SHARDS = 16;
+    /**
+     * Số bit thấp của ID dành cho mỗi tệp (khoảng 134 triệu dòng).
+     */
+    private static final int SHARD_ID_BITS = 27;
+    /**
+     * Số lượt xem ({@link ApiQuery}) được ghi nhớ vị trí trang.
+     */
+    private static final int MAX_CACHED_QUERIES = 4;
+    /**
+     * Số vị trí trang tối đa được ghi nhớ cho một lượt xem.
+     */
+    private static final int MAX_CACHED_POSITIONS = 64;
+
+    private final MontoyaApi api;
+    private final Metrics metrics;
+    /**
+     * Các tệp đã mở theo số thứ tự, null nếu chưa mở. Việc mở tệp được tuần tự hóa bởi khóa của chính mảng.
+     */
+    private final AtomicReferenceArray<DatabaseManager> shards = new AtomicReferenceArray<>(MAX_SHARDS);
+    /**
+     * Bản sao chỉ đọc của các tệp đã mở, theo số thứ tự tăng dần; được thay mới mỗi khi mở thêm một tệp.
+     */
+    private volatile List<DatabaseManager> openShards = List.of();
+    /**
+     * Số thứ tự tệp của các host đã biết.
+     */
+    private final Map<String, Integer> routes = new ConcurrentHashMap<>();
+    private volatile int shardCount;
+    /**
+     * Hàm được gọi khi một transaction của bất kỳ tệp nào bị rollback; được đặt cho cả các tệp mở sau này.
+     */
+    private Runnable rollbackListener = () -> {
+    };
+    private String dbPath;
+    /**
+     * Vị trí trang của các lượt xem gần đây: với mỗi offset trong kết quả gộp, khóa của dòng cuối cùng đã lấy từ mỗi
+     * tệp trước offset đó (theo số thứ tự tệp, null nếu chưa lấy dòng nào của tệp). Trang tiếp theo được đọc bằng
+     * keyset từ vị trí gần nhất đã biết thay vì đọc lại từ đầu mỗi tệp. Khóa là chính đối tượng {@link ApiQuery}, vốn
+     * được tạo mới mỗi khi bảng tải lại dữ liệu. Được bảo vệ bởi khóa của chính map.
+     */
+    private final Map<ApiQuery, NavigableMap<Integer, DatabaseManager.SortKey[]>> positions = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ApiQuery, NavigableMap<Integer, DatabaseManager.SortKey[]>> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+
+    /**
+     * @param shardCount Số tệp dùng cho host mới (xem {@link #setShardCount(int)}).
+     */
+    ShardedDatabaseManager(MontoyaApi api, Metrics metrics, int shardCount) {
+        this.api = api;
+        this.metrics = metrics;
+        setShardCount(shardCount);
+    }
+
+    /**
+     * Đặt số tệp mà host mới được chia vào, có hiệu lực ngay với các host tiếp theo. Host đã có dữ liệu giữ nguyên tệp.
+     */
+    void setShardCount(int shardCount) {
+        this.shardCount = Math.max(1, Math.min(MAX_SHARDS, shardCount));
+    }
+
+    /**
+     * Mở tệp CSDL của project và các tệp phụ đã có.
+     *
+     * @param savedOutputPath Đường dẫn do người dùng cấu hình (xem {@link DatabaseManager#initialize(String)}).
+     */
+    void initialize(String savedOutputPath) {
+        synchronized (shards) {
+            dbPath = DatabaseManager.getDbPath(savedOutputPath);
+            routes.clear();
+            open(0);
+            // Các tệp phụ đã có dữ liệu được mở ngay để giao diện và chỉ mục trạng thái thấy đủ dữ liệu của project.
+            for (int i = 1; i < MAX_SHARDS; i++) {
+                if (new File(shardPath(i)).exists()) {
+                    open(i);
+                }
+            }
+        }
+    }
+
+    private String shardPath(int index) {
+        if (index == 0) {
+            return dbPath;
+        }
+        return dbPath.substring(0, dbPath.length() - ".db".length()) + ".shard" + index + ".db";
+    }
+
+    /**
+     * @return Tệp thứ {@code index}, được mở nếu chưa mở.
+     */
+    private DatabaseManager shard(int index) {
+        DatabaseManager shard = shards.get(index);
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (shards) {
+            shard = shards.get(index);
+            return shard != null ? shard : open(index);
+        }
+    }
+
+    private DatabaseManager open(int index) {
+        DatabaseManager shard = new DatabaseManager(api, metrics, index << SHARD_ID_BITS);
+        shard.setRollbackListener(rollbackListener);
+        shard.initialize(shardPath(index));
+        shards.set(index, shard);
+        List<DatabaseManager> opened = new ArrayList<>(MAX_SHARDS);
+        for (int i = 0; i < MAX_SHARDS; i++) {
+            if (shards.get(i) != null) {
+                opened.add(shards.get(i));
+            }
+        }
+        openShards = List.copyOf(opened);
+        return shard;
+    }
+
+    /**
+     * @param assign true để xếp host chưa có dữ liệu vào một tệp (và mở tệp nếu cần).
+     * @return Tệp chứa host, hoặc null nếu host chưa có dữ liệu và {@code assign} là false.
+     */
+    private DatabaseManager route(String host, boolean assign) {
+        int index = shardIndex(host);
+        if (index >= 0) {
+            return shards.get(index);
+        }
+        if (!assign) {
+            return null;
+        }
+        // computeIfAbsent: hai luồng cùng gặp một host mới (khi N vừa đổi) vẫn xếp nó vào cùng một tệp.
+        return shard(routes.computeIfAbsent(host, this::plannedShard));
+    }
+
+    /**
+     * @return Số thứ tự tệp chứa host, hoặc -1 nếu host chưa có dữ liệu trong tệp nào.
+     */
+    private int shardIndex(String host) {
+        Integer index = routes.get(host);
+        if (index != null) {
+            return index;
+        }
+        for (int i = 0; i < MAX_SHARDS; i++) {
+            DatabaseManager candidate = shards.get(i);
+            if (candidate != null && candidate.hasHost(host)) {
+                routes.putIfAbsent(host, i);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Số thứ tự tệp mà một host chưa có dữ liệu sẽ được xếp vào.
+     */
+    private int plannedShard(String host) {
+        return Math.floorMod(host.hashCode(), shardCount);
+    }
+
+    /**
+     * @return Tệp chứa dòng có ID đã cho, hoặc null nếu tệp đó chưa được mở.
+     */
+    private DatabaseManager shardOfId(int apiId) {
+        int index = apiId >>> SHARD_ID_BITS;
+        return index < MAX_SHARDS ? shards.get(index) : null;
+    }
+
+    /**
+     * Khi có nhiều tệp, các sự kiện của cùng một tệp đi cùng một làn, để traffic dồn dập của một host chỉ chiếm làn
+     * của tệp chứa nó.
+     */
+    @Override
+    public int laneKey(String method, String host, String path) {
+        if (openShards.size() <= 1 && shardCount == 1) {
+            return EndpointLocks.hash(method, host, path);
+        }
+        int index = shardIndex(host);
+        return index >= 0 ? index : plannedShard(host);
+    }
+
+    @Override
+    public boolean insertOrUpdateApi(String method, String host, String path, Set<String> requestParams) {
+        return route(host, true).insertOrUpdateApi(method, host, path, requestParams);
+    }
+
+    @Override
+    public boolean processScannedParameters(String method, String host, String path, Set<String> scannerParams) {
+        DatabaseManager shard = route(host, false);
+        return shard != null && shard.processScannedParameters(method, host, path, scannerParams);
+    }
+
+    @Override
+    public boolean autoBypassApi(String method, String host, String path) {
+        return route(host, true).autoBypassApi(method, host, path);
+    }
+
+    @Override
+    public boolean updateRepeaterStatus(String method, String host, String path) {
+        return route(host, true).updateRepeaterStatus(method, host, path);
+    }
+
+    @Override
+    public Object[] getApiStatus(String method, String host, String path) {
+        DatabaseManager shard = route(host, false);
+        return shard != null ? shard.getApiStatus(method, host, path) : null;
+    }
+
+    /**
+     * Mỗi tệp nhập phần của lô thuộc các host của nó trong một transaction riêng; lỗi ở một tệp không hoàn tác
+     * phần đã nhập vào các tệp trước và các tệp sau không được nhập. Các tệp có kết nối riêng nên không có
+     * transaction chung; việc nhập dựa vào tính lũy đẳng của {@link DatabaseManager#importApis}: nhập lại cả lô sau
+     * khi sửa lỗi cho kết quả như khi lô được nhập trọn vẹn.
+     */
+    @Override
+    public int importApis(List<DatabaseManager.ImportedApi> batch) throws SQLException {
+        Map<DatabaseManager, List<DatabaseManager.ImportedApi>> byShard = new LinkedHashMap<>();
+        for (DatabaseManager.ImportedApi imported : batch) {
+            byShard.computeIfAbsent(route(imported.host, true), shard -> new ArrayList<>()).add(imported);
+        }
+        int changed = 0;
+        for (Map.Entry<DatabaseManager, List<DatabaseManager.ImportedApi>> entry : byShard.entrySet()) {
+            changed += entry.getKey().importApis(entry.getValue());
+        }
+        return changed;
+    }
+
+    @Override
+    public int countApis(ApiQuery query) {
+        int count = 0;
+        for (DatabaseManager shard : openShards) {
+            count += shard.countApis(query);
+        }
+        return count;
+    }
+
+    /**
+     * Với nhiều tệp, trang được đọc bằng keyset từ vị trí gần nhất đã biết trong từng tệp (xem {@link #positions}):
+     * cuộn tuần tự chỉ đọc {@code limit} dòng mỗi tệp. Offset chưa từng tới phải đọc qua các dòng đứng trước, một lần.
+     */
+    @Override
+    public List<Object[]> loadApiPage(ApiQuery query, int offset, int limit) {
+        List<DatabaseManager> opened = openShards;
+        if (opened.size() == 1) {
+            return opened.get(0).loadApiPage(query, offset, limit);
+        }
+        long start = System.nanoTime();
+        try {
+            List<Object[]> rows = new ArrayList<>(limit);
+            walk(query, offset, limit, true, (page, position) -> rows.add(page.rows.get(position)));
+            return rows;
+        } finally {
+            metrics.record("db.sharded.loadApiPage", start);
+        }
+    }
+
+    /**
+     * Như {@link #loadApiPage}, nhưng mỗi tệp chỉ trả về khóa sắp xếp và id, và chỉ các khóa được trộn.
+     */
+    @Override
+    public int[] loadApiIds(ApiQuery query, int offset, int limit) {
+        List<DatabaseManager> opened = openShards;
+        if (opened.size() == 1) {
+            return opened.get(0).loadApiIds(query, offset, limit);
+        }
+        long start = System.nanoTime();
+        try {
+            int[] ids = new int[limit];
+            int[] count = {0};
+            walk(query, offset, limit, false, (page, position) -> ids[count[0]++] = page.keys.get(position).id);
+            return count[0] == limit ? ids : Arrays.copyOf(ids, count[0]);
+        } finally {
+            metrics.record("db.sharded.loadApiIds", start);
+        }
+    }
+
+    /**
+     * Các dòng một tệp trả về cho một lần {@link #walk}.
+     */
+    private static final class ShardPage {
+        final int shard;
+        final List<DatabaseManager.SortKey> keys;
+        /**
+         * null nếu chỉ đọc khóa.
+         */
+        final List<Object[]> rows;
+        int next;
+
+        ShardPage(int shard, List<DatabaseManager.SortKey> keys, List<Object[]> rows) {
+            this.shard = shard;
+            this.keys = keys;
+            this.rows = rows;
+        }
+    }
+
+    private interface PageConsumer {
+        void accept(ShardPage page, int position);
+    }
+
+    /**
+     * Duyệt {@code limit} dòng từ {@code offset} của kết quả gộp. Bắt đầu từ vị trí đã ghi nhớ gần nhất không vượt quá
+     * offset, mỗi tệp đọc bằng keyset số dòng còn thiếu, rồi các danh sách được trộn bằng cách luôn lấy phần tử đầu
+     * nhỏ nhất, nên mỗi danh sách giữ nguyên thứ tự SQLite trả về. Vị trí sau trang được ghi nhớ cho trang kế tiếp.
+     * <p>
+     * Với cột mà thứ tự trong CSDL khác thứ tự của giá trị hiển thị (unscanned_params được sắp theo ID tham số, vốn
+     * khác nhau giữa các tệp), trang kết quả vẫn ổn định, chỉ không hoàn toàn theo thứ tự.
+     *
+     * @param withRows true để đọc cả các cột hiển thị, false để chỉ đọc khóa sắp xếp và id.
+     */
+    private void walk(ApiQuery query, int offset, int limit, boolean withRows, PageConsumer consumer) {
+        Map.Entry<Integer, DatabaseManager.SortKey[]> from = knownPosition(query, offset);
+        DatabaseManager.SortKey[] after = from.getValue().clone();
+        int skip = offset - from.getKey();
+        int wanted = skip + limit;
+        List<ShardPage> pages = new ArrayList<>();
+        for (int i = 0; i < MAX_SHARDS; i++) {
+            DatabaseManager shard = shards.get(i);
+            if (shard == null) {
+                continue;
+            }
+            if (withRows) {
+                List<DatabaseManager.SortKey> keys = new ArrayList<>(wanted);
+                pages.add(new ShardPage(i, keys, shard.seekApiPage(query, after[i], wanted, keys)));
+            } else {
+                pages.add(new ShardPage(i, shard.seekApiKeys(query, after[i], wanted), null));
+            }
+        }
+        Comparator<DatabaseManager.SortKey> order = keyOrder(query);
+        PriorityQueue<ShardPage> heads = new PriorityQueue<>(Math.max(1, pages.size()),
+                (a, b) -> order.compare(a.keys.get(a.next), b.keys.get(b.next)));
+        for (ShardPage page : pages) {
+            if (!page.keys.isEmpty()) {
+                heads.add(page);
+            }
+        }
+        int taken = 0;
+        while (!heads.isEmpty() && taken < wanted) {
+            ShardPage page = heads.poll();
+            after[page.shard] = page.keys.get(page.next);
+            if (taken >= skip) {
+                consumer.accept(page, page.next);
+            }
+            taken++;
+            if (taken == skip) {
+                remember(query, offset, after);
+            }
+            if (++page.next < page.keys.size()) {
+                heads.add(page);
+            }
+        }
+        remember(query, from.getKey() + taken, after);
+    }
+
+    /**
+     * @return Vị trí đã ghi nhớ gần nhất không vượt quá {@code offset}, hoặc vị trí đầu (offset 0) nếu chưa có.
+     */
+    private Map.Entry<Integer, DatabaseManager.SortKey[]> knownPosition(ApiQuery query, int offset) {
+        synchronized (positions) {
+            NavigableMap<Integer, DatabaseManager.SortKey[]> known = positions.get(query);
+            Map.Entry<Integer, DatabaseManager.SortKey[]> position = known == null ? null : known.floorEntry(offset);
+            return position != null ? position : Map.entry(0, new DatabaseManager.SortKey[MAX_SHARDS]);
+        }
+    }
+
+    private void remember(ApiQuery query, int offset, DatabaseManager.SortKey[] after) {
+        if (offset == 0) {
+            return;
+        }
+        synchronized (positions) {
+            NavigableMap<Integer, DatabaseManager.SortKey[]> known = positions.computeIfAbsent(query, key -> new TreeMap<>());
+            known.put(offset, after.clone());
+            if (known.size() > MAX_CACHED_POSITIONS) {
+                // Bỏ vị trí xa nhất về một phía, giữ lại vị trí vừa ghi.
+                if (known.firstKey() == offset) {
+                    known.pollLastEntry();
+                } else {
+                    known.pollFirstEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Thứ tự của {@link DatabaseManager#loadApiPage} trên khóa sắp xếp: giá trị của cột sắp xếp (nếu có), rồi id giảm dần.
+     */
+    private static Comparator<DatabaseManager.SortKey> keyOrder(ApiQuery query) {
+        Comparator<DatabaseManager.SortKey> byId = (a, b) -> Integer.compare(b.id, a.id);
+        if (query.sortColumn == null) {
+            return byId;
+        }
+        Comparator<DatabaseManager.SortKey> byValue = (a, b) -> compareValues(a.value, b.value);
+        return (query.ascending ? byValue : byValue.reversed()).thenComparing(byId);
+    }
+
+    /**
+     * So sánh hai giá trị của SQLite theo thứ tự của ORDER BY: NULL nhỏ nhất, rồi số, rồi chuỗi.
+     */
+    static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            return Long.compare(x.longValue(), y.longValue());
+        }
+        if (a instanceof Number || b instanceof Number) {
+            return a instanceof Number ? -1 : 1;
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    @Override
+    public void forEachEndpointStatus(DatabaseManager.EndpointStatusConsumer consumer) {
+        for (DatabaseManager shard : openShards) {
+            shard.forEachEndpointStatus(consumer);
+        }
+    }
+
+    @Override
+    public int[] countByStatus() throws SQLException {
+        int[] counts = new int[4];
+        for (DatabaseManager shard : openShards) {
+            int[] shardCounts = shard.countByStatus();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += shardCounts[i];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * ID của tệp sau luôn lớn hơn ID của tệp trước, nên duyệt lần lượt từng tệp vẫn giữ thứ tự id.
+     */
+    @Override
+    public void forEachApiRow(DatabaseManager.ApiRowConsumer consumer) throws SQLException, IOException {
+        boolean[] stopped = {false};
+        for (DatabaseManager shard : openShards) {
+            shard.forEachApiRow(row -> {
+                stopped[0] = !consumer.accept(row);
+                return !stopped[0];
+            });
+            if (stopped[0]) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<Object[]> loadApiHistory(int apiId) throws SQLException {
+        DatabaseManager shard = shardOfId(apiId);
+        return shard != null ? shard.loadApiHistory(apiId) : List.of();
+    }
+
+    @Override
+    public int normalizeStoredPaths(UnaryOperator<String> pathNormalizer, DatabaseManager.EndpointConsumer changed) {
+        int normalized = 0;
+        for (DatabaseManager shard : openShards) {
+            normalized += shard.normalizeStoredPaths(pathNormalizer, changed);
+        }
+        return normalized;
+    }
+
+    @Override
+    public int applyAutoBypassToOldRecords() {
+        int changed = 0;
+        for (DatabaseManager shard : openShards) {
+            changed += shard.applyAutoBypassToOldRecords();
+        }
+        return changed;
+    }
+
+    @Override
+    public int updateStatus(DatabaseManager.StatusChange change, int[] ids, DatabaseManager.EndpointStatusConsumer changed) throws SQLException {
+        // Sau khi sắp xếp, ID của cùng một tệp nằm liền nhau vì số thứ tự tệp là các bit cao của ID.
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int updated = 0;
+        int from = 0;
+        while (from < sorted.length) {
+            int index = sorted[from] >>> SHARD_ID_BITS;
+            int to = from + 1;
+            while (to < sorted.length && sorted[to] >>> SHARD_ID_BITS == index) {
+                to++;
+            }
+            DatabaseManager shard = shardOfId(sorted[from]);
+            if (shard != null) {
+                updated += shard.updateStatus(change, Arrays.copyOfRange(sorted, from, to), changed);
+            }
+            from = to;
+        }
+        return updated;
+    }
+
+    @Override
+    public int updateStatus(DatabaseManager.StatusChange change, ApiQuery query, DatabaseManager.EndpointStatusConsumer changed) throws SQLException {
+        int updated = 0;
+        for (DatabaseManager shard : openShards) {
+            updated += shard.updateStatus(change, query, changed);
+        }
+        return updated;
+    }
+
+    @Override
+    public int updateStatusForHost(DatabaseManager.StatusChange change, String host, DatabaseManager.EndpointStatusConsumer changed) throws SQLException {
+        DatabaseManager shard = route(host, false);
+        return shard != null ? shard.updateStatusForHost(change, host, changed) : 0;
+    }
+
+    /**
+     * Mỗi tệp chuyển tối đa một lô; kết quả là tổng, nên nơi gọi lặp lại khi kết quả không nhỏ hơn
+     * {@link DatabaseManager#ARCHIVE_BATCH_SIZE} như với một tệp.
+     */
+    @Override
+    public int archiveStale(int retentionDays, DatabaseManager.EndpointConsumer archived) throws SQLException {
+        int count = 0;
+        for (DatabaseManager shard : openShards) {
+            count += shard.archiveStale(retentionDays, archived);
+        }
+        return count;
+    }
+
+    @Override
+    public int archivedCount() {
+        int count = 0;
+        for (DatabaseManager shard : openShards) {
+            count += shard.archivedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void setRollbackListener(Runnable listener) {
+        synchronized (shards) {
+            rollbackListener = listener;
+            for (DatabaseManager shard : openShards) {
+                shard.setRollbackListener(listener);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (shards) {
+            for (DatabaseManager shard : openShards) {
+                shard.close();
+            }
+        }
+    }
+
+    /**
+     * @return true nếu tệp CSDL của project đã được mở thành công và chưa bị đóng.
+     */
+    @Override
+    public boolean isConnected() {
+        List<DatabaseManager> opened = openShards;
+        return !opened.isEmpty() && opened.get(0).isConnected();
+    }
+}
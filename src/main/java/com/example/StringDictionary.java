@@ -0,0 +1,187 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mã hóa từ điển cho các chuỗi lặp lại nhiều lần (host, method, tên tham số).
+ * <p>
+ * Mỗi giá trị được lưu đúng một lần trong một bảng tra cứu của SQLite ({@code id INTEGER PRIMARY KEY, value TEXT UNIQUE})
+ * và một lần trong bộ nhớ; bảng api_log chỉ tham chiếu bằng ID kiểu int. Chuỗi trả về từ {@link #value(int)}
+ * luôn là cùng một instance, nên các dòng dữ liệu trên giao diện dùng chung thay vì mỗi dòng giữ một bản sao.
+ * <p>
+ * Giá trị mới được thêm trong một transaction đang mở được ghi nhớ ngay để các thao tác tiếp theo trong cùng
+ * transaction dùng được, nhưng chỉ được xác nhận khi nơi gọi báo transaction đã commit ({@link #commit()});
+ * nếu transaction bị rollback ({@link #rollback()}), chúng bị xóa khỏi bộ nhớ, nên ID không bao giờ trỏ tới
+ * một dòng không tồn tại trong CSDL và ID kế tiếp được cấp lại đúng.
+ * <p>
+ * ID mới luôn lớn hơn ID lớn nhất đã có, kể cả khi bảng có khoảng trống (ví dụ do các dòng đã bị xóa), nên không
+ * bao giờ trùng với một dòng sẵn có.
+ */
+final class StringDictionary {
+    static final int ABSENT = -1;
+
+    private final String table;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[64];
+    /**
+     * Các giá trị đã thêm trong transaction đang mở, theo thứ tự thêm.
+     */
+    private final List<String> uncommitted = new ArrayList<>();
+    /**
+     * ID lớn nhất đang có trong bộ nhớ, và ID lớn nhất đã được commit.
+     */
+    private int maxId;
+    private int committedMaxId;
+    private Connection connection;
+
+    /**
+     * @param table Tên bảng tra cứu trong CSDL.
+     */
+    StringDictionary(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Tạo bảng tra cứu nếu chưa có và nạp toàn bộ giá trị vào bộ nhớ.
+     */
+    synchronized void load(Connection connection) throws SQLException {
+        this.connection = connection;
+        ids.clear();
+        uncommitted.clear();
+        values = new String[64];
+        maxId = 0;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + table + " (id INTEGER PRIMARY KEY, value TEXT NOT NULL UNIQUE)");
+            try (ResultSet rs = stmt.executeQuery("SELECT id, value FROM " + table)) {
+                while (rs.next()) {
+                    remember(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        committedMaxId = maxId;
+    }
+
+    /**
+     * @return ID của giá trị, hoặc {@link #ABSENT} nếu giá trị chưa có trong từ điển.
+     */
+    synchronized int idOf(String value) {
+        Integer id = ids.get(value);
+        return id == null ? ABSENT : id;
+    }
+
+    /**
+     * Trả về ID của giá trị, thêm giá trị vào bảng tra cứu nếu chưa có.
+     */
+    synchronized int getOrCreate(String value) throws SQLException {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int id = maxId + 1;
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO " + table + " (id, value) VALUES (?, ?)")) {
+            stmt.setInt(1, id);
+            stmt.setString(2, value);
+            stmt.executeUpdate();
+        }
+        remember(id, value);
+        if (connection.getAutoCommit()) {
+            committedMaxId = maxId;
+        } else {
+            uncommitted.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Xác nhận các giá trị đã thêm từ lần commit trước; gọi sau khi transaction chứa chúng được commit.
+     */
+    synchronized void commit() {
+        uncommitted.clear();
+        committedMaxId = maxId;
+    }
+
+    /**
+     * Xóa khỏi bộ nhớ các giá trị đã thêm từ lần commit trước; gọi sau khi transaction chứa chúng bị rollback.
+     */
+    synchronized void rollback() {
+        for (String value : uncommitted) {
+            Integer id = ids.remove(value);
+            if (id != null) {
+                values[id] = null;
+            }
+        }
+        uncommitted.clear();
+        maxId = committedMaxId;
+    }
+
+    /**
+     * Mã hóa một tập giá trị thành mảng ID đã sắp xếp tăng dần, thêm các giá trị mới vào từ điển.
+     */
+    int[] getOrCreateAll(Collection<String> values) throws SQLException {
+        int[] result = new int[values.size()];
+        int size = 0;
+        for (String value : values) {
+            result[size++] = getOrCreate(value);
+        }
+        Arrays.sort(result, 0, size);
+        return IntSets.distinct(result, size);
+    }
+
+    /**
+     * Mã hóa một tập giá trị thành mảng ID đã sắp xếp tăng dần, bỏ qua các giá trị chưa có trong từ điển.
+     */
+    int[] idsOf(Collection<String> values) {
+        int[] result = new int[values.size()];
+        int size = 0;
+        for (String value : values) {
+            int id = idOf(value);
+            if (id != ABSENT) {
+                result[size++] = id;
+            }
+        }
+        Arrays.sort(result, 0, size);
+        return IntSets.distinct(result, size);
+    }
+
+    synchronized String value(int id) {
+        return id > 0 && id < values.length ? values[id] : null;
+    }
+
+    /**
+     * Giải mã một mảng ID thành các giá trị, sắp xếp theo bảng chữ cái.
+     */
+    String[] values(int[] ids) {
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = value(ids[i]);
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    /**
+     * Giải mã một mảng ID thành các giá trị, sắp xếp theo bảng chữ cái và nối bằng {@code separator}.
+     */
+    String join(int[] ids, String separator) {
+        return String.join(separator, values(ids));
+    }
+
+    private void remember(int id, String value) {
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, id + 1));
+        }
+        values[id] = value;
+        ids.put(value, id);
+        maxId = Math.max(maxId, id);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tập LRU có giới hạn với khóa 64-bit (thường là một hash {@link Fnv64}), dùng chung bởi {@link ScopeCache} và
+ * {@link RequestFingerprintCache}.
+ * <p>
+ * Các phần tử được chia theo khóa vào nhiều đoạn, mỗi đoạn là một {@link LinkedHashMap} theo thứ tự truy cập với khóa
+ * riêng: luồng của Burp và các làn của pipeline chỉ tranh nhau khi chạm cùng một đoạn. Đổi lại, thứ tự LRU chỉ đúng
+ * trong từng đoạn và mỗi đoạn giữ tối đa {@code capacity / segments} phần tử. Giá trị cũ không bao giờ được trả về
+ * thay cho giá trị mới, nên nơi dùng tự lưu "generation" trong giá trị nếu cần phát hiện phần tử đã mất hiệu lực.
+ *
+ * @param <V> Kiểu giá trị.
+ */
+final class StripedLruCache<V> {
+    private final Segment<V>[] segments;
+    private final int shift;
+
+    /**
+     * @param capacity Số phần tử tối đa của cả cache.
+     * @param segments Số đoạn, là một lũy thừa của 2.
+     */
+    @SuppressWarnings("unchecked")
+    StripedLruCache(int capacity, int segments) {
+        if (segments <= 0 || Integer.bitCount(segments) != 1) {
+            throw new IllegalArgumentException("segments must be a power of two: " + segments);
+        }
+        this.segments = (Segment<V>[]) new Segment<?>[segments];
+        int segmentCapacity = Math.max(1, capacity / segments);
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment<>(segmentCapacity);
+        }
+        // Chọn đoạn theo các bit cao của khóa; chúng độc lập với các bit thấp mà nơi dùng có thể đã dùng để chia dải.
+        this.shift = 64 - Integer.numberOfTrailingZeros(segments);
+    }
+
+    /**
+     * Một đoạn: LinkedHashMap với accessOrder = true hoạt động như một LRU.
+     */
+    private static final class Segment<V> extends LinkedHashMap<Long, V> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(Math.min(capacity, 1024), 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private Segment<V> segment(long key) {
+        return segments.length == 1 ? segments[0] : segments[(int) (key >>> shift)];
+    }
+
+    /**
+     * @return Giá trị của khóa (và đánh dấu khóa vừa được dùng), hoặc null nếu không có.
+     */
+    V get(long key) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(long key, V value) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Bỏ một khóa nếu nó vẫn giữ đúng giá trị đã đọc, để không xóa giá trị mà một luồng khác vừa ghi.
+     */
+    void remove(long key, V value) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            segment.remove(key, value);
+        }
+    }
+
+    void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+}
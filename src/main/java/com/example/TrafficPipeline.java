@@ -0,0 +1,443 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ToolType;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pipeline nhiều giai đoạn xử lý traffic bên ngoài luồng HTTP của Burp.
+ * <p>
+ * Luồng của Burp chỉ tạo một {@link Event} bất biến và đưa vào hàng đợi. Phần còn lại chạy trên các worker:
+ * 1. Giai đoạn parse (nhiều luồng): kiểm tra scope, chuẩn hóa path, trích xuất tham số, lọc trùng lặp.
+ * 2. Giai đoạn persist (nhiều làn, mỗi làn một luồng): ghi vào SQLite, cập nhật cache trạng thái dùng cho annotation.
+ *    Làn được chọn theo khóa do nơi gọi tính cho mỗi sự kiện (mặc định theo endpoint: method, host, path đã chuẩn hóa),
+ *    nên các sự kiện có cùng khóa được ghi tuần tự theo thứ tự parse xong, còn các khóa khác nhau được xử lý song song.
+ * <p>
+ * Thời gian xử lý trên luồng của Burp, thời gian chờ trong hàng đợi và thời gian của từng giai đoạn
+ * được ghi vào {@link Metrics} (nhóm "pipeline.") để có thể theo dõi độ trễ mà extension thêm vào proxy.
+ * <p>
+ * Tổng số sự kiện đang chờ xử lý bị giới hạn bởi {@code capacity}. Khi hàng đợi đầy dần, các sự kiện bị loại bỏ theo thứ tự:
+ * 1. Từ một nửa dung lượng: bỏ các sự kiện Proxy/Repeater trùng (tool, method, host, raw path) với một sự kiện khác
+ *    cũng được nhận từ mức này và vẫn đang chờ.
+ * 2. Từ ba phần tư dung lượng: chỉ giữ 1 trên N sự kiện Proxy/Repeater.
+ * 3. Khi đầy: bỏ mọi sự kiện Proxy/Repeater.
+ * Sự kiện từ Scanner không bao giờ bị bỏ và không bao giờ chặn luồng của Burp: khi hàng đợi đầy, chúng được chuyển
+ * vào một hàng chờ riêng ({@link #scannerBacklog}) và được đưa vào pipeline ngay khi có chỗ trống, trước mọi sự kiện
+ * Proxy/Repeater; trong lúc hàng chờ này chưa rỗng, mọi sự kiện Proxy/Repeater bị bỏ như khi hàng đợi đầy. Hàng chờ
+ * không bị giới hạn, nhưng Scanner chỉ gửi request mới khi các response trước đã về, nên nó chỉ lớn lên khi CSDL
+ * chậm hơn chính tốc độ quét.
+ */
+class TrafficPipeline {
+
+    /**
+     * Sự kiện tối thiểu được chụp lại trên luồng HTTP của Burp.
+     */
+    static final class Event {
+        final ToolType toolType;
+        final String method;
+        final String host;
+        final String rawPath;
+        final HttpRequest request;
+        /**
+         * true nếu Content-Type của response thuộc nhóm cần auto-bypass: không trích xuất tham số.
+         */
+        final boolean nonApi;
+        /**
+         * Khóa (tool, method, host, raw path) mà sự kiện đã thêm vào {@code pendingKeys} khi được nhận, hoặc null.
+         * Chỉ sự kiện giữ khóa mới xóa khóa đó, nên mỗi lần thêm đi đúng với một lần xóa.
+         */
+        PendingKey heldKey;
+        /**
+         * Thời điểm ({@link System#nanoTime()}) sự kiện được tạo, dùng để đo thời gian chờ trong hàng đợi.
+         */
+        final long receivedNanos;
+
+        Event(ToolType toolType, String method, String host, String rawPath, HttpRequest request, boolean nonApi) {
+            this.toolType = toolType;
+            this.method = method;
+            this.host = host;
+            this.rawPath = rawPath;
+            this.request = request;
+            this.nonApi = nonApi;
+            this.receivedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Khóa phát hiện sự kiện trùng lặp khi đang quá tải: so sánh đầy đủ (tool, method, host, raw path), nên hai sự
+     * kiện khác nhau không bao giờ bị coi là trùng chỉ vì trùng mã băm.
+     */
+    static final class PendingKey {
+        private final ToolType toolType;
+        private final String method;
+        private final String host;
+        private final String rawPath;
+        private final int hash;
+
+        PendingKey(Event event) {
+            this.toolType = event.toolType;
+            this.method = event.method;
+            this.host = event.host;
+            this.rawPath = event.rawPath;
+            this.hash = 31 * (31 * (31 * toolType.hashCode() + method.hashCode()) + host.hashCode()) + rawPath.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) o;
+            return hash == other.hash && toolType == other.toolType && method.equals(other.method)
+                    && host.equals(other.host) && rawPath.equals(other.rawPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Kết quả của giai đoạn parse, sẵn sàng để ghi vào CSDL.
+     */
+    static final class ParsedEvent {
+        final Event event;
+        final String path;
+        final Set<String> params;
+        final long fingerprint;
+        final long generation;
+
+        ParsedEvent(Event event, String path, Set<String> params, long fingerprint, long generation) {
+            this.event = event;
+            this.path = path;
+            this.params = params;
+            this.fingerprint = fingerprint;
+            this.generation = generation;
+        }
+    }
+
+    private final MontoyaApi api;
+    private final Metrics metrics;
+    private final Function<Event, ParsedEvent> parseStage;
+    private final Consumer<ParsedEvent> persistStage;
+    private final ToIntFunction<ParsedEvent> laneKey;
+    private final ExecutorService parseExecutor;
+    private final ExecutorService[] persistLanes;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile int capacity;
+    private volatile int sampleRate;
+
+    private final Set<PendingKey> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    /**
+     * Các sự kiện Scanner đến khi hàng đợi đầy, theo thứ tự đến, và số lượng của chúng.
+     */
+    private final ConcurrentLinkedQueue<Event> scannerBacklog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scannerBacklogSize = new AtomicInteger();
+    private final LongAdder shedDuplicates = new LongAdder();
+    private final LongAdder shedSampled = new LongAdder();
+    private final LongAdder shedOverflow = new LongAdder();
+    private final LatencyHistogram handlerLatency;
+
+    /**
+     * @param api          Đối tượng MontoyaApi, dùng để ghi log lỗi của các worker.
+     * @param metrics      Nơi ghi nhận độ trễ của từng giai đoạn.
+     * @param parseStage   Hàm parse một sự kiện; trả về null nếu sự kiện cần bị bỏ qua.
+     * @param persistStage Hàm ghi kết quả parse vào CSDL.
+     * @param laneKey      Hàm chọn làn ghi cho một kết quả parse; các kết quả có cùng khóa được ghi tuần tự.
+     * @param capacity     Số sự kiện tối đa được phép chờ xử lý.
+     * @param sampleRate   Khi quá tải, chỉ giữ 1 trên {@code sampleRate} sự kiện Proxy/Repeater.
+     */
+    TrafficPipeline(MontoyaApi api, Metrics metrics, Function<Event, ParsedEvent> parseStage, Consumer<ParsedEvent> persistStage,
+                    ToIntFunction<ParsedEvent> laneKey, int capacity, int sampleRate) {
+        this.api = api;
+        this.metrics = metrics;
+        this.handlerLatency = metrics.histogram("pipeline.burp_thread");
+        configure(capacity, sampleRate);
+        this.parseStage = parseStage;
+        this.persistStage = persistStage;
+        this.laneKey = laneKey;
+        int parseThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        this.parseExecutor = Executors.newFixedThreadPool(parseThreads, namedThreads("RecheckScan-parse"));
+        this.persistLanes = new ExecutorService[parseThreads];
+        ThreadFactory persistThreads = namedThreads("RecheckScan-persist");
+        for (int i = 0; i < parseThreads; i++) {
+            persistLanes[i] = Executors.newSingleThreadExecutor(persistThreads);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Cập nhật giới hạn hàng đợi và tỷ lệ lấy mẫu. Có hiệu lực ngay với các sự kiện tiếp theo.
+     */
+    void configure(int capacity, int sampleRate) {
+        this.capacity = Math.max(1, capacity);
+        this.sampleRate = Math.max(1, sampleRate);
+        drainScannerBacklog();
+    }
+
+    /**
+     * Đưa một sự kiện vào pipeline theo chính sách load-shedding. Không bao giờ chặn luồng gọi.
+     *
+     * @return true nếu sự kiện được nhận (kể cả khi sự kiện Scanner phải vào hàng chờ), false nếu bị loại bỏ.
+     */
+    boolean submit(Event event) {
+        if (closed) {
+            return false;
+        }
+        if (event.toolType == ToolType.SCANNER) {
+            // Sự kiện của Scanner không bị lấy mẫu hay lọc trùng. Nó đi sau các sự kiện Scanner đang chờ để giữ thứ tự.
+            if (!scannerBacklog.isEmpty() || !reserve(capacity)) {
+                scannerBacklog.add(event);
+                scannerBacklogSize.incrementAndGet();
+                metrics.increment("pipeline.scanner_backlogged");
+                // Chỗ có thể vừa được giải phóng giữa lần thử giữ chỗ và lúc sự kiện vào hàng chờ.
+                drainScannerBacklog();
+                return true;
+            }
+            return dispatch(event);
+        }
+        return admit(event) && dispatch(event);
+    }
+
+    /**
+     * Chuyển một sự kiện đã được giữ chỗ cho giai đoạn parse.
+     */
+    private boolean dispatch(Event event) {
+        try {
+            parseExecutor.execute(() -> process(event));
+            metrics.increment("pipeline.accepted");
+        } catch (RejectedExecutionException e) {
+            // Pipeline đã bị dừng trong lúc sự kiện đang được nhận.
+            releaseKey(event);
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Đưa các sự kiện Scanner đang chờ vào pipeline, chừng nào hàng đợi còn chỗ.
+     */
+    private void drainScannerBacklog() {
+        while (!scannerBacklog.isEmpty() && reserve(capacity)) {
+            Event event = scannerBacklog.poll();
+            if (event == null) {
+                // Một luồng khác vừa lấy sự kiện cuối cùng.
+                pending.decrementAndGet();
+                return;
+            }
+            scannerBacklogSize.decrementAndGet();
+            dispatch(event);
+        }
+    }
+
+    /**
+     * Giữ một chỗ trong hàng đợi nếu số sự kiện đang chờ nhỏ hơn {@code limit}. Kiểm tra và tăng bằng một thao tác
+     * compare-and-set, nên các luồng gọi đồng thời không bao giờ vượt quá giới hạn.
+     */
+    private boolean reserve(int limit) {
+        while (true) {
+            int depth = pending.get();
+            if (depth >= limit) {
+                return false;
+            }
+            if (pending.compareAndSet(depth, depth + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void process(Event event) {
+        releaseKey(event);
+        long parseStart = System.nanoTime();
+        metrics.histogram("pipeline.queue_wait").record(parseStart - event.receivedNanos);
+        ParsedEvent parsed = null;
+        try {
+            parsed = parseStage.apply(event);
+        } catch (Exception e) {
+            api.logging().logToError("Error while parsing traffic event: " + e.getMessage(), e);
+        }
+        metrics.record("pipeline.parse", parseStart);
+        if (parsed == null) {
+            metrics.increment("pipeline.skipped");
+            release();
+            return;
+        }
+        ParsedEvent toPersist = parsed;
+        long queuedForPersist = System.nanoTime();
+        ExecutorService lane = persistLanes[Math.floorMod(laneKey.applyAsInt(parsed), persistLanes.length)];
+        try {
+            lane.execute(() -> {
+                long persistStart = System.nanoTime();
+                metrics.histogram("pipeline.persist_wait").record(persistStart - queuedForPersist);
+                try {
+                    persistStage.accept(toPersist);
+                } catch (Exception e) {
+                    api.logging().logToError("Error while persisting traffic event: " + e.getMessage(), e);
+                } finally {
+                    metrics.record("pipeline.persist", persistStart);
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+        }
+    }
+
+    /**
+     * Quyết định có nhận một sự kiện Proxy/Repeater hay không và giữ chỗ cho nó trong hàng đợi.
+     */
+    private boolean admit(Event event) {
+        int limit = capacity;
+        int depth = pending.get();
+        // Chỗ trống được dành cho các sự kiện Scanner đang chờ.
+        if (depth >= limit || !scannerBacklog.isEmpty()) {
+            shedOverflow.increment();
+            return false;
+        }
+        if (depth >= limit / 2) {
+            PendingKey key = new PendingKey(event);
+            if (!pendingKeys.add(key)) {
+                shedDuplicates.increment();
+                return false;
+            }
+            event.heldKey = key;
+        }
+        if (depth >= limit - limit / 4 && sampleCounter.incrementAndGet() % sampleRate != 0) {
+            releaseKey(event);
+            shedSampled.increment();
+            return false;
+        }
+        if (!reserve(limit)) {
+            // Các luồng khác đã lấp đầy hàng đợi kể từ lần đọc độ sâu ở trên.
+            releaseKey(event);
+            shedOverflow.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Xóa khóa lọc trùng mà sự kiện đang giữ (nếu có), để sự kiện cùng khóa tiếp theo lại được nhận.
+     */
+    private void releaseKey(Event event) {
+        PendingKey key = event.heldKey;
+        if (key != null) {
+            event.heldKey = null;
+            pendingKeys.remove(key);
+        }
+    }
+
+    private void release() {
+        pending.decrementAndGet();
+        drainScannerBacklog();
+    }
+
+    /**
+     * Ghi nhận thời gian một lần gọi handler trên luồng của Burp.
+     */
+    void recordHandlerLatency(long nanos) {
+        handlerLatency.record(nanos);
+    }
+
+    long p99HandlerMicros() {
+        return handlerLatency.percentileNanos(99) / 1_000;
+    }
+
+    long maxHandlerMicros() {
+        return handlerLatency.maxNanos() / 1_000;
+    }
+
+    /**
+     * @return Số sự kiện đã được nhận nhưng chưa xử lý xong, kể cả các sự kiện Scanner đang chờ chỗ.
+     */
+    int pendingCount() {
+        return pending.get() + scannerBacklogSize.get();
+    }
+
+    /**
+     * @return Số sự kiện Scanner đang chờ hàng đợi có chỗ trống.
+     */
+    int scannerBacklogCount() {
+        return scannerBacklogSize.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long shedDuplicates() {
+        return shedDuplicates.sum();
+    }
+
+    long shedSampled() {
+        return shedSampled.sum();
+    }
+
+    long shedOverflow() {
+        return shedOverflow.sum();
+    }
+
+    long shedTotal() {
+        return shedDuplicates() + shedSampled() + shedOverflow();
+    }
+
+    /**
+     * Dừng nhận sự kiện mới và chờ các sự kiện đang xử lý hoàn tất trong thời gian cho phép.
+     */
+    void shutdown() {
+        closed = true;
+        // Các sự kiện Scanner còn chờ được xử lý cùng các sự kiện đang có trong hàng đợi, không tính giới hạn.
+        for (Event event = scannerBacklog.poll(); event != null; event = scannerBacklog.poll()) {
+            scannerBacklogSize.decrementAndGet();
+            pending.incrementAndGet();
+            dispatch(event);
+        }
+        parseExecutor.shutdown();
+        try {
+            parseExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            for (ExecutorService lane : persistLanes) {
+                lane.shutdown();
+            }
+            for (ExecutorService lane : persistLanes) {
+                lane.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        parseExecutor.shutdownNow();
+        for (ExecutorService lane : persistLanes) {
+            lane.shutdownNow();
+        }
+    }
+}
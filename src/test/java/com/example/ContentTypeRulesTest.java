@@ -0,0 +1,49 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ContentTypeRulesTest {
+    @Test
+    void groupsAndParametersAreClassified() {
+        ContentTypeRules rules = ContentTypeRules.compile("image, font", "html", error -> {
+        });
+        assertEquals(ContentTypeRules.Action.SKIP, rules.classify("image/png"));
+        assertEquals(ContentTypeRules.Action.SKIP, rules.classify("font/woff2"));
+        assertEquals(ContentTypeRules.Action.SKIP, rules.classify("application/font-woff"));
+        assertEquals(ContentTypeRules.Action.BYPASS, rules.classify("text/html; charset=UTF-8"));
+        assertEquals(ContentTypeRules.Action.BYPASS, rules.classify("Application/XHTML+XML"));
+        assertEquals(ContentTypeRules.Action.KEEP, rules.classify("application/json"));
+        assertEquals(ContentTypeRules.Action.KEEP, rules.classify(null));
+    }
+
+    @Test
+    void exactTypeTakesPrecedenceOverMajorType() {
+        ContentTypeRules rules = ContentTypeRules.compile("image/*", "image/svg+xml", error -> {
+        });
+        assertEquals(ContentTypeRules.Action.BYPASS, rules.classify("image/svg+xml"));
+        assertEquals(ContentTypeRules.Action.SKIP, rules.classify("image/jpeg"));
+    }
+
+    @Test
+    void skipWinsWhenListedInBoth() {
+        ContentTypeRules rules = ContentTypeRules.compile("application/pdf", "application/pdf", error -> {
+        });
+        assertEquals(ContentTypeRules.Action.SKIP, rules.classify("application/pdf"));
+    }
+
+    @Test
+    void invalidEntriesAreReportedAndEmptyListsCompileToNone() {
+        List<String> errors = new ArrayList<>();
+        ContentTypeRules rules = ContentTypeRules.compile("pictures, /json, text/", " , ", errors::add);
+        assertEquals(List.of("Invalid response content type: pictures", "Invalid response content type: /json",
+                "Invalid response content type: text/"), errors);
+        assertSame(ContentTypeRules.NONE, rules);
+        assertEquals(ContentTypeRules.Action.KEEP, rules.classify("text/html"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void snapshotRoundTripKeepsEntriesAndCounters() throws IOException {
+        Path snapshot = tempDir.resolve("endpoints.snapshot");
+        try (EndpointIndex index = new EndpointIndex()) {
+            index.put("GET", "api.example.com", "/v1/users", EndpointStatusCache.SCANNED);
+            index.put("POST", "api.example.com", "/v1/users", 0);
+            index.put("GET", "cdn.example.com", "/", EndpointStatusCache.BYPASSED);
+            // Khóa có ký tự ngoài Latin-1 được lưu 2 byte/ký tự.
+            index.put("GET", "api.example.com", "/tìm-kiếm/{id}", EndpointStatusCache.REJECTED);
+            index.save(snapshot);
+        }
+
+        try (EndpointIndex restored = new EndpointIndex()) {
+            assertTrue(restored.load(snapshot));
+            assertEquals(4, restored.size());
+            assertEquals(EndpointStatusCache.SCANNED, restored.get("GET", "api.example.com", "/v1/users"));
+            assertEquals(0, restored.get("POST", "api.example.com", "/v1/users"));
+            assertEquals(EndpointStatusCache.BYPASSED, restored.get("GET", "cdn.example.com", "/"));
+            assertEquals(EndpointStatusCache.REJECTED, restored.get("GET", "api.example.com", "/tìm-kiếm/{id}"));
+            assertEquals(EndpointIndex.ABSENT, restored.get("DELETE", "api.example.com", "/v1/users"));
+            assertEquals(1, restored.count(EndpointStatusCache.SCANNED));
+            assertEquals(1, restored.count(EndpointStatusCache.REJECTED));
+            assertEquals(1, restored.count(EndpointStatusCache.BYPASSED));
+
+            Map<String, Integer> entries = new HashMap<>();
+            restored.forEach((method, host, path, flags) -> entries.put(method + " " + host + path, flags));
+            assertEquals(Map.of(
+                    "GET api.example.com/v1/users", EndpointStatusCache.SCANNED,
+                    "POST api.example.com/v1/users", 0,
+                    "GET cdn.example.com/", EndpointStatusCache.BYPASSED,
+                    "GET api.example.com/tìm-kiếm/{id}", EndpointStatusCache.REJECTED), entries);
+
+            // Chỉ mục nạp từ snapshot vẫn nhận thay đổi như bình thường.
+            assertEquals(EndpointStatusCache.SCANNED, restored.put("GET", "api.example.com", "/v1/users", EndpointStatusCache.BYPASSED));
+            assertEquals(0, restored.count(EndpointStatusCache.SCANNED));
+            assertEquals(2, restored.count(EndpointStatusCache.BYPASSED));
+        }
+    }
+
+    @Test
+    void snapshotRoundTripAfterGrowing() throws IOException {
+        Path snapshot = tempDir.resolve("grown.snapshot");
+        int endpoints = 50_000;
+        try (EndpointIndex index = new EndpointIndex()) {
+            for (int i = 0; i < endpoints; i++) {
+                index.put("GET", "host" + (i % 7) + ".example.com", "/items/" + i, i % 2 == 0 ? EndpointStatusCache.SCANNED : 0);
+            }
+            index.save(snapshot);
+        }
+        try (EndpointIndex restored = new EndpointIndex()) {
+            assertTrue(restored.load(snapshot));
+            assertEquals(endpoints, restored.size());
+            assertEquals(endpoints / 2, restored.count(EndpointStatusCache.SCANNED));
+            for (int i = 0; i < endpoints; i += 997) {
+                assertEquals(i % 2 == 0 ? EndpointStatusCache.SCANNED : 0, restored.get("GET", "host" + (i % 7) + ".example.com", "/items/" + i));
+            }
+        }
+    }
+
+    @Test
+    void invalidSnapshotLeavesIndexUnchanged() throws IOException {
+        Path missing = tempDir.resolve("missing.snapshot");
+        Path corrupt = tempDir.resolve("corrupt.snapshot");
+        Files.write(corrupt, new byte[128]);
+        try (EndpointIndex index = new EndpointIndex()) {
+            index.put("GET", "api.example.com", "/health", EndpointStatusCache.BYPASSED);
+            assertFalse(index.load(missing));
+            assertFalse(index.load(corrupt));
+            assertEquals(1, index.size());
+            assertEquals(EndpointStatusCache.BYPASSED, index.get("GET", "api.example.com", "/health"));
+        }
+    }
+}
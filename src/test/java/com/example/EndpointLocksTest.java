@@ -0,0 +1,79 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointLocksTest {
+
+    @Test
+    void stripeCountIsRoundedUpToAPowerOfTwo() {
+        assertEquals(1, distinctLocks(new EndpointLocks(1)));
+        assertEquals(16, distinctLocks(new EndpointLocks(16)));
+        assertEquals(32, distinctLocks(new EndpointLocks(17)));
+    }
+
+    @Test
+    void sameEndpointAlwaysGetsTheSameReentrantLock() {
+        EndpointLocks locks = new EndpointLocks(64);
+        ReentrantLock first = locks.lock("GET", "api.example.com", "/users");
+        try {
+            ReentrantLock again = locks.lock("GET", "api.example.com", "/users");
+            assertSame(first, again);
+            assertEquals(2, first.getHoldCount());
+            again.unlock();
+        } finally {
+            first.unlock();
+        }
+        assertFalse(first.isLocked());
+    }
+
+    @Test
+    void otherThreadWaitsForTheSameEndpoint() throws InterruptedException {
+        EndpointLocks locks = new EndpointLocks(64);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean acquired = new AtomicBoolean();
+        ReentrantLock held = locks.lock("GET", "api.example.com", "/users");
+        Thread other = new Thread(() -> {
+            started.countDown();
+            ReentrantLock lock = locks.lock("GET", "api.example.com", "/users");
+            acquired.set(true);
+            lock.unlock();
+        });
+        try {
+            other.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!held.hasQueuedThread(other) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(held.hasQueuedThread(other));
+            assertFalse(acquired.get());
+        } finally {
+            held.unlock();
+        }
+        other.join(5_000);
+        assertTrue(acquired.get());
+    }
+
+    private static int distinctLocks(EndpointLocks locks) {
+        Set<ReentrantLock> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 10_000; i++) {
+            ReentrantLock lock = locks.lock("GET", "h" + (i % 7), "/p/" + i);
+            seen.add(lock);
+            lock.unlock();
+        }
+        return seen.size();
+    }
+}
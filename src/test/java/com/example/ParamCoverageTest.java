@@ -0,0 +1,65 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParamCoverageTest {
+
+    @Test
+    void storedListsAreLoadedWithScannedParamsFirst() {
+        ParamCoverage coverage = new ParamCoverage(7, new int[]{5, 2}, new int[]{9, 2, 4});
+
+        assertEquals(7, coverage.rowId);
+        assertEquals(0, coverage.ordinalOf(5));
+        assertEquals(1, coverage.ordinalOf(2));
+        assertEquals(2, coverage.ordinalOf(9));
+        assertEquals(3, coverage.ordinalOf(4));
+        assertEquals(-1, coverage.ordinalOf(3));
+        // Tham số vừa đã quét vừa nằm trong danh sách chưa quét chỉ được tính một lần, là đã quét.
+        assertEquals("2|5", coverage.format(true));
+        assertEquals("4|9", coverage.format(false));
+        assertFalse(coverage.isFullyScanned());
+    }
+
+    @Test
+    void markingEveryParamMakesCoverageFullyScanned() {
+        ParamCoverage coverage = new ParamCoverage(1, IntSets.EMPTY, new int[]{3, 1});
+        assertTrue(coverage.markScanned(coverage.ordinalOf(1)));
+        assertFalse(coverage.markScanned(coverage.ordinalOf(1)));
+        assertFalse(coverage.isFullyScanned());
+        assertTrue(coverage.markScanned(coverage.ordinalOf(3)));
+        assertTrue(coverage.isFullyScanned());
+        assertEquals("1|3", coverage.format(true));
+        assertEquals("", coverage.format(false));
+
+        coverage.add(2);
+        assertFalse(coverage.isFullyScanned());
+        assertEquals("2", coverage.format(false));
+    }
+
+    @Test
+    void emptyCoverageIsFullyScanned() {
+        ParamCoverage coverage = new ParamCoverage(1, IntSets.EMPTY, IntSets.EMPTY);
+        assertTrue(coverage.isFullyScanned());
+        assertEquals("", coverage.format(true));
+    }
+
+    @Test
+    void bitsetGrowsPastOneWord() {
+        ParamCoverage coverage = new ParamCoverage(1, IntSets.EMPTY, IntSets.EMPTY);
+        for (int id = 1; id <= 130; id++) {
+            assertEquals(id - 1, coverage.add(id));
+        }
+        for (int id = 1; id <= 130; id += 2) {
+            coverage.markScanned(coverage.ordinalOf(id));
+        }
+
+        assertTrue(coverage.isScanned(coverage.ordinalOf(129)));
+        assertFalse(coverage.isScanned(coverage.ordinalOf(130)));
+        assertEquals(65, coverage.format(true).split("\\|").length);
+        assertTrue(coverage.format(false).endsWith("|128|130"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathExclusionRulesTest {
+    private static PathExclusionRules compile(String rules) {
+        return PathExclusionRules.compile(rules, error -> {
+            throw new AssertionError("Unexpected rule error: " + error);
+        });
+    }
+
+    @Test
+    void blankOrCommentOnlyRulesCompileToNone() {
+        assertSame(PathExclusionRules.NONE, compile(null));
+        assertSame(PathExclusionRules.NONE, compile("  \n# chỉ có chú thích\n"));
+        assertFalse(PathExclusionRules.NONE.isExcluded("api.example.com", "/health"));
+    }
+
+    @Test
+    void exactPathMatchesOnlyThatPath() {
+        PathExclusionRules rules = compile("/health");
+        assertTrue(rules.isExcluded("api.example.com", "/health"));
+        assertFalse(rules.isExcluded("api.example.com", "/health/live"));
+        assertFalse(rules.isExcluded("api.example.com", "/healthz"));
+    }
+
+    @Test
+    void globstarAndTrailingSlashMatchByPrefix() {
+        PathExclusionRules rules = compile("/static/**\n/assets/");
+        assertTrue(rules.isExcluded("h", "/static"));
+        assertTrue(rules.isExcluded("h", "/static/js/app.js"));
+        assertTrue(rules.isExcluded("h", "/assets/img/logo.png"));
+        assertFalse(rules.isExcluded("h", "/staticfiles/app.js"));
+        assertFalse(rules.isExcluded("h", "/api/static/app.js"));
+    }
+
+    @Test
+    void singleStarMatchesOneSegmentAndGlobsMatchWithinSegment() {
+        PathExclusionRules rules = compile("/api/*/ping\n/files/*.map\n/v?/status");
+        assertTrue(rules.isExcluded("h", "/api/v1/ping"));
+        assertFalse(rules.isExcluded("h", "/api/v1/internal/ping"));
+        assertTrue(rules.isExcluded("h", "/files/app.js.map"));
+        assertFalse(rules.isExcluded("h", "/files/app.js"));
+        assertTrue(rules.isExcluded("h", "/v2/status"));
+        assertFalse(rules.isExcluded("h", "/v10/status"));
+    }
+
+    @Test
+    void hostRulesApplyOnlyToThatHostIgnoringCase() {
+        PathExclusionRules rules = compile("cdn.example.com\n*.tracking.net/beacon/**");
+        assertTrue(rules.isExcluded("cdn.example.com", "/anything"));
+        assertTrue(rules.isExcluded("CDN.Example.com", "/anything"));
+        assertFalse(rules.isExcluded("api.example.com", "/anything"));
+        assertTrue(rules.isExcluded("eu.tracking.net", "/beacon/1"));
+        assertTrue(rules.isExcluded("tracking.net", "/beacon/1"));
+        assertFalse(rules.isExcluded("nottracking.net", "/beacon/1"));
+        assertFalse(rules.isExcluded("eu.tracking.net", "/api/1"));
+    }
+
+    @Test
+    void lastMatchingRuleWins() {
+        PathExclusionRules rules = compile("/static/**\n!/static/api/**");
+        assertTrue(rules.isExcluded("h", "/static/app.js"));
+        assertFalse(rules.isExcluded("h", "/static/api/users"));
+
+        PathExclusionRules reversed = compile("!/static/api/**\n/static/**");
+        assertTrue(reversed.isExcluded("h", "/static/api/users"));
+    }
+
+    @Test
+    void invalidRulesAreReportedAndSkipped() {
+        List<String> errors = new ArrayList<>();
+        PathExclusionRules rules = PathExclusionRules.compile("/a**b\nhost:8080/x\napi.*.com/x\n/health", errors::add);
+        assertEquals(3, errors.size());
+        assertTrue(rules.isExcluded("h", "/health"));
+        assertFalse(rules.isExcluded("h", "/a**b"));
+    }
+
+    @Test
+    void globMatchesHandlesStarBacktracking() {
+        assertTrue(PathExclusionRules.globMatches("*.min.*", "app.min.js", 0, 10));
+        assertTrue(PathExclusionRules.globMatches("a*b*c", "xaXbYbZcx", 1, 8));
+        assertFalse(PathExclusionRules.globMatches("a*b", "acbd", 0, 4));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example;
+
+import burp.api.montoya.core.ToolType;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestFingerprintCacheTest {
+    private static final int PROJECT = "/tmp/project.db".hashCode();
+
+    private final RequestFingerprintCache cache = new RequestFingerprintCache(100, 60_000);
+
+    private static long endpoint(String path) {
+        return RequestFingerprintCache.endpoint(PROJECT, "GET", "api.example.com", path);
+    }
+
+    private static long fingerprint(String path, Set<String> params) {
+        return RequestFingerprintCache.fingerprint(PROJECT, ToolType.PROXY, "GET", "api.example.com", path, params);
+    }
+
+    /**
+     * Ghi nhớ một sự kiện như giai đoạn persist: generation được lấy trước khi sự kiện được xử lý.
+     */
+    private long remember(String path, Set<String> params) {
+        long endpoint = endpoint(path);
+        long fingerprint = fingerprint(path, params);
+        cache.remember(fingerprint, endpoint, cache.generation(endpoint));
+        return fingerprint;
+    }
+
+    @Test
+    void fingerprintIgnoresParameterOrderButNotProject() {
+        Set<String> ordered = new LinkedHashSet<>(List.of("a", "b", "c"));
+        Set<String> reversed = new LinkedHashSet<>(List.of("c", "b", "a"));
+        assertEquals(fingerprint("/users", ordered), fingerprint("/users", reversed));
+        assertNotEquals(fingerprint("/users", ordered), fingerprint("/users", Set.of("a", "b")));
+        assertNotEquals(fingerprint("/users", ordered),
+                RequestFingerprintCache.fingerprint(PROJECT + 1, ToolType.PROXY, "GET", "api.example.com", "/users", ordered));
+    }
+
+    @Test
+    void invalidatingAnEndpointKeepsOtherEndpointsCached() {
+        long users = remember("/users", Set.of("id"));
+        long orders = remember("/orders", Set.of("id"));
+        assertTrue(cache.contains(users, endpoint("/users")));
+
+        cache.invalidate(endpoint("/users"));
+        assertFalse(cache.contains(users, endpoint("/users")));
+        assertTrue(cache.contains(orders, endpoint("/orders")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void rememberAfterInvalidationWithStaleGenerationIsIgnored() {
+        // Sự kiện bắt đầu, rồi một luồng khác thay đổi endpoint trước khi sự kiện được ghi nhớ.
+        long endpoint = endpoint("/users");
+        long fingerprint = fingerprint("/users", Set.of("id"));
+        long started = cache.generation(endpoint);
+        cache.invalidate(endpoint);
+        cache.remember(fingerprint, endpoint, started);
+        assertFalse(cache.contains(fingerprint, endpoint));
+
+        started = cache.generation(endpoint);
+        cache.invalidateAll();
+        cache.remember(fingerprint, endpoint, started);
+        assertFalse(cache.contains(fingerprint, endpoint));
+
+        cache.remember(fingerprint, endpoint, cache.generation(endpoint));
+        assertTrue(cache.contains(fingerprint, endpoint));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void sizeStaysWithinCapacity() {
+        long last = 0;
+        for (int i = 0; i < 1000; i++) {
+            last = remember("/" + i, Set.of());
+        }
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+        assertTrue(cache.contains(last, endpoint("/999")));
+    }
+
+    @Test
+    void entriesExpire() throws InterruptedException {
+        RequestFingerprintCache expiring = new RequestFingerprintCache(100, 20);
+        long endpoint = endpoint("/users");
+        long fingerprint = fingerprint("/users", Set.of());
+        expiring.remember(fingerprint, endpoint, expiring.generation(endpoint));
+        assertTrue(expiring.contains(fingerprint, endpoint));
+        Thread.sleep(50);
+        assertFalse(expiring.contains(fingerprint, endpoint));
+        assertEquals(0, expiring.size());
+    }
+}
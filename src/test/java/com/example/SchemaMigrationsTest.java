@@ -0,0 +1,98 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigrationsTest {
+    private Connection connection;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void freshDatabaseIsMigratedToLatestVersion() throws SQLException {
+        assertEquals(0, SchemaMigrations.migrate(connection));
+        assertEquals(SchemaMigrations.LATEST_VERSION, queryInt("SELECT MAX(version) FROM schema_version"));
+        assertEquals(SchemaMigrations.LATEST_VERSION, queryInt("SELECT COUNT(*) FROM schema_version"));
+        assertTrue(exists("table", "api_log"));
+        assertTrue(exists("table", "api_event"));
+        assertTrue(exists("table", "api_log_archive"));
+        assertTrue(exists("index", "idx_api_log_unverified"));
+        assertTrue(exists("index", "idx_api_log_last_seen"));
+    }
+
+    @Test
+    void migratingTwiceIsNoOp() throws SQLException {
+        SchemaMigrations.migrate(connection);
+        assertEquals(SchemaMigrations.LATEST_VERSION, SchemaMigrations.migrate(connection));
+        assertEquals(SchemaMigrations.LATEST_VERSION, queryInt("SELECT COUNT(*) FROM schema_version"));
+    }
+
+    @Test
+    void unversionedDatabaseKeepsItsRows() throws SQLException {
+        // CSDL tạo trước khi có schema_version: đã có bảng api_log và dữ liệu.
+        SchemaMigrations.createBaseline(connection);
+        execute("INSERT INTO api_log (method_id, host_id, path, unscanned_params, scanned_params) VALUES (1, 1, '/v1/users', '1|2', '')");
+
+        assertEquals(0, SchemaMigrations.migrate(connection));
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM api_log WHERE path = '/v1/users'"));
+        assertEquals(SchemaMigrations.LATEST_VERSION, queryInt("SELECT MAX(version) FROM schema_version"));
+    }
+
+    @Test
+    void newerDatabaseIsLeftUntouched() throws SQLException {
+        SchemaMigrations.migrate(connection);
+        int newer = SchemaMigrations.LATEST_VERSION + 1;
+        execute("INSERT INTO schema_version (version, description, applied_at) VALUES (" + newer + ", 'future', 0)");
+
+        assertEquals(newer, SchemaMigrations.migrate(connection));
+        assertEquals(SchemaMigrations.LATEST_VERSION + 1, queryInt("SELECT COUNT(*) FROM schema_version"));
+    }
+
+    @Test
+    void failedStepIsRolledBackAndEarlierStepsAreKept() throws SQLException {
+        // Một bảng trùng tên chỉ mục của bước 2 làm bước đó thất bại.
+        execute("CREATE TABLE idx_api_log_last_seen (id INTEGER)");
+
+        SQLException error = assertThrows(SQLException.class, () -> SchemaMigrations.migrate(connection));
+        assertTrue(error.getMessage().startsWith("Schema migration 2 "), error.getMessage());
+        assertEquals(1, queryInt("SELECT MAX(version) FROM schema_version"));
+        assertTrue(exists("table", "api_log"));
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM sqlite_master WHERE name = 'idx_api_log_unverified'"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    private boolean exists(String type, String name) throws SQLException {
+        return queryInt("SELECT COUNT(*) FROM sqlite_master WHERE type = '" + type + "' AND name = '" + name + "'") == 1;
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
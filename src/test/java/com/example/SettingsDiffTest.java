@@ -0,0 +1,54 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettingsDiffTest {
+    private static SettingsDiff.Values values(String projectPath, String pathParameterRules, boolean autoBypass, int queueCapacity, int storageShards) {
+        return new SettingsDiff.Values(projectPath, "js,css", "404,405", "/health", "image", "html", pathParameterRules,
+                autoBypass, queueCapacity, 10, 0, storageShards);
+    }
+
+    @Test
+    void identicalSettingsProduceEmptyDiff() {
+        SettingsDiff diff = SettingsDiff.between(values("/p.db", "", false, 10_000, 1), values("/p.db", "", false, 10_000, 1));
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    void nullTextFieldsCompareAsEmpty() {
+        SettingsDiff.Values before = new SettingsDiff.Values("/p.db", null, null, null, null, null, null, false, 1, 1, 0, 1);
+        SettingsDiff.Values after = new SettingsDiff.Values("/p.db", "", "", "", "", "", "", false, 1, 1, 0, 1);
+        assertTrue(SettingsDiff.between(before, after).isEmpty());
+    }
+
+    @Test
+    void onlyChangedGroupsAreFlagged() {
+        SettingsDiff diff = SettingsDiff.between(values("/p.db", "", false, 10_000, 1), values("/p.db", "/users/{id}", false, 20_000, 1));
+        assertFalse(diff.isEmpty());
+        assertTrue(diff.rulesChanged);
+        assertTrue(diff.pipelineChanged);
+        assertFalse(diff.projectChanged);
+        assertFalse(diff.storageChanged);
+        assertFalse(diff.excludedExtensionsChanged);
+        assertFalse(diff.pathExclusionsChanged);
+        assertFalse(diff.contentTypesChanged);
+    }
+
+    @Test
+    void autoBypassIsFlaggedOnlyWhenEnabled() {
+        assertTrue(SettingsDiff.between(values("/p.db", "", false, 1, 1), values("/p.db", "", true, 1, 1)).autoBypassEnabled);
+        SettingsDiff disabled = SettingsDiff.between(values("/p.db", "", true, 1, 1), values("/p.db", "", false, 1, 1));
+        assertFalse(disabled.autoBypassEnabled);
+        assertTrue(disabled.isEmpty());
+    }
+
+    @Test
+    void projectAndStorageChangesAreFlagged() {
+        SettingsDiff diff = SettingsDiff.between(values("/a.db", "", false, 1, 1), values("/b.db", "", false, 1, 4));
+        assertTrue(diff.projectChanged);
+        assertTrue(diff.storageChanged);
+    }
+}
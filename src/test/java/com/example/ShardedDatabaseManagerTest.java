@@ -0,0 +1,139 @@
+package com.example;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.logging.Logging;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ShardedDatabaseManagerTest {
+    private static final int ENDPOINTS = 120;
+    private static final int PAGE = 7;
+    private static final int ID_COLUMN = 8;
+
+    @TempDir
+    Path dir;
+    private ShardedDatabaseManager store;
+
+    @BeforeEach
+    void open() throws IOException {
+        store = new ShardedDatabaseManager(api(), new Metrics(), 4);
+        store.initialize(dir.resolve("project.db").toString());
+        for (int i = 0; i < ENDPOINTS; i++) {
+            assertTrue(store.insertOrUpdateApi("GET", "h" + (i % 12) + ".example.com", "/items/" + i, Set.of("q")));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().matches("project\\.shard\\d+\\.db")),
+                    "các host phải được chia vào nhiều tệp");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    /**
+     * MontoyaApi chỉ hỗ trợ logging; một lỗi được ghi log làm test thất bại.
+     */
+    private static MontoyaApi api() {
+        Logging logging = (Logging) Proxy.newProxyInstance(Logging.class.getClassLoader(), new Class<?>[]{Logging.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("logToError")) {
+                        fail(String.valueOf(args[0]));
+                    }
+                    return null;
+                });
+        return (MontoyaApi) Proxy.newProxyInstance(MontoyaApi.class.getClassLoader(), new Class<?>[]{MontoyaApi.class},
+                (proxy, method, args) -> method.getName().equals("logging") ? logging : null);
+    }
+
+    private List<Object[]> pageThrough(ApiQuery query) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int offset = 0; ; offset += PAGE) {
+            List<Object[]> page = store.loadApiPage(query, offset, PAGE);
+            rows.addAll(page);
+            if (page.size() < PAGE) {
+                return rows;
+            }
+        }
+    }
+
+    @Test
+    void pagesAcrossShardsAreNewestFirstWithoutGapsOrDuplicates() {
+        ApiQuery query = new ApiQuery(false, "", null, false);
+        List<Object[]> rows = pageThrough(query);
+
+        assertEquals(ENDPOINTS, store.countApis(query));
+        assertEquals(ENDPOINTS, rows.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            int id = (int) rows.get(i)[ID_COLUMN];
+            assertTrue(ids.add(id), "id trùng: " + id);
+            if (i > 0) {
+                assertTrue((int) rows.get(i - 1)[ID_COLUMN] > id, "thứ tự id giảm dần tại dòng " + i);
+            }
+        }
+    }
+
+    @Test
+    void sortedPagesFollowTheColumnThenNewestFirst() {
+        ApiQuery query = new ApiQuery(false, "", "host", true);
+        List<Object[]> rows = pageThrough(query);
+
+        assertEquals(ENDPOINTS, rows.size());
+        List<Object[]> expected = new ArrayList<>(rows);
+        expected.sort(Comparator.<Object[], String>comparing(row -> (String) row[1])
+                .thenComparing(row -> (int) row[ID_COLUMN], Comparator.reverseOrder()));
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(expected.get(i)[ID_COLUMN], rows.get(i)[ID_COLUMN], "dòng " + i);
+        }
+    }
+
+    @Test
+    void jumpingToAnOffsetMatchesSequentialPaging() {
+        int[] all = store.loadApiIds(new ApiQuery(false, "", "path", false), 0, ENDPOINTS);
+        assertEquals(ENDPOINTS, all.length);
+
+        // Một lượt xem mới chưa có vị trí nào được ghi nhớ: offset 60 phải đọc qua các dòng đứng trước.
+        ApiQuery query = new ApiQuery(false, "", "path", false);
+        assertArrayEquals(Arrays.copyOfRange(all, 60, 60 + PAGE), store.loadApiIds(query, 60, PAGE));
+        // Sau đó trang trước và trang sau được đọc từ các vị trí đã ghi nhớ.
+        assertArrayEquals(Arrays.copyOfRange(all, 20, 20 + PAGE), store.loadApiIds(query, 20, PAGE));
+        assertArrayEquals(Arrays.copyOfRange(all, 67, 67 + PAGE), store.loadApiIds(query, 67, PAGE));
+        assertArrayEquals(Arrays.copyOfRange(all, ENDPOINTS - 3, ENDPOINTS), store.loadApiIds(query, ENDPOINTS - 3, PAGE));
+    }
+
+    @Test
+    void filteredPagesSkipRowsOfOtherStatuses() throws Exception {
+        ApiQuery unverified = new ApiQuery(true, "", null, false);
+        int[] first = store.loadApiIds(unverified, 0, 10);
+        store.updateStatus(DatabaseManager.StatusChange.BYPASS, first, (method, host, path, flags) -> {
+        });
+
+        assertEquals(ENDPOINTS - 10, store.countApis(new ApiQuery(true, "", null, false)));
+        List<Object[]> rows = pageThrough(new ApiQuery(true, "", null, false));
+        assertEquals(ENDPOINTS - 10, rows.size());
+        for (Object[] row : rows) {
+            assertEquals(Boolean.FALSE, row[6]);
+        }
+    }
+}
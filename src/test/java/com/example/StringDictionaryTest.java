@@ -0,0 +1,102 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StringDictionaryTest {
+    private Connection connection;
+    private StringDictionary dictionary;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        dictionary = new StringDictionary("host_dict");
+        dictionary.load(connection);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void valuesAreStoredOnceAndReloaded() throws SQLException {
+        int first = dictionary.getOrCreate("api.example.com");
+        assertEquals(first, dictionary.getOrCreate("api.example.com"));
+        assertArrayEquals(new int[]{1, 2}, dictionary.getOrCreateAll(List.of("cdn.example.com", "api.example.com", "cdn.example.com")));
+
+        StringDictionary reloaded = new StringDictionary("host_dict");
+        reloaded.load(connection);
+        assertEquals(first, reloaded.idOf("api.example.com"));
+        assertEquals("cdn.example.com", reloaded.value(2));
+        assertEquals(StringDictionary.ABSENT, reloaded.idOf("other.example.com"));
+    }
+
+    @Test
+    void newIdsFollowTheLargestIdWhenTableHasGaps() throws SQLException {
+        execute("INSERT INTO host_dict (id, value) VALUES (1, 'a'), (5, 'b')");
+        dictionary.load(connection);
+
+        assertEquals(6, dictionary.getOrCreate("c"));
+        assertEquals(7, dictionary.getOrCreate("d"));
+        assertEquals(4, queryInt("SELECT COUNT(*) FROM host_dict"));
+    }
+
+    @Test
+    void rolledBackValuesAreForgottenAndTheirIdsReused() throws SQLException {
+        dictionary.getOrCreate("a");
+        connection.setAutoCommit(false);
+        int b = dictionary.getOrCreate("b");
+        dictionary.getOrCreate("c");
+        connection.rollback();
+        dictionary.rollback();
+
+        assertEquals(StringDictionary.ABSENT, dictionary.idOf("b"));
+        assertNull(dictionary.value(b));
+        // ID kế tiếp được cấp lại từ trạng thái đã commit, không trùng khóa chính với dòng nào.
+        assertEquals(b, dictionary.getOrCreate("d"));
+        connection.commit();
+        dictionary.commit();
+        assertEquals(2, queryInt("SELECT COUNT(*) FROM host_dict"));
+        assertEquals("d", dictionary.value(b));
+    }
+
+    @Test
+    void committedValuesSurviveALaterRollback() throws SQLException {
+        connection.setAutoCommit(false);
+        int a = dictionary.getOrCreate("a");
+        connection.commit();
+        dictionary.commit();
+        int b = dictionary.getOrCreate("b");
+        connection.rollback();
+        dictionary.rollback();
+
+        assertEquals(a, dictionary.idOf("a"));
+        assertEquals(StringDictionary.ABSENT, dictionary.idOf("b"));
+        assertEquals(b, dictionary.getOrCreate("c"));
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
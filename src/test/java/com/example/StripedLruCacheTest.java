@@ -0,0 +1,64 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedLruCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedFirst() {
+        StripedLruCache<String> cache = new StripedLruCache<>(3, 1);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        // Truy cập làm khóa 1 thành mới nhất; khóa 2 bị loại thay cho nó.
+        assertEquals("a", cache.get(1));
+        cache.put(4, "d");
+
+        assertEquals(3, cache.size());
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("d", cache.get(4));
+    }
+
+    @Test
+    void eachSegmentHoldsItsShareOfCapacity() {
+        StripedLruCache<Long> cache = new StripedLruCache<>(64, 16);
+        List<Long> keys = new ArrayList<>();
+        for (long i = 0; i < 10_000; i++) {
+            long key = Fnv64.mix(Fnv64.OFFSET_BASIS, Long.toString(i));
+            keys.add(key);
+            cache.put(key, i);
+        }
+        assertTrue(cache.size() <= 64, "size " + cache.size());
+        long last = keys.get(keys.size() - 1);
+        assertEquals(9_999L, cache.get(last));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void removeKeepsAValueWrittenByAnotherThread() {
+        StripedLruCache<String> cache = new StripedLruCache<>(8, 2);
+        cache.put(7, "old");
+        String read = cache.get(7);
+        cache.put(7, "new");
+        cache.remove(7, read);
+        assertEquals("new", cache.get(7));
+        cache.remove(7, "new");
+        assertNull(cache.get(7));
+    }
+
+    @Test
+    void segmentCountMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedLruCache<String>(8, 3));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example;
+
+import burp.api.montoya.core.ToolType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficPipelineTest {
+    /**
+     * Giữ các sự kiện ở giai đoạn parse cho đến khi được mở, để hàng đợi đầy theo ý muốn.
+     */
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final AtomicInteger persistedScanner = new AtomicInteger();
+    private final AtomicInteger persistedProxy = new AtomicInteger();
+    private TrafficPipeline pipeline;
+
+    @AfterEach
+    void shutdown() {
+        gate.countDown();
+        pipeline.shutdown();
+    }
+
+    private TrafficPipeline pipeline(int capacity, int sampleRate) {
+        pipeline = new TrafficPipeline(null, new Metrics(), event -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TrafficPipeline.ParsedEvent(event, event.rawPath, Set.of(), 0, 0);
+        }, parsed -> {
+            if (parsed.event.toolType == ToolType.SCANNER) {
+                persistedScanner.incrementAndGet();
+            } else {
+                persistedProxy.incrementAndGet();
+            }
+        }, parsed -> parsed.path.hashCode(), capacity, sampleRate);
+        return pipeline;
+    }
+
+    private static TrafficPipeline.Event event(ToolType tool, String path) {
+        return new TrafficPipeline.Event(tool, "GET", "api.example.com", path, null, false);
+    }
+
+    @Test
+    void scannerEventsWaitInBacklogInsteadOfBeingDropped() throws InterruptedException {
+        pipeline(2, 1);
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/a")));
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/b")));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(pipeline.submit(event(ToolType.SCANNER, "/scan/" + i)));
+        }
+        // Luồng gửi không bị chặn dù hàng đợi đầy.
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(50, pipeline.scannerBacklogCount());
+        assertEquals(52, pipeline.pendingCount());
+        // Proxy/Repeater bị bỏ trước trong khi Scanner còn chờ.
+        assertFalse(pipeline.submit(event(ToolType.REPEATER, "/c")));
+        assertEquals(1, pipeline.shedOverflow());
+
+        gate.countDown();
+        awaitDrained();
+        assertEquals(50, persistedScanner.get());
+        assertEquals(2, persistedProxy.get());
+        assertEquals(1, pipeline.shedTotal());
+    }
+
+    @Test
+    void concurrentAdmissionNeverExceedsCapacity() throws InterruptedException {
+        pipeline(100, 1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int producer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (pipeline.submit(event(ToolType.PROXY, "/p" + producer + "/" + i))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        assertEquals(100, accepted.get());
+        assertEquals(100, pipeline.pendingCount());
+        assertEquals(8000 - 100, pipeline.shedTotal());
+        gate.countDown();
+        awaitDrained();
+        assertEquals(100, persistedProxy.get());
+    }
+
+    @Test
+    void duplicatesAreShedFromHalfCapacity() throws InterruptedException {
+        pipeline(8, 1);
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/dup")));
+        // Dưới một nửa dung lượng, sự kiện trùng vẫn được nhận.
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/dup")));
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/x")));
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/y")));
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/dup")));
+        assertFalse(pipeline.submit(event(ToolType.PROXY, "/dup")));
+        assertEquals(1, pipeline.shedDuplicates());
+        // Scanner không bị lọc trùng.
+        assertTrue(pipeline.submit(event(ToolType.SCANNER, "/dup")));
+        assertTrue(pipeline.submit(event(ToolType.SCANNER, "/dup")));
+
+        gate.countDown();
+        awaitDrained();
+        assertEquals(5, persistedProxy.get());
+        assertEquals(2, persistedScanner.get());
+    }
+
+    @Test
+    void raisingCapacityDrainsScannerBacklog() throws InterruptedException {
+        pipeline(1, 1);
+        assertTrue(pipeline.submit(event(ToolType.PROXY, "/a")));
+        assertTrue(pipeline.submit(event(ToolType.SCANNER, "/s1")));
+        assertTrue(pipeline.submit(event(ToolType.SCANNER, "/s2")));
+        assertEquals(2, pipeline.scannerBacklogCount());
+
+        pipeline.configure(10, 1);
+        assertEquals(0, pipeline.scannerBacklogCount());
+        assertEquals(3, pipeline.pendingCount());
+        gate.countDown();
+        awaitDrained();
+        assertEquals(2, persistedScanner.get());
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, pipeline.pendingCount());
+    }
+}